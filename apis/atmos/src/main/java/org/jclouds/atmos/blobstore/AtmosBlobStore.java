@@ -23,9 +23,11 @@ import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.jclouds.Constants;
 import org.jclouds.atmos.AtmosClient;
 import org.jclouds.atmos.blobstore.functions.BlobStoreListOptionsToListOptions;
 import org.jclouds.atmos.blobstore.functions.BlobToObject;
@@ -59,6 +61,7 @@ import org.jclouds.io.PayloadSlicer;
 import com.google.common.base.Supplier;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 @Singleton
 public class AtmosBlobStore extends BaseBlobStore {
@@ -80,8 +83,9 @@ public class AtmosBlobStore extends BaseBlobStore {
             BlobStoreListOptionsToListOptions container2ContainerListOptions,
             DirectoryEntryListToResourceMetadataList container2ResourceList, Crypto crypto,
             BlobToHttpGetOptions blob2ObjectGetOptions, Provider<FetchBlobMetadata> fetchBlobMetadataProvider,
-            LoadingCache<String, Boolean> isPublic) {
-      super(context, blobUtils, defaultLocation, locations, slicer);
+            LoadingCache<String, Boolean> isPublic,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      super(context, blobUtils, defaultLocation, locations, slicer, userExecutor);
       this.blob2ObjectGetOptions = checkNotNull(blob2ObjectGetOptions, "blob2ObjectGetOptions");
       this.sync = checkNotNull(sync, "sync");
       this.container2ContainerListOptions = checkNotNull(container2ContainerListOptions,
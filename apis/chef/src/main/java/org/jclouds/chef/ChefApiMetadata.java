@@ -21,6 +21,8 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
 import static org.jclouds.Constants.PROPERTY_TIMEOUTS_PREFIX;
 import static org.jclouds.chef.config.ChefProperties.CHEF_BOOTSTRAP_DATABAG;
+import static org.jclouds.chef.config.ChefProperties.CHEF_SEARCH_MAX_IN_FLIGHT;
+import static org.jclouds.chef.config.ChefProperties.CHEF_SEARCH_PAGE_SIZE;
 import static org.jclouds.chef.config.ChefProperties.CHEF_UPDATE_GEMS;
 import static org.jclouds.chef.config.ChefProperties.CHEF_UPDATE_GEM_SYSTEM;
 import static org.jclouds.chef.config.ChefProperties.CHEF_USE_OMNIBUS;
@@ -79,6 +81,8 @@ public class ChefApiMetadata extends BaseHttpApiMetadata<ChefApi> {
       properties.setProperty(CHEF_UPDATE_GEM_SYSTEM, "false");
       properties.setProperty(CHEF_UPDATE_GEMS, "false");
       properties.setProperty(CHEF_USE_OMNIBUS, "true");
+      properties.setProperty(CHEF_SEARCH_PAGE_SIZE, "1000");
+      properties.setProperty(CHEF_SEARCH_MAX_IN_FLIGHT, "4");
       return properties;
    }
 
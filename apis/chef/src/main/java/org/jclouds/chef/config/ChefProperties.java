@@ -107,6 +107,22 @@ public final class ChefProperties {
     */
    public static final String CHEF_USE_OMNIBUS = "chef.use-omnibus";
 
+   /**
+    * Integer property. Default (1000).
+    * <p>
+    * The number of nodes requested in each page when listing nodes through the
+    * search index.
+    */
+   public static final String CHEF_SEARCH_PAGE_SIZE = "chef.search-page-size";
+
+   /**
+    * Integer property. Default (4).
+    * <p>
+    * The maximum number of search pages requested at the same time when
+    * listing nodes with an executor.
+    */
+   public static final String CHEF_SEARCH_MAX_IN_FLIGHT = "chef.search-max-in-flight";
+
    private ChefProperties() {
       throw new AssertionError("intentionally unimplemented");
    }
@@ -26,13 +26,25 @@ import com.google.common.collect.Iterables;
 public class SearchResult<T> extends LinkedHashSet<T> {
    private static final long serialVersionUID = 4000610660948065287L;
    private long start;
+   private long total;
 
    SearchResult() {
    }
 
+   /**
+    * Creates the last results of a search, so that its total is {@code start}
+    * plus the number of results.
+    */
    public SearchResult(long start, Iterable<T> results) {
       this.start = start;
       Iterables.addAll(this, results);
+      this.total = start + size();
+   }
+
+   public SearchResult(long start, long total, Iterable<T> results) {
+      this.start = start;
+      this.total = total;
+      Iterables.addAll(this, results);
    }
 
    /**
@@ -43,4 +55,12 @@ public class SearchResult<T> extends LinkedHashSet<T> {
       return start;
    }
 
+   /**
+    * 
+    * @return the number of results matching the search, across all pages
+    */
+   public long getTotal() {
+      return total;
+   }
+
 }
@@ -44,6 +44,7 @@ import org.jclouds.http.internal.SignatureWire;
 import org.jclouds.io.ByteStreams2;
 import org.jclouds.io.Payload;
 import org.jclouds.io.Payloads;
+import org.jclouds.io.payloads.HashingPayload;
 import org.jclouds.io.payloads.MultipartForm;
 import org.jclouds.io.payloads.Part;
 import org.jclouds.io.payloads.RSAEncryptingPayload;
@@ -94,7 +95,8 @@ public class SignedHeaderAuth implements HttpRequestFilter {
    }
 
    public HttpRequest filter(HttpRequest input) throws HttpException {
-      HttpRequest request = input.toBuilder().endpoint(input.getEndpoint().toString().replace("%3F", "?")).build();
+      HttpRequest request = input.toBuilder().endpoint(input.getEndpoint().toString().replace("%3F", "?"))
+            .payload(hashing(input.getPayload())).build();
       String contentHash = hashBody(request.getPayload());
       Multimap<String, String> headers = ArrayListMultimap.create();
       headers.put("X-Ops-Content-Hash", contentHash);
@@ -153,6 +155,20 @@ public class SignedHeaderAuth implements HttpRequestFilter {
       return path.endsWith("/") && path.length() > 1 ? path.substring(0, path.length() - 1) : path;
    }
 
+   /**
+    * Wraps the payload so that its SHA-1 is kept with it, and recomputed while it is sent, rather
+    * than read again when the request is signed again, as on a retry or redirect.
+    */
+   private static Payload hashing(Payload payload) {
+      if (payload == null || payload instanceof HashingPayload || payload instanceof MultipartForm
+            || !payload.isRepeatable()) {
+         return payload;
+      }
+      HashingPayload hashing = new HashingPayload(payload, sha1());
+      hashing.setSensitive(payload.isSensitive());
+      return hashing;
+   }
+
    @VisibleForTesting
    String hashBody(Payload payload) {
       if (payload == null)
@@ -161,6 +177,10 @@ public class SignedHeaderAuth implements HttpRequestFilter {
       checkArgument(payload != null, "payload was null");
       checkArgument(payload.isRepeatable(), "payload must be repeatable: " + payload);
       try {
+         if (payload instanceof HashingPayload && ((HashingPayload) payload).getHashFunctions().contains(sha1())) {
+            // computes the other hashes of the payload in the same pass
+            return base64().encode(((HashingPayload) payload).hash(sha1()).asBytes());
+         }
          return base64().encode(ByteStreams2.hashAndClose(payload.getInput(), sha1()).asBytes());
       } catch (Exception e) {
          Throwables.propagateIfPossible(e);
@@ -52,6 +52,7 @@ public class ParseSearchDatabagFromJson implements Function<HttpResponse, Search
 
    static class Response {
       long start;
+      long total;
       List<Row> rows;
    }
 
@@ -71,7 +72,7 @@ public class ParseSearchDatabagFromJson implements Function<HttpResponse, Search
          }
       });
 
-      return new SearchResult<DatabagItem>(returnVal.start, items);
+      return new SearchResult<DatabagItem>(returnVal.start, returnVal.total, items);
    }
 
 }
@@ -16,62 +16,154 @@
  */
 package org.jclouds.chef.strategy.internal;
 
-import com.google.common.base.Function;
-import com.google.common.base.Joiner;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import org.jclouds.chef.ChefApi;
 import org.jclouds.chef.domain.Node;
+import org.jclouds.chef.domain.SearchResult;
+import org.jclouds.chef.options.SearchOptions;
 import org.jclouds.logging.Logger;
 
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.concurrent.Callable;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.transform;
-import static com.google.common.util.concurrent.Futures.allAsList;
 import static com.google.common.util.concurrent.Futures.getUnchecked;
 
+/**
+ * Lists nodes through the search index, a page at a time, instead of getting
+ * each node by name. Only the pages being iterated or fetched are held in
+ * memory. Pages are requested until the {@code total} reported by the search
+ * is reached, as the server may return fewer rows than asked for.
+ */
 public abstract class BaseListNodesImpl {
 
    protected final ChefApi api;
+   protected final int pageSize;
+   protected final int maxInFlight;
 
    protected Logger logger = Logger.NULL;
 
-   BaseListNodesImpl(ChefApi api) {
+   BaseListNodesImpl(ChefApi api, int pageSize, int maxInFlight) {
       this.api = checkNotNull(api, "api");
+      checkArgument(pageSize > 0, "pageSize must be positive");
+      checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+      this.pageSize = pageSize;
+      this.maxInFlight = maxInFlight;
    }
 
-   protected Iterable<? extends Node> execute(Iterable<String> toGet) {
-      Iterable<? extends Node> nodes = transform(toGet, new Function<String, Node>() {
+   /**
+    * Lists the nodes matching the query, requesting the next page only once
+    * the previous one has been iterated.
+    */
+   protected Iterable<? extends Node> execute(final String query) {
+      return new FluentIterable<Node>() {
+         @Override
+         public Iterator<Node> iterator() {
+            return new AbstractIterator<Node>() {
+               private int start;
+               private boolean last;
+               private Iterator<? extends Node> page = ImmutableList.<Node> of().iterator();
+
                @Override
-               public Node apply(final String input) {
-                  return api.getNode(input);
+               protected Node computeNext() {
+                  while (!page.hasNext()) {
+                     if (last) {
+                        return endOfData();
+                     }
+                     SearchResult<? extends Node> result = searchPage(query, start);
+                     start += result.size();
+                     // an empty page means the index shrank while paging
+                     last = result.isEmpty() || start >= result.getTotal();
+                     page = result.iterator();
+                  }
+                  return page.next();
                }
-            }
-      );
-
-      logger.trace(String.format("getting nodes: %s", Joiner.on(',').join(toGet)));
-      return nodes;
-
+            };
+         }
+      };
    }
 
+   /**
+    * Lists the nodes matching the query, keeping up to {@link #maxInFlight}
+    * pages requested ahead of the one being iterated, once the first page has
+    * told how many nodes there are.
+    */
    protected Iterable<? extends Node> executeConcurrently(final ListeningExecutorService executor,
-         Iterable<String> toGet) {
-      ListenableFuture<List<Node>> futures = allAsList(transform(toGet, new Function<String, ListenableFuture<Node>>() {
+         final String query) {
+      return new FluentIterable<Node>() {
          @Override
-         public ListenableFuture<Node> apply(final String input) {
-            return executor.submit(new Callable<Node>() {
+         public Iterator<Node> iterator() {
+            return new AbstractIterator<Node>() {
+               private final Deque<ListenableFuture<SearchResult<? extends Node>>> inFlight =
+                     new ArrayDeque<ListenableFuture<SearchResult<? extends Node>>>();
+               private int nextStart;
+               private int polledStart;
+               private int stride = pageSize;
+               private long total = -1;
+               private boolean last;
+               private Iterator<? extends Node> page = ImmutableList.<Node> of().iterator();
+
                @Override
-               public Node call() throws Exception {
-                  return api.getNode(input);
+               protected Node computeNext() {
+                  while (!page.hasNext()) {
+                     while (!last && inFlight.size() < maxInFlight
+                           && (total < 0 ? inFlight.isEmpty() : nextStart < total)) {
+                        inFlight.add(submitPage(executor, query, nextStart));
+                        nextStart += stride;
+                     }
+                     if (inFlight.isEmpty()) {
+                        return endOfData();
+                     }
+                     SearchResult<? extends Node> result = getUnchecked(inFlight.poll());
+                     total = result.getTotal();
+                     polledStart += result.size();
+                     if (result.isEmpty()) {
+                        // the index shrank while paging, so the pages after this one are empty too
+                        last = true;
+                        cancelInFlight();
+                     } else if (result.size() < stride && polledStart < total) {
+                        // the server returns fewer rows than asked for, so request
+                        // the pages ahead again from where this one ended
+                        stride = result.size();
+                        nextStart = polledStart;
+                        cancelInFlight();
+                     }
+                     page = result.iterator();
+                  }
+                  return page.next();
                }
-            });
+
+               private void cancelInFlight() {
+                  for (ListenableFuture<?> future : inFlight) {
+                     future.cancel(true);
+                  }
+                  inFlight.clear();
+               }
+            };
          }
-      }));
+      };
+   }
+
+   private ListenableFuture<SearchResult<? extends Node>> submitPage(ListeningExecutorService executor,
+         final String query, final int start) {
+      return executor.submit(new Callable<SearchResult<? extends Node>>() {
+         @Override
+         public SearchResult<? extends Node> call() throws Exception {
+            return searchPage(query, start);
+         }
+      });
+   }
 
-      logger.trace(String.format("getting nodes: %s", Joiner.on(',').join(toGet)));
-      return getUnchecked(futures);
+   private SearchResult<? extends Node> searchPage(String query, int start) {
+      logger.trace(String.format("searching nodes: %s, start: %d, rows: %d", query, start, pageSize));
+      return api.searchNodes(new SearchOptions().query(query).start(start).rows(pageSize));
    }
 
 }
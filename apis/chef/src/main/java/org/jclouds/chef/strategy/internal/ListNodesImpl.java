@@ -31,22 +31,27 @@ import org.jclouds.logging.Logger;
 
 import java.util.concurrent.ExecutorService;
 
+import static org.jclouds.chef.config.ChefProperties.CHEF_SEARCH_MAX_IN_FLIGHT;
+import static org.jclouds.chef.config.ChefProperties.CHEF_SEARCH_PAGE_SIZE;
+
 @Singleton
 public class ListNodesImpl extends BaseListNodesImpl implements ListNodes {
 
+   private static final String ALL_NODES = "*:*";
 
    @Resource
    @Named(ChefProperties.CHEF_LOGGER)
    protected Logger logger = Logger.NULL;
 
    @Inject
-   ListNodesImpl(ChefApi api) {
-      super(api);
+   ListNodesImpl(ChefApi api, @Named(CHEF_SEARCH_PAGE_SIZE) int pageSize,
+         @Named(CHEF_SEARCH_MAX_IN_FLIGHT) int maxInFlight) {
+      super(api, pageSize, maxInFlight);
    }
 
    @Override
    public Iterable<? extends Node> execute() {
-      return super.execute(api.listNodes());
+      return super.execute(ALL_NODES);
    }
 
    @Override
@@ -56,7 +61,7 @@ public class ListNodesImpl extends BaseListNodesImpl implements ListNodes {
 
 
    private Iterable<? extends Node> executeConcurrently(ListeningExecutorService executor) {
-      return super.executeConcurrently(executor, api.listNodes());
+      return super.executeConcurrently(executor, ALL_NODES);
    }
 
 }
@@ -20,7 +20,7 @@ import javax.annotation.Resource;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
-import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import org.jclouds.chef.ChefApi;
@@ -31,32 +31,53 @@ import org.jclouds.logging.Logger;
 
 import java.util.concurrent.ExecutorService;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.chef.config.ChefProperties.CHEF_SEARCH_MAX_IN_FLIGHT;
+import static org.jclouds.chef.config.ChefProperties.CHEF_SEARCH_PAGE_SIZE;
+
 @Singleton
 public class ListNodesInEnvironmentImpl extends BaseListNodesImpl implements ListNodesInEnvironment {
 
+   private static final String QUERY_SYNTAX = "\\+-!():^[]\"{}~*?|&/ ";
+
    @Resource
    @Named(ChefProperties.CHEF_LOGGER)
    protected Logger logger = Logger.NULL;
 
    @Inject
-   ListNodesInEnvironmentImpl(ChefApi api) {
-      super(api);
+   ListNodesInEnvironmentImpl(ChefApi api, @Named(CHEF_SEARCH_PAGE_SIZE) int pageSize,
+         @Named(CHEF_SEARCH_MAX_IN_FLIGHT) int maxInFlight) {
+      super(api, pageSize, maxInFlight);
    }
 
    @Override
    public Iterable<? extends Node> execute(String environmentName) {
-      return super.execute(api.listNodesInEnvironment(environmentName));
+      return super.execute(inEnvironment(environmentName));
    }
 
    @Override
    public Iterable<? extends Node> execute(ExecutorService executor, String environmentName) {
-      return this.executeConcurrently(MoreExecutors.listeningDecorator(executor), environmentName);
+      return super.executeConcurrently(MoreExecutors.listeningDecorator(executor), inEnvironment(environmentName));
    }
 
+   @VisibleForTesting
+   static String inEnvironment(String environmentName) {
+      return "chef_environment:" + escape(checkNotNull(environmentName, "environmentName"));
+   }
 
-   private Iterable<? extends Node> executeConcurrently(ListeningExecutorService executor,
-         String environmentName) {
-      return super.executeConcurrently(executor, api.listNodesInEnvironment(environmentName));
+   /**
+    * Escapes the characters the search query syntax gives a meaning to, such
+    * as the {@code -} and {@code :} environment names may contain.
+    */
+   private static String escape(String term) {
+      StringBuilder escaped = new StringBuilder(term.length());
+      for (char c : term.toCharArray()) {
+         if (QUERY_SYNTAX.indexOf(c) >= 0) {
+            escaped.append('\\');
+         }
+         escaped.append(c);
+      }
+      return escaped.toString();
    }
 
 }
@@ -16,11 +16,15 @@
  */
 package org.jclouds.chef.filters;
 
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.hash.Hashing.md5;
+import static com.google.common.hash.Hashing.sha1;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertEqualsNoOrder;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.PrivateKey;
 
 import javax.inject.Provider;
@@ -33,6 +37,8 @@ import org.jclouds.domain.Credentials;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpUtils;
 import org.jclouds.http.internal.SignatureWire;
+import org.jclouds.io.Payloads;
+import org.jclouds.io.payloads.HashingPayload;
 import org.jclouds.logging.config.NullLoggingModule;
 import org.jclouds.rest.internal.BaseRestApiTest.MockModule;
 import org.jclouds.util.Strings2;
@@ -47,6 +53,7 @@ import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.io.ByteSource;
 import com.google.common.net.HttpHeaders;
 import com.google.inject.Injector;
 import com.google.inject.Key;
@@ -125,6 +132,34 @@ public class SignedHeaderAuthTest {
       assertEquals(signing_obj.canonicalPath("/path/"), "/path");
    }
 
+   @Test
+   void hashingPayloadComputesOtherHashesWithTheContentHash() {
+      HashingPayload payload = new HashingPayload(Payloads.newStringPayload(BODY), md5(), sha1());
+
+      assertEquals(signing_obj.hashBody(payload), HASHED_BODY);
+      assertEquals(payload.getHashes().get(md5()), md5().hashString(BODY, UTF_8));
+   }
+
+   @Test
+   void filterKeepsTheContentHashWithThePayload() {
+      final int[] opened = new int[1];
+      HttpRequest request = HttpRequest.builder().method(HttpMethod.POST).endpoint("http://localhost/" + PATH)
+            .payload(Payloads.newByteSourcePayload(new ByteSource() {
+               @Override
+               public InputStream openStream() {
+                  opened[0]++;
+                  return Strings2.toInputStream(BODY);
+               }
+            })).build();
+
+      request = signing_obj.filter(request);
+      assertTrue(request.getPayload() instanceof HashingPayload);
+      // signing again, as on a retry, reuses the hash
+      request = signing_obj.filter(request);
+      assertEquals(request.getFirstHeaderOrNull("X-Ops-Content-Hash"), HASHED_BODY);
+      assertEquals(opened[0], 1);
+   }
+
    @Test
    void shouldGenerateTheCorrectStringToSignAndSignature() {
 
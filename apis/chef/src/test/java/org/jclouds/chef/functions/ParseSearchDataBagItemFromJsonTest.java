@@ -59,4 +59,12 @@ public class ParseSearchDataBagItemFromJsonTest {
       assertEquals(result.size(), 1);
       assertEquals(result.iterator().next(), item);
    }
+
+   public void testTotal() {
+      String searchJson = "{\"total\":3,\"start\":2,\"rows\":[{\"raw_data\": {\"id\":\"item3\"}}]}";
+      SearchResult<DatabagItem> result = handler.apply(HttpResponse.builder().statusCode(200).message("ok")
+            .payload(searchJson).build());
+      assertEquals(result.size(), 1);
+      assertEquals(result.getTotal(), 3);
+   }
 }
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.chef.strategy.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.easymock.EasyMock;
+import org.jclouds.chef.ChefApi;
+import org.jclouds.chef.domain.Node;
+import org.jclouds.chef.domain.SearchResult;
+import org.jclouds.chef.options.SearchOptions;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Tests behavior of {@code ListNodesImpl} and {@code ListNodesInEnvironmentImpl}
+ */
+@Test(groups = "unit", testName = "ListNodesImplTest")
+public class ListNodesImplTest {
+
+   private static Node node(String name) {
+      return Node.builder().name(name).environment("_default").build();
+   }
+
+   private static void expectPage(ChefApi chef, String query, int start, int total, Node... nodes) {
+      expectPage(chef, query, start, 2, total, nodes);
+   }
+
+   private static void expectPage(ChefApi chef, String query, int start, int rows, int total, Node... nodes) {
+      EasyMock.<SearchResult<? extends Node>> expect(
+            chef.searchNodes(new SearchOptions().query(query).start(start).rows(rows))).andReturn(
+            new SearchResult<Node>(start, total, ImmutableList.copyOf(nodes)));
+   }
+
+   public void testPagesThroughSearchResults() {
+      ChefApi chef = createMock(ChefApi.class);
+      expectPage(chef, "*:*", 0, 3, node("a"), node("b"));
+      expectPage(chef, "*:*", 2, 3, node("c"));
+      replay(chef);
+
+      ListNodesImpl strategy = new ListNodesImpl(chef, 2, 1);
+
+      assertEquals(ImmutableSet.copyOf(strategy.execute()), ImmutableSet.of(node("a"), node("b"), node("c")));
+      verify(chef);
+   }
+
+   public void testStopsAtTotal() {
+      ChefApi chef = createMock(ChefApi.class);
+      expectPage(chef, "chef_environment:prod", 0, 2, node("a"), node("b"));
+      replay(chef);
+
+      ListNodesInEnvironmentImpl strategy = new ListNodesInEnvironmentImpl(chef, 2, 1);
+
+      assertEquals(ImmutableSet.copyOf(strategy.execute("prod")), ImmutableSet.of(node("a"), node("b")));
+      verify(chef);
+   }
+
+   public void testStopsOnEmptyPage() {
+      ChefApi chef = createMock(ChefApi.class);
+      expectPage(chef, "chef_environment:prod", 0, 4, node("a"), node("b"));
+      // nodes were deleted while paging
+      expectPage(chef, "chef_environment:prod", 2, 4);
+      replay(chef);
+
+      ListNodesInEnvironmentImpl strategy = new ListNodesInEnvironmentImpl(chef, 2, 1);
+
+      assertEquals(ImmutableSet.copyOf(strategy.execute("prod")), ImmutableSet.of(node("a"), node("b")));
+      verify(chef);
+   }
+
+   public void testDoesNotSearchUntilIterated() {
+      ChefApi chef = createMock(ChefApi.class);
+      replay(chef);
+
+      new ListNodesImpl(chef, 2, 1).execute();
+      verify(chef);
+   }
+
+   public void testConcurrentPagesAreBoundedAndOrdered() {
+      ChefApi chef = createMock(ChefApi.class);
+      expectPage(chef, "*:*", 0, 5, node("a"), node("b"));
+      expectPage(chef, "*:*", 2, 5, node("c"), node("d"));
+      expectPage(chef, "*:*", 4, 5, node("e"));
+      replay(chef);
+
+      ListNodesImpl strategy = new ListNodesImpl(chef, 2, 2);
+
+      assertEquals(ImmutableList.copyOf(strategy.execute(MoreExecutors.sameThreadExecutor())),
+            ImmutableList.of(node("a"), node("b"), node("c"), node("d"), node("e")));
+      verify(chef);
+   }
+
+   public void testConcurrentWithThreadPool() {
+      ChefApi chef = createMock(ChefApi.class);
+      expectPage(chef, "*:*", 0, 3, node("a"), node("b"));
+      expectPage(chef, "*:*", 2, 3, node("c"));
+      replay(chef);
+
+      ExecutorService executor = Executors.newFixedThreadPool(3);
+      try {
+         ListNodesImpl strategy = new ListNodesImpl(chef, 2, 3);
+         assertEquals(ImmutableList.copyOf(strategy.execute(executor)),
+               ImmutableList.of(node("a"), node("b"), node("c")));
+      } finally {
+         executor.shutdownNow();
+      }
+      verify(chef);
+   }
+
+   public void testPagesUntilTotalWhenServerReturnsFewerRows() {
+      ChefApi chef = createMock(ChefApi.class);
+      expectPage(chef, "*:*", 0, 4, 5, node("a"), node("b"));
+      expectPage(chef, "*:*", 2, 4, 5, node("c"), node("d"));
+      expectPage(chef, "*:*", 4, 4, 5, node("e"));
+      replay(chef);
+
+      ListNodesImpl strategy = new ListNodesImpl(chef, 4, 1);
+
+      assertEquals(ImmutableList.copyOf(strategy.execute()),
+            ImmutableList.of(node("a"), node("b"), node("c"), node("d"), node("e")));
+      verify(chef);
+   }
+
+   public void testConcurrentPagesUntilTotalWhenServerReturnsFewerRows() {
+      ChefApi chef = createMock(ChefApi.class);
+      expectPage(chef, "*:*", 0, 4, 5, node("a"), node("b"));
+      expectPage(chef, "*:*", 2, 4, 5, node("c"), node("d"));
+      expectPage(chef, "*:*", 4, 4, 5, node("e"));
+      replay(chef);
+
+      ListNodesImpl strategy = new ListNodesImpl(chef, 4, 2);
+
+      assertEquals(ImmutableList.copyOf(strategy.execute(MoreExecutors.sameThreadExecutor())),
+            ImmutableList.of(node("a"), node("b"), node("c"), node("d"), node("e")));
+      verify(chef);
+   }
+
+   public void testEnvironmentNameIsEscaped() {
+      assertEquals(ListNodesInEnvironmentImpl.inEnvironment("dev-us:east"), "chef_environment:dev\\-us\\:east");
+   }
+}
@@ -18,6 +18,7 @@ package org.jclouds.ec2;
 
 import static org.jclouds.aws.reference.AWSConstants.PROPERTY_AUTH_TAG;
 import static org.jclouds.aws.reference.AWSConstants.PROPERTY_HEADER_TAG;
+import static org.jclouds.compute.config.ComputeServiceProperties.POLL_BATCHED;
 import static org.jclouds.compute.config.ComputeServiceProperties.RESOURCENAME_DELIMITER;
 import static org.jclouds.ec2.reference.EC2Constants.PROPERTY_EC2_AMI_OWNERS;
 import static org.jclouds.ec2.reference.EC2Constants.PROPERTY_EC2_AUTO_ALLOCATE_ELASTIC_IPS;
@@ -63,6 +64,7 @@ public final class EC2ApiMetadata extends BaseHttpApiMetadata<EC2Api> {
       properties.setProperty(PROPERTY_EC2_AUTO_ALLOCATE_ELASTIC_IPS, "false");
       properties.setProperty(RESOURCENAME_DELIMITER, "#");
       properties.setProperty(PROPERTY_EC2_GENERATE_INSTANCE_NAMES, "true");
+      properties.setProperty(POLL_BATCHED, "true");
       return properties;
    }
 
@@ -18,15 +18,15 @@ package org.jclouds.ec2.compute.extensions;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Predicates.notNull;
-import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Iterables.transform;
+import static org.jclouds.ec2.compute.util.EC2ComputeUtils.concatInParallelSkippingFailures;
 
 import java.util.NoSuchElementException;
 import java.util.Set;
 
-import javax.inject.Inject;
+import javax.annotation.Resource;
 import javax.inject.Named;
 
 import org.jclouds.Constants;
@@ -36,6 +36,7 @@ import org.jclouds.compute.domain.SecurityGroup;
 import org.jclouds.compute.extensions.SecurityGroupExtension;
 import org.jclouds.compute.functions.GroupNamingConvention;
 import org.jclouds.compute.functions.GroupNamingConvention.Factory;
+import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.domain.Location;
 import org.jclouds.ec2.EC2Api;
 import org.jclouds.ec2.compute.domain.RegionAndName;
@@ -43,6 +44,7 @@ import org.jclouds.ec2.compute.domain.RegionNameAndIngressRules;
 import org.jclouds.ec2.domain.RunningInstance;
 import org.jclouds.ec2.domain.UserIdGroupPair;
 import org.jclouds.location.Region;
+import org.jclouds.logging.Logger;
 import org.jclouds.net.domain.IpPermission;
 import org.jclouds.net.domain.IpProtocol;
 
@@ -54,6 +56,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
 
 /**
  * An extension to compute service to allow for the manipulation of {@link SecurityGroup}s. Implementation
@@ -61,6 +64,14 @@ import com.google.common.util.concurrent.ListeningExecutorService;
  */
 public class EC2SecurityGroupExtension implements SecurityGroupExtension {
 
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_REQUEST_TIMEOUT)
+   protected Long maxTime;
+
    protected final EC2Api client;
    protected final ListeningExecutorService userExecutor;
    protected final Supplier<Set<String>> regions;
@@ -339,10 +350,8 @@ public class EC2SecurityGroupExtension implements SecurityGroupExtension {
    }
 
    protected Iterable<? extends org.jclouds.ec2.domain.SecurityGroup> pollSecurityGroups() {
-      Iterable<? extends Set<? extends org.jclouds.ec2.domain.SecurityGroup>> groups
-         = transform(regions.get(), allSecurityGroupsInRegion());
-
-      return concat(groups);
+      return concatInParallelSkippingFailures(regions.get(), allSecurityGroupsInRegion(), userExecutor, maxTime,
+            logger, "security groups");
    }
 
 
@@ -16,18 +16,12 @@
  */
 package org.jclouds.ec2.compute.strategy;
 
-import static com.google.common.collect.Iterables.concat;
-import static com.google.common.collect.Iterables.transform;
-import static com.google.common.util.concurrent.Futures.allAsList;
-import static com.google.common.util.concurrent.Futures.getUnchecked;
+import static org.jclouds.ec2.compute.util.EC2ComputeUtils.concatInParallelSkippingFailures;
 
-import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
-import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -38,8 +32,8 @@ import org.jclouds.ec2.options.DescribeImagesOptions;
 import org.jclouds.logging.Logger;
 
 import com.google.common.base.Function;
-import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
 
 @Singleton
 public class DescribeImagesParallel implements
@@ -48,6 +42,10 @@ public class DescribeImagesParallel implements
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
 
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_REQUEST_TIMEOUT)
+   protected Long maxTime;
+
    protected final EC2Api api;
    final ListeningExecutorService userExecutor;
 
@@ -60,23 +58,13 @@ public class DescribeImagesParallel implements
    @Override
    public Iterable<? extends org.jclouds.ec2.domain.Image> apply(
             final Iterable<Entry<String, DescribeImagesOptions>> queries) {
-      ListenableFuture<List<Set<? extends org.jclouds.ec2.domain.Image>>> futures
-         = allAsList(transform(
-                            queries,
-                            new Function<Entry<String, DescribeImagesOptions>,
-                            ListenableFuture<? extends Set<? extends org.jclouds.ec2.domain.Image>>>() {
-                               public ListenableFuture<Set<? extends org.jclouds.ec2.domain.Image>> apply(
-                                                                                                          final Entry<String, DescribeImagesOptions> from) {
-                                  return userExecutor.submit(new Callable<Set<? extends org.jclouds.ec2.domain.Image>>() {
-                                        @Override
-                                        public Set<? extends org.jclouds.ec2.domain.Image> call() throws Exception {
-                                           return api.getAMIApi().get().describeImagesInRegion(from.getKey(), from.getValue());
-                                        }
-                                     });
-                               }
-                            }));
       logger.trace("amis");
-
-      return concat(getUnchecked(futures));
+      return concatInParallelSkippingFailures(queries,
+            new Function<Entry<String, DescribeImagesOptions>, Set<? extends org.jclouds.ec2.domain.Image>>() {
+               @Override
+               public Set<? extends org.jclouds.ec2.domain.Image> apply(Entry<String, DescribeImagesOptions> from) {
+                  return api.getAMIApi().get().describeImagesInRegion(from.getKey(), from.getValue());
+               }
+            }, userExecutor, maxTime, logger, "amis");
    }
 }
@@ -22,11 +22,12 @@ import static com.google.common.base.Predicates.in;
 import static com.google.common.base.Predicates.notNull;
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Iterables.toArray;
 import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Multimaps.filterKeys;
 import static com.google.common.collect.Multimaps.index;
 import static com.google.common.collect.Multimaps.transformValues;
+import static org.jclouds.ec2.compute.util.EC2ComputeUtils.concatInParallel;
+import static org.jclouds.ec2.compute.util.EC2ComputeUtils.concatInParallelSkippingFailures;
 
 import java.util.Set;
 
@@ -50,6 +51,7 @@ import org.jclouds.logging.Logger;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -64,7 +66,7 @@ public class EC2ListNodesStrategy implements ListNodesStrategy {
 
    @Inject(optional = true)
    @Named(Constants.PROPERTY_REQUEST_TIMEOUT)
-   protected static Long maxTime;
+   protected Long maxTime;
 
    protected final EC2Api client;
    protected final Supplier<Set<String>> regions;
@@ -88,8 +90,8 @@ public class EC2ListNodesStrategy implements ListNodesStrategy {
 
    @Override
    public Set<? extends NodeMetadata> listNodesByIds(Iterable<String> ids) {
-      Multimap<String, String> idsByHandles = index(ids, splitHandle(1));
-      Multimap<String, String> idsByRegions = transformValues(idsByHandles, splitHandle(0));
+      Multimap<String, String> handlesByRegions = index(ids, splitHandle(0));
+      Multimap<String, String> idsByRegions = transformValues(handlesByRegions, splitHandle(1));
       Multimap<String, String> idsByConfiguredRegions = filterKeys(idsByRegions, in(regions.get()));
 
       if (idsByConfiguredRegions.isEmpty()) {
@@ -111,17 +113,15 @@ public class EC2ListNodesStrategy implements ListNodesStrategy {
    }
 
    protected Iterable<? extends RunningInstance> pollRunningInstances() {
-      Iterable<? extends Set<? extends Reservation<? extends RunningInstance>>> reservations
-         = transform(regions.get(), allInstancesInRegion());
-      
-      return concat(concat(reservations));
+      Iterable<Reservation<? extends RunningInstance>> reservations = concatInParallelSkippingFailures(
+            regions.get(), allInstancesInRegion(), userExecutor, maxTime, logger, "reservations");
+      return concat(reservations);
    }
 
    protected Iterable<? extends RunningInstance> pollRunningInstancesByRegionsAndIds(final Multimap<String, String> idsByRegions) {
-      Iterable<? extends Set<? extends Reservation<? extends RunningInstance>>> reservations
-         = transform(idsByRegions.keySet(), instancesByIdInRegion(idsByRegions));
-      
-      return concat(concat(reservations));
+      Iterable<Reservation<? extends RunningInstance>> reservations = concatInParallel(idsByRegions.keySet(),
+            instancesByIdInRegion(idsByRegions), userExecutor, maxTime);
+      return concat(reservations);
    }
 
    protected Function<String, String> splitHandle(final int pos) {
@@ -145,14 +145,18 @@ public class EC2ListNodesStrategy implements ListNodesStrategy {
       };
    }
 
+   /**
+    * Filters on {@code instance-id} rather than passing the ids as {@code InstanceId.N}, since the latter fails
+    * the whole call with {@code InvalidInstanceID.NotFound} when any of the ids is not known (yet or anymore).
+    */
    protected Function<String, Set<? extends Reservation<? extends RunningInstance>>>
                                                                   instancesByIdInRegion(final Multimap<String, String> idsByRegions) {
       return new Function<String, Set<? extends Reservation<? extends RunningInstance>>>() {
                  
          @Override
          public Set<? extends Reservation<? extends RunningInstance>> apply(String from) {
-            return client.getInstanceApi().get()
-               .describeInstancesInRegion(from, toArray(idsByRegions.get(from), String.class));
+            return client.getInstanceApi().get().describeInstancesInRegionWithFilter(from,
+                  ImmutableMultimap.<String, String> builder().putAll("instance-id", idsByRegions.get(from)).build());
          }
          
       };
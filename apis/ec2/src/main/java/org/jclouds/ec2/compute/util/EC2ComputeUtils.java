@@ -16,10 +16,33 @@
  */
 package org.jclouds.ec2.compute.util;
 
+import static com.google.common.base.Throwables.propagate;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.jclouds.util.Throwables2.containsThrowable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
 import javax.inject.Singleton;
 
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LocationScope;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.AuthorizationException;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
 
 @Singleton
 public class EC2ComputeUtils {
@@ -28,4 +51,89 @@ public class EC2ComputeUtils {
       return location.getScope() == LocationScope.ZONE ? location.getId() : null;
    }
 
+   /**
+    * Calls {@code describe} for every key, usually a region, on the executor and concatenates the
+    * results in the order of the keys.
+    * <p/>
+    * Fails if any key fails or does not complete within {@code maxTime} milliseconds of the call,
+    * so that a missing result is never mistaken for a missing resource. Use this for lookups by id.
+    *
+    * @param maxTime
+    *           milliseconds to wait for all keys, or null to wait indefinitely
+    */
+   public static <K, T> List<T> concatInParallel(Iterable<K> keys,
+         Function<? super K, ? extends Iterable<? extends T>> describe, ListeningExecutorService executor,
+         @Nullable Long maxTime) {
+      return concatInParallel(keys, describe, executor, maxTime, false, Logger.NULL, null);
+   }
+
+   /**
+    * Like {@link #concatInParallel(Iterable, Function, ListeningExecutorService, Long)}, except that
+    * keys which fail or time out are logged and left out, so that one slow or unavailable region
+    * does not hide the others. Only suitable for full listings, where a partial answer is better
+    * than none. Authorization errors are always propagated, as is the first error when no key
+    * succeeds.
+    */
+   public static <K, T> List<T> concatInParallelSkippingFailures(Iterable<K> keys,
+         Function<? super K, ? extends Iterable<? extends T>> describe, ListeningExecutorService executor,
+         @Nullable Long maxTime, Logger logger, String logPrefix) {
+      return concatInParallel(keys, describe, executor, maxTime, true, logger, logPrefix);
+   }
+
+   private static <K, T> List<T> concatInParallel(Iterable<K> keys,
+         final Function<? super K, ? extends Iterable<? extends T>> describe, ListeningExecutorService executor,
+         @Nullable Long maxTime, boolean skipFailures, Logger logger, String logPrefix) {
+      Map<K, Future<? extends Iterable<? extends T>>> futures = Maps.newLinkedHashMap();
+      for (final K key : keys) {
+         futures.put(key, executor.submit(new Callable<Iterable<? extends T>>() {
+            @Override
+            public Iterable<? extends T> call() {
+               return describe.apply(key);
+            }
+         }));
+      }
+      long deadline = maxTime != null ? System.nanoTime() + MILLISECONDS.toNanos(maxTime) : 0;
+      ImmutableList.Builder<T> results = ImmutableList.builder();
+      Map<K, Exception> errors = Maps.newLinkedHashMap();
+      for (Entry<K, Future<? extends Iterable<? extends T>>> future : futures.entrySet()) {
+         Exception error;
+         try {
+            if (maxTime != null) {
+               results.addAll(future.getValue().get(Math.max(0, deadline - System.nanoTime()), NANOSECONDS));
+            } else {
+               results.addAll(future.getValue().get());
+            }
+            continue;
+         } catch (TimeoutException e) {
+            future.getValue().cancel(true);
+            error = new UncheckedTimeoutException(String.format("no response from %s within %sms", future.getKey(),
+                  maxTime), e);
+         } catch (ExecutionException e) {
+            error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+         } catch (InterruptedException e) {
+            cancelAll(futures.values());
+            Thread.currentThread().interrupt();
+            throw propagate(e);
+         }
+         if (!skipFailures || containsThrowable(AuthorizationException.class).apply(error)) {
+            cancelAll(futures.values());
+            throw propagate(error);
+         }
+         errors.put(future.getKey(), error);
+      }
+      if (!errors.isEmpty()) {
+         if (errors.size() == futures.size()) {
+            throw propagate(Iterables.get(errors.values(), 0));
+         }
+         logger.warn("%s: partial results, no response from %s: %s", logPrefix, errors.keySet(), errors);
+      }
+      return results.build();
+   }
+
+   private static void cancelAll(Iterable<? extends Future<?>> futures) {
+      for (Future<?> future : futures) {
+         future.cancel(true);
+      }
+   }
+
 }
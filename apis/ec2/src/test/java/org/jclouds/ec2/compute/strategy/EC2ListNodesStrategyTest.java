@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.ec2.compute.strategy;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Set;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.ec2.EC2Api;
+import org.jclouds.ec2.domain.InstanceState;
+import org.jclouds.ec2.domain.Reservation;
+import org.jclouds.ec2.domain.RunningInstance;
+import org.jclouds.ec2.features.InstanceApi;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "EC2ListNodesStrategyTest")
+public class EC2ListNodesStrategyTest {
+
+   @SuppressWarnings("unchecked")
+   public void testListNodesByIdsFiltersOnInstanceIdSoUnknownIdsAreLeftOut() {
+      EC2Api client = createMock(EC2Api.class);
+      InstanceApi instanceClient = createMock(InstanceApi.class);
+
+      RunningInstance instance = RunningInstance.builder().instanceId("i-aaaa").imageId("image")
+            .instanceType("m1.small").instanceState(InstanceState.RUNNING).rawState("running").region("us-east-1")
+            .build();
+
+      expect(client.getInstanceApi()).andReturn((Optional) Optional.of(instanceClient)).atLeastOnce();
+      // InstanceId.N would fail the whole call with InvalidInstanceID.NotFound for i-bbbb
+      expect(instanceClient.describeInstancesInRegionWithFilter("us-east-1",
+            ImmutableMultimap.of("instance-id", "i-aaaa", "instance-id", "i-bbbb"))).andReturn(
+            Set.class.cast(ImmutableSet.of(Reservation.<RunningInstance> builder().region("us-east-1").instance(instance).build())));
+
+      replay(client, instanceClient);
+
+      EC2ListNodesStrategy strategy = new EC2ListNodesStrategy(client,
+            Suppliers.<Set<String>> ofInstance(ImmutableSet.of("us-east-1")),
+            new Function<RunningInstance, NodeMetadata>() {
+               @Override
+               public NodeMetadata apply(RunningInstance input) {
+                  return new NodeMetadataBuilder().id(input.getRegion() + "/" + input.getId())
+                        .status(NodeMetadata.Status.RUNNING).build();
+               }
+            }, MoreExecutors.sameThreadExecutor());
+
+      Set<? extends NodeMetadata> nodes = strategy.listNodesByIds(ImmutableSet.of("us-east-1/i-aaaa", "us-east-1/i-bbbb"));
+
+      assertEquals(nodes.size(), 1);
+      assertEquals(nodes.iterator().next().getId(), "us-east-1/i-aaaa");
+      verify(client, instanceClient);
+   }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.ec2.compute.util;
+
+import static org.jclouds.ec2.compute.util.EC2ComputeUtils.concatInParallel;
+import static org.jclouds.ec2.compute.util.EC2ComputeUtils.concatInParallelSkippingFailures;
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.AuthorizationException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+@Test(groups = "unit", testName = "EC2ComputeUtilsTest")
+public class EC2ComputeUtilsTest {
+
+   private final ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors
+         .newCachedThreadPool());
+
+   @AfterClass
+   void shutdown() {
+      executor.shutdownNow();
+   }
+
+   public void testConcatInParallelKeepsOrderOfKeys() {
+      List<String> results = concatInParallel(ImmutableList.of("us-east-1", "eu-west-1"),
+            new Function<String, Iterable<String>>() {
+               @Override
+               public Iterable<String> apply(String region) {
+                  return ImmutableList.of(region + "/a", region + "/b");
+               }
+            }, executor, null);
+      assertEquals(results, ImmutableList.of("us-east-1/a", "us-east-1/b", "eu-west-1/a", "eu-west-1/b"));
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testConcatInParallelPropagatesFailedRegion() {
+      concatInParallel(ImmutableList.of("us-east-1", "eu-west-1"), new Function<String, Iterable<String>>() {
+         @Override
+         public Iterable<String> apply(String region) {
+            if (region.equals("eu-west-1")) {
+               throw new IllegalStateException("unavailable");
+            }
+            return ImmutableSet.of(region);
+         }
+      }, executor, null);
+   }
+
+   @Test(expectedExceptions = UncheckedTimeoutException.class)
+   public void testConcatInParallelPropagatesSlowRegion() {
+      final CountDownLatch never = new CountDownLatch(1);
+      concatInParallel(ImmutableList.of("us-east-1", "ap-south-1"), new Function<String, Iterable<String>>() {
+         @Override
+         public Iterable<String> apply(String region) {
+            if (region.equals("ap-south-1")) {
+               try {
+                  never.await();
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }
+            return ImmutableSet.of(region);
+         }
+      }, executor, 500L);
+   }
+
+   public void testConcatInParallelSkippingFailuresOmitsFailedAndSlowRegions() {
+      final CountDownLatch never = new CountDownLatch(1);
+      List<String> results = concatInParallelSkippingFailures(
+            ImmutableList.of("us-east-1", "eu-west-1", "ap-south-1"), new Function<String, Iterable<String>>() {
+               @Override
+               public Iterable<String> apply(String region) {
+                  if (region.equals("eu-west-1")) {
+                     throw new IllegalStateException("unavailable");
+                  } else if (region.equals("ap-south-1")) {
+                     try {
+                        never.await();
+                     } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                     }
+                  }
+                  return ImmutableSet.of(region);
+               }
+            }, executor, 500L, Logger.NULL, "test");
+      assertEquals(results, ImmutableList.of("us-east-1"));
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testConcatInParallelSkippingFailuresPropagatesWhenAllRegionsFail() {
+      concatInParallelSkippingFailures(ImmutableList.of("us-east-1", "eu-west-1"),
+            new Function<String, Iterable<String>>() {
+               @Override
+               public Iterable<String> apply(String region) {
+                  throw new IllegalStateException(region);
+               }
+            }, executor, null, Logger.NULL, "test");
+   }
+
+   @Test(expectedExceptions = AuthorizationException.class)
+   public void testConcatInParallelSkippingFailuresPropagatesAuthorizationException() {
+      concatInParallelSkippingFailures(ImmutableList.of("us-east-1", "eu-west-1"),
+            new Function<String, Iterable<String>>() {
+               @Override
+               public Iterable<String> apply(String region) {
+                  if (region.equals("eu-west-1")) {
+                     throw new AuthorizationException();
+                  }
+                  return ImmutableSet.of(region);
+               }
+            }, executor, null, Logger.NULL, "test");
+   }
+}
@@ -27,6 +27,12 @@ public final class FilesystemConstants {
     /** Specify if the Content-Type of a file should be autodetected if it is not set */
     public static final String PROPERTY_AUTO_DETECT_CONTENT_TYPE = "jclouds.filesystem.auto-detect-content-type";
 
+    /**
+     * Maximum number of blobs whose extended attributes are cached in memory; 0 disables the cache.
+     * Entries are revalidated against the length and modification time of their file.
+     */
+    public static final String PROPERTY_METADATA_CACHE_SIZE = "jclouds.filesystem.metadata-cache-size";
+
     private FilesystemConstants() {
         throw new AssertionError("intentionally unimplemented");
     }
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.filesystem.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.util.Closeables2;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.io.Files;
+
+/**
+ * Caches the metadata {@link FilesystemStorageStrategyImpl} reads from extended attributes.
+ * <p/>
+ * Parsed attributes are kept in memory, bounded to the most recently used {@code maximumSize}
+ * blobs. When the file system does not store the {@code user.content-md5} attribute, the MD5
+ * computed from the content is also appended to a log, {@value #CONTENT_MD5_LOG}, at the root of
+ * the container, so that each file is hashed once rather than on every read or list. Each log
+ * remembers the MD5s of at most {@code maximumSize} blobs as well.
+ * <p/>
+ * Every entry records the length and modification time of the file it describes and is ignored
+ * once the file no longer matches them, so files changed outside of jclouds are read again.
+ */
+final class FilesystemMetadataCache {
+
+   /** Name of the per-container MD5 log, which is hidden from listings. */
+   static final String CONTENT_MD5_LOG = ".jclouds-content-md5";
+
+   private static final char SEPARATOR = ' ';
+   private static final String REMOVED = "-";
+
+   private final long maximumSize;
+   private final Cache<String, Entry> entries;
+   private final ConcurrentMap<String, ContentMD5Log> logs = Maps.newConcurrentMap();
+
+   FilesystemMetadataCache(long maximumSize) {
+      checkArgument(maximumSize >= 0, "maximumSize must be non-negative but was: %s", maximumSize);
+      this.maximumSize = maximumSize;
+      this.entries = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+   }
+
+   /**
+    * @return the cached metadata of the blob, or null if it is absent or describes another version
+    *         of the file
+    */
+   @Nullable
+   Entry get(String container, String key, long length, long lastModified) {
+      Entry entry = entries.getIfPresent(cacheKey(container, key));
+      return entry != null && entry.isCurrent(length, lastModified) ? entry : null;
+   }
+
+   void put(String container, String key, Entry entry) {
+      entries.put(cacheKey(container, key), entry);
+   }
+
+   /** Forgets a blob which has been overwritten or removed. */
+   void invalidate(String container, String key) throws IOException {
+      entries.invalidate(cacheKey(container, key));
+      ContentMD5Log log = logs.get(container);
+      if (log != null) {
+         log.remove(key);
+      }
+   }
+
+   /** Forgets every blob of a container which has been cleared or deleted. */
+   void invalidateContainer(String container) {
+      String prefix = cacheKey(container, "");
+      for (String cacheKey : entries.asMap().keySet()) {
+         if (cacheKey.startsWith(prefix)) {
+            entries.invalidate(cacheKey);
+         }
+      }
+      logs.remove(container);
+   }
+
+   /**
+    * @return the logged MD5 of the blob, or null if it was not logged for this version of the file
+    */
+   @Nullable
+   HashCode getContentMD5(File containerDirectory, String container, String key, long length,
+         long lastModified) throws IOException {
+      if (maximumSize == 0) {
+         return null;
+      }
+      return log(containerDirectory, container).get(key, length, lastModified);
+   }
+
+   void putContentMD5(File containerDirectory, String container, String key, long length, long lastModified,
+         HashCode contentMD5) throws IOException {
+      if (maximumSize == 0) {
+         return;
+      }
+      log(containerDirectory, container).put(key, new LoggedMD5(length, lastModified, contentMD5));
+   }
+
+   private ContentMD5Log log(File containerDirectory, String container) {
+      ContentMD5Log log = logs.get(container);
+      if (log == null) {
+         ContentMD5Log newLog = new ContentMD5Log(new File(containerDirectory, CONTENT_MD5_LOG));
+         log = logs.putIfAbsent(container, newLog);
+         if (log == null) {
+            log = newLog;
+         }
+      }
+      return log;
+   }
+
+   private static String cacheKey(String container, String key) {
+      // container names cannot contain the separator
+      return container + File.separator + key;
+   }
+
+   /** Metadata of one version of a blob. */
+   static final class Entry {
+      private final long length;
+      private final long lastModified;
+      final String contentDisposition;
+      final String contentEncoding;
+      final String contentLanguage;
+      final String contentType;
+      final HashCode contentMD5;
+      final Date expires;
+      final Map<String, String> userMetadata;
+
+      Entry(long length, long lastModified, @Nullable String contentDisposition, @Nullable String contentEncoding,
+            @Nullable String contentLanguage, @Nullable String contentType, HashCode contentMD5,
+            @Nullable Date expires, Map<String, String> userMetadata) {
+         this.length = length;
+         this.lastModified = lastModified;
+         this.contentDisposition = contentDisposition;
+         this.contentEncoding = contentEncoding;
+         this.contentLanguage = contentLanguage;
+         this.contentType = contentType;
+         this.contentMD5 = contentMD5;
+         this.expires = expires;
+         this.userMetadata = ImmutableMap.copyOf(userMetadata);
+      }
+
+      boolean isCurrent(long length, long lastModified) {
+         return this.length == length && this.lastModified == lastModified;
+      }
+   }
+
+   private static final class LoggedMD5 {
+      private final long length;
+      private final long lastModified;
+      private final HashCode contentMD5;
+
+      LoggedMD5(long length, long lastModified, HashCode contentMD5) {
+         this.length = length;
+         this.lastModified = lastModified;
+         this.contentMD5 = contentMD5;
+      }
+   }
+
+   /**
+    * Append-only log with one line per put or removal: the MD5, or {@value #REMOVED}, followed by
+    * the length, modification time and key. The log is read in full the first time a container is
+    * used and rewritten without superseded lines once they outnumber the live ones. Only the most
+    * recently used {@code maximumSize} MD5s are live; older ones are dropped by the next rewrite.
+    */
+   private final class ContentMD5Log {
+      private final File file;
+      private final Map<String, LoggedMD5> md5s = new LinkedHashMap<String, LoggedMD5>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<String, LoggedMD5> eldest) {
+            return size() > maximumSize;
+         }
+      };
+      private int lines;
+      private boolean loaded;
+
+      ContentMD5Log(File file) {
+         this.file = file;
+      }
+
+      synchronized HashCode get(String key, long length, long lastModified) throws IOException {
+         load();
+         LoggedMD5 logged = md5s.get(key);
+         if (logged == null || logged.length != length || logged.lastModified != lastModified) {
+            return null;
+         }
+         return logged.contentMD5;
+      }
+
+      synchronized void put(String key, LoggedMD5 logged) throws IOException {
+         load();
+         if (key.indexOf('\n') != -1 || key.indexOf('\r') != -1) {
+            // cannot be represented in the log; the file is hashed on every read instead
+            return;
+         }
+         md5s.put(key, logged);
+         append(line(logged.contentMD5.toString(), logged, key));
+         compactIfSuperseded();
+      }
+
+      synchronized void remove(String key) throws IOException {
+         LoggedMD5 removed = loaded ? md5s.remove(key) : null;
+         if (removed != null) {
+            append(line(REMOVED, removed, key));
+            compactIfSuperseded();
+         }
+      }
+
+      private void load() throws IOException {
+         if (loaded) {
+            return;
+         }
+         loaded = true;
+         if (!file.isFile()) {
+            return;
+         }
+         BufferedReader reader = null;
+         try {
+            reader = Files.newReader(file, StandardCharsets.UTF_8);
+            String line;
+            while ((line = reader.readLine()) != null) {
+               ++lines;
+               parse(line);
+            }
+         } finally {
+            Closeables2.closeQuietly(reader);
+         }
+         compactIfSuperseded();
+      }
+
+      private void parse(String line) {
+         // the key may itself contain the separator
+         Iterable<String> fields = Splitter.on(SEPARATOR).limit(4).split(line);
+         String[] parts = Iterables.toArray(fields, String.class);
+         if (parts.length != 4) {
+            return;
+         }
+         String key = parts[3];
+         if (parts[0].equals(REMOVED)) {
+            md5s.remove(key);
+            return;
+         }
+         try {
+            md5s.put(key, new LoggedMD5(Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                  HashCode.fromString(parts[0])));
+         } catch (IllegalArgumentException iae) {
+            // truncated by a crash while appending
+            md5s.remove(key);
+         }
+      }
+
+      private void compactIfSuperseded() throws IOException {
+         if (lines > 2 * md5s.size()) {
+            compact();
+         }
+      }
+
+      private void compact() throws IOException {
+         StringBuilder content = new StringBuilder();
+         for (Map.Entry<String, LoggedMD5> entry : md5s.entrySet()) {
+            content.append(line(entry.getValue().contentMD5.toString(), entry.getValue(), entry.getKey()));
+         }
+         File tmp = new File(file.getPath() + ".tmp");
+         try {
+            Files.write(content, tmp, StandardCharsets.UTF_8);
+            if (!tmp.renameTo(file)) {
+               throw new IOException("could not rename " + tmp + " to " + file);
+            }
+         } catch (IOException ioe) {
+            tmp.delete();
+            throw ioe;
+         }
+         lines = md5s.size();
+      }
+
+      private void append(String line) throws IOException {
+         Files.append(line, file, StandardCharsets.UTF_8);
+         ++lines;
+      }
+
+      private String line(String hash, LoggedMD5 logged, String key) {
+         return hash + SEPARATOR + logged.length + SEPARATOR + logged.lastModified + SEPARATOR + key + '\n';
+      }
+   }
+}
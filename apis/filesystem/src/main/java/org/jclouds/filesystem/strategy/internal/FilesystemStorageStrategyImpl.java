@@ -17,6 +17,7 @@
 package org.jclouds.filesystem.strategy.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.emptyToNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.io.BaseEncoding.base16;
 import static java.nio.file.Files.getFileAttributeView;
@@ -42,7 +43,9 @@ import java.nio.file.attribute.UserDefinedFileAttributeView;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.UUID;
 
 import javax.annotation.Resource;
@@ -55,6 +58,7 @@ import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.BlobBuilder;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
 import org.jclouds.blobstore.domain.MutableStorageMetadata;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
@@ -69,15 +73,18 @@ import org.jclouds.filesystem.reference.FilesystemConstants;
 import org.jclouds.filesystem.util.Utils;
 import org.jclouds.io.ContentMetadata;
 import org.jclouds.io.Payload;
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.logging.Logger;
 import org.jclouds.rest.annotations.ParamValidators;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
@@ -107,6 +114,8 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
 
    private static final String BACK_SLASH = "\\";
 
+   private static final long DEFAULT_METADATA_CACHE_SIZE = 10000;
+
    @Resource
    protected Logger logger = Logger.NULL;
 
@@ -115,19 +124,29 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
    protected final boolean autoDetectContentType;
    protected final FilesystemContainerNameValidator filesystemContainerNameValidator;
    protected final FilesystemBlobKeyValidator filesystemBlobKeyValidator;
+   private final FilesystemMetadataCache metadataCache;
+
+   protected FilesystemStorageStrategyImpl(Provider<BlobBuilder> blobBuilders, String baseDir,
+         boolean autoDetectContentType, FilesystemContainerNameValidator filesystemContainerNameValidator,
+         FilesystemBlobKeyValidator filesystemBlobKeyValidator) {
+      this(blobBuilders, baseDir, autoDetectContentType, filesystemContainerNameValidator,
+            filesystemBlobKeyValidator, DEFAULT_METADATA_CACHE_SIZE);
+   }
 
    @Inject
    protected FilesystemStorageStrategyImpl(Provider<BlobBuilder> blobBuilders,
          @Named(FilesystemConstants.PROPERTY_BASEDIR) String baseDir,
          @Named(FilesystemConstants.PROPERTY_AUTO_DETECT_CONTENT_TYPE) boolean autoDetectContentType,
          FilesystemContainerNameValidator filesystemContainerNameValidator,
-         FilesystemBlobKeyValidator filesystemBlobKeyValidator) {
+         FilesystemBlobKeyValidator filesystemBlobKeyValidator,
+         @Named(FilesystemConstants.PROPERTY_METADATA_CACHE_SIZE) long metadataCacheSize) {
       this.blobBuilders = checkNotNull(blobBuilders, "filesystem storage strategy blobBuilders");
       this.baseDirectory = checkNotNull(baseDir, "filesystem storage strategy base directory");
       this.autoDetectContentType = autoDetectContentType;
       this.filesystemContainerNameValidator = checkNotNull(filesystemContainerNameValidator,
             "filesystem container name validator");
       this.filesystemBlobKeyValidator = checkNotNull(filesystemBlobKeyValidator, "filesystem blob key validator");
+      this.metadataCache = new FilesystemMetadataCache(metadataCacheSize);
    }
 
    @Override
@@ -226,6 +245,7 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
          return;
       }
       deleteDirectory(container, null);
+      metadataCache.invalidateContainer(container);
    }
 
    @Override
@@ -236,6 +256,7 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
    @Override
    public void clearContainer(String container, ListContainerOptions options) {
       filesystemContainerNameValidator.validate(container);
+      metadataCache.invalidateContainer(container);
       if (options.getDir() != null) {
          container += denormalize("/" + options.getDir());
       }
@@ -275,6 +296,9 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
    public boolean blobExists(String container, String key) {
       filesystemContainerNameValidator.validate(container);
       filesystemBlobKeyValidator.validate(key);
+      if (key.equals(FilesystemMetadataCache.CONTENT_MD5_LOG)) {
+         return false;
+      }
       try {
          return buildPathAndChecksIfBlobExists(container, key);
       } catch (IOException e) {
@@ -309,9 +333,62 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
             return string.substring(containerPathLength);
          }
       });
+      blobNames.remove(FilesystemMetadataCache.CONTENT_MD5_LOG);
       return blobNames;
    }
 
+   /**
+    * Returns the blob keys inside a container which begin with the given prefix and sort after the
+    * marker, sorted. The directory tree is walked in the order of the keys, beginning with the
+    * directory named by the prefix up to its last separator, and the walk stops after
+    * {@code maxResults} entries. It does not enter subdirectories whose keys all fall outside the
+    * prefix, before the marker or into a common prefix which already has a blob.
+    */
+   @Override
+   public NavigableSet<String> getBlobKeysInsideContainer(String container, String prefix, String delimiter,
+         String marker, int maxResults) throws IOException {
+      filesystemContainerNameValidator.validate(container);
+      NavigableSet<String> blobNames = Sets.newTreeSet();
+      if (!containerExists(container)) {
+         return blobNames;
+      }
+
+      File containerFile = openFolder(container);
+      File directory = containerFile;
+      int index = prefix == null ? -1 : prefix.lastIndexOf('/');
+      if (index > 0 && !prefix.contains("..")) {
+         directory = new File(containerFile, prefix.substring(0, index).replace('/', File.separatorChar));
+         if (!directory.isDirectory()) {
+            return blobNames;
+         }
+      }
+      final int containerPathLength = containerFile.getAbsolutePath().length() + 1;
+      Function<String, String> toKey = new Function<String, String>() {
+         @Override
+         public String apply(String string) {
+            return string.substring(containerPathLength);
+         }
+      };
+      if (directory != containerFile) {
+         String key = toKey.apply(directory.getAbsolutePath()) + File.separator;
+         if (isListed(key.replace(File.separatorChar, '/'), prefix, marker)) {
+            blobNames.add(key);
+         }
+      }
+      new KeyWalk(blobNames, toKey, emptyToNull(prefix), emptyToNull(delimiter), marker, maxResults)
+            .walk(directory);
+      return blobNames;
+   }
+
+   @Override
+   public MutableBlobMetadata getBlobMetadata(String container, String key) {
+      if (!blobExists(container, key)) {
+         return null;
+      }
+      // the payload is a lazy view of the file which is only read when the content-md5 attribute is missing
+      return getBlob(container, key).getMetadata();
+   }
+
    @Override
    public Blob getBlob(final String container, final String key) {
       BlobBuilder builder = blobBuilders.get();
@@ -325,64 +402,18 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       } else {
          byteSource = Files.asByteSource(file);
       }
+      FilesystemMetadataCache.Entry metadata;
       try {
-         String contentDisposition = null;
-         String contentEncoding = null;
-         String contentLanguage = null;
-         String contentType = null;
-         HashCode hashCode = null;
-         Date expires = null;
-         ImmutableMap.Builder<String, String> userMetadata = ImmutableMap.builder();
-
-         UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(file.toPath());
-         if (view != null) {
-            Set<String> attributes = ImmutableSet.copyOf(view.list());
-
-            contentDisposition = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_DISPOSITION);
-            contentEncoding = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_ENCODING);
-            contentLanguage = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_LANGUAGE);
-            contentType = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_TYPE);
-            if (contentType == null && autoDetectContentType) {
-               contentType = probeContentType(file.toPath());
-            }
-            if (attributes.contains(XATTR_CONTENT_MD5)) {
-               ByteBuffer buf = ByteBuffer.allocate(view.size(XATTR_CONTENT_MD5));
-               view.read(XATTR_CONTENT_MD5, buf);
-               hashCode = HashCode.fromBytes(buf.array());
-            }
-            if (attributes.contains(XATTR_EXPIRES)) {
-               ByteBuffer buf = ByteBuffer.allocate(view.size(XATTR_EXPIRES));
-               view.read(XATTR_EXPIRES, buf);
-               buf.flip();
-               expires = new Date(buf.asLongBuffer().get());
-            }
-            for (String attribute : attributes) {
-               if (!attribute.startsWith(XATTR_USER_METADATA_PREFIX)) {
-                  continue;
-               }
-               String value = readStringAttributeIfPresent(view, attributes, attribute);
-               userMetadata.put(attribute.substring(XATTR_USER_METADATA_PREFIX.length()), value);
-            }
-
-            if (hashCode == null) {
-                // content-md5 xattr not found; recompute
-                hashCode = byteSource.hash(Hashing.md5());
-            }
-
-            builder.payload(byteSource)
-               .contentDisposition(contentDisposition)
-               .contentEncoding(contentEncoding)
-               .contentLanguage(contentLanguage)
-               .contentLength(byteSource.size())
-               .contentMD5(hashCode)
-               .contentType(contentType)
-               .expires(expires)
-               .userMetadata(userMetadata.build());
-         } else {
-            builder.payload(byteSource)
-               .contentLength(byteSource.size())
-               .contentMD5(byteSource.hash(Hashing.md5()).asBytes());
-         }
+         metadata = getMetadata(container, key, file, byteSource);
+         builder.payload(byteSource)
+            .contentDisposition(metadata.contentDisposition)
+            .contentEncoding(metadata.contentEncoding)
+            .contentLanguage(metadata.contentLanguage)
+            .contentLength(byteSource.size())
+            .contentMD5(metadata.contentMD5)
+            .contentType(metadata.contentType)
+            .expires(metadata.expires)
+            .userMetadata(metadata.userMetadata);
       } catch (IOException e) {
          throw Throwables.propagate(e);
       }
@@ -395,6 +426,104 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       return blob;
    }
 
+   /**
+    * Returns the metadata of a blob from the cache, reading the extended attributes of its file
+    * only when the file has changed since they were cached.
+    */
+   private FilesystemMetadataCache.Entry getMetadata(String container, String key, File file, ByteSource byteSource)
+         throws IOException {
+      BasicFileAttributes attributes = readAttributes(file.toPath(), BasicFileAttributes.class);
+      long length = attributes.size();
+      long lastModified = attributes.lastModifiedTime().toMillis();
+      FilesystemMetadataCache.Entry metadata = metadataCache.get(container, key, length, lastModified);
+      if (metadata == null) {
+         metadata = readMetadata(container, key, file, byteSource, length, lastModified);
+         metadataCache.put(container, key, metadata);
+      }
+      return metadata;
+   }
+
+   private FilesystemMetadataCache.Entry readMetadata(String container, String key, File file,
+         ByteSource byteSource, long length, long lastModified) throws IOException {
+      String contentDisposition = null;
+      String contentEncoding = null;
+      String contentLanguage = null;
+      String contentType = null;
+      HashCode hashCode = null;
+      Date expires = null;
+      ImmutableMap.Builder<String, String> userMetadata = ImmutableMap.builder();
+
+      UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(file.toPath());
+      if (view != null) {
+         Set<String> attributes = ImmutableSet.copyOf(view.list());
+
+         contentDisposition = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_DISPOSITION);
+         contentEncoding = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_ENCODING);
+         contentLanguage = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_LANGUAGE);
+         contentType = readStringAttributeIfPresent(view, attributes, XATTR_CONTENT_TYPE);
+         if (contentType == null && autoDetectContentType) {
+            contentType = probeContentType(file.toPath());
+         }
+         if (attributes.contains(XATTR_CONTENT_MD5)) {
+            ByteBuffer buf = ByteBuffer.allocate(view.size(XATTR_CONTENT_MD5));
+            view.read(XATTR_CONTENT_MD5, buf);
+            hashCode = HashCode.fromBytes(buf.array());
+         }
+         if (attributes.contains(XATTR_EXPIRES)) {
+            ByteBuffer buf = ByteBuffer.allocate(view.size(XATTR_EXPIRES));
+            view.read(XATTR_EXPIRES, buf);
+            buf.flip();
+            expires = new Date(buf.asLongBuffer().get());
+         }
+         for (String attribute : attributes) {
+            if (!attribute.startsWith(XATTR_USER_METADATA_PREFIX)) {
+               continue;
+            }
+            String value = readStringAttributeIfPresent(view, attributes, attribute);
+            userMetadata.put(attribute.substring(XATTR_USER_METADATA_PREFIX.length()), value);
+         }
+      }
+
+      if (hashCode == null) {
+         // content-md5 xattr not found; use the logged hash or recompute
+         if (getDirectoryBlobSuffix(key) != null) {
+            hashCode = HashCode.fromBytes(DIRECTORY_MD5);
+         } else {
+            try {
+               hashCode = metadataCache.getContentMD5(openFolder(container), container, key, length, lastModified);
+            } catch (IOException ioe) {
+               logger.debug("could not read the content-md5 log of %s: %s", container, ioe.getMessage());
+            }
+            if (hashCode == null) {
+               hashCode = byteSource.hash(Hashing.md5());
+               BasicFileAttributes attributes = readAttributes(file.toPath(), BasicFileAttributes.class);
+               if (attributes.size() == length && attributes.lastModifiedTime().toMillis() == lastModified) {
+                  logContentMD5(container, key, length, lastModified, hashCode);
+               }
+            }
+         }
+      }
+
+      return new FilesystemMetadataCache.Entry(length, lastModified, contentDisposition, contentEncoding,
+            contentLanguage, contentType, hashCode, expires, userMetadata.build());
+   }
+
+   private void logContentMD5(String container, String key, long length, long lastModified, HashCode hashCode) {
+      try {
+         metadataCache.putContentMD5(openFolder(container), container, key, length, lastModified, hashCode);
+      } catch (IOException ioe) {
+         logger.debug("could not append to the content-md5 log of %s: %s", container, ioe.getMessage());
+      }
+   }
+
+   private void invalidateMetadata(String container, String key) {
+      try {
+         metadataCache.invalidate(container, key);
+      } catch (IOException ioe) {
+         logger.debug("could not append to the content-md5 log of %s: %s", container, ioe.getMessage());
+      }
+   }
+
    private void writeCommonMetadataAttr(UserDefinedFileAttributeView view, Blob blob) throws IOException {
       ContentMetadata metadata = blob.getMetadata().getContentMetadata();
       writeStringAttributeIfPresent(view, XATTR_CONTENT_DISPOSITION, metadata.getContentDisposition());
@@ -422,6 +551,7 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       }
       File outputFile = getFileForBlobKey(containerName, blobKey);
       Path outputPath = outputFile.toPath();
+      invalidateMetadata(containerName, blobKey);
       if (!outputFile.isDirectory() && !outputFile.mkdirs()) {
          throw new IOException("Unable to mkdir: " + outputPath);
       }
@@ -467,17 +597,29 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
          }
          payload.getContentMetadata().setContentMD5(actualHashCode);
 
-         tmpFile.renameTo(outputFile);
-
-         UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(outputPath);
+         // write the xattrs before the rename, so that readers never see the new file without them
+         boolean md5Written = false;
+         UserDefinedFileAttributeView view = getUserDefinedFileAttributeView(tmpFile.toPath());
          if (view != null) {
             try {
                view.write(XATTR_CONTENT_MD5, ByteBuffer.wrap(actualHashCode.asBytes()));
+               md5Written = true;
                writeCommonMetadataAttr(view, blob);
             } catch (IOException e) {
                logger.debug("xattrs not supported on %s", outputPath);
             }
          }
+
+         tmpFile.renameTo(outputFile);
+         // metadata cached from the previous file until now may match the new one if both have the
+         // same length and were written within the resolution of the modification time
+         invalidateMetadata(containerName, blobKey);
+         if (!md5Written) {
+            // remember the hash we already computed instead of rereading the file on every get
+            BasicFileAttributes attributes = readAttributes(outputPath, BasicFileAttributes.class);
+            logContentMD5(containerName, blobKey, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                  actualHashCode);
+         }
          setBlobAccess(containerName, blobKey, BlobAccess.PRIVATE);
          return base16().lowerCase().encode(actualHashCode.asBytes());
       } catch (IOException ex) {
@@ -504,6 +646,7 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       String fileName = buildPathStartingFromBaseDir(container, blobKey);
       logger.debug("Deleting blob %s", fileName);
       File fileToBeDeleted = new File(fileName);
+      invalidateMetadata(container, blobKey);
 
       if (fileToBeDeleted.isDirectory()) {
          try {
@@ -835,6 +978,114 @@ public class FilesystemStorageStrategyImpl implements LocalStorageStrategy {
       }
    }
 
+   @VisibleForTesting
+   File[] listFiles(File directory) {
+      return directory.listFiles();
+   }
+
+   /**
+    * Adds the keys of a directory tree in lexicographic order, which is the order of the files and
+    * directories of each directory when a separator is appended to the names of directories.
+    */
+   private final class KeyWalk {
+      private final Set<String> blobNames;
+      private final Function<String, String> toKey;
+      private final String prefix;
+      private final String delimiter;
+      private final String marker;
+      private final int maxResults;
+      private int entries;
+      /** The common prefix of the last file added, whose other keys need not be listed. */
+      private String lastCommonPrefix;
+
+      KeyWalk(Set<String> blobNames, Function<String, String> toKey, @Nullable String prefix,
+            @Nullable String delimiter, @Nullable String marker, int maxResults) {
+         this.blobNames = blobNames;
+         this.toKey = toKey;
+         this.prefix = prefix;
+         this.delimiter = delimiter;
+         this.marker = marker;
+         this.maxResults = maxResults;
+      }
+
+      /**
+       * @return false once {@code maxResults} entries have been added
+       */
+      boolean walk(File directory) {
+         File[] children = listFiles(directory);
+         if (children == null) {
+            return true;
+         }
+         SortedMap<String, File> sortedChildren = Maps.newTreeMap();
+         for (File child : children) {
+            String normalizedKey = toKey.apply(child.getAbsolutePath()).replace(File.separatorChar, '/');
+            if (child.isDirectory()) {
+               sortedChildren.put(normalizedKey + "/", child);
+            } else if (child.isFile() && !normalizedKey.equals(FilesystemMetadataCache.CONTENT_MD5_LOG)) {
+               sortedChildren.put(normalizedKey, child);
+            }
+         }
+         for (Map.Entry<String, File> entry : sortedChildren.entrySet()) {
+            String normalizedKey = entry.getKey();
+            String key = toKey.apply(entry.getValue().getAbsolutePath());
+            String commonPrefix = commonPrefix(normalizedKey);
+            if (commonPrefix != null && commonPrefix.equals(lastCommonPrefix)) {
+               // the caller skips the rest of this common prefix once it has a blob
+               continue;
+            }
+            if (!normalizedKey.endsWith("/")) {
+               if (isListed(normalizedKey, prefix, marker)) {
+                  if (entries == maxResults) {
+                     return false;
+                  }
+                  blobNames.add(key);
+                  ++entries;
+                  lastCommonPrefix = commonPrefix;
+               }
+               continue;
+            }
+            if (prefix != null && !normalizedKey.startsWith(prefix) && !prefix.startsWith(normalizedKey)) {
+               // no key inside begins with the prefix
+               continue;
+            }
+            if (marker != null && isBeforeMarker(normalizedKey)) {
+               // every key inside sorts before the marker
+               continue;
+            }
+            if (isListed(normalizedKey, prefix, marker)) {
+               blobNames.add(key + File.separator);
+            }
+            if (!walk(entry.getValue())) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      private boolean isBeforeMarker(String directoryKey) {
+         if (!marker.startsWith(directoryKey)) {
+            return marker.compareTo(directoryKey) > 0;
+         }
+         // a marker ending a common prefix sorts after every key inside
+         return marker.length() > directoryKey.length()
+               && marker.charAt(directoryKey.length()) == Character.MAX_VALUE;
+      }
+
+      @Nullable
+      private String commonPrefix(String normalizedKey) {
+         if (delimiter == null) {
+            return null;
+         }
+         int index = normalizedKey.indexOf(delimiter, prefix == null ? 0 : prefix.length());
+         return index == -1 ? null : normalizedKey.substring(0, index + delimiter.length());
+      }
+   }
+
+   private static boolean isListed(String normalizedKey, @Nullable String prefix, @Nullable String marker) {
+      return (prefix == null || normalizedKey.startsWith(prefix))
+            && (marker == null || normalizedKey.compareTo(marker) > 0);
+   }
+
    /**
     * Creates a directory and returns the result
     *
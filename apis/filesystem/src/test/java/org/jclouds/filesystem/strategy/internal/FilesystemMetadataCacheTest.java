@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.filesystem.strategy.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jclouds.filesystem.utils.TestUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+@Test(groups = "unit", testName = "FilesystemMetadataCacheTest", singleThreaded = true)
+public class FilesystemMetadataCacheTest {
+   private static final String BASE_DIR = "." + File.separator + "target" + File.separator + "metadata-cache";
+   private static final String CONTAINER_NAME = "metadata-cache-test";
+
+   private File containerDirectory;
+
+   @BeforeMethod
+   protected void setUp() throws IOException {
+      TestUtils.cleanDirectoryContent(BASE_DIR);
+      containerDirectory = new File(BASE_DIR, CONTAINER_NAME);
+      assertTrue(containerDirectory.mkdirs());
+   }
+
+   @AfterMethod
+   protected void tearDown() throws IOException {
+      TestUtils.cleanDirectoryContent(BASE_DIR);
+   }
+
+   public void testContentMD5LogKeepsMostRecentlyUsed() throws IOException {
+      FilesystemMetadataCache cache = new FilesystemMetadataCache(2);
+      cache.putContentMD5(containerDirectory, CONTAINER_NAME, "a", 1, 1, md5("a"));
+      cache.putContentMD5(containerDirectory, CONTAINER_NAME, "b", 1, 1, md5("b"));
+      assertEquals(cache.getContentMD5(containerDirectory, CONTAINER_NAME, "a", 1, 1), md5("a"));
+      cache.putContentMD5(containerDirectory, CONTAINER_NAME, "c", 1, 1, md5("c"));
+
+      assertEquals(cache.getContentMD5(containerDirectory, CONTAINER_NAME, "a", 1, 1), md5("a"));
+      assertNull(cache.getContentMD5(containerDirectory, CONTAINER_NAME, "b", 1, 1));
+      assertEquals(cache.getContentMD5(containerDirectory, CONTAINER_NAME, "c", 1, 1), md5("c"));
+   }
+
+   public void testContentMD5LogIsCompactedWhileInUse() throws IOException {
+      FilesystemMetadataCache cache = new FilesystemMetadataCache(10);
+      for (int i = 0; i < 100; i++) {
+         cache.putContentMD5(containerDirectory, CONTAINER_NAME, "key", 1, i, md5("key" + i));
+         cache.invalidate(CONTAINER_NAME, "other");
+      }
+      for (int i = 0; i < 100; i++) {
+         cache.putContentMD5(containerDirectory, CONTAINER_NAME, "removed", 1, i, md5("removed" + i));
+         cache.invalidate(CONTAINER_NAME, "removed");
+      }
+
+      File log = new File(containerDirectory, FilesystemMetadataCache.CONTENT_MD5_LOG);
+      assertTrue(Files.readLines(log, Charsets.UTF_8).size() <= 2, Files.toString(log, Charsets.UTF_8));
+
+      // a new cache reads the compacted log
+      cache = new FilesystemMetadataCache(10);
+      assertEquals(cache.getContentMD5(containerDirectory, CONTAINER_NAME, "key", 1, 99), md5("key99"));
+      assertNull(cache.getContentMD5(containerDirectory, CONTAINER_NAME, "removed", 1, 99));
+   }
+
+   private static HashCode md5(String content) {
+      return Hashing.md5().hashString(content, Charsets.UTF_8);
+   }
+}
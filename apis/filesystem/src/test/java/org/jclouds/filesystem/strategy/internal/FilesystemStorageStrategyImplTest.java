@@ -17,6 +17,7 @@
 package org.jclouds.filesystem.strategy.internal;
 
 import static com.google.common.io.BaseEncoding.base16;
+import static java.nio.file.Files.getFileAttributeView;
 import static org.jclouds.filesystem.util.Utils.isMacOSX;
 import static org.jclouds.utils.TestUtils.randomByteSource;
 import static org.testng.Assert.assertEquals;
@@ -28,10 +29,13 @@ import static org.testng.Assert.fail;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Provider;
 
@@ -51,8 +55,11 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
@@ -424,6 +431,67 @@ public class FilesystemStorageStrategyImplTest {
       assertFalse(iter.hasNext());
    }
 
+   public void testGetBlobKeysInsideContainerAfterMarkerWithPrefix() throws IOException {
+      TestUtils.createContainerAsDirectory(CONTAINER_NAME);
+      TestUtils.createBlobsInContainer(CONTAINER_NAME, new String[] {
+               "a" + FS + "1.txt", "b" + FS + "c" + FS + "1.txt", "b" + FS + "d" + FS + "1.txt", "e.txt" });
+
+      assertEquals(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME, null, null, "b/c/1.txt", 1000),
+            ImmutableSortedSet.of("b" + FS + "d" + FS, "b" + FS + "d" + FS + "1.txt", "e.txt"));
+      assertEquals(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME, "b/d", null, null, 1000),
+            ImmutableSortedSet.of("b" + FS + "d" + FS, "b" + FS + "d" + FS + "1.txt"));
+      assertEquals(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME, "b/", null, "b/d/", 1000),
+            ImmutableSortedSet.of("b" + FS + "d" + FS + "1.txt"));
+   }
+
+   public void testGetBlobKeysInsideContainerWalksOnlyThePage() throws IOException {
+      TestUtils.createContainerAsDirectory(CONTAINER_NAME);
+      List<String> blobNames = Lists.newArrayList();
+      for (int i = 0; i < 10; i++) {
+         for (int j = 0; j < 10; j++) {
+            blobNames.add("dir" + i + FS + j + ".txt");
+         }
+      }
+      TestUtils.createBlobsInContainer(CONTAINER_NAME, blobNames.toArray(new String[0]));
+      final List<File> visited = Lists.newArrayList();
+      FilesystemStorageStrategyImpl countingStrategy = new FilesystemStorageStrategyImpl(new Provider<BlobBuilder>() {
+         @Override
+         public BlobBuilder get() {
+            return new BlobBuilderImpl();
+         }
+      }, TestUtils.TARGET_BASE_DIR, false, new FilesystemContainerNameValidatorImpl(),
+            new FilesystemBlobKeyValidatorImpl()) {
+         @Override
+         File[] listFiles(File directory) {
+            visited.add(directory);
+            return super.listFiles(directory);
+         }
+      };
+
+      // each page of five keys lists the container and at most the two directories it spans
+      List<String> listed = Lists.newArrayList();
+      String marker = null;
+      for (int page = 0; page < 20; page++) {
+         visited.clear();
+         Set<String> keys = countingStrategy.getBlobKeysInsideContainer(CONTAINER_NAME, null, null, marker, 5);
+         assertTrue(visited.size() <= 3, visited.toString());
+         for (String key : keys) {
+            if (!key.endsWith(FS)) {
+               listed.add(key);
+            }
+            marker = key;
+         }
+      }
+      assertEquals(listed, Ordering.natural().sortedCopy(blobNames));
+      assertTrue(countingStrategy.getBlobKeysInsideContainer(CONTAINER_NAME, null, null, marker, 5).isEmpty());
+
+      // a delimited listing does not walk a directory past its first file
+      visited.clear();
+      Set<String> keys = countingStrategy.getBlobKeysInsideContainer(CONTAINER_NAME, null, "/", null, 1000);
+      assertEquals(visited.size(), 11);
+      assertEquals(keys.size(), 20);
+   }
+
    public void testDeleteDirectoryBlob() throws IOException {
       String blobKey = TestUtils.createRandomBlobKey("a/b/c/directory-", "/");
       Blob blob = storageStrategy.newBlob(blobKey);
@@ -662,6 +730,49 @@ public class FilesystemStorageStrategyImplTest {
       assertFalse(blob.getMetadata().getUserMetadata().containsKey("key1"));
    }
 
+   @Test(dataProvider = "ignoreOnMacOSX")
+   public void testGetDuringPutSeesMetadataOfNewBlob() throws Exception {
+      final String blobKey = TestUtils.createRandomBlobKey();
+      final AtomicBoolean done = new AtomicBoolean();
+      final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      Thread reader = new Thread() {
+         @Override
+         public void run() {
+            try {
+               while (!done.get()) {
+                  if (storageStrategy.blobExists(CONTAINER_NAME, blobKey)) {
+                     storageStrategy.getBlob(CONTAINER_NAME, blobKey);
+                  }
+               }
+            } catch (Throwable t) {
+               failure.set(t);
+            }
+         }
+      };
+      reader.start();
+      try {
+         for (int i = 0; i < 100; i++) {
+            // a new length each time, so that the previous version never matches the cached entry
+            Blob blob = new BlobBuilderImpl()
+                  .name(blobKey)
+                  .payload(randomByteSource().slice(0, 1024 + i))
+                  .contentType("text/plain")
+                  .userMetadata(ImmutableMap.of("version", Integer.toString(i)))
+                  .build();
+            storageStrategy.putBlob(CONTAINER_NAME, blob);
+
+            blob = storageStrategy.getBlob(CONTAINER_NAME, blobKey);
+            assertEquals(blob.getMetadata().getUserMetadata().get("version"), Integer.toString(i));
+            assertEquals(blob.getMetadata().getContentMetadata().getContentType(), "text/plain");
+            assertNotNull(blob.getMetadata().getContentMetadata().getContentMD5AsHashCode());
+         }
+      } finally {
+         done.set(true);
+         reader.join();
+      }
+      assertEquals(failure.get(), null);
+   }
+
    // This test will become irrelevant if the JVM starts supporting
    // user extended attributes on HFS+. Nobody will complain.
    @Test(dataProvider = "onlyOnMacOSX")
@@ -683,6 +794,44 @@ public class FilesystemStorageStrategyImplTest {
       assertEquals(blob.getMetadata().getETag(), base16().lowerCase().encode(expectedHash.asBytes()));
    }
 
+   public void testContentMD5LoggedWithoutXattr() throws Exception {
+      String blobKey = TestUtils.createRandomBlobKey();
+      ByteSource content = randomByteSource().slice(0, 1024);
+      HashCode expectedHash = content.hash(Hashing.md5());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(blobKey).payload(content).build());
+
+      // simulate a file system which does not keep the content-md5 attribute
+      File file = storageStrategy.getFileForBlobKey(CONTAINER_NAME, blobKey);
+      UserDefinedFileAttributeView view = getFileAttributeView(file.toPath(), UserDefinedFileAttributeView.class);
+      if (view != null) {
+         try {
+            view.delete("user.content-md5");
+         } catch (IOException e) {
+            // xattrs not supported
+         }
+      }
+
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, blobKey);
+      assertEquals(blob.getMetadata().getContentMetadata().getContentMD5AsHashCode(), expectedHash);
+
+      File log = new File(TARGET_CONTAINER_NAME, FilesystemMetadataCache.CONTENT_MD5_LOG);
+      assertTrue(Files.toString(log, Charsets.UTF_8).contains(expectedHash + " 1024 "));
+      assertFalse(storageStrategy.blobExists(CONTAINER_NAME, FilesystemMetadataCache.CONTENT_MD5_LOG));
+      assertFalse(Sets.newHashSet(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME))
+            .contains(FilesystemMetadataCache.CONTENT_MD5_LOG));
+
+      // a new instance, with an empty cache, reads the hash from the log
+      FilesystemStorageStrategyImpl other = new FilesystemStorageStrategyImpl(new Provider<BlobBuilder>() {
+         @Override
+         public BlobBuilder get() {
+            return new BlobBuilderImpl();
+         }
+      }, TestUtils.TARGET_BASE_DIR, false, new FilesystemContainerNameValidatorImpl(),
+            new FilesystemBlobKeyValidatorImpl());
+      blob = other.getBlob(CONTAINER_NAME, blobKey);
+      assertEquals(blob.getMetadata().getETag(), base16().lowerCase().encode(expectedHash.asBytes()));
+   }
+
    // ---------------------------------------------------------- Private methods
 
    /**
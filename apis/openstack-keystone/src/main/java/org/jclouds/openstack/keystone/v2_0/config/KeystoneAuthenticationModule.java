@@ -17,9 +17,11 @@
 package org.jclouds.openstack.keystone.v2_0.config;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
 import static org.jclouds.util.Suppliers2.getLastValueInMap;
 
 import java.net.URI;
+import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -28,6 +30,7 @@ import java.util.concurrent.TimeoutException;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.jclouds.concurrent.RefreshBeforeExpiryLoader;
 import org.jclouds.domain.Credentials;
 import org.jclouds.http.HttpRetryHandler;
 import org.jclouds.http.annotation.ClientError;
@@ -59,10 +62,10 @@ import org.jclouds.rest.annotations.ApiVersion;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.AbstractModule;
 import com.google.inject.Injector;
 import com.google.inject.Provides;
@@ -234,10 +237,20 @@ public class KeystoneAuthenticationModule extends AbstractModule {
 
    // TODO: what is the timeout of the session token? modify default accordingly
    // PROPERTY_SESSION_INTERVAL is default to 60 seconds, but we have this here at 11 hours for now.
+   // Tokens are checked every minute and renewed in the background shortly before they expire, or
+   // at the latest after 11 hours, so that concurrent requests neither wait for nor repeat the
+   // authentication.
    @Provides
    @Singleton
-   public final LoadingCache<Credentials, Access> provideAccessCache(Function<Credentials, Access> getAccess) {
-      return CacheBuilder.newBuilder().expireAfterWrite(11, TimeUnit.HOURS).build(CacheLoader.from(getAccess));
+   public final LoadingCache<Credentials, Access> provideAccessCache(Function<Credentials, Access> getAccess,
+         @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      return CacheBuilder.newBuilder().expireAfterWrite(11, TimeUnit.HOURS).refreshAfterWrite(1, TimeUnit.MINUTES)
+            .build(RefreshBeforeExpiryLoader.create(getAccess, new Function<Access, Date>() {
+               @Override
+               public Date apply(Access access) {
+                  return access.getToken().getExpires();
+               }
+            }, 11, TimeUnit.HOURS, userExecutor));
    }
 
    // Temporary conversion of a cache to a supplier until there is a single-element cache
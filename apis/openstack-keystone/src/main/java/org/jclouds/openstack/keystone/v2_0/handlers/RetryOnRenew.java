@@ -16,8 +16,11 @@
  */
 package org.jclouds.openstack.keystone.v2_0.handlers;
 
+import static com.google.common.collect.Iterables.getFirst;
 import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
@@ -97,7 +100,7 @@ public class RetryOnRenew implements HttpRetryHandler {
                      // First time this non-authentication request failed
                      logger.debug("invalidating authentication token - first time for %s", command);
                      retryCountMap.put(command, 1);
-                     authenticationResponseCache.invalidateAll();
+                     invalidateToken(headers == null ? null : getFirst(headers.get(AuthHeaders.AUTH_TOKEN), null));
                      retry = true;
                   } else {
                      // This request has failed before
@@ -129,4 +132,21 @@ public class RetryOnRenew implements HttpRetryHandler {
       }
    }
 
+   /**
+    * Invalidates the cached authentication that issued the token a request failed with. When the
+    * token has already been renewed, for example by another request that failed with it, the
+    * request is retried with the new token rather than authenticating again.
+    */
+   private void invalidateToken(String token) {
+      if (token == null) {
+         authenticationResponseCache.invalidateAll();
+         return;
+      }
+      ConcurrentMap<Credentials, Access> cached = authenticationResponseCache.asMap();
+      for (Map.Entry<Credentials, Access> entry : cached.entrySet()) {
+         if (token.equals(entry.getValue().getToken().getId())) {
+            cached.remove(entry.getKey(), entry.getValue());
+         }
+      }
+   }
 }
@@ -21,9 +21,12 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Date;
+
 import org.jclouds.domain.Credentials;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpRequest;
@@ -31,8 +34,13 @@ import org.jclouds.http.HttpResponse;
 import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
 import org.jclouds.io.Payloads;
 import org.jclouds.openstack.keystone.v2_0.domain.Access;
+import org.jclouds.openstack.keystone.v2_0.domain.Token;
+import org.jclouds.openstack.keystone.v2_0.domain.User;
+import org.jclouds.openstack.v2_0.reference.AuthHeaders;
 import org.testng.annotations.Test;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 
 /**
@@ -130,4 +138,42 @@ public class RetryOnRenewTest {
       verify(cache);
       verify(backoffHandler);
    }
+
+   @Test
+   public void test401WithRenewedTokenShouldRetryWithoutInvalidating() {
+      LoadingCache<Credentials, Access> cache = CacheBuilder.newBuilder().build(new CacheLoader<Credentials, Access>() {
+         @Override
+         public Access load(Credentials key) {
+            return access("renewed");
+         }
+      });
+      Credentials credentials = new Credentials("identity", "credential");
+      cache.getUnchecked(credentials);
+      BackoffLimitedRetryHandler backoffHandler = createMock(BackoffLimitedRetryHandler.class);
+      RetryOnRenew retry = new RetryOnRenew(cache, backoffHandler);
+
+      // another request already renewed the token this one failed with
+      assertTrue(retry.shouldRetryRequest(commandWithToken("expired"), unauthorized()));
+      assertEquals(cache.size(), 1);
+
+      assertTrue(retry.shouldRetryRequest(commandWithToken("renewed"), unauthorized()));
+      assertEquals(cache.size(), 0);
+   }
+
+   private static Access access(String token) {
+      return Access.builder().token(Token.builder().id(token).expires(new Date()).build())
+            .user(User.builder().id("user").name("user").build()).build();
+   }
+
+   private static HttpCommand commandWithToken(String token) {
+      HttpCommand command = createMock(HttpCommand.class);
+      expect(command.getCurrentRequest()).andReturn(HttpRequest.builder().method("GET")
+            .endpoint("http://localhost/servers").addHeader(AuthHeaders.AUTH_TOKEN, token).build()).anyTimes();
+      replay(command);
+      return command;
+   }
+
+   private static HttpResponse unauthorized() {
+      return HttpResponse.builder().statusCode(401).payload("").build();
+   }
 }
@@ -24,12 +24,17 @@ import static org.jclouds.blobstore.options.ListContainerOptions.Builder.recursi
 import static org.jclouds.location.predicates.LocationPredicates.idEquals;
 import static org.jclouds.openstack.swift.v1.options.PutOptions.Builder.metadata;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.inject.Named;
 
+import org.jclouds.Constants;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.KeyNotFoundException;
@@ -48,19 +53,25 @@ import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
 import org.jclouds.blobstore.domain.internal.BlobImpl;
 import org.jclouds.blobstore.domain.internal.PageSetImpl;
 import org.jclouds.blobstore.functions.BlobToHttpGetOptions;
+import org.jclouds.blobstore.internal.BlobRuntimeException;
 import org.jclouds.blobstore.options.CopyOptions;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.GetOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
 import org.jclouds.blobstore.strategy.ClearListStrategy;
+import org.jclouds.blobstore.strategy.internal.DeleteKeysInBatches;
 import org.jclouds.blobstore.strategy.internal.MultipartUploadSlicingAlgorithm;
+import org.jclouds.blobstore.strategy.internal.ParallelBlobDownloader;
+import org.jclouds.blobstore.strategy.internal.ParallelMultipartUploader;
 import org.jclouds.collect.Memoized;
 import org.jclouds.domain.Location;
 import org.jclouds.io.ContentMetadata;
 import org.jclouds.io.Payload;
 import org.jclouds.io.PayloadSlicer;
 import org.jclouds.io.payloads.ByteSourcePayload;
+import org.jclouds.logging.Logger;
 import org.jclouds.openstack.swift.v1.SwiftApi;
 import org.jclouds.openstack.swift.v1.blobstore.functions.ToBlobMetadata;
 import org.jclouds.openstack.swift.v1.blobstore.functions.ToListContainerOptions;
@@ -88,26 +99,32 @@ import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.ByteSource;
 import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.AbstractModule;
 import com.google.inject.Injector;
 import com.google.inject.assistedinject.Assisted;
 
 public class RegionScopedSwiftBlobStore implements BlobStore {
 
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
    @Inject
    protected RegionScopedSwiftBlobStore(Injector baseGraph, BlobStoreContext context, SwiftApi api,
          @Memoized Supplier<Set<? extends Location>> locations, @Assisted String regionId,
-         PayloadSlicer slicer) {
+         PayloadSlicer slicer, @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
       checkNotNull(regionId, "regionId");
       Optional<? extends Location> found = tryFind(locations.get(), idEquals(regionId));
       checkArgument(found.isPresent(), "region %s not in %s", regionId, locations.get());
       this.region = found.get();
       this.regionId = regionId;
       this.slicer = slicer;
+      this.userExecutor = userExecutor;
       this.toResourceMetadata = new ToResourceMetadata(found.get());
       this.context = context;
       this.api = api;
@@ -117,7 +134,7 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
          protected void configure() {
             bind(BlobStore.class).toInstance(RegionScopedSwiftBlobStore.this);
          }
-      }).getInstance(ClearListStrategy.class);
+      }).getInstance(DeleteKeysInBatches.class);
    }
 
    private final BlobStoreContext context;
@@ -129,6 +146,7 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
    private final ToListContainerOptions toListContainerOptions = new ToListContainerOptions();
    private final ToResourceMetadata toResourceMetadata;
    protected final PayloadSlicer slicer;
+   protected final ListeningExecutorService userExecutor;
 
    @Override
    public Set<? extends Location> listAssignableLocations() {
@@ -342,21 +360,43 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
       return blob;
    }
 
+   @Override
+   public void downloadBlob(String container, String name, File destination) {
+      downloadBlob(container, name, destination, userExecutor);
+   }
+
+   @Override
+   public void downloadBlob(String container, String name, File destination, ExecutorService executor) {
+      new ParallelBlobDownloader(this, MoreExecutors.listeningDecorator(executor), logger)
+            .execute(container, name, destination);
+   }
+
    @Override
    public void removeBlob(String container, String name) {
       // use SLO API to delete blob regardless of whether its a single- or multi-part object
       api.getStaticLargeObjectApi(regionId, container).delete(name);
    }
 
+   /**
+    * Deletes the blobs with bulk delete, 1000 at a time.
+    *
+    * @throws BlobRuntimeException
+    *            if any blob could not be deleted, after all of them were attempted
+    */
    @Override
    public void removeBlobs(String container, Iterable<String> names) {
       BulkApi bulkApi = api.getBulkApi(regionId);
+      Map<String, String> errors = Maps.newLinkedHashMap();
       for (List<String> partition : Iterables.partition(names, 1000)) {
          ImmutableList.Builder<String> builder = ImmutableList.builder();
          for (String name : partition) {
             builder.add(container + "/" + name);
          }
-         bulkApi.bulkDelete(builder.build());
+         errors.putAll(bulkApi.bulkDelete(builder.build()).getErrors());
+      }
+      if (!errors.isEmpty()) {
+         throw new BlobRuntimeException(String.format("failed to delete %d blobs from %s: %s", errors.size(),
+               container, Iterables.limit(errors.entrySet(), 10)));
       }
    }
 
@@ -512,7 +552,7 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
 
    @Override
    public void clearContainer(String containerName, ListContainerOptions options) {
-      // this could be implemented to use bulk delete
+      // deletes each listing page with bulk delete, see removeBlobs
       clearList.execute(containerName, options);
    }
 
@@ -551,18 +591,12 @@ public class RegionScopedSwiftBlobStore implements BlobStore {
    // copied from BaseBlobStore
    @Beta
    protected String putMultipartBlob(String container, Blob blob, PutOptions overrides) {
-      List<MultipartPart> parts = Lists.newArrayList();
       long contentLength = blob.getMetadata().getContentMetadata().getContentLength();
       MultipartUploadSlicingAlgorithm algorithm = new MultipartUploadSlicingAlgorithm(
             getMinimumMultipartPartSize(), getMaximumMultipartPartSize(), getMaximumNumberOfParts());
       long partSize = algorithm.calculateChunkSize(contentLength);
       MultipartUpload mpu = initiateMultipartUpload(container, blob.getMetadata(), partSize);
-      int partNumber = 1;
-      for (Payload payload : slicer.slice(blob.getPayload(), partSize)) {
-         MultipartPart part = uploadMultipartPart(mpu, partNumber, payload);
-         parts.add(part);
-         ++partNumber;
-      }
-      return completeMultipartUpload(mpu, parts);
+      return new ParallelMultipartUploader(this, userExecutor, overrides, logger)
+            .execute(mpu, slicer.slice(blob.getPayload(), partSize), partSize);
    }
 }
@@ -20,6 +20,8 @@ import static com.google.common.io.BaseEncoding.base16;
 import static com.google.common.net.HttpHeaders.ETAG;
 import static com.google.common.net.HttpHeaders.LAST_MODIFIED;
 import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.OBJECT_DELETE_AT;
+import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.OBJECT_MANIFEST;
+import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.STATIC_LARGE_OBJECT;
 
 import java.net.URI;
 import java.util.Date;
@@ -68,7 +70,10 @@ public class ParseObjectFromResponse implements Function<HttpResponse, SwiftObje
          if (etag.startsWith("\"") && etag.endsWith("\"") && etag.length() > 1) {
             etag = etag.substring(1, etag.length() - 1);
          }
-         payload.getContentMetadata().setContentMD5(HashCode.fromBytes(base16().lowerCase().decode(etag)));
+         // the ETag of a manifest is the MD5 of its segments' ETags, not of the content
+         if (!isManifest(from)) {
+            payload.getContentMetadata().setContentMD5(HashCode.fromBytes(base16().lowerCase().decode(etag)));
+         }
       }
 
       return SwiftObject.builder()
@@ -81,6 +86,11 @@ public class ParseObjectFromResponse implements Function<HttpResponse, SwiftObje
             .metadata(EntriesWithoutMetaPrefix.INSTANCE.apply(from.getHeaders())).build();
    }
 
+   private static boolean isManifest(HttpResponse from) {
+      return Boolean.parseBoolean(from.getFirstHeaderOrNull(STATIC_LARGE_OBJECT))
+            || from.getFirstHeaderOrNull(OBJECT_MANIFEST) != null;
+   }
+
    @Override
    public ParseObjectFromResponse setContext(HttpRequest request) {
       this.uri = request.getEndpoint().toString();
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.openstack.swift.v1.blobstore;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.internal.BlobRuntimeException;
+import org.jclouds.concurrent.config.ExecutorServiceModule;
+import org.jclouds.openstack.swift.v1.SwiftApi;
+import org.jclouds.openstack.v2_0.internal.BaseOpenStackMockTest;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+
+@Test(groups = "unit", testName = "RegionScopedSwiftBlobStoreMockTest")
+public class RegionScopedSwiftBlobStoreMockTest extends BaseOpenStackMockTest<SwiftApi> {
+
+   public void testRemoveBlobsFailsWhenBulkDeleteReportsErrors() throws Exception {
+      MockWebServer server = mockOpenStackServer();
+      server.enqueue(addCommonHeaders(new MockResponse().setBody(stringFromResource("/access.json"))));
+      server.enqueue(addCommonHeaders(new MockResponse().setBody("{\"Number Not Found\": 0, "
+            + "\"Response Status\": \"400 Bad Request\", \"Response Body\": \"\", "
+            + "\"Errors\": [[\"/v1/MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9/myContainer/b\", "
+            + "\"409 Conflict\"]], \"Number Deleted\": 1}")));
+
+      try {
+         BlobStore blobStore = ContextBuilder.newBuilder("openstack-swift")
+               .credentials("jclouds:joe", "letmein")
+               .endpoint(server.getUrl("/").toString())
+               .modules(ImmutableSet.of(new ExecutorServiceModule(sameThreadExecutor())))
+               .buildView(RegionScopedBlobStoreContext.class)
+               .getBlobStore("DFW");
+         try {
+            blobStore.removeBlobs("myContainer", ImmutableList.of("a", "b"));
+            fail("expected BlobRuntimeException");
+         } catch (BlobRuntimeException expected) {
+            assertTrue(expected.getMessage().contains("myContainer/b"), expected.getMessage());
+         }
+
+         assertEquals(server.getRequestCount(), 2);
+         assertAuthentication(server);
+         assertRequest(server.takeRequest(), "DELETE",
+               "/v1/MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9?bulk-delete");
+      } finally {
+         server.shutdown();
+      }
+   }
+}
@@ -31,9 +31,11 @@ import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.CONTAINER_AC
 import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.CONTAINER_READ;
 import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.OBJECT_METADATA_PREFIX;
 import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.OBJECT_REMOVE_METADATA_PREFIX;
+import static org.jclouds.openstack.swift.v1.reference.SwiftHeaders.STATIC_LARGE_OBJECT;
 import static org.jclouds.util.Strings2.toStringAndClose;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -324,6 +326,28 @@ public class ObjectApiMockTest extends BaseOpenStackMockTest<SwiftApi> {
       }
    }
 
+   public void testGetStaticLargeObjectHasNoContentMD5() throws Exception {
+      MockWebServer server = mockOpenStackServer();
+      server.enqueue(addCommonHeaders(new MockResponse().setBody(stringFromResource("/access.json"))));
+      server.enqueue(addCommonHeaders(new MockResponse()
+            .addHeader("Last-Modified", "Fri, 12 Jun 2010 13:40:18 GMT")
+            // the MD5 of the segments' ETags
+            .addHeader("ETag", "\"e7fe8d6e7a2b4e6b8fc9c2a17d11a0f2\"")
+            .addHeader(STATIC_LARGE_OBJECT, "True")
+            .setBody("ABCD".getBytes(US_ASCII))
+            .addHeader("Content-Length", "4")
+            .addHeader("Content-Type", "text/plain; charset=UTF-8")));
+
+      try {
+         SwiftApi api = api(server.getUrl("/").toString(), "openstack-swift");
+         SwiftObject object = api.getObjectApi("DFW", "myContainer").get("myObject");
+         assertEquals(object.getETag(), "e7fe8d6e7a2b4e6b8fc9c2a17d11a0f2");
+         assertNull(object.getPayload().getContentMetadata().getContentMD5AsHashCode());
+      } finally {
+         server.shutdown();
+      }
+   }
+
    @Test(expectedExceptions = HttpResponseException.class, timeOut = 20000)
    public void testCreateWithTimeout() throws Exception {
       MockWebServer server = mockOpenStackServer();
@@ -25,9 +25,11 @@ import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.jclouds.Constants;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.ContainerNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
@@ -39,6 +41,7 @@ import org.jclouds.blobstore.domain.MultipartUpload;
 import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.functions.BlobToHttpGetOptions;
+import org.jclouds.blobstore.internal.BlobRuntimeException;
 import org.jclouds.blobstore.internal.BaseBlobStore;
 import org.jclouds.blobstore.options.CopyOptions;
 import org.jclouds.blobstore.options.CreateContainerOptions;
@@ -64,6 +67,7 @@ import org.jclouds.s3.domain.AccessControlList.GroupGranteeURI;
 import org.jclouds.s3.domain.AccessControlList.Permission;
 import org.jclouds.s3.domain.BucketMetadata;
 import org.jclouds.s3.domain.CannedAccessPolicy;
+import org.jclouds.s3.domain.DeleteResult;
 import org.jclouds.s3.options.CopyObjectOptions;
 import org.jclouds.s3.options.ListBucketOptions;
 import org.jclouds.s3.options.PutBucketOptions;
@@ -79,6 +83,8 @@ import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 @Singleton
 public class S3BlobStore extends BaseBlobStore {
@@ -102,8 +108,9 @@ public class S3BlobStore extends BaseBlobStore {
             ObjectToBlob object2Blob, BlobToHttpGetOptions blob2ObjectGetOptions, BlobToObject blob2Object,
             BlobToObjectMetadata blob2ObjectMetadata,
             ObjectToBlobMetadata object2BlobMd, Provider<FetchBlobMetadata> fetchBlobMetadataProvider,
-            LoadingCache<String, AccessControlList> bucketAcls) {
-      super(context, blobUtils, defaultLocation, locations, slicer);
+            LoadingCache<String, AccessControlList> bucketAcls,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      super(context, blobUtils, defaultLocation, locations, slicer, userExecutor);
       this.blob2ObjectGetOptions = checkNotNull(blob2ObjectGetOptions, "blob2ObjectGetOptions");
       this.sync = checkNotNull(sync, "sync");
       this.convertBucketsToStorageMetadata = checkNotNull(convertBucketsToStorageMetadata, "convertBucketsToStorageMetadata");
@@ -332,10 +339,21 @@ public class S3BlobStore extends BaseBlobStore {
       sync.deleteObject(container, key);
    }
 
+   /**
+    * This implementation invokes {@link S3Client#deleteObjects}, 1000 keys at a time.
+    *
+    * @throws BlobRuntimeException
+    *            if any key could not be deleted, after all of them were attempted
+    */
    @Override
    public void removeBlobs(String container, Iterable<String> keys) {
+      Map<String, DeleteResult.Error> errors = Maps.newLinkedHashMap();
       for (List<String> partition : Iterables.partition(keys, 1000)) {
-         sync.deleteObjects(container, partition);
+         errors.putAll(sync.deleteObjects(container, partition).getErrors());
+      }
+      if (!errors.isEmpty()) {
+         throw new BlobRuntimeException(String.format("failed to delete %d keys from %s: %s", errors.size(),
+               container, Iterables.limit(errors.entrySet(), 10)));
       }
    }
 
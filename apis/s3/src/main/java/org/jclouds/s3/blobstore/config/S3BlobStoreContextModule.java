@@ -25,6 +25,8 @@ import javax.inject.Singleton;
 import org.jclouds.blobstore.BlobRequestSigner;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.attr.ConsistencyModel;
+import org.jclouds.blobstore.strategy.ClearListStrategy;
+import org.jclouds.blobstore.strategy.internal.DeleteKeysInBatches;
 import org.jclouds.domain.Location;
 import org.jclouds.s3.S3Client;
 import org.jclouds.s3.blobstore.S3BlobRequestSigner;
@@ -46,6 +48,8 @@ public class S3BlobStoreContextModule extends AbstractModule {
    protected void configure() {
       bind(ConsistencyModel.class).toInstance(ConsistencyModel.EVENTUAL);
       bind(BlobStore.class).to(S3BlobStore.class).in(SINGLETON);
+      // S3BlobStore.removeBlobs uses multi-object delete
+      bind(ClearListStrategy.class).to(DeleteKeysInBatches.class);
       bind(new TypeLiteral<Function<String, Location>>() {
       }).to(LocationFromBucketName.class);
       bindRequestSigner();
@@ -180,6 +180,11 @@ public class S3HttpApiModule<S extends S3Client> extends AWSHttpApiModule<S> {
       bind(HttpErrorHandler.class).annotatedWith(ServerError.class).to(ParseS3ErrorFromXmlContent.class);
    }
 
+   /**
+    * Binds {@link RequestAuthorizeSignature}, which signs with AWS Signature Version 2. Override
+    * this to bind {@code RequestAuthorizeSignatureV4} instead for regions which only accept
+    * Signature Version 4.
+    */
    protected void bindRequestSigner() {
       bind(RequestAuthorizeSignature.class).in(Scopes.SINGLETON);
    }
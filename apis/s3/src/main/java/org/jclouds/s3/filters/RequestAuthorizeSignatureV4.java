@@ -0,0 +1,544 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.s3.filters;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.hash.Hashing.sha256;
+import static com.google.common.io.BaseEncoding.base16;
+import static com.google.common.io.BaseEncoding.base64;
+import static org.jclouds.aws.reference.AWSConstants.PROPERTY_AUTH_TAG;
+import static org.jclouds.aws.reference.AWSConstants.PROPERTY_HEADER_TAG;
+import static org.jclouds.http.utils.Queries.queryParser;
+import static org.jclouds.s3.reference.S3Constants.PROPERTY_S3_SERVICE_PATH;
+import static org.jclouds.s3.reference.S3Constants.PROPERTY_S3_VIRTUAL_HOST_BUCKETS;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.InvalidKeyException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.jclouds.aws.domain.Region;
+import org.jclouds.aws.domain.SessionCredentials;
+import org.jclouds.crypto.Crypto;
+import org.jclouds.date.DateService;
+import org.jclouds.date.TimeStamp;
+import org.jclouds.domain.Credentials;
+import org.jclouds.http.HttpException;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpUtils;
+import org.jclouds.http.internal.SignatureWire;
+import org.jclouds.io.ContentMetadata;
+import org.jclouds.io.MutableContentMetadata;
+import org.jclouds.io.Payload;
+import org.jclouds.io.payloads.BaseMutableContentMetadata;
+import org.jclouds.io.payloads.ByteSourcePayload;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+import org.jclouds.s3.Bucket;
+import org.jclouds.s3.util.S3Utils;
+import org.jclouds.util.Closeables2;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.net.HttpHeaders;
+
+/**
+ * Signs the S3 request with AWS Signature Version 4.
+ * <p/>
+ * The signing key derived from the secret, date and region is cached, so each request costs two
+ * HMACs rather than six. Payloads larger than one chunk, and payloads which cannot be read twice,
+ * are sent with {@code aws-chunked} encoding, where every chunk is signed as it is streamed;
+ * this avoids reading the payload once to hash it before sending it. Payloads of unknown length
+ * which cannot be read twice are sent as {@code UNSIGNED-PAYLOAD}.
+ * <p/>
+ * Requests to a regional endpoint are signed for its region. Requests to the global endpoint are
+ * signed for the location of their bucket, as these are forwarded to the bucket's region; the
+ * location is looked up the first time a bucket is used, except when creating the bucket.
+ * <p/>
+ * This signer is not bound by default. To use it, override {@code bindRequestSigner} in the
+ * {@code S3HttpApiModule} of the provider, for instance {@code AWSS3HttpApiModule} for
+ * {@code aws-s3}, and bind {@link RequestAuthorizeSignature} to this class:
+ * 
+ * <pre>
+ * &#064;Override
+ * protected void bindRequestSigner() {
+ *    bind(RequestAuthorizeSignature.class).to(RequestAuthorizeSignatureV4.class).in(Scopes.SINGLETON);
+ * }
+ * </pre>
+ * 
+ * Signed URLs, which use {@link #sign(String)}, remain Version 2.
+ */
+@Singleton
+public class RequestAuthorizeSignatureV4 extends RequestAuthorizeSignature {
+
+   static final String ALGORITHM = "AWS4-HMAC-SHA256";
+   static final String STREAMING_PAYLOAD = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD";
+   static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+   static final String CONTENT_SHA256 = "x-amz-content-sha256";
+   static final String DECODED_CONTENT_LENGTH = "x-amz-decoded-content-length";
+   static final String AMZ_DATE = "x-amz-date";
+   static final String AWS_CHUNKED = "aws-chunked";
+
+   @VisibleForTesting
+   static final int CHUNK_SIZE = 64 * 1024;
+
+   private static final String SERVICE = "s3";
+   private static final String DEFAULT_REGION = "us-east-1";
+   /** The {@code S3Client} method which creates a bucket; other PUTs are to buckets which exist. */
+   private static final String PUT_BUCKET_IN_REGION = "putBucketInRegion";
+   private static final String CHUNK_SIGNATURE = ";chunk-signature=";
+   private static final String EMPTY_SHA256 = hex(sha256().hashBytes(new byte[0]).asBytes());
+   private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+   private static final Pattern REGIONAL_HOST = Pattern.compile("(?:.*\\.)?s3[.-]([a-z0-9-]+)\\.amazonaws\\.com");
+   private static final Pattern GLOBAL_HOST = Pattern.compile("(?:.*\\.)?s3\\.amazonaws\\.com");
+   /** Headers which HTTP drivers or proxies may rewrite after the request is signed. */
+   private static final Set<String> UNSIGNED_HEADERS = ImmutableSet.of("authorization", "connection", "expect",
+         "user-agent");
+
+   private final Supplier<Credentials> creds;
+   private final Provider<String> timeStampProvider;
+   private final DateService dateService;
+   private final Crypto crypto;
+   private final HttpUtils utils;
+   private final SignatureWire signatureWire;
+   private final Function<String, Optional<String>> bucketToRegion;
+   private final LoadingCache<String, Optional<String>> bucketToRegionCache;
+   private final Cache<List<String>, byte[]> signingKeys = CacheBuilder.newBuilder().maximumSize(16).build();
+
+   @Inject
+   public RequestAuthorizeSignatureV4(SignatureWire signatureWire, @Named(PROPERTY_AUTH_TAG) String authTag,
+            @Named(PROPERTY_S3_VIRTUAL_HOST_BUCKETS) boolean isVhostStyle,
+            @Named(PROPERTY_S3_SERVICE_PATH) String servicePath, @Named(PROPERTY_HEADER_TAG) String headerTag,
+            @org.jclouds.location.Provider Supplier<Credentials> creds,
+            @TimeStamp Provider<String> timeStampProvider, Crypto crypto, HttpUtils utils, DateService dateService,
+            @Bucket Function<String, Optional<String>> bucketToRegion,
+            @Bucket LoadingCache<String, Optional<String>> bucketToRegionCache) {
+      super(signatureWire, authTag, isVhostStyle, servicePath, headerTag, creds, timeStampProvider, crypto, utils);
+      this.signatureWire = signatureWire;
+      this.creds = creds;
+      this.timeStampProvider = timeStampProvider;
+      this.dateService = dateService;
+      this.crypto = crypto;
+      this.utils = utils;
+      this.bucketToRegion = bucketToRegion;
+      this.bucketToRegionCache = bucketToRegionCache;
+   }
+
+   @Override
+   public HttpRequest filter(HttpRequest request) throws HttpException {
+      Credentials credentials = creds.get();
+      // the timestamp is cached for the session interval, in the format of the Date header
+      String timestamp = dateService.iso8601SecondsDateFormat(dateService.rfc822DateParse(timeStampProvider.get()))
+            .replace("-", "").replace(":", "");
+      String datestamp = timestamp.substring(0, 8);
+      String host = host(request);
+      String region = region(request, host);
+      String scope = Joiner.on('/').join(datestamp, region, SERVICE, "aws4_request");
+      byte[] signingKey = signingKey(credentials.credential, datestamp, region);
+
+      HttpRequest.Builder<?> builder = request.toBuilder().removeHeader(HttpHeaders.AUTHORIZATION)
+            .replaceHeader(AMZ_DATE, timestamp);
+      if (credentials instanceof SessionCredentials) {
+         builder.replaceHeader("x-amz-security-token", SessionCredentials.class.cast(credentials).getSessionToken());
+      }
+
+      Payload payload = request.getPayload();
+      if (payload instanceof SignedChunksPayload) {
+         // signing again, for instance after the timestamp has changed
+         payload = SignedChunksPayload.class.cast(payload).decoded;
+      }
+      builder.removeHeader(DECODED_CONTENT_LENGTH);
+      MutableContentMetadata contentMetadata = null;
+      boolean streaming = false;
+      String payloadHash;
+      if (payload == null) {
+         payloadHash = EMPTY_SHA256;
+      } else {
+         contentMetadata = BaseMutableContentMetadata.fromContentMetadata(payload.getContentMetadata());
+         Long length = contentMetadata.getContentLength();
+         if (length != null && (length > CHUNK_SIZE || !payload.isRepeatable())) {
+            streaming = true;
+            payloadHash = STREAMING_PAYLOAD;
+            String encoding = contentMetadata.getContentEncoding();
+            contentMetadata.setContentEncoding(encoding == null ? AWS_CHUNKED : AWS_CHUNKED + "," + encoding);
+            contentMetadata.setContentLength(chunkedContentLength(length));
+            builder.replaceHeader(DECODED_CONTENT_LENGTH, Long.toString(length));
+         } else if (payload.isRepeatable()) {
+            payloadHash = hash(payload);
+         } else {
+            payloadHash = UNSIGNED_PAYLOAD;
+         }
+      }
+      builder.replaceHeader(CONTENT_SHA256, payloadHash);
+      request = builder.build();
+
+      SortedMap<String, String> signedHeaders = signedHeaders(request, host, contentMetadata);
+      String stringToSign = createStringToSign(request, signedHeaders, payloadHash, timestamp, scope);
+      String signature = hex(hmacSHA256(signingKey, stringToSign));
+
+      if (payload != null) {
+         Payload signedPayload = streaming ? chunkedPayload(payload, signingKey, timestamp, scope, signature) : payload;
+         signedPayload.setContentMetadata(contentMetadata);
+         request = request.toBuilder().payload(signedPayload).build();
+      }
+
+      StringBuilder authorization = new StringBuilder(ALGORITHM).append(' ');
+      authorization.append("Credential=").append(credentials.identity).append('/').append(scope).append(',');
+      authorization.append("SignedHeaders=").append(Joiner.on(';').join(signedHeaders.keySet())).append(',');
+      authorization.append("Signature=").append(signature);
+      request = request.toBuilder().replaceHeader(HttpHeaders.AUTHORIZATION, authorization.toString()).build();
+      utils.logRequest(signatureLog, request, "<<");
+      return request;
+   }
+
+   /**
+    * @return the region of an AWS regional endpoint, the location of the bucket for the global
+    *         endpoint, or {@code us-east-1} when it is unknown and for other S3 implementations
+    */
+   protected String region(HttpRequest request, String host) {
+      String hostname = hostname(host);
+      if (GLOBAL_HOST.matcher(hostname).matches()) {
+         Optional<String> location = bucketLocation(request);
+         if (location.isPresent() && !location.get().equals(Region.US_STANDARD)) {
+            return location.get();
+         }
+      }
+      return region(host);
+   }
+
+   /**
+    * @return the region of an AWS regional endpoint, or {@code us-east-1} for the global endpoint
+    *         and other S3 implementations
+    */
+   protected String region(String host) {
+      Matcher matcher = REGIONAL_HOST.matcher(hostname(host));
+      if (!matcher.matches() || matcher.group(1).equals("external-1")) {
+         return DEFAULT_REGION;
+      }
+      return matcher.group(1);
+   }
+
+   private Optional<String> bucketLocation(HttpRequest request) {
+      if (!(request instanceof GeneratedHttpRequest)) {
+         return Optional.absent();
+      }
+      String bucket = S3Utils.getBucketName(request);
+      if (bucket == null) {
+         return Optional.absent();
+      }
+      if (isBucketCreation((GeneratedHttpRequest) request) || "location".equals(request.getEndpoint().getQuery())) {
+         // looking up the location of a bucket being created, or of the location request itself,
+         // would fail or recurse; the endpoint accepts these signed for us-east-1
+         Optional<String> location = bucketToRegionCache.getIfPresent(bucket);
+         return location == null ? Optional.<String> absent() : location;
+      }
+      // loads the location the first time the bucket is used
+      return bucketToRegion.apply(bucket);
+   }
+
+   private static boolean isBucketCreation(GeneratedHttpRequest request) {
+      return request.getMethod().equals("PUT")
+            && request.getInvocation().getInvokable().getName().equals(PUT_BUCKET_IN_REGION);
+   }
+
+   private static String hostname(String host) {
+      int colon = host.indexOf(':');
+      return colon == -1 ? host : host.substring(0, colon);
+   }
+
+   private static String host(HttpRequest request) {
+      String host = request.getFirstHeaderOrNull(HttpHeaders.HOST);
+      if (host != null) {
+         return host;
+      }
+      int port = request.getEndpoint().getPort();
+      return port == -1 ? request.getEndpoint().getHost() : request.getEndpoint().getHost() + ":" + port;
+   }
+
+   private byte[] signingKey(String secret, String datestamp, String region) {
+      List<String> key = ImmutableList.of(secret, datestamp, region);
+      byte[] signingKey = signingKeys.getIfPresent(key);
+      if (signingKey == null) {
+         byte[] kDate = hmacSHA256(("AWS4" + secret).getBytes(UTF_8), datestamp);
+         byte[] kRegion = hmacSHA256(kDate, region);
+         byte[] kService = hmacSHA256(kRegion, SERVICE);
+         signingKey = hmacSHA256(kService, "aws4_request");
+         signingKeys.put(key, signingKey);
+      }
+      return signingKey;
+   }
+
+   private SortedMap<String, String> signedHeaders(HttpRequest request, String host,
+         ContentMetadata contentMetadata) {
+      SortedMap<String, String> signedHeaders = Maps.newTreeMap();
+      Multimap<String, String> headers = request.getHeaders();
+      for (String name : headers.keySet()) {
+         String key = name.toLowerCase(Locale.ENGLISH);
+         if (!UNSIGNED_HEADERS.contains(key)) {
+            List<String> values = Lists.newArrayList();
+            for (String value : headers.get(name)) {
+               values.add(WHITESPACE.matcher(value.trim()).replaceAll(" "));
+            }
+            signedHeaders.put(key, Joiner.on(',').join(values));
+         }
+      }
+      signedHeaders.put("host", host);
+      if (contentMetadata != null) {
+         // the driver sends these from the payload rather than the request headers
+         putIfNotNull(signedHeaders, "content-encoding", contentMetadata.getContentEncoding());
+         putIfNotNull(signedHeaders, "content-length", contentMetadata.getContentLength());
+         HashCode md5 = contentMetadata.getContentMD5AsHashCode();
+         putIfNotNull(signedHeaders, "content-md5", md5 == null ? null : base64().encode(md5.asBytes()));
+         putIfNotNull(signedHeaders, "content-type", contentMetadata.getContentType());
+      }
+      return signedHeaders;
+   }
+
+   private static void putIfNotNull(Map<String, String> headers, String name, Object value) {
+      if (value != null) {
+         headers.put(name, value.toString());
+      }
+   }
+
+   @VisibleForTesting
+   String createStringToSign(HttpRequest request, SortedMap<String, String> signedHeaders, String payloadHash,
+         String timestamp, String scope) {
+      StringBuilder canonicalRequest = new StringBuilder();
+      canonicalRequest.append(request.getMethod()).append('\n');
+      String path = request.getEndpoint().getRawPath();
+      canonicalRequest.append(path == null || path.isEmpty() ? "/" : path).append('\n');
+      appendCanonicalQuery(request, canonicalRequest);
+      canonicalRequest.append('\n');
+      for (Map.Entry<String, String> header : signedHeaders.entrySet()) {
+         canonicalRequest.append(header.getKey()).append(':').append(header.getValue()).append('\n');
+      }
+      canonicalRequest.append('\n');
+      canonicalRequest.append(Joiner.on(';').join(signedHeaders.keySet())).append('\n');
+      canonicalRequest.append(payloadHash);
+
+      StringBuilder toSign = new StringBuilder();
+      toSign.append(ALGORITHM).append('\n');
+      toSign.append(timestamp).append('\n');
+      toSign.append(scope).append('\n');
+      toSign.append(hex(sha256().hashString(canonicalRequest, UTF_8).asBytes()));
+      if (signatureWire.enabled())
+         signatureWire.output(toSign.toString());
+      return toSign.toString();
+   }
+
+   private static void appendCanonicalQuery(HttpRequest request, StringBuilder canonicalRequest) {
+      String query = request.getEndpoint().getRawQuery();
+      if (query == null || query.isEmpty()) {
+         return;
+      }
+      SortedMap<String, String> parameters = Maps.newTreeMap();
+      for (Map.Entry<String, String> parameter : queryParser().apply(query).entries()) {
+         String value = parameter.getValue() == null ? "" : uriEncode(parameter.getValue());
+         String name = uriEncode(parameter.getKey());
+         // repeated parameters are sorted by value
+         parameters.put(name + '=' + value, name + '=' + value);
+      }
+      Joiner.on('&').appendTo(canonicalRequest, parameters.values());
+   }
+
+   /** Percent-encodes everything but the unreserved characters, as required by Signature Version 4. */
+   private static String uriEncode(String value) {
+      StringBuilder encoded = new StringBuilder();
+      for (byte b : value.getBytes(UTF_8)) {
+         char c = (char) (b & 0xFF);
+         if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_'
+               || c == '.' || c == '~') {
+            encoded.append(c);
+         } else {
+            encoded.append('%').append(base16().encode(new byte[] { b }));
+         }
+      }
+      return encoded.toString();
+   }
+
+   private static String hash(Payload payload) {
+      HashingInputStream input = null;
+      try {
+         input = new HashingInputStream(sha256(), payload.openStream());
+         ByteStreams.copy(input, ByteStreams.nullOutputStream());
+         return hex(input.hash().asBytes());
+      } catch (IOException ioe) {
+         throw new HttpException("error hashing payload", ioe);
+      } finally {
+         Closeables2.closeQuietly(input);
+      }
+   }
+
+   private byte[] hmacSHA256(byte[] key, String data) {
+      try {
+         return crypto.hmacSHA256(key).doFinal(data.getBytes(UTF_8));
+      } catch (InvalidKeyException e) {
+         throw new HttpException("error signing request", e);
+      }
+   }
+
+   private static String hex(byte[] bytes) {
+      return base16().lowerCase().encode(bytes);
+   }
+
+   @VisibleForTesting
+   static long chunkedContentLength(long decodedLength) {
+      long length = (decodedLength / CHUNK_SIZE) * encodedChunkLength(CHUNK_SIZE);
+      int remainder = (int) (decodedLength % CHUNK_SIZE);
+      if (remainder > 0) {
+         length += encodedChunkLength(remainder);
+      }
+      return length + encodedChunkLength(0);
+   }
+
+   private static long encodedChunkLength(int size) {
+      return Integer.toHexString(size).length() + CHUNK_SIGNATURE.length() + 64 + 2 + size + 2;
+   }
+
+   private Payload chunkedPayload(final Payload payload, final byte[] signingKey, final String timestamp,
+         final String scope, final String seedSignature) {
+      // each attempt resends every chunk with the same signatures
+      return new SignedChunksPayload(new ByteSource() {
+         @Override
+         public InputStream openStream() throws IOException {
+            return new ChunkSigningInputStream(payload.openStream(), signingKey, timestamp, scope, seedSignature);
+         }
+      }, payload);
+   }
+
+   /** The {@code aws-chunked} encoding of a payload, which remembers the payload it encodes. */
+   private static final class SignedChunksPayload extends ByteSourcePayload {
+      private final Payload decoded;
+
+      SignedChunksPayload(ByteSource encoded, Payload decoded) {
+         super(encoded);
+         this.decoded = decoded;
+      }
+
+      @Override
+      public boolean isRepeatable() {
+         return decoded.isRepeatable();
+      }
+
+      @Override
+      public void release() {
+         super.release();
+         decoded.release();
+      }
+   }
+
+   /**
+    * Encodes a stream as {@code aws-chunked}, where each chunk is signed with the signature of the
+    * previous one, starting from the signature of the request.
+    */
+   private final class ChunkSigningInputStream extends InputStream {
+      private final InputStream in;
+      private final byte[] signingKey;
+      private final String timestamp;
+      private final String scope;
+      private final byte[] data = new byte[CHUNK_SIZE];
+      private String previousSignature;
+      private byte[] chunk = new byte[0];
+      private int position;
+      private boolean finished;
+
+      ChunkSigningInputStream(InputStream in, byte[] signingKey, String timestamp, String scope,
+            String seedSignature) {
+         this.in = in;
+         this.signingKey = signingKey;
+         this.timestamp = timestamp;
+         this.scope = scope;
+         this.previousSignature = seedSignature;
+      }
+
+      @Override
+      public int read() throws IOException {
+         if (position == chunk.length && !nextChunk()) {
+            return -1;
+         }
+         return chunk[position++] & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         if (len == 0) {
+            return 0;
+         }
+         if (position == chunk.length && !nextChunk()) {
+            return -1;
+         }
+         int n = Math.min(len, chunk.length - position);
+         System.arraycopy(chunk, position, b, off, n);
+         position += n;
+         return n;
+      }
+
+      private boolean nextChunk() throws IOException {
+         if (finished) {
+            return false;
+         }
+         int size = ByteStreams.read(in, data, 0, data.length);
+         finished = size == 0;
+         StringBuilder toSign = new StringBuilder("AWS4-HMAC-SHA256-PAYLOAD").append('\n');
+         toSign.append(timestamp).append('\n');
+         toSign.append(scope).append('\n');
+         toSign.append(previousSignature).append('\n');
+         toSign.append(EMPTY_SHA256).append('\n');
+         toSign.append(hex(sha256().hashBytes(data, 0, size).asBytes()));
+         previousSignature = hex(hmacSHA256(signingKey, toSign.toString()));
+
+         byte[] header = (Integer.toHexString(size) + CHUNK_SIGNATURE + previousSignature + "\r\n").getBytes(UTF_8);
+         chunk = new byte[header.length + size + 2];
+         System.arraycopy(header, 0, chunk, 0, header.length);
+         System.arraycopy(data, 0, chunk, header.length, size);
+         chunk[chunk.length - 2] = '\r';
+         chunk[chunk.length - 1] = '\n';
+         position = 0;
+         return true;
+      }
+
+      @Override
+      public void close() throws IOException {
+         in.close();
+      }
+   }
+}
@@ -21,6 +21,7 @@ import java.util.Set;
 
 import javax.inject.Singleton;
 
+import org.jclouds.aws.handlers.AWSAdmissionController;
 import org.jclouds.aws.handlers.AWSClientErrorRetryHandler;
 import org.jclouds.aws.handlers.AWSServerErrorRetryHandler;
 import org.jclouds.aws.handlers.ParseAWSErrorFromXmlContent;
@@ -29,6 +30,7 @@ import org.jclouds.http.HttpRetryHandler;
 import org.jclouds.http.annotation.ClientError;
 import org.jclouds.http.annotation.Redirection;
 import org.jclouds.http.annotation.ServerError;
+import org.jclouds.http.handlers.AdmissionController;
 import org.jclouds.rest.ConfiguresHttpApi;
 import org.jclouds.rest.config.HttpApiModule;
 
@@ -46,6 +48,12 @@ public abstract class AWSHttpApiModule<A> extends HttpApiModule<A> {
       super(api);
    }
 
+   @Override
+   protected void configure() {
+      super.configure();
+      bind(AdmissionController.class).to(AWSAdmissionController.class);
+   }
+
    @Provides
    @ClientError
    @Singleton
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aws.handlers;
+
+import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.aws.domain.AWSError;
+import org.jclouds.aws.util.AWSUtils;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.handlers.AdmissionController;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Also treats responses with status 400 as throttled when their error code says so, as SQS,
+ * CloudWatch and other query APIs return {@code Throttling} that way.
+ */
+@Singleton
+public class AWSAdmissionController extends AdmissionController {
+
+   static final Set<String> THROTTLING_CODES = ImmutableSet.of("Throttling", "ThrottlingException",
+         "RequestLimitExceeded", "RequestThrottled", "SlowDown", "ProvisionedThroughputExceededException");
+
+   private final AWSUtils utils;
+
+   @Inject
+   AWSAdmissionController(AWSUtils utils) {
+      this.utils = utils;
+   }
+
+   @Override
+   protected boolean isThrottled(HttpCommand command, HttpResponse response) {
+      if (super.isThrottled(command, response)) {
+         return true;
+      }
+      // Content can be null in the case of HEAD requests
+      if (response.getStatusCode() == 400 && response.getPayload() != null) {
+         closeClientButKeepContentStream(response);
+         AWSError error = utils.parseAWSErrorFromContent(command.getCurrentRequest(), response);
+         return error != null && THROTTLING_CODES.contains(error.getCode());
+      }
+      return false;
+   }
+}
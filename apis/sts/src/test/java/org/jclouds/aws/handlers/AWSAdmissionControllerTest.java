@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aws.handlers;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.jclouds.aws.domain.AWSError;
+import org.jclouds.aws.util.AWSUtils;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.io.Payloads;
+import org.testng.annotations.Test;
+
+/**
+ * Tests behavior of {@code AWSAdmissionController}
+ */
+@Test(groups = "unit", testName = "AWSAdmissionControllerTest")
+public class AWSAdmissionControllerTest {
+
+   private final HttpRequest request = HttpRequest.builder().method("POST").endpoint("https://sqs.amazonaws.com/")
+         .build();
+   private final HttpCommand command = new HttpCommand(request);
+
+   public void testThrottlingCodeIsThrottled() {
+      assertTrue(isThrottled("Throttling"));
+   }
+
+   public void testOtherCodeIsNotThrottled() {
+      assertFalse(isThrottled("InvalidParameterValue"));
+   }
+
+   public void testServiceUnavailableIsThrottledWithoutParsing() {
+      AWSUtils utils = createMock(AWSUtils.class);
+      replay(utils);
+      assertTrue(new AWSAdmissionController(utils).isThrottled(command, HttpResponse.builder().statusCode(503)
+            .build()));
+      verify(utils);
+   }
+
+   private boolean isThrottled(String code) {
+      AWSUtils utils = createMock(AWSUtils.class);
+      HttpResponse response = HttpResponse.builder().statusCode(400)
+            .payload(Payloads.newStringPayload(String.format("<Error><Code>%s</Code></Error>", code))).build();
+      AWSError error = new AWSError();
+      error.setCode(code);
+      expect(utils.parseAWSErrorFromContent(request, response)).andReturn(error);
+      replay(utils);
+
+      boolean throttled = new AWSAdmissionController(utils).isThrottled(command, response);
+      verify(utils);
+      return throttled;
+   }
+}
@@ -16,8 +16,10 @@
  */
 package org.jclouds.blobstore;
 
+import java.io.File;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.google.common.annotations.Beta;
 
@@ -291,6 +293,31 @@ public interface BlobStore {
    @Nullable
    Blob getBlob(String container, String name, GetOptions options);
 
+   /**
+    * Downloads the blob at location {@code container/name} into {@code destination}, issuing
+    * concurrent range requests on the user executor.
+    *
+    * @param container
+    *           container where this exists.
+    * @param name
+    *           fully qualified name relative to the container.
+    * @param destination
+    *           file to write to; it is replaced, or deleted if the download fails
+    * @throws KeyNotFoundException
+    *            if the blob doesn't exist
+    * @throws ContainerNotFoundException
+    *            if the container doesn't exist
+    */
+   @Beta
+   void downloadBlob(String container, String name, File destination);
+
+   /**
+    * Like {@link #downloadBlob(String, String, File)} but issues the range requests on
+    * {@code executor}.
+    */
+   @Beta
+   void downloadBlob(String container, String name, File destination, ExecutorService executor);
+
    /**
     * Deletes a {@code Blob} representing the data at location {@code container/name}
     * 
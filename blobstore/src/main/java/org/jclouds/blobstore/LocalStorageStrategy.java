@@ -18,14 +18,17 @@ package org.jclouds.blobstore;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.NavigableSet;
 
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.domain.Location;
+import org.jclouds.javax.annotation.Nullable;
 
 /**
  * Strategy for local operations related to container and blob
@@ -100,6 +103,32 @@ public interface LocalStorageStrategy {
      */
     Iterable<String> getBlobKeysInsideContainer(String container) throws IOException;
 
+    /**
+     * Returns the keys of the blobs inside a container in lexicographic order. Callers listing a
+     * page of results can seek past a marker and stop early instead of visiting every key.
+     * <p/>
+     * Implementations may stop once they have returned {@code maxResults} entries, where the keys
+     * which share a common prefix up to the delimiter count as one entry, and may leave out the
+     * keys of such a prefix after its first blob. Callers which need more entries call again with
+     * the last key they used, or the end of the last common prefix, as the marker.
+     * @param container
+     * @param prefix
+     *           only return keys which begin with this prefix, using / as the separator; null
+     *           returns every key
+     * @param delimiter
+     *           delimiter after the prefix which ends a common prefix; null counts every key as an
+     *           entry
+     * @param marker
+     *           keys at or before this one, using / as the separator, may be left out; null
+     *           returns keys from the first
+     * @param maxResults
+     *           number of entries after which the keys may end
+     * @return
+     * @throws IOException
+     */
+    NavigableSet<String> getBlobKeysInsideContainer(String container, @Nullable String prefix,
+          @Nullable String delimiter, @Nullable String marker, int maxResults) throws IOException;
+
     /**
      * Load the blob with the given key belonging to the container with the given
      * name. There must exist a resource on the file system whose complete name
@@ -114,6 +143,13 @@ public interface LocalStorageStrategy {
      */
     Blob getBlob(String containerName, String blobName);
 
+    /**
+     * Load the metadata of the blob with the given key without opening its content.
+     *
+     * @return the metadata of the blob, or null if the blob does not exist
+     */
+    MutableBlobMetadata getBlobMetadata(String container, String key);
+
     /**
      * Write a {@link Blob} into a file
      * @param container
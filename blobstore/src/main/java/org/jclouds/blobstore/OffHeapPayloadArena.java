@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteSource;
+
+/**
+ * Keeps the payloads of {@link TransientStorageStrategy} in direct buffers outside of the Java
+ * heap, so that large data sets do not lengthen garbage collection pauses.
+ * <p/>
+ * Payloads are returned as {@link ByteSource} views of the buffers, which slice without copying.
+ * Once the total size of the admitted blobs exceeds the capacity, the least recently used blobs
+ * are evicted. The memory of an evicted payload is released when the last view of it is
+ * collected, so readers in progress are not disturbed.
+ */
+final class OffHeapPayloadArena {
+
+   private static final int CHUNK_SIZE = 1024 * 1024;
+
+   private final long capacity;
+   /** Admitted blobs in access order, guarded by this. */
+   private final LinkedHashMap<Map.Entry<String, String>, Blob> blobs =
+         new LinkedHashMap<Map.Entry<String, String>, Blob>(16, 0.75f, /*accessOrder=*/ true);
+   private long used;
+
+   OffHeapPayloadArena(long capacity) {
+      checkArgument(capacity > 0, "capacity must be positive but was: %s", capacity);
+      this.capacity = capacity;
+   }
+
+   /**
+    * Copies the stream into direct buffers.
+    *
+    * @throws IllegalArgumentException
+    *            if the stream is larger than the capacity
+    */
+   ByteSource write(InputStream input, @Nullable Long contentLength) throws IOException {
+      checkArgument(contentLength == null || contentLength <= capacity,
+            "payload of %s bytes exceeds the off-heap capacity of %s bytes", contentLength, capacity);
+      ReadableByteChannel channel = Channels.newChannel(input);
+      List<ByteBuffer> chunks = Lists.newArrayList();
+      long size = 0;
+      while (true) {
+         long remaining = contentLength == null ? CHUNK_SIZE : contentLength - size;
+         // after the declared length, probe with one byte for the end of the stream
+         int chunkSize = remaining > 0 ? (int) Math.min(CHUNK_SIZE, remaining) : remaining == 0 ? 1 : CHUNK_SIZE;
+         ByteBuffer chunk = ByteBuffer.allocateDirect(chunkSize);
+         while (chunk.hasRemaining() && channel.read(chunk) != -1) {
+            // fill the chunk
+         }
+         chunk.flip();
+         boolean endOfStream = chunk.limit() < chunkSize;
+         if (chunk.hasRemaining()) {
+            size += chunk.remaining();
+            checkArgument(size <= capacity, "payload exceeds the off-heap capacity of %s bytes", capacity);
+            if (endOfStream) {
+               // do not hold on to the unused part of the chunk
+               chunk = ByteBuffer.allocateDirect(chunk.remaining()).put(chunk);
+               chunk.flip();
+            }
+            chunks.add(chunk.asReadOnlyBuffer());
+         }
+         if (endOfStream) {
+            break;
+         }
+      }
+      long[] starts = new long[chunks.size()];
+      long start = 0;
+      for (int i = 0; i < starts.length; ++i) {
+         starts[i] = start;
+         start += chunks.get(i).limit();
+      }
+      return new ChunkedByteSource(ImmutableList.copyOf(chunks), starts, 0, size);
+   }
+
+   /**
+    * Records a blob which has been stored, replacing any earlier version, and evicts the least
+    * recently used blobs until the rest fit in the capacity.
+    *
+    * @return the evicted blobs
+    */
+   synchronized List<Blob> admit(Blob blob) {
+      Blob previous = blobs.put(key(blob.getMetadata().getContainer(), blob.getMetadata().getName()), blob);
+      if (previous != null) {
+         used -= previous.getMetadata().getSize();
+      }
+      used += blob.getMetadata().getSize();
+      List<Blob> evicted = Lists.newArrayList();
+      for (Iterator<Blob> it = blobs.values().iterator(); used > capacity && it.hasNext();) {
+         Blob lru = it.next();
+         if (lru != blob) {
+            used -= lru.getMetadata().getSize();
+            evicted.add(lru);
+            it.remove();
+         }
+      }
+      return evicted;
+   }
+
+   /** Marks a blob as recently used. */
+   synchronized void touch(String container, String name) {
+      blobs.get(key(container, name));
+   }
+
+   synchronized void remove(String container, String name) {
+      Blob removed = blobs.remove(key(container, name));
+      if (removed != null) {
+         used -= removed.getMetadata().getSize();
+      }
+   }
+
+   synchronized void removeContainer(String container) {
+      for (Iterator<Map.Entry<Map.Entry<String, String>, Blob>> it = blobs.entrySet().iterator(); it.hasNext();) {
+         Map.Entry<Map.Entry<String, String>, Blob> entry = it.next();
+         if (entry.getKey().getKey().equals(container)) {
+            used -= entry.getValue().getMetadata().getSize();
+            it.remove();
+         }
+      }
+   }
+
+   synchronized long used() {
+      return used;
+   }
+
+   private static Map.Entry<String, String> key(String container, String name) {
+      return new SimpleImmutableEntry<String, String>(container, name);
+   }
+
+   /** A view of a range of the concatenation of chunks. */
+   private static final class ChunkedByteSource extends ByteSource {
+      private final List<ByteBuffer> chunks;
+      private final long[] starts;
+      private final long offset;
+      private final long length;
+
+      ChunkedByteSource(List<ByteBuffer> chunks, long[] starts, long offset, long length) {
+         this.chunks = chunks;
+         this.starts = starts;
+         this.offset = offset;
+         this.length = length;
+      }
+
+      @Override
+      public InputStream openStream() {
+         return new ChunkedInputStream(chunks, starts, offset, length);
+      }
+
+      @Override
+      public long size() {
+         return length;
+      }
+
+      @Override
+      public ByteSource slice(long offset, long length) {
+         checkArgument(offset >= 0, "offset (%s) may not be negative", offset);
+         checkArgument(length >= 0, "length (%s) may not be negative", length);
+         long start = Math.min(offset, this.length);
+         return new ChunkedByteSource(chunks, starts, this.offset + start, Math.min(length, this.length - start));
+      }
+   }
+
+   private static final class ChunkedInputStream extends InputStream {
+      private final List<ByteBuffer> chunks;
+      private final long[] starts;
+      private final long end;
+      private long position;
+      private long mark;
+
+      ChunkedInputStream(List<ByteBuffer> chunks, long[] starts, long offset, long length) {
+         this.chunks = chunks;
+         this.starts = starts;
+         this.end = offset + length;
+         this.position = offset;
+         this.mark = offset;
+      }
+
+      @Override
+      public int read() {
+         if (position >= end) {
+            return -1;
+         }
+         int index = chunkIndex();
+         return chunks.get(index).get((int) (position++ - starts[index])) & 0xFF;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+         if (len == 0) {
+            return 0;
+         }
+         if (position >= end) {
+            return -1;
+         }
+         int read = 0;
+         while (read < len && position < end) {
+            int index = chunkIndex();
+            ByteBuffer chunk = chunks.get(index).duplicate();
+            chunk.position((int) (position - starts[index]));
+            int n = (int) Math.min(Math.min(len - read, chunk.remaining()), end - position);
+            chunk.get(b, off + read, n);
+            read += n;
+            position += n;
+         }
+         return read;
+      }
+
+      private int chunkIndex() {
+         int index = Arrays.binarySearch(starts, position);
+         // otherwise (-(insertion point) - 1), and the chunk starts before the insertion point
+         return index >= 0 ? index : -index - 2;
+      }
+
+      @Override
+      public long skip(long n) {
+         long skipped = Math.max(0, Math.min(n, end - position));
+         position += skipped;
+         return skipped;
+      }
+
+      @Override
+      public int available() {
+         return (int) Math.min(Integer.MAX_VALUE, end - position);
+      }
+
+      @Override
+      public boolean markSupported() {
+         return true;
+      }
+
+      @Override
+      public synchronized void mark(int readlimit) {
+         mark = position;
+      }
+
+      @Override
+      public synchronized void reset() {
+         position = mark;
+      }
+   }
+}
@@ -16,7 +16,10 @@
  */
 package org.jclouds.blobstore;
 
+import static org.jclouds.blobstore.reference.TransientConstants.PROPERTY_OFF_HEAP_CAPACITY;
+
 import java.net.URI;
+import java.util.Properties;
 
 import org.jclouds.apis.ApiMetadata;
 import org.jclouds.apis.internal.BaseApiMetadata;
@@ -47,6 +50,12 @@ public class TransientApiMetadata extends BaseApiMetadata {
       super(builder);
    }
 
+   public static Properties defaultProperties() {
+      Properties properties = BaseApiMetadata.defaultProperties();
+      properties.setProperty(PROPERTY_OFF_HEAP_CAPACITY, "0");
+      return properties;
+   }
+
    public static class Builder extends BaseApiMetadata.Builder<Builder> {
 
       protected Builder() {
@@ -57,6 +66,7 @@ public class TransientApiMetadata extends BaseApiMetadata {
          .defaultIdentity(System.getProperty("user.name"))
          .defaultCredential("bar")
          .version("1")
+         .defaultProperties(TransientApiMetadata.defaultProperties())
          .view(BlobStoreContext.class)
          .defaultModule(TransientBlobStoreContextModule.class)
          .documentation(URI.create("http://www.jclouds.org/documentation/userguide/blobstore-guide"));
@@ -17,27 +17,34 @@
 package org.jclouds.blobstore;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.io.BaseEncoding.base16;
 
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.Blob.Factory;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
 import org.jclouds.blobstore.domain.MutableStorageMetadata;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.domain.internal.MutableStorageMetadataImpl;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.reference.TransientConstants;
 import org.jclouds.blobstore.util.BlobStoreUtils;
 import org.jclouds.date.DateService;
 import org.jclouds.domain.Location;
@@ -59,7 +66,7 @@ import com.google.common.io.ByteStreams;
 import com.google.common.net.HttpHeaders;
 
 public class TransientStorageStrategy implements LocalStorageStrategy {
-   private final ConcurrentMap<String, ConcurrentMap<String, Blob>> containerToBlobs = new ConcurrentHashMap<String, ConcurrentMap<String, Blob>>();
+   private final ConcurrentMap<String, ConcurrentNavigableMap<String, Blob>> containerToBlobs = new ConcurrentHashMap<String, ConcurrentNavigableMap<String, Blob>>();
    private final ConcurrentMap<String, ConcurrentMap<String, BlobAccess>> containerToBlobAccess = new ConcurrentHashMap<String, ConcurrentMap<String, BlobAccess>>();
    private final ConcurrentMap<String, StorageMetadata> containerMetadata = new ConcurrentHashMap<String, StorageMetadata>();
    private final ConcurrentMap<String, ContainerAccess> containerAccessMap = new ConcurrentHashMap<String, ContainerAccess>();
@@ -67,14 +74,17 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
    private final DateService dateService;
    private final Factory blobFactory;
    private final ContentMetadataCodec contentMetadataCodec;
+   private final OffHeapPayloadArena offHeapArena;
 
    @Inject
    TransientStorageStrategy(Supplier<Location> defaultLocation, DateService dateService, Factory blobFactory,
-         ContentMetadataCodec contentMetadataCodec) {
+         ContentMetadataCodec contentMetadataCodec,
+         @Named(TransientConstants.PROPERTY_OFF_HEAP_CAPACITY) long offHeapCapacity) {
       this.defaultLocation = defaultLocation;
       this.dateService = dateService;
       this.blobFactory = blobFactory;
       this.contentMetadataCodec = contentMetadataCodec;
+      this.offHeapArena = offHeapCapacity > 0 ? new OffHeapPayloadArena(offHeapCapacity) : null;
    }
 
    @Override
@@ -89,8 +99,8 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
 
    @Override
    public boolean createContainerInLocation(String containerName, Location location, CreateContainerOptions options) {
-      ConcurrentMap<String, Blob> origValue = containerToBlobs.putIfAbsent(
-            containerName, new ConcurrentHashMap<String, Blob>());
+      ConcurrentNavigableMap<String, Blob> origValue = containerToBlobs.putIfAbsent(
+            containerName, new ConcurrentSkipListMap<String, Blob>());
       if (origValue != null) {
          return false;
       }
@@ -123,6 +133,9 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
    public void deleteContainer(final String containerName) {
       containerToBlobs.remove(containerName);
       containerToBlobAccess.remove(containerName);
+      if (offHeapArena != null) {
+         offHeapArena.removeContainer(containerName);
+      }
    }
 
    @Override
@@ -134,6 +147,9 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
    public void clearContainer(String containerName, ListContainerOptions options) {
       // TODO implement options
       containerToBlobs.get(containerName).clear();
+      if (offHeapArena != null) {
+         offHeapArena.removeContainer(containerName);
+      }
    }
 
    @Override
@@ -152,19 +168,49 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
       return containerToBlobs.get(containerName).keySet();
    }
 
+   @Override
+   public NavigableSet<String> getBlobKeysInsideContainer(final String containerName, final String prefix,
+         final String delimiter, final String marker, final int maxResults) {
+      // the sorted key set is itself the index, so a view of all the remaining keys costs nothing
+      NavigableSet<String> keys = containerToBlobs.get(containerName).navigableKeySet();
+      if (!isNullOrEmpty(prefix)) {
+         keys = keys.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+      }
+      if (marker != null) {
+         keys = keys.tailSet(marker, false);
+      }
+      return keys;
+   }
+
    @Override
    public Blob getBlob(final String containerName, final String blobName) {
       Map<String, Blob> map = containerToBlobs.get(containerName);
-      return map == null ? null : map.get(blobName);
+      Blob blob = map == null ? null : map.get(blobName);
+      if (blob != null && offHeapArena != null) {
+         offHeapArena.touch(containerName, blobName);
+      }
+      return blob;
+   }
+
+   @Override
+   public MutableBlobMetadata getBlobMetadata(final String containerName, final String blobName) {
+      // listing does not count as a use for eviction
+      Map<String, Blob> map = containerToBlobs.get(containerName);
+      Blob blob = map == null ? null : map.get(blobName);
+      return blob == null ? null : blob.getMetadata();
    }
 
    @Override
    public String putBlob(final String containerName, final Blob blob) throws IOException {
-      byte[] payload;
+      ByteSource payload;
       HashCode actualHashCode;
       HashingInputStream input = new HashingInputStream(Hashing.md5(), blob.getPayload().openStream());
       try {
-         payload = ByteStreams.toByteArray(input);
+         if (offHeapArena == null) {
+            payload = ByteSource.wrap(ByteStreams.toByteArray(input));
+         } else {
+            payload = offHeapArena.write(input, blob.getPayload().getContentMetadata().getContentLength());
+         }
          actualHashCode = input.hash();
          HashCode expectedHashCode = blob.getPayload().getContentMetadata().getContentMD5AsHashCode();
          if (expectedHashCode != null && !actualHashCode.equals(expectedHashCode)) {
@@ -180,6 +226,14 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
       String blobName = newBlob.getMetadata().getName();
       map.put(blobName, newBlob);
       containerToBlobAccess.get(containerName).put(blobName, BlobAccess.PRIVATE);
+      if (offHeapArena != null) {
+         for (Blob evicted : offHeapArena.admit(newBlob)) {
+            ConcurrentMap<String, Blob> evictedFrom = containerToBlobs.get(evicted.getMetadata().getContainer());
+            if (evictedFrom != null) {
+               evictedFrom.remove(evicted.getMetadata().getName(), evicted);
+            }
+         }
+      }
       return base16().lowerCase().encode(actualHashCode.asBytes());
    }
 
@@ -188,6 +242,9 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
       Map<String, Blob> map = containerToBlobs.get(containerName);
       if (map != null)
          map.remove(blobName);
+      if (offHeapArena != null) {
+         offHeapArena.remove(containerName, blobName);
+      }
    }
 
    @Override
@@ -222,21 +279,22 @@ public class TransientStorageStrategy implements LocalStorageStrategy {
       return "/";
    }
 
-   private Blob createUpdatedCopyOfBlobInContainer(String containerName, Blob in, byte[] input, HashCode contentMd5) {
+   private Blob createUpdatedCopyOfBlobInContainer(String containerName, Blob in, ByteSource input,
+         HashCode contentMd5) throws IOException {
       checkNotNull(containerName, "containerName");
       checkNotNull(in, "blob");
       checkNotNull(input, "input");
       checkNotNull(contentMd5, "contentMd5");
-      Payload payload = Payloads.newByteSourcePayload(ByteSource.wrap(input));
+      Payload payload = Payloads.newByteSourcePayload(input);
       MutableContentMetadata oldMd = in.getPayload().getContentMetadata();
       HttpUtils.copy(oldMd, payload.getContentMetadata());
       payload.getContentMetadata().setContentMD5(contentMd5);
-      payload.getContentMetadata().setContentLength((long) input.length);
+      payload.getContentMetadata().setContentLength(input.size());
       Blob blob = blobFactory.create(BlobStoreUtils.copy(in.getMetadata()));
       blob.setPayload(payload);
       blob.getMetadata().setContainer(containerName);
       blob.getMetadata().setLastModified(new Date());
-      blob.getMetadata().setSize((long) input.length);
+      blob.getMetadata().setSize(input.size());
       String eTag = base16().lowerCase().encode(contentMd5.asBytes());
       blob.getMetadata().setETag(eTag);
       // Set HTTP headers to match metadata
@@ -17,13 +17,10 @@
 package org.jclouds.blobstore.config;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Throwables.getCausalChain;
 import static com.google.common.base.Throwables.propagate;
 import static com.google.common.collect.Iterables.size;
 import static com.google.common.collect.Iterables.transform;
-import static com.google.common.collect.Iterables.tryFind;
-import static com.google.common.collect.Sets.filter;
 import static com.google.common.collect.Sets.newTreeSet;
 import static org.jclouds.blobstore.options.ListContainerOptions.Builder.recursive;
 
@@ -36,15 +33,19 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.jclouds.Constants;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.ContainerNotFoundException;
@@ -70,6 +71,7 @@ import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.GetOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.strategy.internal.ParallelBlobDownloader;
 import org.jclouds.blobstore.util.BlobStoreUtils;
 import org.jclouds.blobstore.util.BlobUtils;
 import org.jclouds.collect.Memoized;
@@ -88,14 +90,16 @@ import org.jclouds.util.Closeables2;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
 import com.google.common.io.ByteSource;
 import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 @Singleton
 public final class LocalBlobStore implements BlobStore {
@@ -109,19 +113,22 @@ public final class LocalBlobStore implements BlobStore {
    private final ContentMetadataCodec contentMetadataCodec;
    private final Blob.Factory blobFactory;
    private final LocalStorageStrategy storageStrategy;
+   private final ListeningExecutorService userExecutor;
 
    @Inject
    LocalBlobStore(BlobStoreContext context,
          BlobUtils blobUtils,
          @Memoized Supplier<Set<? extends Location>> locations,
          ContentMetadataCodec contentMetadataCodec,
-         Blob.Factory blobFactory, LocalStorageStrategy storageStrategy) {
+         Blob.Factory blobFactory, LocalStorageStrategy storageStrategy,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
       this.context = checkNotNull(context, "context");
       this.blobUtils = checkNotNull(blobUtils, "blobUtils");
       this.locations = checkNotNull(locations, "locations");
       this.blobFactory = blobFactory;
       this.contentMetadataCodec = contentMetadataCodec;
       this.storageStrategy = storageStrategy;
+      this.userExecutor = userExecutor;
    }
 
    @Override
@@ -211,6 +218,10 @@ public final class LocalBlobStore implements BlobStore {
 
    /**
     * default maxResults is 1000
+    * <p/>
+    * Keys are visited in lexicographic order starting after the marker, directories collapsed into
+    * a common prefix are skipped over as a whole, and metadata is only loaded for the blobs on the
+    * returned page.
     */
    @Override
    public PageSet<? extends StorageMetadata> list(final String containerName, ListContainerOptions options) {
@@ -226,150 +237,121 @@ public final class LocalBlobStore implements BlobStore {
       if (!storageStrategy.containerExists(containerName))
          throw cnfe(containerName);
 
-      // Loading blobs from container
-      Iterable<String> blobBelongingToContainer = null;
-      try {
-         blobBelongingToContainer = storageStrategy.getBlobKeysInsideContainer(containerName);
-      } catch (IOException e) {
-         logger.error(e, "An error occurred loading blobs contained into container %s", containerName);
-         propagate(e);
-      }
-
-      blobBelongingToContainer = Iterables.filter(blobBelongingToContainer,
-            new Predicate<String>() {
-               @Override
-               public boolean apply(String key) {
-                  // ignore folders
-                  return storageStrategy.blobExists(containerName, key);
-               }
-            });
-      SortedSet<StorageMetadata> contents = newTreeSet(transform(blobBelongingToContainer,
-            new Function<String, StorageMetadata>() {
-               public StorageMetadata apply(String key) {
-                  Blob oldBlob = loadBlob(containerName, key);
-                  checkState(oldBlob != null, "blob " + key + " is not present although it was in the list of "
-                        + containerName);
-                  checkState(oldBlob.getMetadata() != null, "blob " + containerName + "/" + key + " has no metadata");
-                  MutableBlobMetadata md = BlobStoreUtils.copy(oldBlob.getMetadata());
-                  md.setSize(oldBlob.getMetadata().getSize());
-                  return md;
-               }
-            }));
-
-      String marker = null;
-      if (options != null) {
-         if (options.getDir() != null && !options.getDir().isEmpty()) {
-            contents = filterDirectory(contents, options);
-         } else if (options.getPrefix() != null) {
-            contents = filterPrefix(contents, options);
-         } else if (!options.isRecursive() || (options.getDelimiter() != null)) {
-            String delimiter = options.getDelimiter() == null ? storageStrategy.getSeparator() : options.getDelimiter();
-            contents = extractCommonPrefixes(contents, delimiter, null);
+      String prefix = null;
+      String delimiter = null;
+      String excludedKey = null;
+      if (options.getDir() != null && !options.getDir().isEmpty()) {
+         prefix = options.getDir().endsWith("/") ? options.getDir() : options.getDir() + "/";
+         excludedKey = prefix;
+         if (!options.isRecursive()) {
+            delimiter = storageStrategy.getSeparator();
          }
-
-         if (options.getMarker() != null) {
-            final String finalMarker = options.getMarker();
-            String delimiter = storageStrategy.getSeparator();
-            Optional<StorageMetadata> lastMarkerMetadata;
-            if (finalMarker.endsWith(delimiter)) {
-               lastMarkerMetadata = tryFind(contents, new Predicate<StorageMetadata>() {
-                  public boolean apply(StorageMetadata metadata) {
-                     int length = finalMarker.length() - 1;
-                     return metadata.getName().substring(0, length).compareTo(finalMarker.substring(0, length)) > 0;
-                  }
-               });
-            } else {
-               lastMarkerMetadata = tryFind(contents, new Predicate<StorageMetadata>() {
-                  public boolean apply(StorageMetadata metadata) {
-                     return metadata.getName().compareTo(finalMarker) > 0;
-                  }
-               });
-            }
-            if (lastMarkerMetadata.isPresent()) {
-               contents = contents.tailSet(lastMarkerMetadata.get());
-            } else {
-               // marker is after last key or container is empty
-               contents.clear();
+      } else if (options.getPrefix() != null) {
+         prefix = options.getPrefix();
+         delimiter = options.getDelimiter();
+      } else if (!options.isRecursive() || (options.getDelimiter() != null)) {
+         delimiter = options.getDelimiter() == null ? storageStrategy.getSeparator() : options.getDelimiter();
+      }
+
+      int maxResults = options.getMaxResults() != null ? options.getMaxResults() : 1000;
+      String marker = options.getMarker();
+      String nextMarker = null;
+      SortedMap<String, StorageType> page = Maps.newTreeMap();
+      // the last key, or end of a common prefix, which has been consumed
+      String position = marker;
+      NavigableSet<String> keys = listKeys(containerName, prefix, delimiter, position, maxResults);
+      // no key at or before the marker can produce an entry after it, see isAfterMarker
+      String key = higher(keys, position);
+      while (key != null) {
+         String normalizedKey = key.replace(File.separatorChar, '/');
+         String lastKeyOfEntry = key;
+         if ((prefix != null && !normalizedKey.startsWith(prefix)) || normalizedKey.equals(excludedKey)
+               // ignore folders
+               || !storageStrategy.blobExists(containerName, key)) {
+            position = lastKeyOfEntry;
+         } else {
+            String name = key;
+            StorageType type = StorageType.BLOB;
+            int index = delimiter == null ? -1 : key.indexOf(delimiter, prefix == null ? 0 : prefix.length());
+            if (index != -1) {
+               // every key sharing this common prefix collapses into the same entry
+               name = key.substring(0, index + delimiter.length());
+               type = StorageType.RELATIVE_PATH;
+               lastKeyOfEntry = name + Character.MAX_VALUE;
             }
-         }
 
-         int maxResults = options.getMaxResults() != null ? options.getMaxResults() : 1000;
-         if (!contents.isEmpty()) {
-            StorageMetadata lastElement = contents.last();
-            contents = newTreeSet(Iterables.limit(contents, maxResults));
-            if (maxResults != 0 && !contents.contains(lastElement)) {
-               // Partial listing
-               lastElement = contents.last();
-               marker = lastElement.getName();
+            if (isAfterMarker(name, marker) && !page.containsKey(name)) {
+               if (page.size() == maxResults) {
+                  // Partial listing
+                  nextMarker = page.isEmpty() ? null : page.lastKey();
+                  break;
+               }
+               page.put(name, type);
             }
+            position = lastKeyOfEntry;
          }
+         key = higher(keys, position);
+         if (key == null) {
+            // the storage strategy may have stopped early, so continue after the last key consumed
+            keys = listKeys(containerName, prefix, delimiter, position, maxResults);
+            key = higher(keys, position);
+         }
+      }
 
+      SortedSet<StorageMetadata> contents = newTreeSet();
+      for (Map.Entry<String, StorageType> entry : page.entrySet()) {
+         if (entry.getValue() == StorageType.RELATIVE_PATH) {
+            MutableStorageMetadata md = new MutableStorageMetadataImpl();
+            md.setType(StorageType.RELATIVE_PATH);
+            md.setName(entry.getKey());
+            contents.add(md);
+            continue;
+         }
+         MutableBlobMetadata md = loadBlobMetadata(containerName, entry.getKey());
+         if (md == null) {
+            // removed after its key was listed
+            continue;
+         }
          // trim metadata, if the response isn't supposed to be detailed.
          if (!options.isDetailed()) {
-            for (StorageMetadata md : contents) {
-               md.getUserMetadata().clear();
-            }
+            md.getUserMetadata().clear();
          }
+         contents.add(md);
       }
 
-      return new PageSetImpl<StorageMetadata>(contents, marker);
+      return new PageSetImpl<StorageMetadata>(contents, nextMarker);
    }
 
-   private SortedSet<StorageMetadata> filterDirectory(SortedSet<StorageMetadata> contents, ListContainerOptions
-           options) {
-      String prefix = options.getDir();
-      final String dirPrefix = prefix.endsWith("/") ?
-              prefix :
-              prefix + "/";
-      contents = newTreeSet(filter(contents, new Predicate<StorageMetadata>() {
-         public boolean apply(StorageMetadata o) {
-            return o != null
-                    && o.getName().replace(File.separatorChar, '/').startsWith(dirPrefix)
-                    && !o.getName().replace(File.separatorChar, '/').equals(dirPrefix);
-         }
-      }));
-
-      if (!options.isRecursive()) {
-         return extractCommonPrefixes(contents, storageStrategy.getSeparator(), dirPrefix);
+   private NavigableSet<String> listKeys(String containerName, String prefix, String delimiter, String marker,
+         int maxResults) {
+      try {
+         // one more entry than the page holds tells whether the listing is partial
+         return storageStrategy.getBlobKeysInsideContainer(containerName, prefix, delimiter, marker,
+               maxResults + 1);
+      } catch (IOException e) {
+         logger.error(e, "An error occurred loading blobs contained into container %s", containerName);
+         throw propagate(e);
       }
-
-      return contents;
    }
 
-   private SortedSet<StorageMetadata> filterPrefix(SortedSet<StorageMetadata> contents, final ListContainerOptions
-                                                   options) {
-      contents = newTreeSet(filter(contents, new Predicate<StorageMetadata>() {
-         public boolean apply(StorageMetadata o) {
-            return o != null && o.getName().replace(File.separatorChar, '/').startsWith(options.getPrefix());
-         }
-      }));
-
-      if (options.getDelimiter() != null) {
-         return extractCommonPrefixes(contents, options.getDelimiter(), options.getPrefix());
-      }
-
-      return contents;
+   private static String higher(NavigableSet<String> keys, String position) {
+      return position == null ? keys.ceiling("") : keys.higher(position);
    }
 
-   private SortedSet<StorageMetadata> extractCommonPrefixes(SortedSet<StorageMetadata> contents, String delimiter,
-                                                            String prefix) {
-      SortedSet<String> commonPrefixes = newTreeSet(
-              transform(contents, new CommonPrefixes(prefix, delimiter)));
-      commonPrefixes.remove(CommonPrefixes.NO_PREFIX);
-
-      contents = newTreeSet(filter(contents, new DelimiterFilter(prefix, delimiter)));
-
-      for (String o : commonPrefixes) {
-         MutableStorageMetadata md = new MutableStorageMetadataImpl();
-         md.setType(StorageType.RELATIVE_PATH);
-
-         if (prefix != null) {
-            o = prefix + o;
-         }
-         md.setName(o + delimiter);
-         contents.add(md);
+   /**
+    * A marker ending with the separator denotes a common prefix, so every entry beginning with that
+    * prefix is skipped as well. Both conditions hold for a suffix of the sorted entries.
+    */
+   private boolean isAfterMarker(String name, String marker) {
+      if (marker == null) {
+         return true;
       }
-      return contents;
+      if (marker.endsWith(storageStrategy.getSeparator())) {
+         int length = marker.length() - 1;
+         String namePrefix = name.length() > length ? name.substring(0, length) : name;
+         return namePrefix.compareTo(marker.substring(0, length)) > 0;
+      }
+      return name.compareTo(marker) > 0;
    }
 
    private ContainerNotFoundException cnfe(final String name) {
@@ -378,6 +360,17 @@ public final class LocalBlobStore implements BlobStore {
             storageStrategy.getAllContainerNames()));
    }
 
+   @Override
+   public void downloadBlob(String container, String name, File destination) {
+      downloadBlob(container, name, destination, userExecutor);
+   }
+
+   @Override
+   public void downloadBlob(String container, String name, File destination, ExecutorService executor) {
+      new ParallelBlobDownloader(this, MoreExecutors.listeningDecorator(executor), logger)
+            .execute(container, name, destination);
+   }
+
    @Override
    public void removeBlob(String containerName, final String key) {
       if (!storageStrategy.containerExists(containerName)) {
@@ -458,58 +451,15 @@ public final class LocalBlobStore implements BlobStore {
       return storageStrategy.getBlob(container, key);
    }
 
-   private static class DelimiterFilter implements Predicate<StorageMetadata> {
-      private final String prefix;
-      private final String delimiter;
-
-      public DelimiterFilter(String prefix, String delimiter) {
-         this.prefix = prefix;
-         this.delimiter = delimiter;
-      }
-
-      public boolean apply(StorageMetadata metadata) {
-         String name = metadata.getName();
-         if (prefix == null || prefix.isEmpty()) {
-            return name.indexOf(delimiter) == -1;
-         }
-         if (name.startsWith(prefix)) {
-            String unprefixedName = name.replaceFirst(prefix, "");
-            if (unprefixedName.equals("")) {
-               // a blob that matches the prefix should also be returned
-               return true;
-            }
-            return unprefixedName.indexOf(delimiter) == -1;
-         }
-         return false;
-      }
-   }
-
-   private static class CommonPrefixes implements Function<StorageMetadata, String> {
-      private final String prefix;
-      private final String delimiter;
-      public static final String NO_PREFIX = "NO_PREFIX";
-
-      public CommonPrefixes(String prefix, String delimiter) {
-         this.prefix = prefix;
-         this.delimiter = delimiter;
-      }
-
-      public String apply(StorageMetadata metadata) {
-         String working = metadata.getName();
-         if (prefix != null) {
-            if (working.startsWith(prefix)) {
-               working = working.replaceFirst(Pattern.quote(prefix), "");
-            } else {
-               return NO_PREFIX;
-            }
-         }
-         if (working.indexOf(delimiter) >= 0) {
-            // include the delimiter in the result
-            return working.substring(0, working.indexOf(delimiter));
-         } else {
-            return NO_PREFIX;
-         }
+   private MutableBlobMetadata loadBlobMetadata(final String container, final String key) {
+      logger.debug("Loading metadata of blob in container: %s - %s", container, key);
+      MutableBlobMetadata metadata = storageStrategy.getBlobMetadata(container, key);
+      if (metadata == null) {
+         return null;
       }
+      MutableBlobMetadata md = BlobStoreUtils.copy(metadata);
+      md.setSize(metadata.getSize());
+      return md;
    }
 
    private static HttpResponseException returnResponseException(int code) {
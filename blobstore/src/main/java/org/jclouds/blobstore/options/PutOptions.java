@@ -16,6 +16,8 @@
  */
 package org.jclouds.blobstore.options;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Contains options supported in the put blob operation. <h2>
  * Usage</h2> The recommended way to instantiate a PutOptions object is to statically import
@@ -30,7 +32,14 @@ public class PutOptions implements Cloneable {
 
    public static final ImmutablePutOptions NONE = new ImmutablePutOptions(new PutOptions());
 
+   /**
+    * Default number of parts of a multipart upload which are uploaded concurrently.
+    */
+   public static final int DEFAULT_PARALLELISM = 4;
+
    private boolean multipart = false;
+   private int parallelism = DEFAULT_PARALLELISM;
+   private long maxBufferedBytes = 0;
 
    public PutOptions() {
    }
@@ -39,6 +48,12 @@ public class PutOptions implements Cloneable {
       this.multipart = multipart;
    }
 
+   public PutOptions(boolean multipart, int parallelism, long maxBufferedBytes) {
+      this.multipart = multipart;
+      this.parallelism = parallelism;
+      this.maxBufferedBytes = maxBufferedBytes;
+   }
+
    public static class ImmutablePutOptions extends PutOptions {
       private final PutOptions delegate;
 
@@ -51,11 +66,31 @@ public class PutOptions implements Cloneable {
          return delegate.isMultipart();
       }
 
+      @Override
+      public int getParallelism() {
+         return delegate.getParallelism();
+      }
+
+      @Override
+      public long getMaxBufferedBytes() {
+         return delegate.getMaxBufferedBytes();
+      }
+
       @Override
       public PutOptions multipart() {
          throw new UnsupportedOperationException();
       }
 
+      @Override
+      public PutOptions parallelism(int parallelism) {
+         throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public PutOptions maxBufferedBytes(long maxBufferedBytes) {
+         throw new UnsupportedOperationException();
+      }
+
       @Override
       public PutOptions clone() {
          return delegate.clone();
@@ -89,10 +124,38 @@ public class PutOptions implements Cloneable {
       return this;
    }
 
+   public int getParallelism() {
+      return parallelism;
+   }
+
+   /**
+    * maximum number of parts of a multipart upload to upload concurrently; defaults to
+    * {@link #DEFAULT_PARALLELISM}
+    */
+   public PutOptions parallelism(int parallelism) {
+      checkArgument(parallelism > 0, "parallelism must be positive but was: %s", parallelism);
+      this.parallelism = parallelism;
+      return this;
+   }
+
+   public long getMaxBufferedBytes() {
+      return maxBufferedBytes;
+   }
+
+   /**
+    * upper bound on the bytes of multipart upload parts which may be read ahead and in flight at
+    * once, further limiting {@link #parallelism(int)}; zero, the default, means no limit
+    */
+   public PutOptions maxBufferedBytes(long maxBufferedBytes) {
+      checkArgument(maxBufferedBytes >= 0, "maxBufferedBytes must be non-negative but was: %s", maxBufferedBytes);
+      this.maxBufferedBytes = maxBufferedBytes;
+      return this;
+   }
+
    public static class Builder {
 
       public static PutOptions fromPutOptions(PutOptions putOptions) {
-         return multipart(putOptions.multipart);
+         return putOptions.clone();
       }
       
       /**
@@ -106,15 +169,32 @@ public class PutOptions implements Cloneable {
          PutOptions options = new PutOptions();
          return options.multipart(val);
       }
+
+      /**
+       * @see PutOptions#parallelism(int)
+       */
+      public static PutOptions parallelism(int parallelism) {
+         PutOptions options = new PutOptions();
+         return options.parallelism(parallelism);
+      }
+
+      /**
+       * @see PutOptions#maxBufferedBytes(long)
+       */
+      public static PutOptions maxBufferedBytes(long maxBufferedBytes) {
+         PutOptions options = new PutOptions();
+         return options.maxBufferedBytes(maxBufferedBytes);
+      }
    }
 
    @Override
    public PutOptions clone() {
-      return new PutOptions(multipart);
+      return new PutOptions(multipart, parallelism, maxBufferedBytes);
    }
 
    @Override
    public String toString() {
-      return "[multipart=" + multipart + "]";
+      return "[multipart=" + multipart + ", parallelism=" + parallelism + ", maxBufferedBytes=" + maxBufferedBytes
+            + "]";
    }
 }
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.jclouds.blobstore.options.ListContainerOptions.Builder.recursive;
+import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.internal.BlobRuntimeException;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.blobstore.strategy.ClearContainerStrategy;
+import org.jclouds.blobstore.strategy.ClearListStrategy;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.logging.Logger;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+
+/**
+ * Deletes all keys in the container with {@link BlobStore#removeBlobs}, for blobstores which
+ * delete many keys in one request.
+ * <p/>
+ * The keys of each listing page are deleted in batches of up to {@value #BATCH_SIZE}, at most
+ * {@link Constants#PROPERTY_MAX_PARALLEL_DELETES} batches at a time, while the next page is
+ * listed. Only recursive listings, which are flat, are cleared this way; other options are left
+ * to {@link DeleteAllKeysInList}.
+ * <p/>
+ * A batch fails when {@code removeBlobs} throws, which it must also do when the blobstore reports
+ * that some keys were not deleted; the container is then listed and cleared again. When the batch
+ * delete request itself is rejected with 404, 405 or 501, as by Swift clusters without bulk delete
+ * and S3-compatible stores without multi-object delete, the keys are deleted one at a time by
+ * {@link DeleteAllKeysInList} instead.
+ */
+@Singleton
+public class DeleteKeysInBatches implements ClearListStrategy, ClearContainerStrategy {
+   /** The most keys both S3 multi-object delete and Swift bulk delete accept in one request. */
+   static final int BATCH_SIZE = 1000;
+
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   protected final BackoffLimitedRetryHandler retryHandler;
+
+   private final ListeningExecutorService executorService;
+
+   protected final BlobStore blobStore;
+
+   private final DeleteAllKeysInList deleteEachKey;
+
+   /** Maximum duration in milliseconds of a request. */
+   protected long maxTime = Long.MAX_VALUE;
+
+   /** Maximum times to retry an operation. */
+   protected int maxErrors = 3;
+
+   /** Maximum parallel batches. */
+   private final int maxParallelDeletes;
+
+   @Inject
+   DeleteKeysInBatches(@Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executorService,
+         BlobStore blobStore, BackoffLimitedRetryHandler retryHandler, DeleteAllKeysInList deleteEachKey,
+         @Named(Constants.PROPERTY_MAX_PARALLEL_DELETES) int maxParallelDeletes) {
+      this.executorService = executorService;
+      this.blobStore = blobStore;
+      this.retryHandler = retryHandler;
+      this.deleteEachKey = deleteEachKey;
+      this.maxParallelDeletes = maxParallelDeletes;
+   }
+
+   @Inject(optional = true)
+   void setMaxTime(@Named(Constants.PROPERTY_REQUEST_TIMEOUT) long maxTime) {
+      this.maxTime = maxTime;
+   }
+
+   @Inject(optional = true)
+   void setMaxErrors(@Named(Constants.PROPERTY_MAX_RETRIES) int maxErrors) {
+      this.maxErrors = maxErrors;
+   }
+
+   public void execute(String containerName) {
+      execute(containerName, recursive());
+   }
+
+   public void execute(String containerName, ListContainerOptions listOptions) {
+      if (!listOptions.isRecursive() || listOptions.getDelimiter() != null || listOptions.getPrefix() != null) {
+         deleteEachKey.execute(containerName, listOptions);
+         return;
+      }
+      String message = listOptions.getDir() != null ? String.format("clearing path %s/%s in batches",
+            containerName, listOptions.getDir()) : String.format("clearing container %s in batches", containerName);
+      AtomicBoolean unsupported = new AtomicBoolean();
+      for (int attempt = 1; !deleteAllPages(containerName, listOptions, message, unsupported); attempt++) {
+         if (unsupported.get()) {
+            logger.debug("batch delete is not supported, deleting each key instead of %s", message);
+            deleteEachKey.execute(containerName, listOptions);
+            return;
+         }
+         if (attempt >= maxErrors) {
+            throw new BlobRuntimeException("Exceeded maximum retry attempts");
+         }
+         retryHandler.imposeBackoffExponentialDelay(attempt, message);
+      }
+   }
+
+   /**
+    * Lists the container page by page, submitting the deletion of each page before listing the
+    * next, and waits for the deletions to complete.
+    *
+    * @param unsupported
+    *           set when a batch is rejected because the blobstore does not support batch deletes
+    * @return false if any batch could not be deleted
+    */
+   private boolean deleteAllPages(final String containerName, ListContainerOptions listOptions, String message,
+         AtomicBoolean unsupported) {
+      final Semaphore semaphore = new Semaphore(maxParallelDeletes);
+      final AtomicBoolean deleteFailure = new AtomicBoolean();
+      final Set<ListenableFuture<Void>> outstandingFutures = Collections
+            .synchronizedSet(new HashSet<ListenableFuture<Void>>());
+      ListContainerOptions options = listOptions.clone();
+      logger.debug(message);
+      try {
+         for (;;) {
+            PageSet<? extends StorageMetadata> listing;
+            try {
+               listing = blobStore.list(containerName, options);
+            } catch (ContainerNotFoundException cnfe) {
+               break;
+            }
+            List<String> names = Lists.newArrayList();
+            for (StorageMetadata md : listing) {
+               switch (md.getType()) {
+               case BLOB:
+               case FOLDER:
+                  names.add(md.getName());
+                  break;
+               case RELATIVE_PATH:
+                  // only listed with a delimiter, which recursive listings do not use
+                  break;
+               case CONTAINER:
+                  throw new IllegalArgumentException("Container type not supported");
+               }
+            }
+            for (List<String> batch : Iterables.partition(names, BATCH_SIZE)) {
+               if (!semaphore.tryAcquire(maxTime, TimeUnit.MILLISECONDS)) {
+                  throw new TimeoutException("Timeout waiting for semaphore");
+               }
+               submitBatch(containerName, batch, semaphore, outstandingFutures, deleteFailure, unsupported);
+            }
+            String marker = listing.getNextMarker();
+            if (marker == null) {
+               break;
+            }
+            logger.debug("%s with marker %s", message, marker);
+            options = options.afterMarker(marker);
+         }
+         // Wait for all batches to complete by acquiring all permits.
+         semaphore.acquire(maxParallelDeletes);
+      } catch (TimeoutException te) {
+         logger.debug("TimeoutException while deleting blobs: %s", te.getMessage());
+         cancelOutstandingFutures(outstandingFutures);
+         return false;
+      } catch (InterruptedException ie) {
+         cancelOutstandingFutures(outstandingFutures);
+         Thread.currentThread().interrupt();
+         throw new BlobRuntimeException("Interrupted while " + message, ie);
+      }
+      return !deleteFailure.get();
+   }
+
+   private void submitBatch(final String containerName, final List<String> batch, final Semaphore semaphore,
+         final Set<ListenableFuture<Void>> outstandingFutures, final AtomicBoolean deleteFailure,
+         final AtomicBoolean unsupported) {
+      final ListenableFuture<Void> batchFuture = executorService.submit(new Callable<Void>() {
+         @Override
+         public Void call() {
+            blobStore.removeBlobs(containerName, batch);
+            return null;
+         }
+      });
+      outstandingFutures.add(batchFuture);
+      Futures.addCallback(batchFuture, new FutureCallback<Void>() {
+         @Override
+         public void onSuccess(Void result) {
+            outstandingFutures.remove(batchFuture);
+            semaphore.release();
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            logger.debug("failed to delete %s keys from %s: %s", batch.size(), containerName, t.getMessage());
+            deleteFailure.set(true);
+            if (isUnsupported(t)) {
+               unsupported.set(true);
+            }
+            outstandingFutures.remove(batchFuture);
+            semaphore.release();
+         }
+      });
+   }
+
+   private static boolean isUnsupported(Throwable t) {
+      HttpResponseException hre = getFirstThrowableOfType(t, HttpResponseException.class);
+      if (hre == null || hre.getResponse() == null) {
+         return false;
+      }
+      int statusCode = hre.getResponse().getStatusCode();
+      return statusCode == 404 || statusCode == 405 || statusCode == 501;
+   }
+
+   private void cancelOutstandingFutures(Set<ListenableFuture<Void>> outstandingFutures) {
+      List<ListenableFuture<Void>> futures;
+      synchronized (outstandingFutures) {
+         futures = Lists.newArrayList(outstandingFutures);
+      }
+      for (ListenableFuture<Void> future : futures) {
+         future.cancel(/*mayInterruptIfRunning=*/ true);
+      }
+   }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.blobstore.options.GetOptions.Builder.range;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.options.GetOptions;
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Downloads a blob to a file by issuing concurrent range requests.
+ * <p/>
+ * Every range is requested with {@code If-Match} on the ETag observed when the download started,
+ * so a blob which is overwritten mid-download fails rather than producing a mix of both versions.
+ * Ranges are written to their position in the destination with {@link FileChannel#write(ByteBuffer,
+ * long)}. When the blobstore reports a Content-MD5 for the blob, the completed file is verified
+ * against it. The ETag is not used for this: even when it looks like an MD5 it may be derived from
+ * the parts of a multipart upload or the segments of a manifest rather than from the content.
+ */
+@Beta
+public final class ParallelBlobDownloader {
+
+   @VisibleForTesting
+   static final long DEFAULT_RANGE_SIZE = 32 * 1024 * 1024;
+
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   private final BlobStore blobStore;
+   private final ListeningExecutorService executor;
+   private final long rangeSize;
+   private final Logger logger;
+
+   public ParallelBlobDownloader(BlobStore blobStore, ListeningExecutorService executor, Logger logger) {
+      this(blobStore, executor, DEFAULT_RANGE_SIZE, logger);
+   }
+
+   @VisibleForTesting
+   ParallelBlobDownloader(BlobStore blobStore, ListeningExecutorService executor, long rangeSize, Logger logger) {
+      this.blobStore = checkNotNull(blobStore, "blobStore");
+      this.executor = checkNotNull(executor, "executor");
+      checkArgument(rangeSize > 0, "rangeSize must be positive but was: %s", rangeSize);
+      this.rangeSize = rangeSize;
+      this.logger = checkNotNull(logger, "logger");
+   }
+
+   /**
+    * Downloads {@code container/name} into {@code destination}, replacing its contents. The
+    * destination is deleted if the download fails.
+    *
+    * @throws KeyNotFoundException
+    *            if the blob does not exist
+    */
+   public void execute(String container, String name, File destination) {
+      BlobMetadata metadata = blobStore.blobMetadata(container, name);
+      if (metadata == null) {
+         throw new KeyNotFoundException(container, name, "while downloading");
+      }
+      long contentLength = checkNotNull(metadata.getContentMetadata().getContentLength(),
+            "content-length of %s/%s", container, name);
+      String eTag = metadata.getETag();
+
+      List<ListenableFuture<Void>> futures = Lists.newArrayList();
+      RandomAccessFile file = null;
+      try {
+         file = new RandomAccessFile(destination, "rw");
+         file.setLength(contentLength);
+         FileChannel channel = file.getChannel();
+         for (long offset = 0; offset < contentLength; offset += rangeSize) {
+            long last = Math.min(offset + rangeSize, contentLength) - 1;
+            futures.add(executor.submit(new DownloadRange(container, name, eTag, offset, last, channel)));
+         }
+         Futures.allAsList(futures).get();
+         channel.force(false);
+      } catch (InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         throw failed(destination, file, futures, ie);
+      } catch (ExecutionException ee) {
+         throw failed(destination, file, futures, ee.getCause());
+      } catch (IOException ioe) {
+         throw failed(destination, file, futures, ioe);
+      } catch (RuntimeException re) {
+         throw failed(destination, file, futures, re);
+      } finally {
+         Closeables2.closeQuietly(file);
+      }
+
+      verify(metadata, destination);
+   }
+
+   private void verify(BlobMetadata metadata, File destination) {
+      HashCode expected = metadata.getContentMetadata().getContentMD5AsHashCode();
+      if (expected == null) {
+         logger.debug("cannot verify download of %s/%s with ETag %s", metadata.getContainer(), metadata.getName(),
+               metadata.getETag());
+         return;
+      }
+      HashCode actual;
+      try {
+         actual = Files.asByteSource(destination).hash(Hashing.md5());
+      } catch (IOException ioe) {
+         throw failed(destination, null, ImmutableList.<ListenableFuture<Void>> of(), ioe);
+      }
+      if (!expected.equals(actual)) {
+         destination.delete();
+         throw new IllegalStateException(String.format("MD5 mismatch downloading %s/%s: expected %s but was %s",
+               metadata.getContainer(), metadata.getName(), expected, actual));
+      }
+   }
+
+   private RuntimeException failed(File destination, RandomAccessFile file, List<ListenableFuture<Void>> futures,
+         Throwable cause) {
+      for (ListenableFuture<Void> future : futures) {
+         future.cancel(/*mayInterruptIfRunning=*/ true);
+      }
+      Closeables2.closeQuietly(file);
+      if (!destination.delete()) {
+         logger.debug("could not delete partial download %s", destination);
+      }
+      throw Throwables.propagate(cause);
+   }
+
+   private final class DownloadRange implements Callable<Void> {
+      private final String container;
+      private final String name;
+      private final String eTag;
+      private final long first;
+      private final long last;
+      private final FileChannel channel;
+
+      DownloadRange(String container, String name, String eTag, long first, long last, FileChannel channel) {
+         this.container = container;
+         this.name = name;
+         this.eTag = eTag;
+         this.first = first;
+         this.last = last;
+         this.channel = channel;
+      }
+
+      @Override
+      public Void call() throws IOException {
+         GetOptions options = range(first, last);
+         if (eTag != null) {
+            options.ifETagMatches(eTag);
+         }
+         Blob blob = blobStore.getBlob(container, name, options);
+         if (blob == null) {
+            throw new KeyNotFoundException(container, name, "while downloading range " + first + "-" + last);
+         }
+         InputStream is = blob.getPayload().openStream();
+         try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = first;
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+               if (position + read > last + 1) {
+                  throw new IOException(String.format("range %d-%d of %s/%s returned too many bytes", first, last,
+                        container, name));
+               }
+               ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+               while (byteBuffer.hasRemaining()) {
+                  position += channel.write(byteBuffer, position);
+               }
+            }
+            if (position != last + 1) {
+               throw new IOException(String.format("range %d-%d of %s/%s ended early at %d", first, last, container,
+                     name, position));
+            }
+         } finally {
+            Closeables2.closeQuietly(is);
+         }
+         return null;
+      }
+   }
+}
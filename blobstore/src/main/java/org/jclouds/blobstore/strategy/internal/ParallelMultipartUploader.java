@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.io.Payload;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Uploads the slices of a multipart blob in parallel.
+ * <p/>
+ * Slices are read ahead on the calling thread, which is required for payloads backed by a single
+ * {@link java.io.InputStream}, and each part is uploaded on the supplied executor. The number of
+ * parts in flight is bounded by {@link PutOptions#getParallelism()} and, when set,
+ * {@link PutOptions#getMaxBufferedBytes()}. Parts with repeatable payloads are retried up to
+ * {@code maxPartAttempts} times; any other failure aborts the upload.
+ */
+@Beta
+public final class ParallelMultipartUploader {
+
+   @VisibleForTesting
+   static final int DEFAULT_MAX_PART_ATTEMPTS = 3;
+
+   private final BlobStore blobStore;
+   private final ListeningExecutorService executor;
+   private final int parallelism;
+   private final long maxBufferedBytes;
+   private final int maxPartAttempts;
+   private final Logger logger;
+
+   public ParallelMultipartUploader(BlobStore blobStore, ListeningExecutorService executor, PutOptions options,
+         Logger logger) {
+      this(blobStore, executor, options.getParallelism(), options.getMaxBufferedBytes(), DEFAULT_MAX_PART_ATTEMPTS,
+            logger);
+   }
+
+   @VisibleForTesting
+   ParallelMultipartUploader(BlobStore blobStore, ListeningExecutorService executor, int parallelism,
+         long maxBufferedBytes, int maxPartAttempts, Logger logger) {
+      this.blobStore = checkNotNull(blobStore, "blobStore");
+      this.executor = checkNotNull(executor, "executor");
+      checkArgument(parallelism > 0, "parallelism must be positive but was: %s", parallelism);
+      this.parallelism = parallelism;
+      checkArgument(maxBufferedBytes >= 0, "maxBufferedBytes must be non-negative but was: %s", maxBufferedBytes);
+      this.maxBufferedBytes = maxBufferedBytes;
+      checkArgument(maxPartAttempts > 0, "maxPartAttempts must be positive but was: %s", maxPartAttempts);
+      this.maxPartAttempts = maxPartAttempts;
+      this.logger = checkNotNull(logger, "logger");
+   }
+
+   /**
+    * Number of parts which may be in flight at once for the given part size.
+    */
+   @VisibleForTesting
+   int maxPartsInFlight(long partSize) {
+      if (maxBufferedBytes == 0 || partSize <= 0) {
+         return parallelism;
+      }
+      return (int) Math.max(1, Math.min(parallelism, maxBufferedBytes / partSize));
+   }
+
+   /**
+    * Uploads every slice to an already initiated multipart upload and completes it. The upload is
+    * aborted if any part fails after its retries are exhausted or if the caller is interrupted.
+    *
+    * @return the ETag returned by {@link BlobStore#completeMultipartUpload}
+    */
+   public String execute(MultipartUpload mpu, Iterable<Payload> slices, long partSize) {
+      final Semaphore semaphore = new Semaphore(maxPartsInFlight(partSize));
+      final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      List<ListenableFuture<MultipartPart>> futures = Lists.newArrayList();
+      try {
+         int partNumber = 1;
+         for (Payload payload : slices) {
+            semaphore.acquire();
+            if (failure.get() != null) {
+               semaphore.release();
+               break;
+            }
+            ListenableFuture<MultipartPart> future = executor.submit(new UploadPart(mpu, partNumber++, payload));
+            futures.add(future);
+            Futures.addCallback(future, new FutureCallback<MultipartPart>() {
+               @Override
+               public void onSuccess(MultipartPart part) {
+                  semaphore.release();
+               }
+
+               @Override
+               public void onFailure(Throwable t) {
+                  failure.compareAndSet(null, t);
+                  semaphore.release();
+               }
+            });
+         }
+         List<MultipartPart> parts = Futures.allAsList(futures).get();
+         return blobStore.completeMultipartUpload(mpu, parts);
+      } catch (InterruptedException ie) {
+         Thread.currentThread().interrupt();
+         throw abort(mpu, futures, ie);
+      } catch (ExecutionException ee) {
+         throw abort(mpu, futures, ee.getCause());
+      } catch (RuntimeException re) {
+         throw abort(mpu, futures, re);
+      }
+   }
+
+   private RuntimeException abort(MultipartUpload mpu, List<ListenableFuture<MultipartPart>> futures,
+         Throwable cause) {
+      for (ListenableFuture<MultipartPart> future : futures) {
+         future.cancel(/*mayInterruptIfRunning=*/ true);
+      }
+      logger.debug("aborting multipart upload %s of %s/%s: %s", mpu.id(), mpu.containerName(), mpu.blobName(),
+            cause.getMessage());
+      try {
+         blobStore.abortMultipartUpload(mpu);
+      } catch (RuntimeException re) {
+         logger.warn(re, "could not abort multipart upload %s", mpu.id());
+      }
+      throw Throwables.propagate(cause);
+   }
+
+   private final class UploadPart implements Callable<MultipartPart> {
+      private final MultipartUpload mpu;
+      private final int partNumber;
+      private final Payload payload;
+
+      UploadPart(MultipartUpload mpu, int partNumber, Payload payload) {
+         this.mpu = mpu;
+         this.partNumber = partNumber;
+         this.payload = payload;
+      }
+
+      @Override
+      public MultipartPart call() {
+         int attempt = 1;
+         while (true) {
+            try {
+               return blobStore.uploadMultipartPart(mpu, partNumber, payload);
+            } catch (RuntimeException re) {
+               if (attempt >= maxPartAttempts || !payload.isRepeatable() || Thread.currentThread().isInterrupted()) {
+                  throw re;
+               }
+               logger.debug("retrying part %d of multipart upload %s, attempt %d: %s", partNumber, mpu.id(),
+                     attempt, re.getMessage());
+               ++attempt;
+            }
+         }
+      }
+   }
+}
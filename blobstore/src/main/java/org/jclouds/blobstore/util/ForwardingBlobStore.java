@@ -19,8 +19,10 @@ package org.jclouds.blobstore.util;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.File;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.google.common.collect.ForwardingObject;
 
@@ -188,6 +190,16 @@ public abstract class ForwardingBlobStore extends ForwardingObject
       return delegate().getBlob(containerName, blobName, getOptions);
    }
 
+   @Override
+   public void downloadBlob(String container, String name, File destination) {
+      delegate().downloadBlob(container, name, destination);
+   }
+
+   @Override
+   public void downloadBlob(String container, String name, File destination, ExecutorService executor) {
+      delegate().downloadBlob(container, name, destination, executor);
+   }
+
    @Override
    public void removeBlob(String container, String name) {
       delegate().removeBlob(container, name);
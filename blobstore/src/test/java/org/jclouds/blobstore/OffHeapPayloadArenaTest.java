@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore;
+
+import static org.jclouds.blobstore.reference.TransientConstants.PROPERTY_OFF_HEAP_CAPACITY;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.util.Closeables2;
+import org.testng.annotations.Test;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+
+@Test(groups = "unit", testName = "OffHeapPayloadArenaTest")
+public class OffHeapPayloadArenaTest {
+
+   public void testWriteAcrossChunks() throws IOException {
+      byte[] content = content(3 * 1024 * 1024 + 17);
+      OffHeapPayloadArena arena = new OffHeapPayloadArena(content.length);
+
+      ByteSource source = arena.write(new ByteArrayInputStream(content), (long) content.length);
+
+      assertEquals(source.size(), content.length);
+      assertEquals(source.read(), content);
+      assertEquals(source.slice(1024 * 1024 - 3, 10).read(),
+            Arrays.copyOfRange(content, 1024 * 1024 - 3, 1024 * 1024 + 7));
+      assertEquals(source.slice(100, 1000).slice(10, 20).read(), Arrays.copyOfRange(content, 110, 130));
+   }
+
+   public void testWriteWithoutOrWrongContentLength() throws IOException {
+      byte[] content = content(1024 * 1024 + 1);
+      OffHeapPayloadArena arena = new OffHeapPayloadArena(2 * content.length);
+
+      assertEquals(arena.write(new ByteArrayInputStream(content), null).read(), content);
+      assertEquals(arena.write(new ByteArrayInputStream(content), 10L).read(), content);
+      assertEquals(arena.write(new ByteArrayInputStream(content), content.length + 10L).read(), content);
+      assertEquals(arena.write(new ByteArrayInputStream(new byte[0]), 0L).size(), 0);
+   }
+
+   public void testStreamSkipAndReset() throws IOException {
+      byte[] content = content(100);
+      ByteSource source = new OffHeapPayloadArena(100).write(new ByteArrayInputStream(content), 100L);
+
+      InputStream is = source.openStream();
+      assertEquals(is.skip(10), 10);
+      is.mark(0);
+      assertEquals(is.read(), content[10] & 0xFF);
+      is.reset();
+      assertEquals(ByteStreams.toByteArray(is), Arrays.copyOfRange(content, 10, 100));
+      assertEquals(is.read(), -1);
+   }
+
+   public void testRejectsPayloadLargerThanCapacity() throws IOException {
+      OffHeapPayloadArena arena = new OffHeapPayloadArena(10);
+      try {
+         arena.write(new ByteArrayInputStream(content(11)), null);
+         fail("expected IllegalArgumentException");
+      } catch (IllegalArgumentException expected) {
+      }
+   }
+
+   public void testEvictsLeastRecentlyUsedBlobs() throws IOException {
+      Properties overrides = new Properties();
+      overrides.setProperty(PROPERTY_OFF_HEAP_CAPACITY, "25");
+      BlobStoreContext context = ContextBuilder.newBuilder("transient").overrides(overrides)
+            .build(BlobStoreContext.class);
+      try {
+         BlobStore blobStore = context.getBlobStore();
+         blobStore.createContainerInLocation(null, "container");
+         blobStore.putBlob("container", blobStore.blobBuilder("a").payload(content(10)).build());
+         blobStore.putBlob("container", blobStore.blobBuilder("b").payload(content(10)).build());
+         assertEquals(ByteStreams.toByteArray(blobStore.getBlob("container", "a").getPayload().openStream()),
+               content(10));
+
+         blobStore.putBlob("container", blobStore.blobBuilder("c").payload(content(10)).build());
+
+         assertTrue(blobStore.blobExists("container", "a"));
+         assertFalse(blobStore.blobExists("container", "b"));
+         assertNull(blobStore.getBlob("container", "b"));
+         assertTrue(blobStore.blobExists("container", "c"));
+      } finally {
+         Closeables2.closeQuietly(context);
+      }
+   }
+
+   private static byte[] content(int length) {
+      byte[] content = new byte[length];
+      for (int i = 0; i < length; ++i) {
+         content[i] = (byte) (i * 31);
+      }
+      return content;
+   }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.Constants;
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.internal.BlobRuntimeException;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.util.Closeables2;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+@Test(testName = "DeleteKeysInBatchesTest", singleThreaded = true)
+public class DeleteKeysInBatchesTest {
+   private static final String containerName = "container";
+   private static final String directoryName = "directory";
+   private static final int maxParallelDeletes = 4;
+
+   private Injector injector;
+   private BlobStore blobstore;
+   private RecordingBlobStore recording;
+   private DeleteKeysInBatches deleter;
+
+   /**
+    * Records the batches removed, failing the first {@code failures} of them and leaving the last
+    * key of the next {@code partialFailures}, as a bulk delete reporting errors does. Rejects every
+    * batch when {@code unsupported} is set, as a blobstore without batch deletes does.
+    */
+   private static class RecordingBlobStore extends ForwardingBlobStore {
+      final List<Integer> batchSizes = Lists.newCopyOnWriteArrayList();
+      final AtomicInteger failures = new AtomicInteger();
+      final AtomicInteger partialFailures = new AtomicInteger();
+      volatile boolean unsupported;
+
+      RecordingBlobStore(BlobStore blobStore) {
+         super(blobStore);
+      }
+
+      @Override
+      public void removeBlobs(String container, Iterable<String> names) {
+         if (unsupported) {
+            throw new HttpResponseException("bulk delete not supported", null,
+                  HttpResponse.builder().statusCode(501).build());
+         }
+         if (failures.getAndDecrement() > 0) {
+            throw new IllegalStateException("batch failed");
+         }
+         List<String> batch = ImmutableList.copyOf(names);
+         batchSizes.add(batch.size());
+         if (partialFailures.getAndDecrement() > 0) {
+            super.removeBlobs(container, batch.subList(0, batch.size() - 1));
+            throw new BlobRuntimeException("failed to delete 1 blobs from " + container);
+         }
+         super.removeBlobs(container, batch);
+      }
+   }
+
+   @BeforeMethod
+   void setupBlobStore() {
+      injector = ContextBuilder.newBuilder("transient").buildInjector();
+      blobstore = injector.getInstance(BlobStore.class);
+      recording = new RecordingBlobStore(blobstore);
+      deleter = new DeleteKeysInBatches(
+            injector.getInstance(Key.get(ListeningExecutorService.class, Names.named(Constants.PROPERTY_USER_THREADS))),
+            recording, injector.getInstance(BackoffLimitedRetryHandler.class),
+            injector.getInstance(DeleteAllKeysInList.class), maxParallelDeletes);
+      createDataSet();
+   }
+
+   @AfterMethod
+   void close() {
+      Closeables2.closeQuietly(blobstore.getContext());
+   }
+
+   public void testExecuteWithoutOptionsClearsInBatches() {
+      deleter.execute(containerName);
+      assertEquals(blobstore.countBlobs(containerName), 0);
+      int deleted = 0;
+      for (int size : recording.batchSizes) {
+         assertTrue(size <= DeleteKeysInBatches.BATCH_SIZE, "batch of " + size);
+         deleted += size;
+      }
+      assertEquals(deleted, 3333);
+   }
+
+   public void testExecuteRecursiveInDirectory() {
+      deleter.execute(containerName, ListContainerOptions.Builder.inDirectory(directoryName).recursive());
+      assertEquals(blobstore.countBlobs(containerName), 1111);
+   }
+
+   public void testExecuteNonRecursiveDeletesEachKey() {
+      deleter.execute(containerName, ListContainerOptions.NONE);
+      assertEquals(blobstore.countBlobs(containerName), 2222);
+      assertTrue(recording.batchSizes.isEmpty(), "batches: " + recording.batchSizes);
+   }
+
+   public void testRetriesFailedBatches() {
+      recording.failures.set(1);
+      deleter.execute(containerName);
+      assertEquals(blobstore.countBlobs(containerName), 0);
+   }
+
+   public void testRetriesKeysLeftByPartiallyFailedBatches() {
+      recording.partialFailures.set(2);
+      deleter.execute(containerName);
+      assertEquals(blobstore.countBlobs(containerName), 0);
+   }
+
+   public void testDeletesEachKeyWhenBatchDeleteIsUnsupported() {
+      recording.unsupported = true;
+      deleter.execute(containerName);
+      assertEquals(blobstore.countBlobs(containerName), 0);
+      assertTrue(recording.batchSizes.isEmpty(), "batches: " + recording.batchSizes);
+   }
+
+   public void testGivesUpAfterMaxErrors() {
+      recording.failures.set(Integer.MAX_VALUE);
+      try {
+         deleter.execute(containerName);
+         fail("expected BlobRuntimeException");
+      } catch (BlobRuntimeException expected) {
+      }
+      assertEquals(blobstore.countBlobs(containerName), 3333);
+   }
+
+   private void createDataSet() {
+      blobstore.createContainerInLocation(null, containerName);
+      for (int i = 0; i < 1111; i++) {
+         String blobName = String.format("blob-%d", i);
+         blobstore.putBlob(containerName, blobstore.blobBuilder(blobName).payload(blobName).build());
+      }
+      for (int i = 0; i < 2222; i++) {
+         String directoryBlobName = String.format("%s/blob-%d", directoryName, i);
+         blobstore.putBlob(containerName, blobstore.blobBuilder(directoryBlobName).payload(directoryBlobName).build());
+      }
+      assertEquals(blobstore.countBlobs(containerName), 3333);
+   }
+}
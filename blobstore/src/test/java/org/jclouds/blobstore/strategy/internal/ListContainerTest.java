@@ -160,6 +160,36 @@ public class ListContainerTest {
       assertThat(results.getNextMarker()).isEqualTo(null);
    }
 
+   public void testListPagesOverCollapsedDirectory() {
+      String containerName = "testListPagesOverCollapsedDirectory";
+      blobStore.createContainerInLocation(null, containerName);
+      blobStore.putBlob(containerName, blobStore.blobBuilder("a").payload("").build());
+      for (int i = 0; i < 50; ++i) {
+         blobStore.putBlob(containerName, blobStore.blobBuilder("b/" + i).payload("").build());
+      }
+      blobStore.putBlob(containerName, blobStore.blobBuilder("c").payload("").build());
+
+      PageSet<? extends StorageMetadata> results = blobStore.list(
+              containerName, ListContainerOptions.Builder.maxResults(2));
+      assertThat(results).hasSize(2);
+      assertThat(Iterables.get(results, 0).getName()).isEqualTo("a");
+      assertThat(Iterables.get(results, 1).getName()).isEqualTo("b/");
+      assertThat(Iterables.get(results, 1).getType()).isEqualTo(StorageType.RELATIVE_PATH);
+      assertThat(results.getNextMarker()).isEqualTo("b/");
+
+      results = blobStore.list(containerName,
+              ListContainerOptions.Builder.maxResults(2).afterMarker(results.getNextMarker()));
+      assertThat(results).hasSize(1);
+      assertThat(Iterables.get(results, 0).getName()).isEqualTo("c");
+      assertThat(results.getNextMarker()).isNull();
+
+      results = blobStore.list(containerName,
+              ListContainerOptions.Builder.inDirectory("b").recursive().maxResults(10).afterMarker("b/3"));
+      assertThat(results).hasSize(10);
+      assertThat(Iterables.get(results, 0).getName()).isEqualTo("b/30");
+      assertThat(results.getNextMarker()).isEqualTo("b/39");
+   }
+
    public void testListBlobEndsWithDelimiter() {
       String containerName = "testListBlobEndsWithDelimiter";
       blobStore.createContainerInLocation(null, containerName);
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.jclouds.blobstore.options.GetOptions.Builder.range;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
+import org.jclouds.blobstore.options.GetOptions;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "ParallelBlobDownloaderTest", singleThreaded = true)
+public class ParallelBlobDownloaderTest {
+   private static final String CONTAINER = "container";
+
+   private BlobStore blobStore;
+   private ListeningExecutorService executor;
+   private File destination;
+
+   @BeforeClass
+   void setupBlobStore() throws IOException {
+      blobStore = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class).getBlobStore();
+      blobStore.createContainerInLocation(null, CONTAINER);
+      executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+      destination = File.createTempFile("ParallelBlobDownloaderTest", ".bin");
+   }
+
+   @AfterClass
+   void close() {
+      executor.shutdownNow();
+      destination.delete();
+      Closeables2.closeQuietly(blobStore.getContext());
+   }
+
+   public void testDownloadsAllRanges() throws IOException {
+      byte[] content = new byte[10 * 1024 + 17];
+      for (int i = 0; i < content.length; ++i) {
+         content[i] = (byte) (i * 31);
+      }
+      blobStore.putBlob(CONTAINER, blobStore.blobBuilder("blob").payload(content).build());
+
+      new ParallelBlobDownloader(blobStore, executor, 1024, Logger.NULL).execute(CONTAINER, "blob", destination);
+
+      assertEquals(Files.toByteArray(destination), content);
+   }
+
+   public void testDownloadsEmptyBlob() throws IOException {
+      blobStore.putBlob(CONTAINER, blobStore.blobBuilder("empty").payload(new byte[0]).build());
+
+      new ParallelBlobDownloader(blobStore, executor, 1024, Logger.NULL).execute(CONTAINER, "empty", destination);
+
+      assertEquals(destination.length(), 0);
+   }
+
+   public void testDownloadsManifestWithETagOfSegments() throws IOException {
+      final byte[] content = new byte[4 * 1024];
+      for (int i = 0; i < content.length; ++i) {
+         content[i] = (byte) i;
+      }
+      blobStore.putBlob(CONTAINER, blobStore.blobBuilder("manifest").payload(content).build());
+      // like a Swift SLO: the ETag is the MD5 of the segment ETags and there is no content MD5
+      final String segmentsETag = "\"" + Hashing.md5().hashString("segment-etags", UTF_8) + "\"";
+      BlobStore manifestStore = new ForwardingBlobStore(blobStore) {
+         @Override
+         public BlobMetadata blobMetadata(String container, String name) {
+            MutableBlobMetadata metadata = new MutableBlobMetadataImpl(super.blobMetadata(container, name));
+            metadata.setETag(segmentsETag);
+            metadata.getContentMetadata().setContentMD5((HashCode) null);
+            return metadata;
+         }
+
+         @Override
+         public Blob getBlob(String container, String name, GetOptions options) {
+            assertEquals(options.getIfMatch(), segmentsETag);
+            String[] range = options.getRanges().get(0).split("-");
+            return super.getBlob(container, name, range(Long.parseLong(range[0]), Long.parseLong(range[1])));
+         }
+      };
+
+      new ParallelBlobDownloader(manifestStore, executor, 1024, Logger.NULL).execute(CONTAINER, "manifest",
+            destination);
+
+      assertEquals(Files.toByteArray(destination), content);
+   }
+
+   public void testMissingBlob() throws IOException {
+      File missing = File.createTempFile("ParallelBlobDownloaderTest", ".missing");
+      missing.delete();
+      try {
+         new ParallelBlobDownloader(blobStore, executor, Logger.NULL).execute(CONTAINER, "missing", missing);
+         fail("expected KeyNotFoundException");
+      } catch (KeyNotFoundException expected) {
+      }
+      assertFalse(missing.exists());
+   }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.blobstore.strategy.internal;
+
+import static org.easymock.EasyMock.anyInt;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.io.Payload;
+import org.jclouds.io.PayloadSlicer;
+import org.jclouds.io.Payloads;
+import org.jclouds.io.internal.BasePayloadSlicer;
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "ParallelMultipartUploaderTest", singleThreaded = true)
+public class ParallelMultipartUploaderTest {
+   private static final String CONTAINER = "container";
+
+   private final PayloadSlicer slicer = new BasePayloadSlicer();
+   private BlobStore blobStore;
+   private ListeningExecutorService executor;
+
+   @BeforeClass
+   void setupBlobStore() {
+      blobStore = ContextBuilder.newBuilder("transient").buildView(BlobStoreContext.class)
+            .getBlobStore();
+      blobStore.createContainerInLocation(null, CONTAINER);
+      executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+   }
+
+   @AfterClass
+   void close() {
+      executor.shutdownNow();
+      Closeables2.closeQuietly(blobStore.getContext());
+   }
+
+   public void testMaxPartsInFlight() {
+      ParallelMultipartUploader uploader = new ParallelMultipartUploader(blobStore, executor, 8, 0, 1, Logger.NULL);
+      assertEquals(uploader.maxPartsInFlight(1024), 8);
+
+      uploader = new ParallelMultipartUploader(blobStore, executor, 8, 4096, 1, Logger.NULL);
+      assertEquals(uploader.maxPartsInFlight(1024), 4);
+      assertEquals(uploader.maxPartsInFlight(1024 * 1024), 1);
+   }
+
+   public void testUploadsAllPartsInOrder() throws IOException {
+      byte[] content = new byte[10 * 1024 + 17];
+      for (int i = 0; i < content.length; ++i) {
+         content[i] = (byte) i;
+      }
+      Blob blob = blobStore.blobBuilder("blob").payload(content).build();
+      MultipartUpload mpu = blobStore.initiateMultipartUpload(CONTAINER, blob.getMetadata());
+
+      ParallelMultipartUploader uploader = new ParallelMultipartUploader(blobStore, executor,
+            new PutOptions().multipart().parallelism(3).maxBufferedBytes(2048), Logger.NULL);
+      uploader.execute(mpu, slicer.slice(blob.getPayload(), 1024), 1024);
+
+      Blob stored = blobStore.getBlob(CONTAINER, "blob");
+      byte[] actual = ByteStreams.toByteArray(stored.getPayload().openStream());
+      assertEquals(actual, content);
+   }
+
+   public void testRetriesRepeatablePart() {
+      BlobStore mock = createMock(BlobStore.class);
+      MultipartUpload mpu = MultipartUpload.create(CONTAINER, "blob", "id",
+            blobStore.blobBuilder("blob").build().getMetadata());
+      Payload payload = Payloads.newByteArrayPayload(new byte[16]);
+      expect(mock.uploadMultipartPart(mpu, 1, payload)).andThrow(new RuntimeException("transient"));
+      expect(mock.uploadMultipartPart(mpu, 1, payload)).andReturn(MultipartPart.create(1, 16, "etag"));
+      expect(mock.completeMultipartUpload(eq(mpu), isA(List.class))).andReturn("final");
+      replay(mock);
+
+      ParallelMultipartUploader uploader = new ParallelMultipartUploader(mock, MoreExecutors.sameThreadExecutor(), 1,
+            0, 2, Logger.NULL);
+      assertEquals(uploader.execute(mpu, Collections.singletonList(payload), 16), "final");
+      verify(mock);
+   }
+
+   public void testAbortsWhenPartFails() {
+      BlobStore mock = createMock(BlobStore.class);
+      MultipartUpload mpu = MultipartUpload.create(CONTAINER, "blob", "id",
+            blobStore.blobBuilder("blob").build().getMetadata());
+      Payload payload = Payloads.newByteSourcePayload(ByteSource.wrap(new byte[32]));
+      expect(mock.uploadMultipartPart(eq(mpu), anyInt(), isA(Payload.class)))
+            .andThrow(new IllegalStateException("failed")).times(2);
+      mock.abortMultipartUpload(mpu);
+      expectLastCall();
+      replay(mock);
+
+      ParallelMultipartUploader uploader = new ParallelMultipartUploader(mock, MoreExecutors.sameThreadExecutor(), 1,
+            0, 2, Logger.NULL);
+      try {
+         uploader.execute(mpu, Collections.singletonList(payload), 32);
+         fail("expected IllegalStateException");
+      } catch (IllegalStateException expected) {
+      }
+      verify(mock);
+   }
+}
@@ -18,6 +18,9 @@ package org.jclouds.googlecloud.internal;
 
 import java.util.Iterator;
 
+import javax.inject.Named;
+
+import org.jclouds.Constants;
 import org.jclouds.googlecloud.domain.ListPage;
 import org.jclouds.googlecloud.options.ListOptions;
 import org.jclouds.http.HttpRequest;
@@ -25,18 +28,28 @@ import org.jclouds.rest.InvocationContext;
 import org.jclouds.rest.internal.GeneratedHttpRequest;
 
 import com.google.common.base.Function;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
 
 public abstract class BaseToIteratorOfListPage<T, O extends ListOptions, I extends BaseToIteratorOfListPage<T, O, I>>
       implements Function<ListPage<T>, Iterator<ListPage<T>>>, InvocationContext<I> {
 
    private GeneratedHttpRequest request;
 
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_USER_THREADS)
+   private ListeningExecutorService userExecutor;
+
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_PAGED_ITERABLE_PREFETCH)
+   private int pagesAhead = 0;
+
    @Override public Iterator<ListPage<T>> apply(ListPage<T> input) {
       if (input.nextPageToken() == null) {
          return ListPages.singletonOrEmptyIterator(input);
       }
-      return new AdvancingIterator<T>(input,
-            fetchNextPage(ListPages.<O>listOptions(request.getInvocation().getArgs())));
+      return ListPages.advancing(input, fetchNextPage(ListPages.<O>listOptions(request.getInvocation().getArgs())),
+            userExecutor, pagesAhead);
    }
 
    protected abstract Function<String, ListPage<T>> fetchNextPage(O options);
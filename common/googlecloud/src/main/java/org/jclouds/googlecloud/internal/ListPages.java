@@ -21,11 +21,14 @@ import static com.google.common.collect.Iterables.tryFind;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import org.jclouds.collect.PrefetchingIterator;
 import org.jclouds.googlecloud.domain.ListPage;
 import org.jclouds.googlecloud.options.ListOptions;
 import org.jclouds.javax.annotation.Nullable;
 
+import com.google.common.base.Function;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterators;
 
@@ -52,6 +55,16 @@ public final class ListPages {
       return input.isEmpty() ? Iterators.<ListPage<T>>emptyIterator() : Iterators.singletonIterator(input);
    }
 
+   /**
+    * Advances through pages following their tokens, fetching up to {@code pagesAhead} pages on the
+    * executor ahead of the consumer when both are set.
+    */
+   static <T> Iterator<ListPage<T>> advancing(ListPage<T> initial, Function<String, ListPage<T>> tokenToNext,
+         @Nullable ExecutorService executor, int pagesAhead) {
+      Iterator<ListPage<T>> pages = new AdvancingIterator<T>(initial, tokenToNext);
+      return executor != null && pagesAhead > 0 ? PrefetchingIterator.create(pages, executor, pagesAhead) : pages;
+   }
+
    private ListPages() {
    }
 }
@@ -18,7 +18,9 @@ package org.jclouds.openstack.keystone.v1_1.config;
 
 import static org.jclouds.rest.config.BinderUtils.bindHttpApi;
 import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
 
+import java.util.Date;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -26,6 +28,7 @@ import java.util.concurrent.TimeoutException;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.jclouds.concurrent.RefreshBeforeExpiryLoader;
 import org.jclouds.domain.Credentials;
 import org.jclouds.http.HttpRetryHandler;
 import org.jclouds.http.annotation.ClientError;
@@ -39,10 +42,12 @@ import org.jclouds.openstack.keystone.v1_1.handlers.RetryOnRenew;
 import org.jclouds.openstack.keystone.v1_1.suppliers.RegionIdToURIFromAuthForServiceSupplier;
 import org.jclouds.openstack.keystone.v1_1.suppliers.V1DefaultRegionIdSupplier;
 
+import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.AbstractModule;
 import com.google.inject.name.Named;
 import com.google.inject.Provides;
@@ -97,11 +102,29 @@ public class AuthenticationServiceModule extends AbstractModule {
       }
    }
 
+   /**
+    * Tokens are checked twice per session interval and renewed in the background shortly before
+    * they expire, or once the session interval has passed, so that concurrent requests neither wait
+    * for nor repeat the authentication.
+    */
    @Provides
    @Singleton
-   protected final LoadingCache<Credentials, Auth> provideAuthCache(GetAuth getAuth,
-         @Named(PROPERTY_SESSION_INTERVAL) long sessionInterval) {
-      return CacheBuilder.newBuilder().expireAfterWrite(sessionInterval, TimeUnit.SECONDS).build(getAuth);
+   protected final LoadingCache<Credentials, Auth> provideAuthCache(final GetAuth getAuth,
+         @Named(PROPERTY_SESSION_INTERVAL) long sessionInterval,
+         @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      return CacheBuilder.newBuilder().expireAfterWrite(sessionInterval, TimeUnit.SECONDS)
+            .refreshAfterWrite(Math.max(1, sessionInterval / 2), TimeUnit.SECONDS)
+            .build(RefreshBeforeExpiryLoader.create(new Function<Credentials, Auth>() {
+               @Override
+               public Auth apply(Credentials input) {
+                  return getAuth.load(input);
+               }
+            }, new Function<Auth, Date>() {
+               @Override
+               public Date apply(Auth auth) {
+                  return auth.getToken().getExpires();
+               }
+            }, sessionInterval, TimeUnit.SECONDS, userExecutor));
    }
 
    @Provides
@@ -16,9 +16,12 @@
  */
 package org.jclouds.openstack.keystone.v1_1.handlers;
 
+import static com.google.common.collect.Iterables.getFirst;
 import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
 import static org.jclouds.http.HttpUtils.releasePayload;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
@@ -98,7 +101,7 @@ public class RetryOnRenew implements HttpRetryHandler {
                      // First time this non-authentication request failed
                      logger.debug("invalidating authentication token - first time for %s", command);
                      retryCountMap.put(command, 1);
-                     authenticationResponseCache.invalidateAll();
+                     invalidateToken(headers == null ? null : getFirst(headers.get(AuthHeaders.AUTH_TOKEN), null));
                      retry = true;
                   } else {
                      // This request has failed before
@@ -127,4 +130,21 @@ public class RetryOnRenew implements HttpRetryHandler {
       }
    }
 
+   /**
+    * Invalidates the cached authentication that issued the token a request failed with. When the
+    * token has already been renewed, for example by another request that failed with it, the
+    * request is retried with the new token rather than authenticating again.
+    */
+   private void invalidateToken(String token) {
+      if (token == null) {
+         authenticationResponseCache.invalidateAll();
+         return;
+      }
+      ConcurrentMap<Credentials, Auth> cached = authenticationResponseCache.asMap();
+      for (Map.Entry<Credentials, Auth> entry : cached.entrySet()) {
+         if (token.equals(entry.getValue().getToken().getId())) {
+            cached.remove(entry.getKey(), entry.getValue());
+         }
+      }
+   }
 }
@@ -21,9 +21,12 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Date;
+
 import org.jclouds.domain.Credentials;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpRequest;
@@ -31,8 +34,12 @@ import org.jclouds.http.HttpResponse;
 import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
 import org.jclouds.io.Payloads;
 import org.jclouds.openstack.keystone.v1_1.domain.Auth;
+import org.jclouds.openstack.keystone.v1_1.domain.Token;
+import org.jclouds.openstack.reference.AuthHeaders;
 import org.testng.annotations.Test;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 
 /**
@@ -162,4 +169,41 @@ public class RetryOnRenewTest {
       verify(cache);
       verify(backoffHandler);
    }
+
+   @Test
+   public void test401WithRenewedTokenShouldRetryWithoutInvalidating() {
+      LoadingCache<Credentials, Auth> cache = CacheBuilder.newBuilder().build(new CacheLoader<Credentials, Auth>() {
+         @Override
+         public Auth load(Credentials key) {
+            return auth("renewed");
+         }
+      });
+      Credentials credentials = new Credentials("identity", "credential");
+      cache.getUnchecked(credentials);
+      BackoffLimitedRetryHandler backoffHandler = createMock(BackoffLimitedRetryHandler.class);
+      RetryOnRenew retry = new RetryOnRenew(cache, backoffHandler);
+
+      // another request already renewed the token this one failed with
+      assertTrue(retry.shouldRetryRequest(commandWithToken("expired"), unauthorized()));
+      assertEquals(cache.size(), 1);
+
+      assertTrue(retry.shouldRetryRequest(commandWithToken("renewed"), unauthorized()));
+      assertEquals(cache.size(), 0);
+   }
+
+   private static Auth auth(String token) {
+      return Auth.builder().token(Token.builder().id(token).expires(new Date()).build()).build();
+   }
+
+   private static HttpCommand commandWithToken(String token) {
+      HttpCommand command = createMock(HttpCommand.class);
+      expect(command.getCurrentRequest()).andReturn(HttpRequest.builder().method("GET")
+            .endpoint("http://localhost/servers").addHeader(AuthHeaders.AUTH_TOKEN, token).build()).anyTimes();
+      replay(command);
+      return command;
+   }
+
+   private static HttpResponse unauthorized() {
+      return HttpResponse.builder().statusCode(401).payload("").build();
+   }
 }
@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.jclouds.util.Predicates2.retry;
 
+import java.net.SocketTimeoutException;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -38,6 +39,8 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.eventbus.EventBus;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.AbstractFuture;
@@ -68,12 +71,13 @@ public class BlockUntilInitScriptStatusIsZeroThenReturnOutput extends AbstractFu
    }
 
    private Predicate<String> notRunningAnymore;
+   private final boolean waitForExit;
 
    @Inject
    public BlockUntilInitScriptStatusIsZeroThenReturnOutput(
             @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor, EventBus eventBus,
             ComputeServiceConstants.InitStatusProperties properties, @Assisted SudoAwareInitManager commandRunner) {
-      this(userExecutor, eventBus, Predicates.<String> alwaysTrue(), commandRunner);
+      this(userExecutor, eventBus, Predicates.<String> alwaysTrue(), properties.initStatusWaitForExit, commandRunner);
       // this is mutable only until we can determine how to decouple "this" from here
       notRunningAnymore = loopUntilTrueOrThrowCancellationException(new ExitStatusOfCommandGreaterThanZero(
                commandRunner), properties.initStatusMaxPeriod, properties.initStatusInitialPeriod, this);
@@ -82,6 +86,18 @@ public class BlockUntilInitScriptStatusIsZeroThenReturnOutput extends AbstractFu
    @VisibleForTesting
    public BlockUntilInitScriptStatusIsZeroThenReturnOutput(ListeningExecutorService userExecutor, EventBus eventBus,
             Predicate<String> notRunningAnymore, SudoAwareInitManager commandRunner) {
+      this(userExecutor, eventBus, notRunningAnymore, false, commandRunner);
+   }
+
+   /**
+    * @param waitForExit
+    *           if true, first block on the {@code waitexit} action of the script, which returns as
+    *           soon as the script exits, and only poll its status if that fails
+    */
+   @VisibleForTesting
+   BlockUntilInitScriptStatusIsZeroThenReturnOutput(ListeningExecutorService userExecutor, EventBus eventBus,
+            Predicate<String> notRunningAnymore, boolean waitForExit, SudoAwareInitManager commandRunner) {
+      this.waitForExit = waitForExit;
       this.commandRunner = checkNotNull(commandRunner, "commandRunner");
       this.userExecutor = checkNotNull(userExecutor, "userExecutor");
       this.eventBus = checkNotNull(eventBus, "eventBus");
@@ -131,6 +147,8 @@ public class BlockUntilInitScriptStatusIsZeroThenReturnOutput extends AbstractFu
    public void run() {
       try {
          ExecResponse exec = null;
+         if (waitForExit)
+            waitForExit();
          do {
             notRunningAnymore.apply("status");
             String stdout = commandRunner.runAction("stdout").getOutput();
@@ -146,6 +164,41 @@ public class BlockUntilInitScriptStatusIsZeroThenReturnOutput extends AbstractFu
       }
    }
 
+   /**
+    * blocks on an ssh exec until the script exits; the session may time out first on long running
+    * scripts, in which case the exec is issued again while the script is still running. Any other
+    * failure leaves it to the status poll to pick up where this left off.
+    */
+   private void waitForExit() {
+      while (!isCancelled()) {
+         try {
+            commandRunner.runAction("waitexit");
+            return;
+         } catch (RuntimeException e) {
+            if (!isTimeout(e)) {
+               logger.debug("<< waitexit(%s) failed, polling status: %s", commandRunner.getStatement()
+                        .getInstanceName(), e.getMessage());
+               return;
+            }
+            if (commandRunner.runAction("status").getExitStatus() > 0)
+               return;
+            logger.debug("<< waitexit(%s) timed out, waiting again", commandRunner.getStatement().getInstanceName());
+         }
+      }
+   }
+
+   @VisibleForTesting
+   static boolean isTimeout(Throwable e) {
+      for (Throwable cause : Throwables.getCausalChain(e)) {
+         if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException)
+            return true;
+         String message = Strings.nullToEmpty(cause.getMessage()).toLowerCase();
+         if (message.contains("timeout") || message.contains("timed out"))
+            return true;
+      }
+      return false;
+   }
+
    @Override
    protected boolean set(ExecResponse value) {
       eventBus.post(new StatementOnNodeCompletion(getCommandRunner().getStatement(), getCommandRunner().getNode(),
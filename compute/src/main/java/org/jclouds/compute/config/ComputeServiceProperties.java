@@ -30,6 +30,13 @@ public final class ComputeServiceProperties {
    public static final String INIT_STATUS_INITIAL_PERIOD = "jclouds.compute.init-status.initial-period";
    public static final String INIT_STATUS_MAX_PERIOD = "jclouds.compute.init-status.max-period";
 
+   /**
+    * When true, completion of an init script is awaited with a single ssh exec that returns when the
+    * script exits, instead of polling its status. Polling resumes if that exec fails or times out.
+    * Default is false.
+    */
+   public static final String INIT_STATUS_WAIT_FOR_EXIT = "jclouds.compute.init-status.wait-for-exit";
+
    /**
     * Initial period between the ComputeService's node polls. Subsequent periods increase exponentially
     * (based on the backoff factor) and become constant when the maximum period is reached.
@@ -44,6 +51,13 @@ public final class ComputeServiceProperties {
     */
    public static final String POLL_MAX_PERIOD = "jclouds.compute.poll-status.max-period";
 
+   /**
+    * When true, nodes polled at the same time while waiting for a status are refreshed together
+    * with one {@link org.jclouds.compute.strategy.ListNodesStrategy#listNodesByIds} call, instead of
+    * one call per node. Default is false.
+    */
+   public static final String POLL_BATCHED = "jclouds.compute.poll-status.batched";
+
    /**
     * time in milliseconds to wait for an image to finish creating.
     * 
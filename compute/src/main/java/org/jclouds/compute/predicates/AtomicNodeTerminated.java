@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.predicates.internal.NodeStatusWatcher;
 import org.jclouds.compute.predicates.internal.TrueIfNullOrDeletedRefreshAndDoubleCheckOnFalse;
 import org.jclouds.compute.strategy.GetNodeMetadataStrategy;
 
@@ -29,6 +30,9 @@ public class AtomicNodeTerminated extends TrueIfNullOrDeletedRefreshAndDoubleChe
 
    private final GetNodeMetadataStrategy client;
 
+   @Inject(optional = true)
+   private NodeStatusWatcher watcher;
+
    @Inject
    public AtomicNodeTerminated(GetNodeMetadataStrategy client) {
       super(Status.TERMINATED);
@@ -39,6 +43,6 @@ public class AtomicNodeTerminated extends TrueIfNullOrDeletedRefreshAndDoubleChe
    protected NodeMetadata refreshOrNull(NodeMetadata resource) {
       if (resource == null || resource.getId() == null)
          return null;
-      return client.getNode(resource.getId());
+      return watcher != null ? watcher.getNode(resource.getId()) : client.getNode(resource.getId());
    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute.predicates.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.compute.reference.ComputeServiceConstants.PollPeriod;
+import org.jclouds.compute.strategy.GetNodeMetadataStrategy;
+import org.jclouds.compute.strategy.ListNodesStrategy;
+import org.jclouds.logging.Logger;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Refreshes the nodes that are being waited on, so that waiting on many nodes at once does not
+ * make one {@link GetNodeMetadataStrategy#getNode} call per node and poll.
+ * <p/>
+ * When {@link org.jclouds.compute.config.ComputeServiceProperties#POLL_BATCHED} is set, the ids
+ * requested while a refresh is in flight are collected and refreshed together by a single
+ * {@link ListNodesStrategy#listNodesByIds} call, so that there is at most one call in flight
+ * regardless of the number of waiters. Nodes missing from that listing, or all of them if it fails,
+ * are looked up individually, so that a node is only reported absent if {@code getNode} says so.
+ */
+@Singleton
+public class NodeStatusWatcher {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ListNodesStrategy listNodesStrategy;
+   private final GetNodeMetadataStrategy getNodeMetadataStrategy;
+   private final boolean batched;
+
+   private final Object lock = new Object();
+   private final Semaphore inFlight = new Semaphore(1);
+   private Batch next;
+
+   @Inject
+   NodeStatusWatcher(ListNodesStrategy listNodesStrategy, GetNodeMetadataStrategy getNodeMetadataStrategy,
+         PollPeriod pollPeriod) {
+      this(listNodesStrategy, getNodeMetadataStrategy, pollPeriod.pollBatched);
+   }
+
+   NodeStatusWatcher(ListNodesStrategy listNodesStrategy, GetNodeMetadataStrategy getNodeMetadataStrategy,
+         boolean batched) {
+      this.listNodesStrategy = checkNotNull(listNodesStrategy, "listNodesStrategy");
+      this.getNodeMetadataStrategy = checkNotNull(getNodeMetadataStrategy, "getNodeMetadataStrategy");
+      this.batched = batched;
+   }
+
+   /**
+    * @return the current state of the node, or null if it no longer exists
+    */
+   public NodeMetadata getNode(String id) {
+      checkNotNull(id, "id");
+      if (!batched) {
+         return getNodeMetadataStrategy.getNode(id);
+      }
+      Batch batch;
+      boolean leader = false;
+      synchronized (lock) {
+         if (next == null) {
+            next = new Batch();
+            leader = true;
+         }
+         batch = next;
+         batch.ids.add(id);
+      }
+      if (leader) {
+         // the batch keeps collecting ids until the previous refresh completes
+         inFlight.acquireUninterruptibly();
+         try {
+            synchronized (lock) {
+               next = null;
+            }
+            batch.nodes.set(listNodesByIds(batch.ids));
+         } catch (RuntimeException e) {
+            batch.nodes.setException(e);
+         } catch (Error e) {
+            batch.nodes.setException(e);
+            throw e;
+         } finally {
+            inFlight.release();
+         }
+      }
+      try {
+         Map<String, NodeMetadata> nodes = Uninterruptibles.getUninterruptibly(batch.nodes);
+         if (nodes.containsKey(id)) {
+            return nodes.get(id);
+         }
+      } catch (ExecutionException e) {
+         logger.debug("<< error listing nodes %s, refreshing individually: %s", batch.ids, e.getCause());
+      }
+      return getNodeMetadataStrategy.getNode(id);
+   }
+
+   /**
+    * @return the nodes by id, holding null for a node known not to exist
+    */
+   private Map<String, NodeMetadata> listNodesByIds(Set<String> ids) {
+      Map<String, NodeMetadata> nodes = Maps.newHashMap();
+      if (ids.size() == 1) {
+         String id = Iterables.getOnlyElement(ids);
+         nodes.put(id, getNodeMetadataStrategy.getNode(id));
+         return nodes;
+      }
+      logger.trace(">> refreshing nodes %s", ids);
+      for (NodeMetadata node : listNodesStrategy.listNodesByIds(ids)) {
+         if (node != null) {
+            nodes.put(node.getId(), node);
+         }
+      }
+      return nodes;
+   }
+
+   private static final class Batch {
+      private final Set<String> ids = Sets.newLinkedHashSet();
+      private final SettableFuture<Map<String, NodeMetadata>> nodes = SettableFuture.create();
+   }
+}
@@ -40,6 +40,9 @@ public class RefreshNodeAndDoubleCheckOnFailUnlessStatusInvalid extends RefreshA
 
    private final GetNodeMetadataStrategy client;
 
+   @Inject(optional = true)
+   private NodeStatusWatcher watcher;
+
    @Inject
    public RefreshNodeAndDoubleCheckOnFailUnlessStatusInvalid(Status intended, GetNodeMetadataStrategy client) {
       this(intended, ImmutableSet.of(Status.ERROR), client);
@@ -55,6 +58,6 @@ public class RefreshNodeAndDoubleCheckOnFailUnlessStatusInvalid extends RefreshA
    protected NodeMetadata refreshOrNull(NodeMetadata resource) {
       if (resource == null || resource.getId() == null)
          return null;
-      return client.getNode(resource.getId());
+      return watcher != null ? watcher.getNode(resource.getId()) : client.getNode(resource.getId());
    }
 }
@@ -19,12 +19,17 @@ import static org.easymock.EasyMock.createMockBuilder;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.jclouds.compute.callables.BlockUntilInitScriptStatusIsZeroThenReturnOutput.isTimeout;
 import static org.jclouds.compute.callables.BlockUntilInitScriptStatusIsZeroThenReturnOutput.loopUntilTrueOrThrowCancellationException;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.net.SocketTimeoutException;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jclouds.compute.callables.BlockUntilInitScriptStatusIsZeroThenReturnOutput.ExitStatusOfCommandGreaterThanZero;
@@ -193,6 +198,106 @@ public class BlockUntilInitScriptStatusIsZeroThenReturnOutputTest {
 
    }
 
+   public void testWaitForExitBlocksBeforeReadingOutput() throws InterruptedException, ExecutionException {
+      ListeningExecutorService userExecutor = MoreExecutors.sameThreadExecutor();
+      Predicate<String> notRunningAnymore = Predicates.alwaysTrue();
+      SudoAwareInitManager commandRunner = createMockBuilder(SudoAwareInitManager.class).addMockedMethod("runAction")
+               .addMockedMethod("getStatement").addMockedMethod("getNode").addMockedMethod("toString")
+               .createStrictMock();
+      InitScript initScript = createMockBuilder(InitScript.class).addMockedMethod("getInstanceName").createStrictMock();
+
+      expect(commandRunner.runAction("waitexit")).andReturn(new ExecResponse("444\n", "", 0));
+      expect(commandRunner.runAction("stdout")).andReturn(new ExecResponse("stdout", "", 0));
+      expect(commandRunner.runAction("stderr")).andReturn(new ExecResponse("stderr", "", 0));
+      expect(commandRunner.runAction("exitstatus")).andReturn(new ExecResponse("444\n", "", 0));
+
+      toStringAndEventBusExpectations(commandRunner, initScript);
+
+      replay(commandRunner, initScript);
+
+      BlockUntilInitScriptStatusIsZeroThenReturnOutput future = new BlockUntilInitScriptStatusIsZeroThenReturnOutput(
+               userExecutor, eventBus, notRunningAnymore, true, commandRunner);
+
+      future.run();
+
+      assertEquals(future.get(), new ExecResponse("stdout", "stderr", 444));
+
+      verify(commandRunner, initScript);
+
+   }
+
+   public void testWaitForExitFailureFallsBackToPolling() throws InterruptedException, ExecutionException {
+      ListeningExecutorService userExecutor = MoreExecutors.sameThreadExecutor();
+      Predicate<String> notRunningAnymore = Predicates.alwaysTrue();
+      SudoAwareInitManager commandRunner = createMockBuilder(SudoAwareInitManager.class).addMockedMethod("runAction")
+               .addMockedMethod("getStatement").addMockedMethod("getNode").addMockedMethod("toString")
+               .createStrictMock();
+      InitScript initScript = createMockBuilder(InitScript.class).addMockedMethod("getInstanceName").createStrictMock();
+
+      expect(commandRunner.runAction("waitexit")).andThrow(new IllegalStateException("connection refused"));
+      toStringExpectations(commandRunner, initScript);
+      expect(commandRunner.runAction("stdout")).andReturn(new ExecResponse("", "", 0));
+      expect(commandRunner.runAction("stderr")).andReturn(new ExecResponse("", "", 0));
+      expect(commandRunner.runAction("exitstatus")).andReturn(new ExecResponse("", "", 1));
+      expect(commandRunner.runAction("stdout")).andReturn(new ExecResponse("stdout", "", 0));
+      expect(commandRunner.runAction("stderr")).andReturn(new ExecResponse("stderr", "", 0));
+      expect(commandRunner.runAction("exitstatus")).andReturn(new ExecResponse("444\n", "", 0));
+
+      toStringAndEventBusExpectations(commandRunner, initScript);
+
+      replay(commandRunner, initScript);
+
+      BlockUntilInitScriptStatusIsZeroThenReturnOutput future = new BlockUntilInitScriptStatusIsZeroThenReturnOutput(
+               userExecutor, eventBus, notRunningAnymore, true, commandRunner);
+
+      future.run();
+
+      assertEquals(future.get(), new ExecResponse("stdout", "stderr", 444));
+
+      verify(commandRunner, initScript);
+
+   }
+
+   public void testWaitForExitIsIssuedAgainWhenItTimesOutWhileRunning() throws InterruptedException,
+            ExecutionException {
+      ListeningExecutorService userExecutor = MoreExecutors.sameThreadExecutor();
+      Predicate<String> notRunningAnymore = Predicates.alwaysTrue();
+      SudoAwareInitManager commandRunner = createMockBuilder(SudoAwareInitManager.class).addMockedMethod("runAction")
+               .addMockedMethod("getStatement").addMockedMethod("getNode").addMockedMethod("toString")
+               .createStrictMock();
+      InitScript initScript = createMockBuilder(InitScript.class).addMockedMethod("getInstanceName").createStrictMock();
+
+      // the ssh session timed out before the script exited
+      expect(commandRunner.runAction("waitexit")).andThrow(
+               new RuntimeException("exec failed", new TimeoutException("Timeout expired")));
+      expect(commandRunner.runAction("status")).andReturn(new ExecResponse("", "", 0));
+      toStringExpectations(commandRunner, initScript);
+      expect(commandRunner.runAction("waitexit")).andReturn(new ExecResponse("444\n", "", 0));
+      expect(commandRunner.runAction("stdout")).andReturn(new ExecResponse("stdout", "", 0));
+      expect(commandRunner.runAction("stderr")).andReturn(new ExecResponse("stderr", "", 0));
+      expect(commandRunner.runAction("exitstatus")).andReturn(new ExecResponse("444\n", "", 0));
+
+      toStringAndEventBusExpectations(commandRunner, initScript);
+
+      replay(commandRunner, initScript);
+
+      BlockUntilInitScriptStatusIsZeroThenReturnOutput future = new BlockUntilInitScriptStatusIsZeroThenReturnOutput(
+               userExecutor, eventBus, notRunningAnymore, true, commandRunner);
+
+      future.run();
+
+      assertEquals(future.get(), new ExecResponse("stdout", "stderr", 444));
+
+      verify(commandRunner, initScript);
+
+   }
+
+   public void testIsTimeout() {
+      assertTrue(isTimeout(new RuntimeException(new SocketTimeoutException("Read timed out"))));
+      assertTrue(isTimeout(new IllegalStateException("timeout: socket is not established")));
+      assertFalse(isTimeout(new IllegalStateException("connection refused")));
+   }
+
    public void testCancelInterruptStopsCommand() throws InterruptedException, ExecutionException {
       ListeningExecutorService userExecutor = MoreExecutors.sameThreadExecutor();
       Predicate<String> notRunningAnymore = Predicates.alwaysTrue();
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.compute.predicates.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.jclouds.compute.domain.ComputeMetadata;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+import org.jclouds.compute.strategy.GetNodeMetadataStrategy;
+import org.jclouds.compute.strategy.ListNodesStrategy;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+@Test(groups = "unit", testName = "NodeStatusWatcherTest")
+public class NodeStatusWatcherTest {
+
+   private static NodeMetadata node(String id) {
+      return new NodeMetadataBuilder().id(id).status(Status.RUNNING).build();
+   }
+
+   public void testGetsNodeWhenNotBatched() {
+      ListNodesStrategy listNodes = createMock(ListNodesStrategy.class);
+      GetNodeMetadataStrategy getNode = createMock(GetNodeMetadataStrategy.class);
+      expect(getNode.getNode("a")).andReturn(node("a"));
+      replay(listNodes, getNode);
+
+      assertEquals(new NodeStatusWatcher(listNodes, getNode, false).getNode("a"), node("a"));
+      verify(listNodes, getNode);
+   }
+
+   public void testSingleWaiterGetsNode() {
+      ListNodesStrategy listNodes = createMock(ListNodesStrategy.class);
+      GetNodeMetadataStrategy getNode = createMock(GetNodeMetadataStrategy.class);
+      expect(getNode.getNode("a")).andReturn(null);
+      replay(listNodes, getNode);
+
+      assertNull(new NodeStatusWatcher(listNodes, getNode, true).getNode("a"));
+      verify(listNodes, getNode);
+   }
+
+   public void testWaitersDuringRefreshShareOneListing() throws InterruptedException {
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<Iterable<String>> listings = Lists.newCopyOnWriteArrayList();
+      final List<String> gets = Lists.newCopyOnWriteArrayList();
+      ListNodesStrategy listNodes = new ListNodesStrategy() {
+         @Override
+         public Iterable<? extends NodeMetadata> listNodesByIds(Iterable<String> ids) {
+            listings.add(ImmutableList.copyOf(ids));
+            return ImmutableSet.of(node("b"), node("c"));
+         }
+
+         @Override
+         public Iterable<? extends ComputeMetadata> listNodes() {
+            throw new UnsupportedOperationException();
+         }
+
+         @Override
+         public Iterable<? extends NodeMetadata> listDetailsOnNodesMatching(Predicate<ComputeMetadata> filter) {
+            throw new UnsupportedOperationException();
+         }
+      };
+      GetNodeMetadataStrategy getNode = new GetNodeMetadataStrategy() {
+         @Override
+         public NodeMetadata getNode(String id) {
+            gets.add(id);
+            if (id.equals("a")) {
+               Uninterruptibles.awaitUninterruptibly(release);
+               return node(id);
+            }
+            return null;
+         }
+      };
+      final NodeStatusWatcher watcher = new NodeStatusWatcher(listNodes, getNode, true);
+      final Map<String, NodeMetadata> results = Maps.newConcurrentMap();
+      List<Thread> threads = Lists.newArrayList();
+      for (final String id : ImmutableList.of("a", "b", "c", "d")) {
+         Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+               NodeMetadata node = watcher.getNode(id);
+               if (node != null) {
+                  results.put(id, node);
+               }
+            }
+         });
+         threads.add(thread);
+         thread.start();
+         // the first refresh, of a alone, must be in flight before the others ask
+         while (!gets.contains("a") || (!id.equals("a") && thread.getState() != Thread.State.WAITING)) {
+            Thread.sleep(10);
+         }
+      }
+      release.countDown();
+      for (Thread thread : threads) {
+         thread.join();
+      }
+
+      assertEquals(listings, ImmutableList.of(ImmutableList.of("b", "c", "d")));
+      // d is missing from the listing, so it is confirmed individually
+      assertEquals(gets, ImmutableList.of("a", "d"));
+      assertEquals(results.keySet(), ImmutableSet.of("a", "b", "c"));
+   }
+
+   public void testListingThatLacksSomeIdsStillAnswersTheOthers() throws InterruptedException {
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<String> gets = Lists.newCopyOnWriteArrayList();
+      ListNodesStrategy listNodes = createMock(ListNodesStrategy.class);
+      // as ec2 does for instances not yet visible, or terminated long enough ago
+      expect((Iterable) listNodes.listNodesByIds(ImmutableSet.of("b", "c", "d"))).andReturn(ImmutableSet.of(node("c")));
+      replay(listNodes);
+      GetNodeMetadataStrategy getNode = new GetNodeMetadataStrategy() {
+         @Override
+         public NodeMetadata getNode(String id) {
+            gets.add(id);
+            if (id.equals("a")) {
+               Uninterruptibles.awaitUninterruptibly(release);
+               return node(id);
+            }
+            return null;
+         }
+      };
+      final NodeStatusWatcher watcher = new NodeStatusWatcher(listNodes, getNode, true);
+      final Map<String, NodeMetadata> results = Maps.newConcurrentMap();
+      List<Thread> threads = Lists.newArrayList();
+      for (final String id : ImmutableList.of("a", "b", "c", "d")) {
+         Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+               NodeMetadata node = watcher.getNode(id);
+               if (node != null) {
+                  results.put(id, node);
+               }
+            }
+         });
+         threads.add(thread);
+         thread.start();
+         while (!gets.contains("a") || (!id.equals("a") && thread.getState() != Thread.State.WAITING)) {
+            Thread.sleep(10);
+         }
+      }
+      release.countDown();
+      for (Thread thread : threads) {
+         thread.join();
+      }
+
+      verify(listNodes);
+      // only the ids missing from the listing are confirmed individually, c is answered by the listing
+      assertEquals(gets.get(0), "a");
+      assertEquals(ImmutableSet.copyOf(gets.subList(1, gets.size())), ImmutableSet.of("b", "d"));
+      assertEquals(gets.size(), 3);
+      assertEquals(results.keySet(), ImmutableSet.of("a", "c"));
+   }
+
+   public void testFailedListingFallsBackToGetNode() throws InterruptedException {
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<String> gets = Lists.newCopyOnWriteArrayList();
+      ListNodesStrategy listNodes = createMock(ListNodesStrategy.class);
+      expect(listNodes.listNodesByIds(ImmutableSet.of("b", "c"))).andThrow(new IllegalStateException());
+      replay(listNodes);
+      GetNodeMetadataStrategy getNode = new GetNodeMetadataStrategy() {
+         @Override
+         public NodeMetadata getNode(String id) {
+            gets.add(id);
+            if (id.equals("a")) {
+               Uninterruptibles.awaitUninterruptibly(release);
+            }
+            return node(id);
+         }
+      };
+      final NodeStatusWatcher watcher = new NodeStatusWatcher(listNodes, getNode, true);
+      final Map<String, NodeMetadata> results = Maps.newConcurrentMap();
+      List<Thread> threads = Lists.newArrayList();
+      for (final String id : ImmutableList.of("a", "b", "c")) {
+         Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+               results.put(id, watcher.getNode(id));
+            }
+         });
+         threads.add(thread);
+         thread.start();
+         while (!gets.contains("a") || (!id.equals("a") && thread.getState() != Thread.State.WAITING)) {
+            Thread.sleep(10);
+         }
+      }
+      release.countDown();
+      for (Thread thread : threads) {
+         thread.join();
+      }
+
+      verify(listNodes);
+      assertEquals(ImmutableSet.copyOf(gets), ImmutableSet.of("a", "b", "c"));
+      assertEquals(gets.size(), 3);
+      assertEquals(results.keySet(), ImmutableSet.of("a", "b", "c"));
+   }
+}
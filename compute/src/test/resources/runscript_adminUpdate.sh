@@ -146,6 +146,10 @@ stderr)
 exitstatus)
    default || exit 1
    [ -f $LOG_DIR/rc ] && cat $LOG_DIR/rc;;
+waitexit)
+   default || exit 1
+   while [ ! -f $LOG_DIR/rc ] && findPid $INSTANCE_NAME; do sleep 1; done
+   [ -f $LOG_DIR/rc ] && cat $LOG_DIR/rc || true;;
 tail)
    default || exit 1
    tail $LOG_DIR/stdout.log
@@ -166,6 +166,39 @@ public final class Constants {
     * backoff algorithm. Default value for this property is 50 milliseconds.
     */
    public static final String PROPERTY_RETRY_DELAY_START = "jclouds.retries-delay-start";
+   /**
+    * Double property.
+    * <p/>
+    * Retries to each host are limited to this fraction of the requests sent to it, after an initial
+    * allowance of ten retries. This keeps a struggling service from receiving several times its
+    * normal traffic. Default value for this property is 0, which disables the limit.
+    */
+   public static final String PROPERTY_RETRY_BUDGET_RATIO = "jclouds.retry-budget-ratio";
+   /**
+    * Double property.
+    * <p/>
+    * Requests to each host are limited to this many per second. Up to a second's worth of
+    * requests may be sent at once after a quiet period. Default value for this property is 0,
+    * which disables the limit.
+    */
+   public static final String PROPERTY_RATE_LIMIT = "jclouds.rate-limit";
+   /**
+    * Integer property.
+    * <p/>
+    * Requests in flight to each host are limited to at most this many. The limit is halved when
+    * the host throttles a request, and grows back by one for each limit's worth of successful
+    * requests. Default value for this property is 0, which disables the limit.
+    */
+   public static final String PROPERTY_ADAPTIVE_CONCURRENCY_LIMIT = "jclouds.adaptive-concurrency-limit";
+   /**
+    * Integer property.
+    * <p/>
+    * Paged listings fetch up to this many pages ahead of the consumer on the
+    * {@link #PROPERTY_USER_THREADS user executor}. Pages are still requested one after another, as
+    * each depends on the marker of the previous one. Default value for this property is 0, which
+    * fetches a page only when the consumer reaches it.
+    */
+   public static final String PROPERTY_PAGED_ITERABLE_PREFETCH = "jclouds.paged-iterable.prefetch";
    /**
     * Integer property.
     * <p/>
@@ -68,6 +68,8 @@ import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.lifecycle.config.LifeCycleModule;
 import org.jclouds.logging.config.LoggingModule;
 import org.jclouds.logging.jdk.config.JDKLoggingModule;
+import org.jclouds.metrics.config.MetricsModule;
+import org.jclouds.metrics.config.NullMetricsModule;
 import org.jclouds.providers.ProviderMetadata;
 import org.jclouds.providers.Providers;
 import org.jclouds.providers.config.BindProviderMetadataContextAndCredentials;
@@ -393,6 +395,7 @@ public class ContextBuilder {
       addClientModuleIfNotPresent(providerMetadata.getApiMetadata(), modules);
       addRestContextBinding(providerMetadata.getApiMetadata(), modules);
       addLoggingModuleIfNotPresent(modules);
+      addMetricsModuleIfNotPresent(modules);
       addHttpModuleIfNeededAndNotPresent(modules);
       addExecutorServiceIfNotPresent(modules);
       addEventBusIfNotPresent(modules);
@@ -463,6 +466,12 @@ public class ContextBuilder {
          modules.add(new JDKLoggingModule());
    }
 
+   @VisibleForTesting
+   static void addMetricsModuleIfNotPresent(List<Module> modules) {
+      if (!any(modules, instanceOf(MetricsModule.class)))
+         modules.add(new NullMetricsModule());
+   }
+
    @VisibleForTesting
    static void addHttpModuleIfNeededAndNotPresent(List<Module> modules) {
       if (nothingConfiguresAnHttpService(modules))
@@ -17,20 +17,23 @@
 package org.jclouds.apis;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Iterables.find;
 import static org.jclouds.reflect.Reflection2.typeToken;
 
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jclouds.View;
 import org.jclouds.osgi.ApiRegistry;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
 
 /**
@@ -63,13 +66,22 @@ public class Apis {
 
    /**
     * Returns all available apis.
+    * <p/>
+    * Apis are loaded once per context class loader and cached, along with the results of the
+    * lookups below, until {@link #invalidateCache()} is called.
     * 
     * @return all available apis
     */
    public static Iterable<ApiMetadata> all() {
-      return ImmutableSet.<ApiMetadata>builder()
-                         .addAll(fromServiceLoader())
-                         .addAll(ApiRegistry.fromRegistry()).build();
+      return snapshot().all;
+   }
+
+   /**
+    * Discards the cached apis, so that they are loaded again. The {@link ApiRegistry} calls this
+    * when apis are registered, for example by the OSGi {@link org.jclouds.osgi.MetadataBundleListener}.
+    */
+   public static void invalidateCache() {
+      generation.incrementAndGet();
    }
 
    /**
@@ -84,7 +96,11 @@ public class Apis {
     *            whenever there are no apis with the provided id
     */
    public static ApiMetadata withId(String id) throws NoSuchElementException {
-      return find(all(), ApiPredicates.id(id));
+      ApiMetadata apiMetadata = snapshot().byId.get(checkNotNull(id, "id"));
+      if (apiMetadata == null) {
+         throw new NoSuchElementException("no api with id " + id);
+      }
+      return apiMetadata;
    }
    
    /**
@@ -96,7 +112,7 @@ public class Apis {
     * @return the apis with contexts assignable from given type
     */
    public static Iterable<ApiMetadata> contextAssignableFrom(TypeToken<?> type) {
-      return filter(all(), ApiPredicates.contextAssignableFrom(type));
+      return snapshot().filter("contextAssignableFrom", type, ApiPredicates.contextAssignableFrom(type));
    }
    
    /**
@@ -108,11 +124,11 @@ public class Apis {
     * @return the apis with contexts assignable from given type
     */
    public static Iterable<ApiMetadata> viewableAs(TypeToken<? extends View> type) {
-      return filter(all(), ApiPredicates.viewableAs(type));
+      return snapshot().filter("viewableAs", type, ApiPredicates.viewableAs(type));
    }
    
    public static Iterable<ApiMetadata> viewableAs(Class<? extends View> type) {
-      return filter(all(), ApiPredicates.viewableAs(typeToken(type)));
+      return viewableAs(typeToken(type));
    }
 
    /**
@@ -136,4 +152,60 @@ public class Apis {
 
       });
    }
+
+   private static final AtomicInteger generation = new AtomicInteger();
+   private static volatile Snapshot snapshot;
+
+   private static Snapshot snapshot() {
+      ClassLoader loader = Thread.currentThread().getContextClassLoader();
+      Snapshot current = snapshot;
+      if (current == null || current.loader != loader || current.generation != generation.get()) {
+         // read before loading, so that a concurrent invalidation is not lost
+         int loading = generation.get();
+         current = new Snapshot(loader, loading, ImmutableSet.<ApiMetadata> builder()
+               .addAll(fromServiceLoader())
+               .addAll(ApiRegistry.fromRegistry()).build());
+         snapshot = current;
+      }
+      return current;
+   }
+
+   /**
+    * The apis available to a class loader, indexed by the lookups above.
+    */
+   private static final class Snapshot {
+      private final ClassLoader loader;
+      private final int generation;
+      private final ImmutableSet<ApiMetadata> all;
+      private final ImmutableMap<String, ApiMetadata> byId;
+      private final ConcurrentMap<Map.Entry<String, TypeToken<?>>, ImmutableSet<ApiMetadata>> byType = Maps
+            .newConcurrentMap();
+
+      private Snapshot(ClassLoader loader, int generation, ImmutableSet<ApiMetadata> all) {
+         this.loader = loader;
+         this.generation = generation;
+         this.all = all;
+         Map<String, ApiMetadata> byId = Maps.newLinkedHashMap();
+         for (ApiMetadata apiMetadata : all) {
+            // the first api with an id wins, as it did when they were searched in order
+            if (!byId.containsKey(apiMetadata.getId())) {
+               byId.put(apiMetadata.getId(), apiMetadata);
+            }
+         }
+         this.byId = ImmutableMap.copyOf(byId);
+      }
+
+      /**
+       * Apis matching a predicate of a type, which is only evaluated the first time.
+       */
+      private ImmutableSet<ApiMetadata> filter(String lookup, TypeToken<?> type, Predicate<ApiMetadata> predicate) {
+         Map.Entry<String, TypeToken<?>> key = Maps.<String, TypeToken<?>> immutableEntry(lookup, type);
+         ImmutableSet<ApiMetadata> apis = byType.get(key);
+         if (apis == null) {
+            apis = ImmutableSet.copyOf(Iterables.filter(all, predicate));
+            byType.put(key, apis);
+         }
+         return apis;
+      }
+   }
 }
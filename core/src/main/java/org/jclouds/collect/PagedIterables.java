@@ -19,6 +19,7 @@ package org.jclouds.collect;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
@@ -73,6 +74,28 @@ public class PagedIterables {
       };
    }
 
+   /**
+    * @param pages
+    *           the pages to fetch ahead
+    * @param executor
+    *           runs the requests for the pages
+    * @param depth
+    *           how many pages to fetch ahead of the consumer
+    *
+    * @return the same pages, fetched on the executor while the consumer processes earlier ones
+    * @see PrefetchingIterator
+    */
+   public static <T> PagedIterable<T> prefetch(final PagedIterable<T> pages, final ExecutorService executor,
+         final int depth) {
+      checkNotNull(pages, "pages");
+      checkNotNull(executor, "executor");
+      return new PagedIterable<T>() {
+         public Iterator<IterableWithMarker<T>> iterator() {
+            return PrefetchingIterator.create(pages.iterator(), executor, depth);
+         }
+      };
+   }
+
    private static class AdvancingIterator<T> extends AbstractIterator<IterableWithMarker<T>> {
 
       private final Function<Object, IterableWithMarker<T>> markerToNext;
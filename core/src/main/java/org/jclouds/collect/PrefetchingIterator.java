@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Iterates over an iterator whose {@code hasNext} is slow, such as one fetching the pages of a
+ * listing, by calling it on an executor ahead of the consumer. Calls to the delegate stay
+ * sequential, as each page may depend on the marker of the previous one, but up to {@code depth}
+ * elements are fetched before the consumer asks for them.
+ * <p/>
+ * Fetching pauses while the buffer is full, so an iterator abandoned before its end holds no
+ * thread and at most {@code depth} fetched elements. {@link #close()} also cancels the fetch in
+ * progress.
+ */
+@Beta
+public final class PrefetchingIterator<T> extends AbstractIterator<T> implements Closeable {
+
+   public static <T> PrefetchingIterator<T> create(Iterator<T> delegate, ExecutorService executor, int depth) {
+      return new PrefetchingIterator<T>(delegate, executor, depth);
+   }
+
+   private final Iterator<T> delegate;
+   private final ExecutorService executor;
+   private final int depth;
+
+   // guarded by this
+   private final Deque<T> buffer = new ArrayDeque<T>();
+   private Throwable failure;
+   private boolean exhausted;
+   private boolean fetching;
+   private boolean closed;
+   private Future<?> task;
+
+   private PrefetchingIterator(Iterator<T> delegate, ExecutorService executor, int depth) {
+      this.delegate = checkNotNull(delegate, "delegate");
+      this.executor = checkNotNull(executor, "executor");
+      checkArgument(depth > 0, "depth must be positive");
+      this.depth = depth;
+   }
+
+   @Override
+   protected synchronized T computeNext() {
+      fetchIfNeeded();
+      while (buffer.isEmpty() && failure == null && !exhausted && !closed) {
+         try {
+            wait();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw Throwables.propagate(e);
+         }
+      }
+      if (!buffer.isEmpty()) {
+         T next = buffer.poll();
+         fetchIfNeeded();
+         return next;
+      }
+      if (failure != null) {
+         throw Throwables.propagate(failure);
+      }
+      return endOfData();
+   }
+
+   /** Stops fetching ahead and discards the elements fetched but not yet returned. */
+   @Override
+   public synchronized void close() {
+      closed = true;
+      buffer.clear();
+      if (task != null) {
+         task.cancel(true);
+      }
+      notifyAll();
+   }
+
+   private void fetchIfNeeded() {
+      if (!fetching && !exhausted && !closed && failure == null && buffer.size() < depth) {
+         fetching = true;
+         task = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+               fetch();
+            }
+         });
+      }
+   }
+
+   private void fetch() {
+      for (;;) {
+         T next = null;
+         boolean hasNext;
+         try {
+            hasNext = delegate.hasNext();
+            if (hasNext) {
+               next = delegate.next();
+            }
+         } catch (Throwable t) {
+            synchronized (this) {
+               failure = t;
+               fetching = false;
+               notifyAll();
+            }
+            return;
+         }
+         synchronized (this) {
+            if (!hasNext) {
+               exhausted = true;
+            } else if (!closed) {
+               buffer.add(next);
+            }
+            notifyAll();
+            if (exhausted || closed || buffer.size() >= depth) {
+               fetching = false;
+               return;
+            }
+         }
+      }
+   }
+}
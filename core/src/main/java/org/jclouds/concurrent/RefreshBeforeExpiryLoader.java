@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheLoader;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * Loads values that expire at a known time, such as authentication tokens, and renews them shortly
+ * before they do.
+ * <p/>
+ * Use with {@link com.google.common.cache.CacheBuilder#refreshAfterWrite}, which sets how often
+ * the expiry of a value is checked. A value further than the margin from its expiry is kept as is.
+ * Closer than that, it is reloaded on the executor while callers keep getting it, and the cache
+ * ensures only one reload of a key is in flight. A value that has already expired is reloaded by
+ * the caller that notices.
+ * <p/>
+ * The cache resets the write time of a value on every refresh, even when the value is kept, so
+ * {@link com.google.common.cache.CacheBuilder#expireAfterWrite} alone never expires a value that is
+ * in use. This loader therefore tracks when it loaded each value itself and treats a value as
+ * expiring no later than {@code maxAge} after that, or exactly then if it has no known expiry.
+ */
+@Beta
+public final class RefreshBeforeExpiryLoader<K, V> extends CacheLoader<K, V> {
+
+   /** How long before its expiry a value is renewed, unless configured otherwise. */
+   public static final long DEFAULT_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+   /**
+    * @param maxAge
+    *           how long a value is used at most, typically what was previously passed to
+    *           {@code expireAfterWrite}; the renewal margin is capped to a tenth of it
+    */
+   public static <K, V> RefreshBeforeExpiryLoader<K, V> create(Function<? super K, V> load,
+         Function<? super V, Date> expires, long maxAge, TimeUnit unit, ListeningExecutorService executor) {
+      return new RefreshBeforeExpiryLoader<K, V>(load, expires, unit.toMillis(maxAge), executor,
+            DEFAULT_MARGIN_MILLIS, Ticker.systemTicker());
+   }
+
+   private final Function<? super K, V> load;
+   private final Function<? super V, Date> expires;
+   private final long maxAgeMillis;
+   private final ListeningExecutorService executor;
+   private final long marginMillis;
+   private final Ticker ticker;
+   private final ConcurrentMap<K, Long> loadedAt = Maps.newConcurrentMap();
+
+   RefreshBeforeExpiryLoader(Function<? super K, V> load, Function<? super V, Date> expires, long maxAgeMillis,
+         ListeningExecutorService executor, long marginMillis, Ticker ticker) {
+      this.load = checkNotNull(load, "load");
+      this.expires = checkNotNull(expires, "expires");
+      checkArgument(maxAgeMillis > 0, "maxAge must be positive");
+      this.maxAgeMillis = maxAgeMillis;
+      this.executor = checkNotNull(executor, "executor");
+      checkArgument(marginMillis >= 0, "marginMillis must be non-negative");
+      this.marginMillis = Math.min(marginMillis, maxAgeMillis / 10);
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   @Override
+   public V load(K key) {
+      long started = ticker.read();
+      V value = load.apply(key);
+      loadedAt.put(key, started);
+      return value;
+   }
+
+   @Override
+   public ListenableFuture<V> reload(final K key, V oldValue) {
+      long remaining = maxAgeMillis - ageMillis(key);
+      Date expiry = expires.apply(oldValue);
+      if (expiry != null) {
+         remaining = Math.min(remaining, expiry.getTime() - System.currentTimeMillis());
+      }
+      if (remaining > marginMillis) {
+         return Futures.immediateFuture(oldValue);
+      }
+      if (remaining <= 0) {
+         return Futures.immediateFuture(load(key));
+      }
+      return executor.submit(new Callable<V>() {
+         @Override
+         public V call() {
+            return load(key);
+         }
+      });
+   }
+
+   private long ageMillis(K key) {
+      Long started = loadedAt.get(key);
+      if (started == null) {
+         // loaded before this loader was tracking it; count its age from now
+         started = ticker.read();
+         loadedAt.putIfAbsent(key, started);
+      }
+      return TimeUnit.NANOSECONDS.toMillis(ticker.read() - started);
+   }
+
+   @Override
+   public String toString() {
+      return "refreshBeforeExpiry(" + load + ")";
+   }
+}
@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.date.internal;
+
+import static org.jclouds.date.internal.DateUtils.findTZ;
+import static org.jclouds.date.internal.DateUtils.trimTZ;
+import static org.jclouds.date.internal.DateUtils.trimToMillis;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.SimpleTimeZone;
+
+import javax.inject.Singleton;
+
+import org.jclouds.date.DateService;
+
+/**
+ * Formats and parses dates in GMT without locking.
+ * <p/>
+ * Dates between 1970 and 9999 are formatted, and dates in the exact layout this service produces
+ * are parsed, by arithmetic on the epoch rather than through a {@link java.util.Calendar}. The
+ * most recently formatted second of each format is cached, as the same timestamp is usually
+ * formatted many times in a row. Other dates and layouts fall back to a {@link SimpleDateFormat}
+ * per thread, which accepts the same input as {@link SimpleDateFormatDateService}.
+ */
+@Singleton
+public class LockFreeDateService implements DateService {
+
+   private static final String[] DAYS = { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
+   private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct",
+         "Nov", "Dec" };
+   /** 10000-01-01T00:00:00Z, the first instant which does not have a four digit year. */
+   private static final long MAX_FAST_MILLIS = 253402300800000L;
+
+   private static final ThreadLocal<SimpleDateFormat> iso8601SecondsSimpleDateFormat =
+         simpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", true);
+   private static final ThreadLocal<SimpleDateFormat> iso8601SimpleDateFormat =
+         simpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ", true);
+   private static final ThreadLocal<SimpleDateFormat> rfc822SimpleDateFormat =
+         simpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", true);
+   private static final ThreadLocal<SimpleDateFormat> rfc1123SimpleDateFormat =
+         simpleDateFormat("EEE, dd MMM yyyyy HH:mm:ss Z", false);
+   private static final ThreadLocal<SimpleDateFormat> cSimpleDateFormat =
+         simpleDateFormat("EEE MMM dd HH:mm:ss Z yyyy", true);
+
+   private volatile FormattedSecond lastCDate;
+   private volatile FormattedSecond lastRfc822;
+   private volatile FormattedSecond lastRfc1123;
+   private volatile FormattedSecond lastIso8601Seconds;
+   /** Without the milliseconds and time zone, which are appended to it. */
+   private volatile FormattedSecond lastIso8601;
+
+   @Override
+   public final String cDateFormat(Date date) {
+      long millis = date.getTime();
+      if (!isFast(millis)) {
+         return cSimpleDateFormat.get().format(date);
+      }
+      FormattedSecond last = lastCDate;
+      if (last != null && last.second == millis / 1000) {
+         return last.text;
+      }
+      Fields f = new Fields(millis);
+      StringBuilder text = new StringBuilder(30);
+      text.append(DAYS[f.dayOfWeek]).append(' ').append(MONTHS[f.month - 1]).append(' ');
+      appendTime(pad2(text, f.day).append(' '), f).append(" +0000 ");
+      pad4(text, f.year);
+      lastCDate = new FormattedSecond(millis / 1000, text.toString());
+      return lastCDate.text;
+   }
+
+   @Override
+   public final String cDateFormat() {
+      return cDateFormat(new Date());
+   }
+
+   @Override
+   public final Date cDateParse(String toParse) {
+      // EEE MMM dd HH:mm:ss +0000 yyyy
+      if (toParse.length() == 30 && toParse.charAt(3) == ' ' && toParse.charAt(7) == ' '
+            && toParse.charAt(10) == ' ' && toParse.charAt(19) == ' ' && toParse.charAt(25) == ' ') {
+         Date date = toDate(digits(toParse, 26, 4), month(toParse, 4), digits(toParse, 8, 2), toParse, 11, 0,
+               offsetMillis(toParse, 20));
+         if (date != null) {
+            return date;
+         }
+      }
+      return parse(cSimpleDateFormat.get(), toParse);
+   }
+
+   @Override
+   public final String rfc822DateFormat(Date date) {
+      long millis = date.getTime();
+      if (!isFast(millis)) {
+         return rfc822SimpleDateFormat.get().format(date);
+      }
+      FormattedSecond last = lastRfc822;
+      if (last != null && last.second == millis / 1000) {
+         return last.text;
+      }
+      Fields f = new Fields(millis);
+      StringBuilder text = new StringBuilder(29);
+      appendDayMonthYear(text, f);
+      appendTime(text.append(' '), f).append(" GMT");
+      lastRfc822 = new FormattedSecond(millis / 1000, text.toString());
+      return lastRfc822.text;
+   }
+
+   @Override
+   public final String rfc822DateFormat() {
+      return rfc822DateFormat(new Date());
+   }
+
+   @Override
+   public final Date rfc822DateParse(String toParse) {
+      // EEE, dd MMM yyyy HH:mm:ss GMT
+      if (toParse.length() == 29 && toParse.endsWith(" GMT") && isDayMonthYear(toParse)
+            && toParse.charAt(16) == ' ') {
+         Date date = toDate(digits(toParse, 12, 4), month(toParse, 8), digits(toParse, 5, 2), toParse, 17, 0, 0);
+         if (date != null) {
+            return date;
+         }
+      }
+      return parse(rfc822SimpleDateFormat.get(), toParse);
+   }
+
+   @Override
+   public final String iso8601SecondsDateFormat() {
+      return iso8601SecondsDateFormat(new Date());
+   }
+
+   @Override
+   public final String iso8601DateFormat(Date date) {
+      long millis = date.getTime();
+      if (!isFast(millis)) {
+         return iso8601Format(iso8601SimpleDateFormat.get(), date);
+      }
+      FormattedSecond last = lastIso8601;
+      if (last == null || last.second != millis / 1000) {
+         Fields f = new Fields(millis);
+         StringBuilder text = new StringBuilder(24);
+         appendIso8601(text, f).append('.');
+         last = lastIso8601 = new FormattedSecond(millis / 1000, text.toString());
+      }
+      int fraction = (int) (millis % 1000);
+      StringBuilder text = new StringBuilder(24).append(last.text);
+      if (fraction < 100) {
+         text.append('0');
+      }
+      return pad2(text, fraction).append('Z').toString();
+   }
+
+   @Override
+   public final String iso8601DateFormat() {
+      return iso8601DateFormat(new Date());
+   }
+
+   @Override
+   public final Date iso8601DateParse(String toParse) {
+      toParse = normalizeIso8601(toParse);
+      // yyyy-MM-ddTHH:mm:ss.SSS+hhmm
+      if (toParse.length() == 28 && isIso8601Date(toParse) && toParse.charAt(19) == '.') {
+         int fraction = digits(toParse, 20, 3);
+         if (fraction >= 0) {
+            Date date = toDate(digits(toParse, 0, 4), digits(toParse, 5, 2), digits(toParse, 8, 2), toParse, 11,
+                  fraction, offsetMillis(toParse, 23));
+            if (date != null) {
+               return date;
+            }
+         }
+      }
+      return parse(iso8601SimpleDateFormat.get(), toParse);
+   }
+
+   @Override
+   public final Date iso8601SecondsDateParse(String toParse) throws IllegalArgumentException {
+      toParse = normalizeIso8601(toParse);
+      // yyyy-MM-ddTHH:mm:ss+hhmm
+      if (toParse.length() == 24 && isIso8601Date(toParse)) {
+         Date date = toDate(digits(toParse, 0, 4), digits(toParse, 5, 2), digits(toParse, 8, 2), toParse, 11, 0,
+               offsetMillis(toParse, 19));
+         if (date != null) {
+            return date;
+         }
+      }
+      return parse(iso8601SecondsSimpleDateFormat.get(), toParse);
+   }
+
+   @Override
+   public Date iso8601DateOrSecondsDateParse(String toParse) throws IllegalArgumentException {
+      try {
+         return iso8601DateParse(toParse);
+      } catch (IllegalArgumentException orig) {
+         try {
+            return iso8601SecondsDateParse(toParse);
+         } catch (IllegalArgumentException ignored) {
+            throw orig;
+         }
+      }
+   }
+
+   @Override
+   public String iso8601SecondsDateFormat(Date date) {
+      long millis = date.getTime();
+      if (!isFast(millis)) {
+         return iso8601Format(iso8601SecondsSimpleDateFormat.get(), date);
+      }
+      FormattedSecond last = lastIso8601Seconds;
+      if (last != null && last.second == millis / 1000) {
+         return last.text;
+      }
+      StringBuilder text = new StringBuilder(20);
+      appendIso8601(text, new Fields(millis)).append('Z');
+      lastIso8601Seconds = new FormattedSecond(millis / 1000, text.toString());
+      return lastIso8601Seconds.text;
+   }
+
+   @Override
+   public final String rfc1123DateFormat(Date date) {
+      long millis = date.getTime();
+      if (!isFast(millis)) {
+         return rfc1123SimpleDateFormat.get().format(date);
+      }
+      FormattedSecond last = lastRfc1123;
+      if (last != null && last.second == millis / 1000) {
+         return last.text;
+      }
+      Fields f = new Fields(millis);
+      StringBuilder text = new StringBuilder(31);
+      // the pattern has a five digit year
+      appendDayMonthYear(text, f).insert(12, '0');
+      appendTime(text.append(' '), f).append(" +0000");
+      lastRfc1123 = new FormattedSecond(millis / 1000, text.toString());
+      return lastRfc1123.text;
+   }
+
+   @Override
+   public final String rfc1123DateFormat() {
+      return rfc1123DateFormat(new Date());
+   }
+
+   @Override
+   public final Date rfc1123DateParse(String toParse) throws IllegalArgumentException {
+      // EEE, dd MMM yyyy HH:mm:ss +hhmm, where the year may be padded to five digits
+      int yearDigits = toParse.length() - 27;
+      if ((yearDigits == 4 || yearDigits == 5) && isDayMonthYear(toParse) && toParse.charAt(12 + yearDigits) == ' '
+            && toParse.charAt(21 + yearDigits) == ' ') {
+         Date date = toDate(digits(toParse, 12, yearDigits), month(toParse, 8), digits(toParse, 5, 2), toParse,
+               13 + yearDigits, 0, offsetMillis(toParse, 22 + yearDigits));
+         if (date != null) {
+            return date;
+         }
+      }
+      return parse(rfc1123SimpleDateFormat.get(), toParse);
+   }
+
+   private static ThreadLocal<SimpleDateFormat> simpleDateFormat(final String pattern, final boolean gmt) {
+      return new ThreadLocal<SimpleDateFormat>() {
+         @Override
+         protected SimpleDateFormat initialValue() {
+            SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+            if (gmt) {
+               format.setTimeZone(new SimpleTimeZone(0, "GMT"));
+            }
+            return format;
+         }
+      };
+   }
+
+   private static Date parse(SimpleDateFormat format, String toParse) {
+      try {
+         return format.parse(toParse);
+      } catch (ParseException pe) {
+         throw new IllegalArgumentException("Error parsing data at " + pe.getErrorOffset(), pe);
+      }
+   }
+
+   private static String iso8601Format(SimpleDateFormat format, Date date) {
+      String parsed = format.format(date);
+      String tz = findTZ(parsed);
+      if (tz.equals("+0000")) {
+         parsed = trimTZ(parsed) + "Z";
+      }
+      return parsed;
+   }
+
+   /** Rewrites the time zone as {@code +hhmm} and drops digits beyond milliseconds. */
+   private static String normalizeIso8601(String toParse) {
+      if (toParse.length() < 10)
+         throw new IllegalArgumentException("incorrect date format " + toParse);
+      String tz = findTZ(toParse);
+      toParse = trimToMillis(toParse);
+      toParse = trimTZ(toParse);
+      toParse += tz;
+      if (toParse.charAt(10) == ' ')
+         toParse = new StringBuilder(toParse).replace(10, 11, "T").toString();
+      return toParse;
+   }
+
+   private static boolean isFast(long millis) {
+      return millis >= 0 && millis < MAX_FAST_MILLIS;
+   }
+
+   private static StringBuilder appendDayMonthYear(StringBuilder text, Fields f) {
+      text.append(DAYS[f.dayOfWeek]).append(", ");
+      pad2(text, f.day).append(' ').append(MONTHS[f.month - 1]).append(' ');
+      return pad4(text, f.year);
+   }
+
+   private static StringBuilder appendIso8601(StringBuilder text, Fields f) {
+      pad4(text, f.year).append('-');
+      pad2(text, f.month).append('-');
+      pad2(text, f.day).append('T');
+      return appendTime(text, f);
+   }
+
+   private static StringBuilder appendTime(StringBuilder text, Fields f) {
+      pad2(text, f.hour).append(':');
+      pad2(text, f.minute).append(':');
+      return pad2(text, f.second);
+   }
+
+   private static StringBuilder pad2(StringBuilder text, int value) {
+      if (value < 10) {
+         text.append('0');
+      }
+      return text.append(value);
+   }
+
+   private static StringBuilder pad4(StringBuilder text, int value) {
+      if (value < 1000) {
+         text.append('0');
+      }
+      return pad2(text, value / 100).append(value % 100 < 10 ? "0" : "").append(value % 100);
+   }
+
+   /** {@code EEE, dd MMM yyyy} */
+   private static boolean isDayMonthYear(String toParse) {
+      return toParse.charAt(3) == ',' && toParse.charAt(4) == ' ' && toParse.charAt(7) == ' '
+            && toParse.charAt(11) == ' ';
+   }
+
+   /** {@code yyyy-MM-ddTHH:mm:ss} */
+   private static boolean isIso8601Date(String toParse) {
+      return toParse.charAt(4) == '-' && toParse.charAt(7) == '-' && toParse.charAt(10) == 'T';
+   }
+
+   /** @return the value of the digits, or -1 if any character is not a digit */
+   private static int digits(String s, int start, int count) {
+      int value = 0;
+      for (int i = start; i < start + count; ++i) {
+         char c = s.charAt(i);
+         if (c < '0' || c > '9') {
+            return -1;
+         }
+         value = value * 10 + c - '0';
+      }
+      return value;
+   }
+
+   /** @return the month from 1 to 12, or -1 */
+   private static int month(String s, int start) {
+      for (int i = 0; i < MONTHS.length; ++i) {
+         if (s.regionMatches(start, MONTHS[i], 0, 3)) {
+            return i + 1;
+         }
+      }
+      return -1;
+   }
+
+   /** @return the offset of a {@code +hhmm} time zone in milliseconds, or {@link Integer#MIN_VALUE} */
+   private static int offsetMillis(String s, int start) {
+      char sign = s.charAt(start);
+      int hours = digits(s, start + 1, 2);
+      int minutes = digits(s, start + 3, 2);
+      if ((sign != '+' && sign != '-') || hours < 0 || minutes < 0) {
+         return Integer.MIN_VALUE;
+      }
+      int offset = (hours * 60 + minutes) * 60 * 1000;
+      return sign == '-' ? -offset : offset;
+   }
+
+   /**
+    * Reads {@code HH:mm:ss} at {@code timeStart}.
+    *
+    * @return the date, or null if a field is out of range or the year is not in the range
+    *         formatted by arithmetic, leaving it to {@link SimpleDateFormat}
+    */
+   private static Date toDate(int year, int month, int day, String s, int timeStart, int millis, int offsetMillis) {
+      int hour = digits(s, timeStart, 2);
+      int minute = digits(s, timeStart + 3, 2);
+      int second = digits(s, timeStart + 6, 2);
+      if (year < 1970 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0
+            || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59
+            || s.charAt(timeStart + 2) != ':' || s.charAt(timeStart + 5) != ':' || offsetMillis == Integer.MIN_VALUE) {
+         return null;
+      }
+      long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600 + minute * 60 + second;
+      return new Date(seconds * 1000 + millis - offsetMillis);
+   }
+
+   private static int daysInMonth(int year, int month) {
+      if (month == 2) {
+         return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+      }
+      return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+   }
+
+   /** Days since 1970-01-01 of a date in the proleptic Gregorian calendar, for years from 0. */
+   private static long daysFromCivil(int year, int month, int day) {
+      int y = month <= 2 ? year - 1 : year;
+      int era = y / 400;
+      int yearOfEra = y - era * 400;
+      int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+      int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+      return era * 146097L + dayOfEra - 719468;
+   }
+
+   /** Fields of a non-negative instant in GMT. */
+   private static final class Fields {
+      private final int year;
+      private final int month;
+      private final int day;
+      private final int dayOfWeek;
+      private final int hour;
+      private final int minute;
+      private final int second;
+
+      Fields(long millis) {
+         long days = millis / 86400000L;
+         int secondOfDay = (int) ((millis / 1000) % 86400);
+         hour = secondOfDay / 3600;
+         minute = secondOfDay / 60 % 60;
+         second = secondOfDay % 60;
+         // 1970-01-01 was a Thursday
+         dayOfWeek = (int) ((days + 4) % 7);
+         // the inverse of daysFromCivil
+         long z = days + 719468;
+         long era = z / 146097;
+         int dayOfEra = (int) (z - era * 146097);
+         int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+         int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+         int mp = (5 * dayOfYear + 2) / 153;
+         day = dayOfYear - (153 * mp + 2) / 5 + 1;
+         month = mp < 10 ? mp + 3 : mp - 9;
+         year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+      }
+   }
+
+   private static final class FormattedSecond {
+      private final long second;
+      private final String text;
+
+      FormattedSecond(long second, String text) {
+         this.second = second;
+         this.text = text;
+      }
+   }
+}
@@ -18,6 +18,7 @@ package org.jclouds.http;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.rest.internal.GeneratedHttpRequest;
 
 import com.google.common.base.Objects;
@@ -32,13 +33,32 @@ public class HttpCommand {
    private volatile int failureCount;
    private volatile int redirectCount;
    private volatile Exception exception;
+   private final String name;
 
    public HttpCommand(HttpRequest request) {
+      this(request, null);
+   }
+
+   /**
+    * @param name
+    *           of the API method the command invokes, which metrics are recorded against
+    */
+   public HttpCommand(HttpRequest request, @Nullable String name) {
       this.request = checkNotNull(request, "request");
+      this.name = name;
       this.failureCount = 0;
       this.redirectCount = 0;
    }
 
+   /**
+    * The name of the API method the command invokes, or the method of its request if it was not created for one.
+    * 
+    * @see org.jclouds.metrics.Metrics
+    */
+   public String getName() {
+      return name != null ? name : request.getMethod();
+   }
+
    /**
     * This displays the current number of error retries for this command.
     * 
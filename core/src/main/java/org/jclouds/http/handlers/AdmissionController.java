@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.handlers;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpResponse;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Inject;
+
+/**
+ * Holds requests back before they are sent, so that each host receives no more than it can take,
+ * rather than receiving bursts which it throttles and which are then retried after a backoff.
+ * <p/>
+ * Each host has a token bucket which admits {@link Constants#PROPERTY_RATE_LIMIT} requests per
+ * second, spaced evenly, and stores up to a second's worth of unused ones for a burst, and an
+ * adaptive limit on the requests in flight which starts at
+ * {@link Constants#PROPERTY_ADAPTIVE_CONCURRENCY_LIMIT}. That limit is halved when a response is
+ * {@link #isThrottled throttled}, and grows back by one for each limit's worth of successful
+ * responses. Both are disabled by default.
+ * <p/>
+ * A request counts as in flight until its response headers are received, as the executor cannot
+ * tell when the payload of the response is consumed. Executors which must not block use
+ * {@link #acquireAsync}, whose permits are handed over as other requests release theirs.
+ */
+@Singleton
+public class AdmissionController {
+
+   /**
+    * Allows a request to be sent, and must be released once it completes.
+    */
+   public interface Permit {
+      /**
+       * @param response
+       *           received for the request, or null if it failed without one
+       */
+      void release(HttpCommand command, HttpResponse response);
+   }
+
+   private static final Permit UNLIMITED = new Permit() {
+      public void release(HttpCommand command, HttpResponse response) {
+      }
+   };
+
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_RATE_LIMIT)
+   private double rate = 0;
+
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_ADAPTIVE_CONCURRENCY_LIMIT)
+   private int maxConcurrency = 0;
+
+   private final ConcurrentMap<String, Host> hosts = Maps.newConcurrentMap();
+
+   public AdmissionController() {
+   }
+
+   @VisibleForTesting
+   AdmissionController(double rate, int maxConcurrency) {
+      this.rate = rate;
+      this.maxConcurrency = maxConcurrency;
+   }
+
+   /**
+    * Waits until the command may be sent to its host.
+    */
+   public Permit acquire(HttpCommand command) throws InterruptedException {
+      if (rate <= 0 && maxConcurrency <= 0) {
+         return UNLIMITED;
+      }
+      Host host = host(command);
+      return host.acquire();
+   }
+
+   /**
+    * Returns at once with a permit which completes when the command may be sent to its host. Slots
+    * freed by other requests are handed to waiting permits in order, and the rate limit is waited
+    * for on the {@code scheduler}. A permit may therefore complete on the thread releasing another
+    * permit, or on a thread of the scheduler.
+    */
+   public ListenableFuture<Permit> acquireAsync(HttpCommand command, ScheduledExecutorService scheduler) {
+      if (rate <= 0 && maxConcurrency <= 0) {
+         SettableFuture<Permit> permit = SettableFuture.create();
+         permit.set(UNLIMITED);
+         return permit;
+      }
+      return host(command).acquireAsync(checkNotNull(scheduler, "scheduler"));
+   }
+
+   /**
+    * Whether the host refused a request because it received too many. By default, responses with
+    * status 429 Too Many Requests, 431 as returned by CloudStack, or 503 Service Unavailable as
+    * returned by Amazon S3 are throttled. Services that signal throttling in the body of a response
+    * override this.
+    */
+   protected boolean isThrottled(HttpCommand command, HttpResponse response) {
+      switch (response.getStatusCode()) {
+      case 429:
+      case 431:
+      case 503:
+         return true;
+      default:
+         return false;
+      }
+   }
+
+   /**
+    * @return the current limit on requests in flight to the host, or zero if there is none
+    */
+   public int getConcurrencyLimit(String host) {
+      if (maxConcurrency <= 0) {
+         return 0;
+      }
+      Host state = hosts.get(checkNotNull(host, "host"));
+      return state != null ? state.getLimit() : maxConcurrency;
+   }
+
+   private Host host(HttpCommand command) {
+      String key = String.valueOf(command.getCurrentRequest().getEndpoint().getHost());
+      Host host = hosts.get(key);
+      if (host == null) {
+         Host newHost = new Host();
+         host = hosts.putIfAbsent(key, newHost);
+         if (host == null) {
+            host = newHost;
+         }
+      }
+      return host;
+   }
+
+   /** A permit waiting for a slot, and the scheduler to wait for the rate limit on. */
+   private static final class Waiter {
+      private final SettableFuture<Permit> permit = SettableFuture.create();
+      private final ScheduledExecutorService scheduler;
+
+      Waiter(ScheduledExecutorService scheduler) {
+         this.scheduler = scheduler;
+      }
+   }
+
+   private final class Host {
+      private final long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+      private final double maxStoredPermits = Math.max(1, rate);
+      private final Queue<Waiter> waiters = new ArrayDeque<Waiter>();
+      private double limit = maxConcurrency;
+      private int inFlight;
+      private long decreasedAt = System.nanoTime();
+      private long nextSendAt = System.nanoTime();
+      /** Requests which may be sent before {@code nextSendAt}, a host starting out idle. */
+      private double storedPermits = maxStoredPermits;
+
+      Permit acquire() throws InterruptedException {
+         if (maxConcurrency > 0) {
+            synchronized (this) {
+               while (inFlight >= (int) limit) {
+                  wait();
+               }
+               inFlight++;
+            }
+         }
+         Uninterruptibles.sleepUninterruptibly(reserve(), TimeUnit.NANOSECONDS);
+         return newPermit();
+      }
+
+      ListenableFuture<Permit> acquireAsync(ScheduledExecutorService scheduler) {
+         Waiter waiter = new Waiter(scheduler);
+         if (maxConcurrency > 0) {
+            synchronized (this) {
+               if (inFlight >= (int) limit) {
+                  waiters.add(waiter);
+                  return waiter.permit;
+               }
+               inFlight++;
+            }
+         }
+         admit(waiter);
+         return waiter.permit;
+      }
+
+      /**
+       * Completes the permit of a waiter holding a slot, once the rate limit allows.
+       */
+      private void admit(final Waiter waiter) {
+         long delay = reserve();
+         if (delay <= 0) {
+            waiter.permit.set(newPermit());
+            return;
+         }
+         waiter.scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+               waiter.permit.set(newPermit());
+            }
+         }, delay, TimeUnit.NANOSECONDS);
+      }
+
+      /**
+       * @return the nanoseconds to wait before sending the next request
+       */
+      private synchronized long reserve() {
+         if (intervalNanos <= 0) {
+            return 0;
+         }
+         long now = System.nanoTime();
+         if (now - nextSendAt > 0) {
+            // the permits not used while idle are stored, up to a second's worth
+            storedPermits = Math.min(maxStoredPermits, storedPermits + (now - nextSendAt) / (double) intervalNanos);
+            nextSendAt = now;
+         }
+         long delay = nextSendAt - now;
+         double stored = Math.min(1, storedPermits);
+         storedPermits -= stored;
+         nextSendAt += (long) ((1 - stored) * intervalNanos);
+         return delay;
+      }
+
+      private Permit newPermit() {
+         final long acquiredAt = System.nanoTime();
+         return new Permit() {
+            public void release(HttpCommand command, HttpResponse response) {
+               Host.this.release(acquiredAt, command, response);
+            }
+         };
+      }
+
+      void release(long acquiredAt, HttpCommand command, HttpResponse response) {
+         if (maxConcurrency <= 0) {
+            return;
+         }
+         boolean throttled = response != null && isThrottled(command, response);
+         List<Waiter> admitted = Lists.newArrayListWithCapacity(1);
+         synchronized (this) {
+            inFlight--;
+            if (throttled) {
+               // requests sent before the last decrease were sent under a higher limit
+               if (acquiredAt - decreasedAt >= 0) {
+                  limit = Math.max(1, limit / 2);
+                  decreasedAt = System.nanoTime();
+               }
+            } else if (response != null && response.getStatusCode() < 400) {
+               limit = Math.min(maxConcurrency, limit + 1 / limit);
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+               admitted.add(waiters.poll());
+               inFlight++;
+            }
+            notifyAll();
+         }
+         for (Waiter waiter : admitted) {
+            admit(waiter);
+         }
+      }
+
+      synchronized int getLimit() {
+         return (int) limit;
+      }
+   }
+}
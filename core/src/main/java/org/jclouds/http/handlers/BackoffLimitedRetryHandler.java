@@ -72,6 +72,12 @@ import com.google.inject.Inject;
  * {@link TransformingHttpCommand#incrementFailureCount()}, because this failure count value is used
  * to determine how many times the command has already been tried. It also closes the response's
  * content input stream to ensure connections are cleaned up.
+ * <p>
+ * Retries are also limited by the {@link RetryBudget} of the host. The executors
+ * {@link #beginDeferringDelays defer} the delay and send the retry once it has elapsed: the
+ * asynchronous ones schedule it without holding a thread, while the synchronous one waits on the
+ * calling thread, which has to wait for the response anyway, after releasing the failed response
+ * and its connection.
  */
 @Singleton
 public class BackoffLimitedRetryHandler implements HttpRetryHandler, IOExceptionRetryHandler {
@@ -86,9 +92,34 @@ public class BackoffLimitedRetryHandler implements HttpRetryHandler, IOException
    @Named(Constants.PROPERTY_RETRY_DELAY_START)
    private long delayStart = 50L;
 
+   @Inject(optional = true)
+   private RetryBudget retryBudget = new RetryBudget();
+
+   /** Milliseconds of backoff deferred on the current thread, or null if delays are slept. */
+   private static final ThreadLocal<long[]> deferredDelay = new ThreadLocal<long[]>();
+
    @Resource
    protected Logger logger = Logger.NULL;
 
+   /**
+    * Makes backoff delays imposed on the current thread add up instead of sleeping, until
+    * {@link #endDeferringDelays()}. Executors which do not block while a request is in flight use
+    * this to schedule a retry after the delay rather than holding a thread for it.
+    */
+   public static void beginDeferringDelays() {
+      deferredDelay.set(new long[1]);
+   }
+
+   /**
+    * @return the milliseconds of backoff deferred since {@link #beginDeferringDelays()}, after
+    *         which delays are slept again
+    */
+   public static long endDeferringDelays() {
+      long[] deferred = deferredDelay.get();
+      deferredDelay.remove();
+      return deferred != null ? deferred[0] : 0;
+   }
+
    public boolean shouldRetryRequest(HttpCommand command, IOException error) {
       return ifReplayableBackoffAndReturnTrue(command);
    }
@@ -107,6 +138,10 @@ public class BackoffLimitedRetryHandler implements HttpRetryHandler, IOException
          logger.error("Cannot retry after server error, command has exceeded retry limit %1$d: %2$s", retryCountLimit,
                   command);
          return false;
+      } else if (!retryBudget.tryRetry(command)) {
+         logger.error("Cannot retry after server error, retry budget of %1$s is exhausted: %2$s",
+                  command.getCurrentRequest().getEndpoint().getHost(), command);
+         return false;
       } else {
          imposeBackoffExponentialDelay(command.getFailureCount(), "server error: " + command.toString());
          return true;
@@ -123,10 +158,28 @@ public class BackoffLimitedRetryHandler implements HttpRetryHandler, IOException
 
    public void imposeBackoffExponentialDelay(long period, long maxPeriod, int pow, int failureCount, int max,
             String commandDescription) {
+      long delayMs = backoffDelay(period, maxPeriod, pow, failureCount, max, commandDescription);
+      if (delayMs == 0) {
+         return;
+      }
+      long[] deferred = deferredDelay.get();
+      if (deferred != null) {
+         deferred[0] += delayMs;
+         return;
+      }
+      try {
+         Thread.sleep(delayMs);
+      } catch (InterruptedException e) {
+         Throwables.propagate(e);
+      }
+   }
+
+   private long backoffDelay(long period, long maxPeriod, int pow, int failureCount, int max,
+            String commandDescription) {
       if (period == 0) {
          // Essentially disables the exponential backoff
          logger.debug("Retry %d/%d: delaying for %d ms: %s", failureCount, max, 0, commandDescription);
-         return;
+         return 0;
       }
       long delayMs = (long) (period * Math.pow(failureCount, pow));
       // Add random delay to avoid thundering herd problem when multiple
@@ -135,10 +188,7 @@ public class BackoffLimitedRetryHandler implements HttpRetryHandler, IOException
       delayMs += new Random().nextInt((int) (max(delayMs / 10, 1) ));
       delayMs = delayMs > maxPeriod ? maxPeriod : delayMs;
       logger.debug("Retry %d/%d: delaying for %d ms: %s", failureCount, max, delayMs, commandDescription);
-      try {
-         Thread.sleep(delayMs);
-      } catch (InterruptedException e) {
-         Throwables.propagate(e);
-      }
+      retryBudget.onBackoff(delayMs);
+      return delayMs;
    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.handlers;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.http.HttpCommand;
+
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+
+/**
+ * Limits retries to a fraction of the requests sent to each host, so that a failing service is
+ * not sent several times its normal traffic, and counts retries for monitoring.
+ * <p/>
+ * Each host has a token bucket holding up to {@value #MAX_TOKENS} tokens, which starts full.
+ * Every request adds {@link Constants#PROPERTY_RETRY_BUDGET_RATIO} tokens and every retry takes
+ * one, so once the initial tokens are spent, retries are at most that fraction of requests. A
+ * ratio of zero, the default, leaves retries limited only by {@link Constants#PROPERTY_MAX_RETRIES}.
+ */
+@Singleton
+public class RetryBudget {
+
+   static final int MAX_TOKENS = 10;
+
+   /** Tokens are kept in thousandths, so that fractional ratios can be added atomically. */
+   private static final long SCALE = 1000;
+
+   @Inject(optional = true)
+   @Named(Constants.PROPERTY_RETRY_BUDGET_RATIO)
+   private double ratio = 0;
+
+   private final ConcurrentMap<String, AtomicLong> buckets = Maps.newConcurrentMap();
+   private final AtomicLong retries = new AtomicLong();
+   private final AtomicLong rejections = new AtomicLong();
+   private final AtomicLong backoffMillis = new AtomicLong();
+
+   public RetryBudget() {
+   }
+
+   RetryBudget(double ratio) {
+      this.ratio = ratio;
+   }
+
+   /** Records a request sent for the first time. */
+   public void onRequest(HttpCommand command) {
+      if (ratio <= 0) {
+         return;
+      }
+      AtomicLong bucket = bucket(command);
+      long deposit = (long) (ratio * SCALE);
+      for (;;) {
+         long tokens = bucket.get();
+         long next = Math.min(tokens + deposit, MAX_TOKENS * SCALE);
+         if (tokens == next || bucket.compareAndSet(tokens, next)) {
+            return;
+         }
+      }
+   }
+
+   /**
+    * Takes a token for retrying the command.
+    *
+    * @return false if the budget of the host is exhausted, in which case the command should fail
+    */
+   public boolean tryRetry(HttpCommand command) {
+      if (ratio > 0) {
+         AtomicLong bucket = bucket(command);
+         for (;;) {
+            long tokens = bucket.get();
+            if (tokens < SCALE) {
+               rejections.incrementAndGet();
+               return false;
+            }
+            if (bucket.compareAndSet(tokens, tokens - SCALE)) {
+               break;
+            }
+         }
+      }
+      retries.incrementAndGet();
+      return true;
+   }
+
+   /** Records time a retry waited before being sent. */
+   public void onBackoff(long millis) {
+      backoffMillis.addAndGet(millis);
+   }
+
+   /** @return the number of retries allowed */
+   public long getRetryCount() {
+      return retries.get();
+   }
+
+   /** @return the number of retries refused because a host exhausted its budget */
+   public long getRejectionCount() {
+      return rejections.get();
+   }
+
+   /** @return the total milliseconds retries have waited before being sent */
+   public long getBackoffMillis() {
+      return backoffMillis.get();
+   }
+
+   private AtomicLong bucket(HttpCommand command) {
+      String host = String.valueOf(command.getCurrentRequest().getEndpoint().getHost());
+      AtomicLong bucket = buckets.get(host);
+      if (bucket == null) {
+         AtomicLong newBucket = new AtomicLong(MAX_TOKENS * SCALE);
+         bucket = buckets.putIfAbsent(host, newBucket);
+         if (bucket == null) {
+            bucket = newBucket;
+         }
+      }
+      return bucket;
+   }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.base.Throwables.propagateIfInstanceOf;
+import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+
+import org.jclouds.Constants;
+import org.jclouds.http.AsyncHttpCommandExecutorService;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.http.HttpUtils;
+import org.jclouds.http.IOExceptionRetryHandler;
+import org.jclouds.http.handlers.AdmissionController.Permit;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.http.handlers.DelegatingErrorHandler;
+import org.jclouds.http.handlers.DelegatingRetryHandler;
+import org.jclouds.io.ContentMetadataCodec;
+import org.jclouds.metrics.Metrics.Timing;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Base for drivers which send requests without blocking, such as those built on an event loop.
+ * <p/>
+ * Filters, retry and error handlers may block, for example while backing off or parsing an error,
+ * so responses are handled on the {@link Constants#PROPERTY_USER_THREADS user threads} rather than
+ * on the thread of the driver. A thread is only held while a response is handled, not while the
+ * server is working on the request. Nor is it held while a request waits for a permit of the
+ * {@link org.jclouds.http.handlers.AdmissionController}, or during the backoff before a retry:
+ * delays imposed by {@link BackoffLimitedRetryHandler} are deferred, and the retry is sent once
+ * they have elapsed.
+ */
+public abstract class BaseAsyncHttpCommandExecutorService<Q> extends BaseHttpCommandExecutorService<Q> implements
+      AsyncHttpCommandExecutorService {
+
+   protected final ListeningExecutorService userExecutor;
+
+   /**
+    * Times retries and rate limited requests if the context installs the
+    * {@link org.jclouds.concurrent.config.ScheduledExecutorServiceModule}.
+    */
+   @com.google.inject.Inject(optional = true)
+   @Named(Constants.PROPERTY_SCHEDULER_THREADS)
+   ScheduledExecutorService scheduler;
+
+   @Inject
+   protected BaseAsyncHttpCommandExecutorService(HttpUtils utils, ContentMetadataCodec contentMetadataCodec,
+         DelegatingRetryHandler retryHandler, IOExceptionRetryHandler ioRetryHandler,
+         DelegatingErrorHandler errorHandler, HttpWire wire,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+      super(utils, contentMetadataCodec, retryHandler, ioRetryHandler, errorHandler, wire);
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+   }
+
+   @Override
+   public ListenableFuture<HttpResponse> submit(HttpCommand command) {
+      retryBudget.onRequest(command);
+      SettableFuture<HttpResponse> result = SettableFuture.create();
+      send(command, result);
+      return result;
+   }
+
+   /**
+    * Sends the command once the admission controller grants a permit, without waiting for it.
+    */
+   private void send(final HttpCommand command, final SettableFuture<HttpResponse> result) {
+      final ListenableFuture<Permit> permit;
+      try {
+         permit = admissionController.acquireAsync(command, scheduler());
+      } catch (RuntimeException e) {
+         failed(command, result, e);
+         return;
+      }
+      // A permit granted later completes on the thread of another response or on the timer, so
+      // the request, whose filters may block, is then sent from the user threads.
+      Futures.addCallback(permit, new FutureCallback<Permit>() {
+         @Override
+         public void onSuccess(Permit permit) {
+            send(command, permit, result);
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            failed(command, result, t);
+         }
+      }, permit.isDone() ? MoreExecutors.sameThreadExecutor() : userExecutor);
+   }
+
+   private void send(final HttpCommand command, final Permit permit, final SettableFuture<HttpResponse> result) {
+      final HttpRequest request;
+      final Q nativeRequest;
+      final long start;
+      ListenableFuture<HttpResponse> response;
+      try {
+         request = filter(command);
+         start = System.nanoTime();
+         nativeRequest = convert(request);
+         metrics.recordTime(command.getName(), Timing.CONNECT, System.nanoTime() - start);
+      } catch (Exception e) {
+         permit.release(command, null);
+         failed(command, result, e);
+         return;
+      }
+      try {
+         response = invokeAsync(nativeRequest);
+      } catch (RuntimeException e) {
+         permit.release(command, null);
+         cleanup(nativeRequest);
+         failed(command, result, e);
+         return;
+      }
+      Futures.addCallback(response, new FutureCallback<HttpResponse>() {
+         @Override
+         public void onSuccess(HttpResponse response) {
+            metrics.recordTime(command.getName(), Timing.FIRST_BYTE, System.nanoTime() - start);
+            permit.release(command, response);
+            try {
+               received(command, request, response);
+               if (response.getStatusCode() >= 300 && retry(command, response, result)) {
+                  return;
+               } else if (command.getException() != null) {
+                  result.setException(command.getException());
+               } else {
+                  result.set(response);
+               }
+            } catch (Exception e) {
+               failed(command, result, e);
+            }
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            permit.release(command, null);
+            cleanup(nativeRequest);
+            failed(command, result, t);
+         }
+      }, userExecutor);
+   }
+
+   private void failed(HttpCommand command, SettableFuture<HttpResponse> result, Throwable e) {
+      IOException ioe = getFirstThrowableOfType(e, IOException.class);
+      if (ioe != null && retry(command, ioe, result)) {
+         return;
+      }
+      command.setException(new HttpResponseException(e.getMessage() + " connecting to "
+            + command.getCurrentRequest().getRequestLine(), command, null, e));
+      result.setException(command.getException());
+   }
+
+   /**
+    * Sends the command again if the retry handlers allow, once the backoff they impose has elapsed.
+    *
+    * @return true if the command will be retried
+    */
+   private boolean retry(HttpCommand command, HttpResponse response, SettableFuture<HttpResponse> result) {
+      boolean retry;
+      long delayMs;
+      BackoffLimitedRetryHandler.beginDeferringDelays();
+      try {
+         retry = shouldContinue(command, response);
+      } finally {
+         delayMs = BackoffLimitedRetryHandler.endDeferringDelays();
+      }
+      return retry && resend(command, result, delayMs);
+   }
+
+   /**
+    * @see #retry(HttpCommand, HttpResponse, SettableFuture)
+    */
+   private boolean retry(HttpCommand command, IOException error, SettableFuture<HttpResponse> result) {
+      boolean retry;
+      long delayMs;
+      BackoffLimitedRetryHandler.beginDeferringDelays();
+      try {
+         retry = shouldContinue(command, error);
+      } finally {
+         delayMs = BackoffLimitedRetryHandler.endDeferringDelays();
+      }
+      return retry && resend(command, result, delayMs);
+   }
+
+   private boolean resend(HttpCommand command, SettableFuture<HttpResponse> result, long delayMs) {
+      if (delayMs <= 0) {
+         send(command, result);
+      } else {
+         scheduler().schedule(new Resend(command, result), delayMs, TimeUnit.MILLISECONDS);
+      }
+      return true;
+   }
+
+   private ScheduledExecutorService scheduler() {
+      return scheduler != null ? scheduler : DefaultScheduler.INSTANCE;
+   }
+
+   /**
+    * Hands a retry over to the user threads once its delay has elapsed, as filters may block.
+    */
+   private final class Resend implements Runnable {
+      private final HttpCommand command;
+      private final SettableFuture<HttpResponse> result;
+
+      Resend(HttpCommand command, SettableFuture<HttpResponse> result) {
+         this.command = command;
+         this.result = result;
+      }
+
+      @Override
+      public void run() {
+         try {
+            userExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  send(command, result);
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            result.setException(e);
+         }
+      }
+   }
+
+   /**
+    * A single daemon thread, created when first used, which only hands tasks over to the user
+    * threads and can therefore be shared by all executors.
+    */
+   private static final class DefaultScheduler {
+      static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("jclouds async http delay").setDaemon(true).build());
+   }
+
+   /**
+    * Blocks on {@link #invokeAsync}, so that {@link #invoke(HttpCommand)} behaves as in other
+    * drivers.
+    */
+   @Override
+   protected HttpResponse invoke(Q nativeRequest) throws IOException, InterruptedException {
+      try {
+         return invokeAsync(nativeRequest).get();
+      } catch (ExecutionException e) {
+         propagateIfInstanceOf(e.getCause(), IOException.class);
+         throw propagate(e.getCause());
+      }
+   }
+
+   /**
+    * Sends the request, returning a future which completes once the headers of the response are
+    * received. Implementations must not block the calling thread.
+    */
+   protected abstract ListenableFuture<HttpResponse> invokeAsync(Q nativeRequest);
+}
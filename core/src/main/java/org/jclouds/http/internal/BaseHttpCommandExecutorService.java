@@ -25,6 +25,7 @@ import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -33,16 +34,23 @@ import javax.inject.Named;
 import org.jclouds.Constants;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpMessage;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpRequestFilter;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.http.HttpResponseException;
 import org.jclouds.http.HttpUtils;
 import org.jclouds.http.IOExceptionRetryHandler;
+import org.jclouds.http.handlers.AdmissionController;
+import org.jclouds.http.handlers.AdmissionController.Permit;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
 import org.jclouds.http.handlers.DelegatingErrorHandler;
 import org.jclouds.http.handlers.DelegatingRetryHandler;
+import org.jclouds.http.handlers.RetryBudget;
 import org.jclouds.io.ContentMetadataCodec;
 import org.jclouds.logging.Logger;
+import org.jclouds.metrics.Metrics;
+import org.jclouds.metrics.Metrics.Timing;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
@@ -65,6 +73,15 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
 
    protected final HttpWire wire;
 
+   @Inject
+   RetryBudget retryBudget = new RetryBudget();
+
+   @Inject
+   AdmissionController admissionController = new AdmissionController();
+
+   @com.google.inject.Inject(optional = true)
+   Metrics metrics = Metrics.NULL;
+
    @Inject
    protected BaseHttpCommandExecutorService(HttpUtils utils, ContentMetadataCodec contentMetadataCodec,
          DelegatingRetryHandler retryHandler, IOExceptionRetryHandler ioRetryHandler,
@@ -77,61 +94,128 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
       this.wire = checkNotNull(wire, "wire");
    }
 
+   /**
+    * Sends the command, retrying as the retry handlers allow. The backoff they impose before a retry
+    * is waited for once the response and its connection have been released, rather than inside
+    * the handlers.
+    */
    @Override
    public HttpResponse invoke(HttpCommand command) {
       HttpResponse response = null;
+      retryBudget.onRequest(command);
       for (;;) {
-         HttpRequest request = command.getCurrentRequest();
          Q nativeRequest = null;
+         Permit permit = null;
+         boolean retry = false;
+         long delayMs = 0;
          try {
-            for (HttpRequestFilter filter : request.getFilters()) {
-               request = filter.filter(request);
-            }
-            checkRequestHasContentLengthOrChunkedEncoding(request,
-                  "After filtering, the request has neither chunked encoding nor content length: " + request);
-            logger.debug("Sending request %s: %s", request.hashCode(), request.getRequestLine());
-            wirePayloadIfEnabled(wire, request);
-            utils.logRequest(headerLog, request, ">>");
+            // the permit may be waited for, so it is acquired before the request is signed
+            permit = admissionController.acquire(command);
+            HttpRequest request = filter(command);
+            long start = System.nanoTime();
             nativeRequest = convert(request);
+            metrics.recordTime(command.getName(), Timing.CONNECT, System.nanoTime() - start);
             response = invoke(nativeRequest);
-
-            logger.debug("Receiving response %s: %s", request.hashCode(), response.getStatusLine());
-            utils.logResponse(headerLog, response, "<<");
-            if (response.getPayload() != null && wire.enabled())
-               wire.input(response);
+            metrics.recordTime(command.getName(), Timing.FIRST_BYTE, System.nanoTime() - start);
+            permit.release(command, response);
+            permit = null;
+            received(command, request, response);
             nativeRequest = null; // response took ownership of streams
-            int statusCode = response.getStatusCode();
-            if (statusCode >= 300) {
-               if (shouldContinue(command, response))
-                  continue;
-               else
-                  break;
-            } else {
-               break;
+            if (response.getStatusCode() >= 300) {
+               BackoffLimitedRetryHandler.beginDeferringDelays();
+               try {
+                  retry = shouldContinue(command, response);
+               } finally {
+                  delayMs = BackoffLimitedRetryHandler.endDeferringDelays();
+               }
             }
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed(command, e);
          } catch (Exception e) {
             IOException ioe = getFirstThrowableOfType(e, IOException.class);
-            if (ioe != null && shouldContinue(command, ioe)) {
-               continue;
+            if (ioe != null) {
+               BackoffLimitedRetryHandler.beginDeferringDelays();
+               try {
+                  retry = shouldContinue(command, ioe);
+               } finally {
+                  delayMs = BackoffLimitedRetryHandler.endDeferringDelays();
+               }
+            }
+            if (!retry) {
+               failed(command, e);
             }
-            command.setException(new HttpResponseException(e.getMessage() + " connecting to "
-                  + command.getCurrentRequest().getRequestLine(), command, null, e));
-            break;
-
          } finally {
+            if (permit != null)
+               permit.release(command, null);
             cleanup(nativeRequest);
          }
+         if (!retry) {
+            break;
+         }
+         if (delayMs > 0) {
+            try {
+               TimeUnit.MILLISECONDS.sleep(delayMs);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               failed(command, e);
+               break;
+            }
+         }
       }
       if (command.getException() != null)
          throw propagate(command.getException());
       return response;
    }
 
+   private static void failed(HttpCommand command, Exception e) {
+      command.setException(new HttpResponseException(e.getMessage() + " connecting to "
+            + command.getCurrentRequest().getRequestLine(), command, null, e));
+   }
+
+   /**
+    * Applies the filters of the current request of the {@code command} and logs the result.
+    */
+   HttpRequest filter(HttpCommand command) {
+      HttpRequest request = command.getCurrentRequest();
+      for (HttpRequestFilter filter : request.getFilters()) {
+         request = filter.filter(request);
+      }
+      checkRequestHasContentLengthOrChunkedEncoding(request,
+            "After filtering, the request has neither chunked encoding nor content length: " + request);
+      logger.debug("Sending request %s: %s", request.hashCode(), request.getRequestLine());
+      wirePayloadIfEnabled(wire, request);
+      utils.logRequest(headerLog, request, ">>");
+      return request;
+   }
+
+   void received(HttpCommand command, HttpRequest request, HttpResponse response) {
+      logger.debug("Receiving response %s: %s", request.hashCode(), response.getStatusLine());
+      Long sent = contentLengthOrNull(request);
+      if (sent != null)
+         metrics.recordBytesSent(command.getName(), sent);
+      Long received = contentLengthOrNull(response);
+      if (received != null)
+         metrics.recordBytesReceived(command.getName(), received);
+      utils.logResponse(headerLog, response, "<<");
+      if (response.getPayload() != null && wire.enabled())
+         wire.input(response);
+   }
+
+   private static Long contentLengthOrNull(HttpMessage message) {
+      return message.getPayload() != null ? message.getPayload().getContentMetadata().getContentLength() : null;
+   }
+
    @VisibleForTesting
    boolean shouldContinue(HttpCommand command, HttpResponse response) {
       boolean shouldContinue = false;
+      int redirectCount = command.getRedirectCount();
       if (retryHandler.shouldRetryRequest(command, response)) {
          shouldContinue = true;
+         if (command.getRedirectCount() > redirectCount)
+            metrics.recordRedirect(command.getName());
+         else
+            metrics.recordRetry(command.getName());
       } else {
          errorHandler.handleError(command, response);
       }
@@ -142,7 +226,11 @@ public abstract class BaseHttpCommandExecutorService<Q> implements HttpCommandEx
    }
 
    boolean shouldContinue(HttpCommand command, IOException response) {
-      return isIdempotent(command) && ioRetryHandler.shouldRetryRequest(command, response);
+      if (isIdempotent(command) && ioRetryHandler.shouldRetryRequest(command, response)) {
+         metrics.recordRetry(command.getName());
+         return true;
+      }
+      return false;
    }
 
    private boolean isIdempotent(HttpCommand command) {
@@ -22,6 +22,7 @@ import static org.jclouds.util.Closeables2.closeQuietly;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 
 import com.google.common.annotations.Beta;
 import com.google.common.hash.HashCode;
@@ -43,6 +44,22 @@ public class ByteStreams2 {
       }
    }
 
+   /**
+    * Computes several hashes of a stream in one pass, and closes it.
+    */
+   public static Map<HashFunction, HashCode> hashAndClose(InputStream input, Iterable<HashFunction> hashFunctions)
+         throws IOException {
+      checkNotNull(input, "input");
+      checkNotNull(hashFunctions, "hashFunctions");
+      try {
+         MultiHashingInputStream his = new MultiHashingInputStream(hashFunctions, input);
+         ByteStreams.copy(his, ByteStreams.nullOutputStream());
+         return his.hashes();
+      } finally {
+         closeQuietly(input);
+      }
+   }
+
    public static byte[] toByteArrayAndClose(InputStream input) throws IOException {
       checkNotNull(input, "input");
       try {
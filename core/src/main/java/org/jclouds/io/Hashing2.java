@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+import java.nio.charset.Charset;
+
+import com.google.common.annotations.Beta;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+
+/**
+ * Hash functions missing from the version of Guava jclouds depends on.
+ */
+@Beta
+public final class Hashing2 {
+   private Hashing2() {
+   }
+
+   /**
+    * Returns the CRC32C (Castagnoli) checksum, as used by Google Cloud Storage and Amazon S3. Like
+    * {@link com.google.common.hash.Hashing#crc32()}, the {@link HashCode} holds the checksum as a
+    * little-endian int, so use {@link HashCode#asInt()} to get the big-endian bytes services expect.
+    */
+   public static HashFunction crc32c() {
+      return Crc32c.INSTANCE;
+   }
+
+   private static final class Crc32c implements HashFunction {
+      static final Crc32c INSTANCE = new Crc32c();
+
+      /** Reversed Castagnoli polynomial. */
+      private static final int POLYNOMIAL = 0x82f63b78;
+      private static final int[] TABLE = new int[256];
+
+      static {
+         for (int i = 0; i < TABLE.length; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+               crc = (crc & 1) != 0 ? crc >>> 1 ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLE[i] = crc;
+         }
+      }
+
+      @Override
+      public Hasher newHasher() {
+         return new Crc32cHasher();
+      }
+
+      @Override
+      public Hasher newHasher(int expectedInputSize) {
+         checkArgument(expectedInputSize >= 0, "expectedInputSize must be >= 0 but was %s", expectedInputSize);
+         return newHasher();
+      }
+
+      @Override
+      public HashCode hashInt(int input) {
+         return newHasher().putInt(input).hash();
+      }
+
+      @Override
+      public HashCode hashLong(long input) {
+         return newHasher().putLong(input).hash();
+      }
+
+      @Override
+      public HashCode hashBytes(byte[] input) {
+         return newHasher().putBytes(input).hash();
+      }
+
+      @Override
+      public HashCode hashBytes(byte[] input, int off, int len) {
+         return newHasher().putBytes(input, off, len).hash();
+      }
+
+      @Override
+      public HashCode hashUnencodedChars(CharSequence input) {
+         return newHasher().putUnencodedChars(input).hash();
+      }
+
+      @Override
+      public HashCode hashString(CharSequence input, Charset charset) {
+         return newHasher().putString(input, charset).hash();
+      }
+
+      @Override
+      public <T> HashCode hashObject(T instance, Funnel<? super T> funnel) {
+         return newHasher().putObject(instance, funnel).hash();
+      }
+
+      @Override
+      public int bits() {
+         return 32;
+      }
+
+      @Override
+      public String toString() {
+         return "Hashing2.crc32c()";
+      }
+   }
+
+   private static final class Crc32cHasher implements Hasher {
+      private int crc = ~0;
+
+      @Override
+      public Hasher putByte(byte b) {
+         crc = crc >>> 8 ^ Crc32c.TABLE[(crc ^ b) & 0xff];
+         return this;
+      }
+
+      @Override
+      public Hasher putBytes(byte[] bytes) {
+         return putBytes(bytes, 0, bytes.length);
+      }
+
+      @Override
+      public Hasher putBytes(byte[] bytes, int off, int len) {
+         checkPositionIndexes(off, off + len, bytes.length);
+         int value = crc;
+         for (int i = off; i < off + len; i++) {
+            value = value >>> 8 ^ Crc32c.TABLE[(value ^ bytes[i]) & 0xff];
+         }
+         crc = value;
+         return this;
+      }
+
+      @Override
+      public Hasher putShort(short s) {
+         putByte((byte) s);
+         return putByte((byte) (s >>> 8));
+      }
+
+      @Override
+      public Hasher putInt(int i) {
+         for (int shift = 0; shift < 32; shift += 8) {
+            putByte((byte) (i >>> shift));
+         }
+         return this;
+      }
+
+      @Override
+      public Hasher putLong(long l) {
+         for (int shift = 0; shift < 64; shift += 8) {
+            putByte((byte) (l >>> shift));
+         }
+         return this;
+      }
+
+      @Override
+      public Hasher putFloat(float f) {
+         return putInt(Float.floatToRawIntBits(f));
+      }
+
+      @Override
+      public Hasher putDouble(double d) {
+         return putLong(Double.doubleToRawLongBits(d));
+      }
+
+      @Override
+      public Hasher putBoolean(boolean b) {
+         return putByte(b ? (byte) 1 : (byte) 0);
+      }
+
+      @Override
+      public Hasher putChar(char c) {
+         return putShort((short) c);
+      }
+
+      @Override
+      public Hasher putUnencodedChars(CharSequence charSequence) {
+         for (int i = 0; i < charSequence.length(); i++) {
+            putChar(charSequence.charAt(i));
+         }
+         return this;
+      }
+
+      @Override
+      public Hasher putString(CharSequence charSequence, Charset charset) {
+         return putBytes(charSequence.toString().getBytes(charset));
+      }
+
+      @Override
+      public <T> Hasher putObject(T instance, Funnel<? super T> funnel) {
+         funnel.funnel(instance, this);
+         return this;
+      }
+
+      @Override
+      public HashCode hash() {
+         return HashCode.fromInt(~crc);
+      }
+   }
+}
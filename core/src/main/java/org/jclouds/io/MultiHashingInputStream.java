@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+
+/**
+ * Computes several hashes of the bytes read from a stream, so that, for example, the MD5 and
+ * SHA-256 of a payload are known once it has been sent, without reading it again.
+ * <p/>
+ * Hashes are only available once the stream has been read to the end; {@link #complete()} is
+ * called at that point. A stream closed right at its end, as by readers which stop after the
+ * content length, is complete too.
+ */
+@Beta
+public class MultiHashingInputStream extends FilterInputStream {
+   private final Map<HashFunction, Hasher> hashers;
+   private Map<HashFunction, HashCode> hashes;
+   private boolean closed;
+
+   public MultiHashingInputStream(Iterable<HashFunction> hashFunctions, InputStream in) {
+      super(checkNotNull(in, "in"));
+      ImmutableMap.Builder<HashFunction, Hasher> builder = ImmutableMap.builder();
+      for (HashFunction hashFunction : hashFunctions) {
+         builder.put(hashFunction, hashFunction.newHasher());
+      }
+      this.hashers = builder.build();
+      checkArgument(!hashers.isEmpty(), "no hash functions");
+   }
+
+   @Override
+   public int read() throws IOException {
+      int b = in.read();
+      if (b == -1) {
+         finish();
+      } else {
+         for (Hasher hasher : hashers.values()) {
+            hasher.putByte((byte) b);
+         }
+      }
+      return b;
+   }
+
+   @Override
+   public int read(byte[] bytes, int off, int len) throws IOException {
+      int read = in.read(bytes, off, len);
+      if (read == -1) {
+         finish();
+      } else {
+         for (Hasher hasher : hashers.values()) {
+            hasher.putBytes(bytes, off, read);
+         }
+      }
+      return read;
+   }
+
+   /**
+    * Skipped bytes are read, so that they are hashed.
+    */
+   @Override
+   public long skip(long n) throws IOException {
+      byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+      long skipped = 0;
+      while (skipped < n) {
+         int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+         if (read == -1) {
+            break;
+         }
+         skipped += read;
+      }
+      return skipped;
+   }
+
+   @Override
+   public void close() throws IOException {
+      if (closed) {
+         return;
+      }
+      closed = true;
+      try {
+         if (hashes == null && in.read() == -1) {
+            finish();
+         }
+      } finally {
+         super.close();
+      }
+   }
+
+   @Override
+   public boolean markSupported() {
+      return false;
+   }
+
+   @Override
+   public void mark(int readlimit) {
+   }
+
+   @Override
+   public void reset() throws IOException {
+      throw new IOException("reset not supported");
+   }
+
+   /**
+    * @return whether the stream has been read to the end
+    */
+   public boolean isComplete() {
+      return hashes != null;
+   }
+
+   /**
+    * @return the hashes of every byte of the stream
+    * @throws IllegalStateException
+    *            if the stream has not been read to the end
+    */
+   public Map<HashFunction, HashCode> hashes() {
+      checkState(hashes != null, "stream has not been read to the end");
+      return hashes;
+   }
+
+   /**
+    * Called once, when the end of the stream is reached and {@link #hashes()} are available.
+    */
+   protected void complete() {
+   }
+
+   private void finish() {
+      if (hashes != null) {
+         return;
+      }
+      ImmutableMap.Builder<HashFunction, HashCode> builder = ImmutableMap.builder();
+      for (Map.Entry<HashFunction, Hasher> entry : hashers.entrySet()) {
+         builder.put(entry.getKey(), entry.getValue().hash());
+      }
+      hashes = builder.build();
+      complete();
+   }
+}
@@ -16,12 +16,12 @@
  */
 package org.jclouds.io;
 
-import org.jclouds.io.internal.BasePayloadSlicer;
+import org.jclouds.io.internal.FileRegionPayloadSlicer;
 
 import com.google.inject.ImplementedBy;
 
 
-@ImplementedBy(BasePayloadSlicer.class)
+@ImplementedBy(FileRegionPayloadSlicer.class)
 public interface PayloadSlicer {
    /**
     * Returns a {@link Payload} that returns input streams from the an underlying payload, where
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.io.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+
+import javax.inject.Singleton;
+
+import org.jclouds.io.ContentMetadata;
+import org.jclouds.io.Payload;
+import org.jclouds.io.payloads.BaseMutableContentMetadata;
+import org.jclouds.io.payloads.FileRegionPayload;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+
+/**
+ * Slices files into {@link FileRegionPayload}s, so that parts of a file are sent and hashed without
+ * being read through a stream.
+ */
+@Singleton
+public class FileRegionPayloadSlicer extends BasePayloadSlicer {
+
+   @Override
+   public Payload slice(Payload input, long offset, long length) {
+      if (input instanceof FileRegionPayload) {
+         checkArgument(offset >= 0, "offset is negative");
+         checkArgument(length >= 0, "length is negative");
+         return copyMetadataAndSetLength(input, FileRegionPayload.class.cast(input).slice(offset, length), length);
+      }
+      return super.slice(input, offset, length);
+   }
+
+   @Override
+   protected Payload doSlice(File content, long offset, long length) {
+      return new FileRegionPayload(content, offset, length);
+   }
+
+   @Override
+   public Iterable<Payload> slice(Payload input, long size) {
+      if (input instanceof FileRegionPayload && size > 0) {
+         FileRegionPayload region = FileRegionPayload.class.cast(input);
+         return regions(region.getFile(), region.getOffset(), region.getLength(), size,
+               input.getContentMetadata());
+      }
+      return super.slice(input, size);
+   }
+
+   @Override
+   protected Iterable<Payload> doSlice(File rawContent, ContentMetadata meta) {
+      long size = checkNotNull(meta.getContentLength(), "content-length");
+      if (size == 0) {
+         return super.doSlice(rawContent, meta);
+      }
+      return regions(rawContent, 0, rawContent.length(), size, meta);
+   }
+
+   private static Iterable<Payload> regions(File file, long offset, long length, long size, ContentMetadata meta) {
+      ImmutableList.Builder<Payload> regions = ImmutableList.builder();
+      for (long position = 0; position < length; position += size) {
+         long regionLength = Math.min(size, length - position);
+         Payload region = new FileRegionPayload(file, offset + position, regionLength);
+         region.setContentMetadata(BaseMutableContentMetadata.fromContentMetadata(meta.toBuilder()
+               .contentLength(regionLength).contentMD5((HashCode) null).build()));
+         regions.add(region);
+      }
+      return regions.build();
+   }
+}
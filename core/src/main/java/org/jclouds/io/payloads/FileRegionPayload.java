@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.io.payloads;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closer;
+
+/**
+ * A repeatable payload of a region of a file, which http drivers may send without copying it
+ * through the heap, as the netty driver does with a {@code FileRegion}. Hashes of the region are
+ * computed from memory-mapped reads.
+ */
+public class FileRegionPayload extends ByteSourcePayload {
+
+   private final File file;
+   private final long offset;
+   private final long length;
+
+   public FileRegionPayload(File file, long offset, long length) {
+      super(new FileRegion(file, offset, length));
+      this.file = file;
+      this.offset = offset;
+      this.length = length;
+      getContentMetadata().setContentLength(length);
+   }
+
+   public File getFile() {
+      return file;
+   }
+
+   public long getOffset() {
+      return offset;
+   }
+
+   public long getLength() {
+      return length;
+   }
+
+   /**
+    * @return a region of this region, ending no later than it
+    */
+   public FileRegionPayload slice(long offset, long length) {
+      checkArgument(offset >= 0, "offset is negative");
+      checkArgument(length >= 0, "length is negative");
+      return new FileRegionPayload(file, this.offset + offset, Math.min(length, Math.max(0, this.length - offset)));
+   }
+
+   private static final class FileRegion extends ByteSource {
+      /** Mapping the whole region at once could exhaust the address space of a 32-bit JVM. */
+      private static final long MAP_SIZE = 64 * 1024 * 1024;
+
+      private final File file;
+      private final long offset;
+      private final long length;
+
+      FileRegion(File file, long offset, long length) {
+         this.file = checkNotNull(file, "file");
+         checkArgument(offset >= 0, "offset is negative");
+         checkArgument(length >= 0, "length is negative");
+         this.offset = offset;
+         this.length = length;
+      }
+
+      @Override
+      public InputStream openStream() throws IOException {
+         FileInputStream in = new FileInputStream(file);
+         try {
+            in.getChannel().position(offset);
+         } catch (IOException e) {
+            in.close();
+            throw e;
+         }
+         return ByteStreams.limit(in, length);
+      }
+
+      @Override
+      public long size() {
+         return length;
+      }
+
+      @Override
+      public ByteSource slice(long offset, long length) {
+         checkArgument(offset >= 0, "offset is negative");
+         checkArgument(length >= 0, "length is negative");
+         return new FileRegion(file, this.offset + offset, Math.min(length, Math.max(0, this.length - offset)));
+      }
+
+      @Override
+      public HashCode hash(HashFunction hashFunction) throws IOException {
+         Hasher hasher = hashFunction.newHasher();
+         byte[] buffer = new byte[64 * 1024];
+         Closer closer = Closer.create();
+         try {
+            FileChannel channel = closer.register(new FileInputStream(file)).getChannel();
+            long end = Math.min(offset + length, channel.size());
+            for (long position = offset; position < end; position += MAP_SIZE) {
+               MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                     Math.min(MAP_SIZE, end - position));
+               while (mapped.hasRemaining()) {
+                  int read = Math.min(buffer.length, mapped.remaining());
+                  mapped.get(buffer, 0, read);
+                  hasher.putBytes(buffer, 0, read);
+               }
+            }
+         } catch (Throwable e) {
+            throw closer.rethrow(e);
+         } finally {
+            closer.close();
+         }
+         return hasher.hash();
+      }
+
+      @Override
+      public String toString() {
+         return "FileRegion(" + file + ", " + offset + ", " + length + ")";
+      }
+   }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.io.payloads;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.jclouds.util.Closeables2.closeQuietly;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+
+import org.jclouds.io.MultiHashingInputStream;
+import org.jclouds.io.Payload;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Computes hashes of a payload while it is read, typically while it is sent, so that checksums
+ * and signatures don't read it again.
+ * <p/>
+ * Every hash is computed in the same pass. When a hash is needed before the payload is sent, for
+ * example to sign the request, {@link #hash} reads a repeatable payload once for all of them, and
+ * the other hashes are then free. Drivers that support trailers can send hashes after the body,
+ * see {@link #getHashes()}.
+ */
+@Beta
+public class HashingPayload extends DelegatingPayload {
+
+   private final Set<HashFunction> hashFunctions;
+   private volatile Map<HashFunction, HashCode> hashes = ImmutableMap.of();
+
+   public HashingPayload(Payload delegate, Iterable<HashFunction> hashFunctions) {
+      super(delegate);
+      this.hashFunctions = ImmutableSet.copyOf(hashFunctions);
+      checkArgument(!this.hashFunctions.isEmpty(), "no hash functions");
+   }
+
+   public HashingPayload(Payload delegate, HashFunction... hashFunctions) {
+      this(delegate, ImmutableSet.copyOf(hashFunctions));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public InputStream openStream() throws IOException {
+      return new MultiHashingInputStream(hashFunctions, super.openStream()) {
+         @Override
+         protected void complete() {
+            hashes = hashes();
+         }
+      };
+   }
+
+   /**
+    * Two hashing payloads are equal when their delegates are, whatever hashes they compute.
+    */
+   @Override
+   public boolean equals(Object obj) {
+      return obj instanceof HashingPayload ? getDelegate().equals(((HashingPayload) obj).getDelegate())
+            : super.equals(obj);
+   }
+
+   @Override
+   public int hashCode() {
+      return super.hashCode();
+   }
+
+   public Set<HashFunction> getHashFunctions() {
+      return hashFunctions;
+   }
+
+   /**
+    * @return the hashes computed the last time the payload was read to the end, or an empty map if
+    *         it has not been
+    */
+   public Map<HashFunction, HashCode> getHashes() {
+      return hashes;
+   }
+
+   /**
+    * Returns a hash of the payload, reading it, and computing every other hash at the same time,
+    * if it has not been read to the end yet.
+    *
+    * @throws IllegalStateException
+    *            if the payload has not been read and is not repeatable
+    */
+   public HashCode hash(HashFunction hashFunction) throws IOException {
+      checkArgument(hashFunctions.contains(hashFunction), "%s is not one of %s", hashFunction, hashFunctions);
+      if (!hashes.containsKey(hashFunction)) {
+         checkState(isRepeatable(), "payload has not been read and is not repeatable");
+         InputStream in = openStream();
+         try {
+            ByteStreams.copy(in, ByteStreams.nullOutputStream());
+         } finally {
+            closeQuietly(in);
+         }
+      }
+      return hashes.get(hashFunction);
+   }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.metrics;
+
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of values recorded by {@link InMemoryMetrics}.
+ * <p/>
+ * Values are counted in buckets of powers of two, so percentiles are approximate: they are the upper bound of the
+ * bucket holding the value, which is at most twice the value. Count, sum, minimum and maximum are exact.
+ */
+public final class Histogram {
+
+   private final AtomicLong count = new AtomicLong();
+   private final AtomicLong sum = new AtomicLong();
+   private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+   private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+   /** Bucket {@code i} counts the values that need {@code i} bits, that is from 2^(i-1) to 2^i - 1. */
+   private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+   Histogram() {
+   }
+
+   void update(long value) {
+      count.incrementAndGet();
+      sum.addAndGet(value);
+      buckets.incrementAndGet(value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value));
+      long current = min.get();
+      while (value < current && !min.compareAndSet(current, value)) {
+         current = min.get();
+      }
+      current = max.get();
+      while (value > current && !max.compareAndSet(current, value)) {
+         current = max.get();
+      }
+   }
+
+   public long getCount() {
+      return count.get();
+   }
+
+   public long getSum() {
+      return sum.get();
+   }
+
+   /**
+    * @return the smallest value, or zero if there are none
+    */
+   public long getMin() {
+      return getCount() == 0 ? 0 : min.get();
+   }
+
+   /**
+    * @return the largest value, or zero if there are none
+    */
+   public long getMax() {
+      return getCount() == 0 ? 0 : max.get();
+   }
+
+   public double getMean() {
+      long count = getCount();
+      return count == 0 ? 0 : (double) getSum() / count;
+   }
+
+   /**
+    * @param quantile
+    *           between 0 and 1, for example {@code 0.99}
+    * @return an upper bound of the value at the quantile, or zero if there are none
+    */
+   public long getQuantile(double quantile) {
+      checkArgument(quantile >= 0 && quantile <= 1, "quantile %s must be between 0 and 1", quantile);
+      long rank = (long) Math.ceil(quantile * getCount());
+      long seen = 0;
+      for (int i = 0; i < buckets.length(); i++) {
+         seen += buckets.get(i);
+         if (seen >= rank && seen > 0) {
+            long upperBound = i == 0 ? 0 : i == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+            return Math.max(Math.min(upperBound, getMax()), getMin());
+         }
+      }
+      return getMax();
+   }
+
+   @Override
+   public String toString() {
+      return toStringHelper(this).add("count", getCount()).add("min", getMin()).add("mean", getMean())
+            .add("p99", getQuantile(0.99)).add("max", getMax()).toString();
+   }
+}
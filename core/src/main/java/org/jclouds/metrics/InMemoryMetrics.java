@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.metrics;
+
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps the metrics of each command in memory, so that they can be read by tests or exported by the application.
+ * 
+ * @see org.jclouds.metrics.config.InMemoryMetricsModule
+ */
+public class InMemoryMetrics implements Metrics {
+
+   private static final CommandMetrics NONE = new CommandMetrics();
+
+   private final ConcurrentMap<String, CommandMetrics> commands = Maps.newConcurrentMap();
+
+   private static final class CommandMetrics {
+      // every timing is added up front, so that the map is only read once shared
+      private final Map<Timing, Histogram> timings = new EnumMap<Timing, Histogram>(Timing.class);
+      private final Histogram bytesSent = new Histogram();
+      private final Histogram bytesReceived = new Histogram();
+      private final AtomicLong retries = new AtomicLong();
+      private final AtomicLong redirects = new AtomicLong();
+      private final AtomicLong errors = new AtomicLong();
+      private final ConcurrentMap<Class<?>, AtomicLong> fallbacks = Maps.newConcurrentMap();
+
+      CommandMetrics() {
+         for (Timing timing : Timing.values()) {
+            timings.put(timing, new Histogram());
+         }
+      }
+
+      @Override
+      public String toString() {
+         return toStringHelper(this).add("timings", timings).add("bytesSent", bytesSent)
+               .add("bytesReceived", bytesReceived).add("retries", retries).add("redirects", redirects)
+               .add("errors", errors).add("fallbacks", fallbacks).toString();
+      }
+   }
+
+   private CommandMetrics forCommand(String command) {
+      CommandMetrics metrics = commands.get(checkNotNull(command, "command"));
+      if (metrics == null) {
+         CommandMetrics newMetrics = new CommandMetrics();
+         metrics = commands.putIfAbsent(command, newMetrics);
+         if (metrics == null) {
+            metrics = newMetrics;
+         }
+      }
+      return metrics;
+   }
+
+   private CommandMetrics get(String command) {
+      CommandMetrics metrics = commands.get(checkNotNull(command, "command"));
+      return metrics != null ? metrics : NONE;
+   }
+
+   @Override
+   public void recordTime(String command, Timing timing, long nanos) {
+      forCommand(command).timings.get(timing).update(nanos);
+   }
+
+   @Override
+   public void recordBytesSent(String command, long bytes) {
+      forCommand(command).bytesSent.update(bytes);
+   }
+
+   @Override
+   public void recordBytesReceived(String command, long bytes) {
+      forCommand(command).bytesReceived.update(bytes);
+   }
+
+   @Override
+   public void recordRetry(String command) {
+      forCommand(command).retries.incrementAndGet();
+   }
+
+   @Override
+   public void recordRedirect(String command) {
+      forCommand(command).redirects.incrementAndGet();
+   }
+
+   @Override
+   public void recordError(String command, Throwable error) {
+      forCommand(command).errors.incrementAndGet();
+   }
+
+   @Override
+   public void recordFallback(String command, Class<?> fallback) {
+      ConcurrentMap<Class<?>, AtomicLong> fallbacks = forCommand(command).fallbacks;
+      AtomicLong count = fallbacks.get(fallback);
+      if (count == null) {
+         AtomicLong newCount = new AtomicLong();
+         count = fallbacks.putIfAbsent(fallback, newCount);
+         if (count == null) {
+            count = newCount;
+         }
+      }
+      count.incrementAndGet();
+   }
+
+   /**
+    * @return the names of the commands with metrics recorded
+    */
+   public Set<String> getCommands() {
+      return ImmutableSet.copyOf(commands.keySet());
+   }
+
+   /**
+    * @return the times of a stage of the command, in nanoseconds
+    */
+   public Histogram getTimes(String command, Timing timing) {
+      return get(command).timings.get(checkNotNull(timing, "timing"));
+   }
+
+   public Histogram getBytesSent(String command) {
+      return get(command).bytesSent;
+   }
+
+   public Histogram getBytesReceived(String command) {
+      return get(command).bytesReceived;
+   }
+
+   public long getRetryCount(String command) {
+      return get(command).retries.get();
+   }
+
+   public long getRedirectCount(String command) {
+      return get(command).redirects.get();
+   }
+
+   public long getErrorCount(String command) {
+      return get(command).errors.get();
+   }
+
+   public long getFallbackCount(String command, Class<?> fallback) {
+      AtomicLong count = get(command).fallbacks.get(checkNotNull(fallback, "fallback"));
+      return count != null ? count.get() : 0;
+   }
+
+   /**
+    * Forgets the metrics recorded so far.
+    */
+   public void clear() {
+      commands.clear();
+   }
+
+   @Override
+   public String toString() {
+      return toStringHelper(this).add("commands", commands).toString();
+   }
+}
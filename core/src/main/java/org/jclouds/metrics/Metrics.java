@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.metrics;
+
+/**
+ * Records how the commands of an HTTP API perform.
+ * <p/>
+ * Commands are named as in {@link org.jclouds.rest.config.InvocationConfig#getCommandName}, for example
+ * {@code ThingApi.get}; requests not made through an API are named by their HTTP method. Implementations are
+ * called on the threads invoking the commands, so they must be thread safe and should not block.
+ * 
+ * @see org.jclouds.metrics.config.MetricsModule
+ */
+public interface Metrics {
+
+   /**
+    * The stages of a command that are timed.
+    */
+   enum Timing {
+      /** Building the HTTP request from the arguments of the invocation. */
+      BUILD_REQUEST,
+      /**
+       * Handing the request to the HTTP driver. Drivers that stream the payload in this step, such as the default
+       * {@code java.net} one, connect and send the payload here.
+       */
+      CONNECT,
+      /** From handing the request to the driver until the status line and headers of the response are received. */
+      FIRST_BYTE,
+      /** Parsing the response, including reading its payload if the parser consumes it. */
+      PARSE,
+      /** The whole invocation, including retries and fallbacks. */
+      TOTAL;
+   }
+
+   void recordTime(String command, Timing timing, long nanos);
+
+   /**
+    * Records the payload length of a request sent, if known.
+    */
+   void recordBytesSent(String command, long bytes);
+
+   /**
+    * Records the payload length of a response received, if known.
+    */
+   void recordBytesReceived(String command, long bytes);
+
+   /**
+    * Records that a request failed and is sent again.
+    */
+   void recordRetry(String command);
+
+   /**
+    * Records that a request is sent again to the location of a redirect.
+    */
+   void recordRedirect(String command);
+
+   /**
+    * Records an exception thrown by a command, before any fallback is applied.
+    */
+   void recordError(String command, Throwable error);
+
+   /**
+    * Records that a fallback returned a value instead of propagating an error.
+    */
+   void recordFallback(String command, Class<?> fallback);
+
+   Metrics NULL = new NullMetrics();
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.metrics;
+
+/**
+ * <tt>Metrics</tt> that doesn't record anything.
+ */
+public class NullMetrics implements Metrics {
+
+   public void recordTime(String command, Timing timing, long nanos) {
+   }
+
+   public void recordBytesSent(String command, long bytes) {
+   }
+
+   public void recordBytesReceived(String command, long bytes) {
+   }
+
+   public void recordRetry(String command) {
+   }
+
+   public void recordRedirect(String command) {
+   }
+
+   public void recordError(String command, Throwable error) {
+   }
+
+   public void recordFallback(String command, Class<?> fallback) {
+   }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.metrics.config;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.jclouds.metrics.InMemoryMetrics;
+import org.jclouds.metrics.Metrics;
+
+/**
+ * Configures metrics of type {@link InMemoryMetrics}. Pass the same instance to read the metrics of the context:
+ * 
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * ContextBuilder.newBuilder("s3").modules(ImmutableSet.of(new InMemoryMetricsModule(metrics)))...
+ * </pre>
+ */
+public class InMemoryMetricsModule extends MetricsModule {
+
+   private final InMemoryMetrics metrics;
+
+   public InMemoryMetricsModule() {
+      this(new InMemoryMetrics());
+   }
+
+   public InMemoryMetricsModule(InMemoryMetrics metrics) {
+      this.metrics = checkNotNull(metrics, "metrics");
+   }
+
+   public Metrics createMetrics() {
+      return metrics;
+   }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.metrics.config;
+
+import javax.inject.Singleton;
+
+import org.jclouds.metrics.Metrics;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+
+/**
+ * Binds the {@link Metrics} that record how each command of an API performs.
+ * <p/>
+ * If no module of this type is passed to the {@link org.jclouds.ContextBuilder}, a {@link NullMetricsModule} is
+ * used.
+ */
+public abstract class MetricsModule extends AbstractModule {
+
+   @Override
+   protected void configure() {
+   }
+
+   @Provides
+   @Singleton
+   public final Metrics provideMetrics() {
+      return createMetrics();
+   }
+
+   public abstract Metrics createMetrics();
+}
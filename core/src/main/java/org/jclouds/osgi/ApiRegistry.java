@@ -19,6 +19,7 @@ package org.jclouds.osgi;
 import java.util.Set;
 
 import org.jclouds.apis.ApiMetadata;
+import org.jclouds.apis.Apis;
 
 import com.google.common.annotations.Beta;
 import com.google.common.collect.Sets;
@@ -29,14 +30,16 @@ import com.google.common.collect.Sets;
 @Beta
 public class ApiRegistry {
 
-   private static final Set<ApiMetadata> apis = Sets.newHashSet();
+   private static final Set<ApiMetadata> apis = Sets.newCopyOnWriteArraySet();
 
    public static void registerApi(ApiMetadata api) {
       apis.add(api);
+      Apis.invalidateCache();
    }
 
    public static void unRegisterApi(ApiMetadata api) {
       apis.remove(api);
+      Apis.invalidateCache();
    }
 
    public static Iterable<ApiMetadata> fromRegistry() {
@@ -45,5 +48,6 @@ public class ApiRegistry {
 
    public static void clear() {
       apis.clear();
+      Apis.invalidateCache();
    }
 }
@@ -19,6 +19,7 @@ package org.jclouds.osgi;
 import java.util.Set;
 
 import org.jclouds.providers.ProviderMetadata;
+import org.jclouds.providers.Providers;
 
 import com.google.common.annotations.Beta;
 import com.google.common.collect.Sets;
@@ -29,14 +30,16 @@ import com.google.common.collect.Sets;
 @Beta
 public class ProviderRegistry {
 
-   private static final Set<ProviderMetadata> providers = Sets.newHashSet();
+   private static final Set<ProviderMetadata> providers = Sets.newCopyOnWriteArraySet();
 
    public static void registerProvider(ProviderMetadata provider) {
       providers.add(provider);
+      Providers.invalidateCache();
    }
 
    public static void unregisterProvider(ProviderMetadata provider) {
       providers.remove(provider);
+      Providers.invalidateCache();
    }
 
    public static Iterable<ProviderMetadata> fromRegistry() {
@@ -45,5 +48,6 @@ public class ProviderRegistry {
 
    public static void clear() {
       providers.clear();
+      Providers.invalidateCache();
    }
 }
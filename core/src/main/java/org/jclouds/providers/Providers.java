@@ -15,12 +15,15 @@
  * limitations under the License.
  */
 package org.jclouds.providers;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Iterables.find;
 import static org.jclouds.reflect.Reflection2.typeToken;
 
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jclouds.Context;
 import org.jclouds.View;
@@ -29,8 +32,13 @@ import org.jclouds.osgi.ProviderRegistry;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
 
 /**
@@ -75,13 +83,23 @@ public class Providers {
 
    /**
     * Returns all available providers.
+    * <p/>
+    * Providers are loaded once per context class loader and cached, along with the results of the
+    * lookups below, until {@link #invalidateCache()} is called.
     * 
     * @return all available providers
     */
    public static Iterable<ProviderMetadata> all() {
-     return ImmutableSet.<ProviderMetadata>builder()
-                        .addAll(fromServiceLoader())
-                        .addAll(ProviderRegistry.fromRegistry()).build();
+      return snapshot().all;
+   }
+
+   /**
+    * Discards the cached providers, so that they are loaded again. The {@link ProviderRegistry}
+    * calls this when providers are registered, for example by the OSGi
+    * {@link org.jclouds.osgi.MetadataBundleListener}.
+    */
+   public static void invalidateCache() {
+      generation.incrementAndGet();
    }
 
    /**
@@ -96,7 +114,11 @@ public class Providers {
     *            whenever there are no providers with the provided id
     */
    public static ProviderMetadata withId(String id) throws NoSuchElementException {
-      return find(all(), ProviderPredicates.id(id));
+      ProviderMetadata providerMetadata = snapshot().byId.get(checkNotNull(id, "id"));
+      if (providerMetadata == null) {
+         throw new NoSuchElementException("no provider with id " + id);
+      }
+      return providerMetadata;
    }
 
    /**
@@ -108,11 +130,11 @@ public class Providers {
     * @return the providers of the provided viewableAs
     */
    public static Iterable<ProviderMetadata> viewableAs(TypeToken<? extends View> viewableAs) {
-      return filter(all(), ProviderPredicates.viewableAs(viewableAs));
+      return snapshot().filter("viewableAs", viewableAs, ProviderPredicates.viewableAs(viewableAs));
    }
 
    public static Iterable<ProviderMetadata> viewableAs(Class<? extends View> viewableAs) {
-      return filter(all(), ProviderPredicates.viewableAs(typeToken(viewableAs)));
+      return viewableAs(typeToken(viewableAs));
    }
 
    /**
@@ -125,7 +147,7 @@ public class Providers {
     */
    public static Iterable<ProviderMetadata> apiMetadataAssignableFrom(TypeToken<? extends ApiMetadata> api) {
       Preconditions.checkNotNull(api, "api must be defined");
-      return filter(all(), ProviderPredicates.apiMetadataAssignableFrom(api));
+      return snapshot().filter("apiMetadataAssignableFrom", api, ProviderPredicates.apiMetadataAssignableFrom(api));
    }
 
    /**
@@ -139,7 +161,8 @@ public class Providers {
    public static <C extends Context> Iterable<ProviderMetadata> contextAssignableFrom(
             TypeToken<? extends Context> context) {
       Preconditions.checkNotNull(context, "context must be defined");
-      return filter(all(), new ProviderPredicates.ContextAssignableFrom(context));
+      return snapshot().filter("contextAssignableFrom", context,
+            new ProviderPredicates.ContextAssignableFrom(context));
    }
 
    /**
@@ -152,7 +175,11 @@ public class Providers {
     * @return the providers bound by the given ISO 3166 code
     */
    public static Iterable<ProviderMetadata> boundedByIso3166Code(String iso3166Code) {
-      return filter(all(), ProviderPredicates.boundedByIso3166Code(iso3166Code));
+      checkNotNull(iso3166Code, "iso3166Code must be defined");
+      Snapshot snapshot = snapshot();
+      // a country code matches its subdivisions, as in ProviderPredicates.boundedByIso3166Code
+      return iso3166Code.indexOf('-') == -1 ? snapshot.bySubdivisionCountry.get(iso3166Code)
+            : snapshot.byIso3166Code.get(iso3166Code);
    }
 
    /**
@@ -168,8 +195,7 @@ public class Providers {
     */
    public static Iterable<ProviderMetadata> boundedByIso3166Code(String iso3166Code,
             TypeToken<? extends View> viewableAs) {
-      return filter(all(), Predicates.and(ProviderPredicates.boundedByIso3166Code(iso3166Code), ProviderPredicates
-               .viewableAs(viewableAs)));
+      return filter(boundedByIso3166Code(iso3166Code), ProviderPredicates.viewableAs(viewableAs));
    }
 
    public static Iterable<ProviderMetadata> boundedByIso3166Code(String iso3166Code,
@@ -212,4 +238,74 @@ public class Providers {
             Class<? extends View> viewableAs) {
       return collocatedWith(providerMetadata, typeToken(viewableAs));
    }
+
+   private static final AtomicInteger generation = new AtomicInteger();
+   private static volatile Snapshot snapshot;
+
+   private static Snapshot snapshot() {
+      ClassLoader loader = Thread.currentThread().getContextClassLoader();
+      Snapshot current = snapshot;
+      if (current == null || current.loader != loader || current.generation != generation.get()) {
+         // read before loading, so that a concurrent invalidation is not lost
+         int loading = generation.get();
+         current = new Snapshot(loader, loading, ImmutableSet.<ProviderMetadata> builder()
+               .addAll(fromServiceLoader())
+               .addAll(ProviderRegistry.fromRegistry()).build());
+         snapshot = current;
+      }
+      return current;
+   }
+
+   /**
+    * The providers available to a class loader, indexed by the lookups above.
+    */
+   private static final class Snapshot {
+      private final ClassLoader loader;
+      private final int generation;
+      private final ImmutableSet<ProviderMetadata> all;
+      private final ImmutableMap<String, ProviderMetadata> byId;
+      private final ImmutableSetMultimap<String, ProviderMetadata> byIso3166Code;
+      private final ImmutableSetMultimap<String, ProviderMetadata> bySubdivisionCountry;
+      private final ConcurrentMap<Map.Entry<String, TypeToken<?>>, ImmutableSet<ProviderMetadata>> byType = Maps
+            .newConcurrentMap();
+
+      private Snapshot(ClassLoader loader, int generation, ImmutableSet<ProviderMetadata> all) {
+         this.loader = loader;
+         this.generation = generation;
+         this.all = all;
+         Map<String, ProviderMetadata> byId = Maps.newLinkedHashMap();
+         ImmutableSetMultimap.Builder<String, ProviderMetadata> byIso3166Code = ImmutableSetMultimap.builder();
+         ImmutableSetMultimap.Builder<String, ProviderMetadata> bySubdivisionCountry = ImmutableSetMultimap.builder();
+         for (ProviderMetadata providerMetadata : all) {
+            // the first provider with an id wins, as it did when they were searched in order
+            if (!byId.containsKey(providerMetadata.getId())) {
+               byId.put(providerMetadata.getId(), providerMetadata);
+            }
+            for (String iso3166Code : providerMetadata.getIso3166Codes()) {
+               byIso3166Code.put(iso3166Code, providerMetadata);
+               int dash = iso3166Code.indexOf('-');
+               if (dash != -1) {
+                  bySubdivisionCountry.put(iso3166Code.substring(0, dash), providerMetadata);
+               }
+            }
+         }
+         this.byId = ImmutableMap.copyOf(byId);
+         this.byIso3166Code = byIso3166Code.build();
+         this.bySubdivisionCountry = bySubdivisionCountry.build();
+      }
+
+      /**
+       * Providers matching a predicate of a type, which is only evaluated the first time.
+       */
+      private ImmutableSet<ProviderMetadata> filter(String lookup, TypeToken<?> type,
+            Predicate<ProviderMetadata> predicate) {
+         Map.Entry<String, TypeToken<?>> key = Maps.<String, TypeToken<?>> immutableEntry(lookup, type);
+         ImmutableSet<ProviderMetadata> providers = byType.get(key);
+         if (providers == null) {
+            providers = ImmutableSet.copyOf(Iterables.filter(all, predicate));
+            byType.put(key, providers);
+         }
+         return providers;
+      }
+   }
 }
@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
+import org.jclouds.rest.internal.InvocationMetadata;
+
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
@@ -255,6 +257,9 @@ public class Reflection2 {
    private static LoadingCache<TypeTokenNameAndParameterTypes, Invokable<?, ?>> methodForParams = CacheBuilder
          .newBuilder().build(new CacheLoader<TypeTokenNameAndParameterTypes, Invokable<?, ?>>() {
             public Invokable<?, ?> load(final TypeTokenNameAndParameterTypes key) {
+               Optional<Invokable<?, ?>> precomputed = precomputedMethod(key);
+               if (precomputed.isPresent())
+                  return precomputed.get();
                Set<Invokable<?, ?>> methods = get(methodsForTypeToken, key.type);
                /*
                 * There may be multiple instances, even on the most immediate ancestor,
@@ -275,6 +280,28 @@ public class Reflection2 {
             }
          });
 
+   /**
+    * Finds the method directly on the type the {@link org.jclouds.rest.processor.InvocationMetadataProcessor} found declaring it, rather than
+    * scanning all methods of the type and its supertypes.
+    */
+   private static Optional<Invokable<?, ?>> precomputedMethod(TypeTokenNameAndParameterTypes key) {
+      Optional<InvocationMetadata> metadata = InvocationMetadata.precomputed(key.type.getRawType(), key.name,
+            key.parameterTypes);
+      if (!metadata.isPresent())
+         return Optional.absent();
+      Class<?> declaringType = metadata.get().getDeclaringType();
+      try {
+         Method method = declaringType.getDeclaredMethod(key.name, key.parameterTypes.toArray(new Class<?>[0]));
+         if (!coreJavaClass(declaringType)) {
+            method.setAccessible(true);
+         }
+         return Optional.<Invokable<?, ?>> of(key.type.method(method));
+      } catch (NoSuchMethodException e) {
+         // the metadata is stale; scan instead
+         return Optional.absent();
+      }
+   }
+
    private static class TypeTokenNameAndParameterTypes extends TypeTokenAndParameterTypes {
 
       private String name;
@@ -30,7 +30,8 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.jclouds.reflect.Invocation;
-import org.jclouds.rest.annotations.Fallback;
+import org.jclouds.rest.internal.InvocationMetadata;
+import org.jclouds.rest.internal.ProviderCache;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
@@ -42,7 +43,7 @@ import com.google.inject.Injector;
 @Beta
 @Singleton
 public class ReadAnnotationsAndProperties implements InvocationConfig {
-   private final Injector injector;
+   private final ProviderCache providers;
    private final org.jclouds.Fallback<Object> defaultFallback;
    private final Map<String, Long> timeouts;
 
@@ -50,7 +51,7 @@ public class ReadAnnotationsAndProperties implements InvocationConfig {
    ReadAnnotationsAndProperties(Injector injector,
          Function<Predicate<String>, Map<String, String>> filterStringsBoundByName,
          org.jclouds.Fallback<Object> defaultFallback) {
-      this.injector = injector;
+      this.providers = injector.getInstance(ProviderCache.class);
       this.defaultFallback = defaultFallback;
       this.timeouts = timeouts(filterStringsBoundByName);
    }
@@ -87,9 +88,10 @@ public class ReadAnnotationsAndProperties implements InvocationConfig {
 
    @Override
    public org.jclouds.Fallback<?> getFallback(Invocation invocation) {
-      Fallback fallback = invocation.getInvokable().getAnnotation(Fallback.class);
-      if (fallback != null) {
-         return injector.getInstance(fallback.value());
+      Optional<Class<? extends org.jclouds.Fallback<?>>> fallback = InvocationMetadata.of(invocation.getInvokable())
+            .getFallback();
+      if (fallback.isPresent()) {
+         return providers.getInstance(fallback.get());
       }
       return defaultFallback;
    }
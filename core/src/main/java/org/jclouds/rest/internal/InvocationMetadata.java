@@ -0,0 +1,335 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.rest.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static org.jclouds.http.HttpUtils.tryFindHttpMethod;
+import static org.jclouds.reflect.Reflection2.getInvokableParameters;
+import static org.jclouds.util.Closeables2.closeQuietly;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+
+import javax.ws.rs.Path;
+
+import org.jclouds.rest.Binder;
+import org.jclouds.rest.annotations.BinderParam;
+import org.jclouds.rest.annotations.Fallback;
+import org.jclouds.rest.annotations.MapBinder;
+import org.jclouds.rest.annotations.ResponseParser;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.Invokable;
+import com.google.common.reflect.Parameter;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * The REST annotations of a method of an HTTP API, read once rather than on every invocation.
+ * <p/>
+ * APIs compiled with {@link org.jclouds.rest.processor.InvocationMetadataProcessor} carry this metadata as a resource
+ * named {@value #RESOURCE_PREFIX}{@code <binary name of the API>.properties}, so that neither the annotations nor the
+ * methods of the API need to be scanned at runtime. Other APIs have it read from the annotations of the method the
+ * first time it is invoked.
+ */
+@Beta
+public final class InvocationMetadata {
+
+   public static final String RESOURCE_PREFIX = "META-INF/jclouds/rest/";
+
+   /**
+    * @return the metadata of the method, precomputed if the owner type of the method was compiled with the
+    *         processor, or else read from its annotations
+    */
+   public static InvocationMetadata of(Invokable<?, ?> invokable) {
+      try {
+         return metadataForInvokable.get(checkNotNull(invokable, "invokable"));
+      } catch (UncheckedExecutionException e) {
+         throw propagate(e.getCause());
+      } catch (ExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
+   /**
+    * @return the metadata the processor generated for the method of {@code ownerType}, or absent if it was not
+    *         compiled with the processor
+    */
+   public static Optional<InvocationMetadata> precomputed(Class<?> ownerType, String name,
+         List<Class<?>> parameterTypes) {
+      Map<String, InvocationMetadata> methods = precomputedForType.getUnchecked(checkNotNull(ownerType, "ownerType"));
+      if (methods.isEmpty())
+         return Optional.absent();
+      return Optional.fromNullable(methods.get(signature(name, Lists.transform(parameterTypes, TYPE_NAME))));
+   }
+
+   private final Class<?> declaringType;
+   private final Optional<String> httpMethod;
+   private final Optional<String> typePath;
+   private final Optional<String> path;
+   private final Optional<Class<? extends org.jclouds.Fallback<?>>> fallback;
+   private final Optional<Class<? extends Function<org.jclouds.http.HttpResponse, ?>>> responseParser;
+   private final Optional<Class<? extends org.jclouds.rest.MapBinder>> mapBinder;
+   private final Map<Integer, Class<? extends Binder>> binders;
+
+   InvocationMetadata(Class<?> declaringType, Optional<String> httpMethod, Optional<String> typePath,
+         Optional<String> path, Optional<Class<? extends org.jclouds.Fallback<?>>> fallback,
+         Optional<Class<? extends Function<org.jclouds.http.HttpResponse, ?>>> responseParser,
+         Optional<Class<? extends org.jclouds.rest.MapBinder>> mapBinder, Map<Integer, Class<? extends Binder>> binders) {
+      this.declaringType = checkNotNull(declaringType, "declaringType");
+      this.httpMethod = checkNotNull(httpMethod, "httpMethod");
+      this.typePath = checkNotNull(typePath, "typePath");
+      this.path = checkNotNull(path, "path");
+      this.fallback = checkNotNull(fallback, "fallback");
+      this.responseParser = checkNotNull(responseParser, "responseParser");
+      this.mapBinder = checkNotNull(mapBinder, "mapBinder");
+      this.binders = ImmutableMap.copyOf(checkNotNull(binders, "binders"));
+   }
+
+   /**
+    * @return the type declaring the method, which may be a supertype of the API
+    */
+   public Class<?> getDeclaringType() {
+      return declaringType;
+   }
+
+   /**
+    * @return the value of the {@link javax.ws.rs.HttpMethod} annotating the method, if any
+    */
+   public Optional<String> getHttpMethod() {
+      return httpMethod;
+   }
+
+   /**
+    * @return the {@link Path} of the API
+    */
+   public Optional<String> getTypePath() {
+      return typePath;
+   }
+
+   /**
+    * @return the {@link Path} of the method, relative to {@link #getTypePath()}
+    */
+   public Optional<String> getPath() {
+      return path;
+   }
+
+   /**
+    * @return the value of {@link Fallback}
+    */
+   public Optional<Class<? extends org.jclouds.Fallback<?>>> getFallback() {
+      return fallback;
+   }
+
+   /**
+    * @return the value of {@link ResponseParser}
+    */
+   public Optional<Class<? extends Function<org.jclouds.http.HttpResponse, ?>>> getResponseParser() {
+      return responseParser;
+   }
+
+   /**
+    * @return the value of {@link MapBinder}
+    */
+   public Optional<Class<? extends org.jclouds.rest.MapBinder>> getMapBinder() {
+      return mapBinder;
+   }
+
+   /**
+    * @return the value of {@link BinderParam} by the index of the parameter it annotates
+    */
+   public Map<Integer, Class<? extends Binder>> getBinders() {
+      return binders;
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hashCode(declaringType, httpMethod, typePath, path, fallback, responseParser, mapBinder,
+            binders);
+   }
+
+   @Override
+   public boolean equals(Object obj) {
+      if (this == obj)
+         return true;
+      if (!(obj instanceof InvocationMetadata))
+         return false;
+      InvocationMetadata that = InvocationMetadata.class.cast(obj);
+      return declaringType.equals(that.declaringType) && httpMethod.equals(that.httpMethod)
+            && typePath.equals(that.typePath) && path.equals(that.path) && fallback.equals(that.fallback)
+            && responseParser.equals(that.responseParser) && mapBinder.equals(that.mapBinder)
+            && binders.equals(that.binders);
+   }
+
+   @Override
+   public String toString() {
+      return Objects.toStringHelper(this).omitNullValues().add("declaringType", declaringType.getName())
+            .add("httpMethod", httpMethod.orNull()).add("typePath", typePath.orNull()).add("path", path.orNull())
+            .add("fallback", fallback.orNull()).add("responseParser", responseParser.orNull())
+            .add("mapBinder", mapBinder.orNull()).add("binders", binders.isEmpty() ? null : binders).toString();
+   }
+
+   /**
+    * @return the key of a method in the generated resource, such as {@code get(java.lang.String,int[])}
+    */
+   static String signature(String name, Iterable<String> parameterTypes) {
+      return name + "(" + Joiner.on(',').join(parameterTypes) + ")";
+   }
+
+   /**
+    * Names a parameter type as the processor does: the binary name of classes, followed by {@code []} for arrays.
+    */
+   static final Function<Class<?>, String> TYPE_NAME = new Function<Class<?>, String>() {
+      public String apply(Class<?> input) {
+         return input.isArray() ? apply(input.getComponentType()) + "[]" : input.getName();
+      }
+   };
+
+   private static final LoadingCache<Invokable<?, ?>, InvocationMetadata> metadataForInvokable = CacheBuilder
+         .newBuilder().build(new CacheLoader<Invokable<?, ?>, InvocationMetadata>() {
+            public InvocationMetadata load(Invokable<?, ?> invokable) {
+               List<Class<?>> parameterTypes = Lists.newArrayList();
+               for (Parameter parameter : getInvokableParameters(invokable))
+                  parameterTypes.add(parameter.getType().getRawType());
+               Optional<InvocationMetadata> precomputed = precomputed(invokable.getOwnerType().getRawType(),
+                     invokable.getName(), parameterTypes);
+               return precomputed.isPresent() ? precomputed.get() : fromAnnotations(invokable);
+            }
+         });
+
+   @SuppressWarnings("unchecked")
+   private static InvocationMetadata fromAnnotations(Invokable<?, ?> invokable) {
+      Path typePath = invokable.getOwnerType().getRawType().getAnnotation(Path.class);
+      Path path = invokable.getAnnotation(Path.class);
+      Fallback fallback = invokable.getAnnotation(Fallback.class);
+      ResponseParser responseParser = invokable.getAnnotation(ResponseParser.class);
+      MapBinder mapBinder = invokable.getAnnotation(MapBinder.class);
+      ImmutableMap.Builder<Integer, Class<? extends Binder>> binders = ImmutableMap.builder();
+      List<Parameter> parameters = getInvokableParameters(invokable);
+      for (int index = 0; index < parameters.size(); index++) {
+         BinderParam binder = parameters.get(index).getAnnotation(BinderParam.class);
+         if (binder != null)
+            binders.put(index, binder.value());
+      }
+      return new InvocationMetadata(invokable.getDeclaringClass(), tryFindHttpMethod(invokable),
+            typePath == null ? Optional.<String> absent() : Optional.of(typePath.value()),
+            path == null ? Optional.<String> absent() : Optional.of(path.value()),
+            fallback == null ? Optional.<Class<? extends org.jclouds.Fallback<?>>> absent() : Optional
+                  .<Class<? extends org.jclouds.Fallback<?>>> of(fallback.value()),
+            responseParser == null ? Optional.<Class<? extends Function<org.jclouds.http.HttpResponse, ?>>> absent()
+                  : Optional.<Class<? extends Function<org.jclouds.http.HttpResponse, ?>>> of(responseParser.value()),
+            mapBinder == null ? Optional.<Class<? extends org.jclouds.rest.MapBinder>> absent() : Optional
+                  .<Class<? extends org.jclouds.rest.MapBinder>> of(mapBinder.value()),
+            binders.build());
+   }
+
+   private static final LoadingCache<Class<?>, Map<String, InvocationMetadata>> precomputedForType = CacheBuilder
+         .newBuilder().build(new CacheLoader<Class<?>, Map<String, InvocationMetadata>>() {
+            public Map<String, InvocationMetadata> load(Class<?> ownerType) {
+               try {
+                  return read(ownerType);
+               } catch (IOException e) {
+                  // leave the API to reflection
+                  return ImmutableMap.of();
+               } catch (ClassNotFoundException e) {
+                  return ImmutableMap.of();
+               } catch (RuntimeException e) {
+                  return ImmutableMap.of();
+               }
+            }
+         });
+
+   private static Map<String, InvocationMetadata> read(Class<?> ownerType) throws IOException,
+         ClassNotFoundException {
+      ClassLoader loader = ownerType.getClassLoader();
+      if (loader == null)
+         return ImmutableMap.of();
+      URL resource = loader.getResource(RESOURCE_PREFIX + ownerType.getName() + ".properties");
+      if (resource == null)
+         return ImmutableMap.of();
+      Properties properties = new Properties();
+      InputStream in = resource.openStream();
+      try {
+         properties.load(in);
+      } finally {
+         closeQuietly(in);
+      }
+      Map<String, Map<String, String>> fieldsBySignature = Maps.newLinkedHashMap();
+      for (String key : properties.stringPropertyNames()) {
+         int endOfSignature = key.lastIndexOf(')');
+         if (endOfSignature == -1 || !key.startsWith(".", endOfSignature + 1))
+            continue;
+         String signature = key.substring(0, endOfSignature + 1);
+         Map<String, String> fields = fieldsBySignature.get(signature);
+         if (fields == null)
+            fieldsBySignature.put(signature, fields = Maps.newHashMap());
+         fields.put(key.substring(endOfSignature + 2), properties.getProperty(key));
+      }
+      Optional<String> typePath = Optional.fromNullable(properties.getProperty("path"));
+      ImmutableMap.Builder<String, InvocationMetadata> methods = ImmutableMap.builder();
+      for (Map.Entry<String, Map<String, String>> method : fieldsBySignature.entrySet()) {
+         Map<String, String> fields = method.getValue();
+         ImmutableMap.Builder<Integer, Class<? extends Binder>> binders = ImmutableMap.builder();
+         for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (field.getKey().startsWith("binder."))
+               binders.put(Integer.valueOf(field.getKey().substring("binder.".length())),
+                     load(loader, field.getValue(), Binder.class));
+         }
+         methods.put(method.getKey(), new InvocationMetadata(
+               Class.forName(checkNotNull(fields.get("declaringType"), "declaringType"), false, loader),
+               Optional.fromNullable(fields.get("httpMethod")),
+               typePath,
+               Optional.fromNullable(fields.get("path")),
+               InvocationMetadata.<org.jclouds.Fallback<?>> loadIfPresent(loader, fields.get("fallback"),
+                     org.jclouds.Fallback.class),
+               InvocationMetadata.<Function<org.jclouds.http.HttpResponse, ?>> loadIfPresent(loader,
+                     fields.get("responseParser"), Function.class),
+               InvocationMetadata.<org.jclouds.rest.MapBinder> loadIfPresent(loader, fields.get("mapBinder"),
+                     org.jclouds.rest.MapBinder.class),
+               binders.build()));
+      }
+      return methods.build();
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <T> Optional<Class<? extends T>> loadIfPresent(ClassLoader loader, String name, Class<?> type)
+         throws ClassNotFoundException {
+      if (name == null)
+         return Optional.absent();
+      return Optional.<Class<? extends T>> of((Class<? extends T>) load(loader, name, type));
+   }
+
+   private static <T> Class<? extends T> load(ClassLoader loader, String name, Class<T> type)
+         throws ClassNotFoundException {
+      return Class.forName(name, false, loader).asSubclass(type);
+   }
+}
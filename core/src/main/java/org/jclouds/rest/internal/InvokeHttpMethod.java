@@ -31,6 +31,8 @@ import org.jclouds.http.HttpCommandExecutorService;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.logging.Logger;
+import org.jclouds.metrics.Metrics;
+import org.jclouds.metrics.Metrics.Timing;
 import org.jclouds.reflect.Invocation;
 import org.jclouds.rest.InvocationContext;
 import org.jclouds.rest.config.InvocationConfig;
@@ -52,6 +54,9 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
    private final Function<HttpRequest, Function<HttpResponse, ?>> transformerForRequest;
    private final InvocationConfig config;
 
+   @com.google.inject.Inject(optional = true)
+   Metrics metrics = Metrics.NULL;
+
    @Inject
    @VisibleForTesting
    InvokeHttpMethod(Function<Invocation, HttpRequest> annotationProcessor,
@@ -80,20 +85,21 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
     * if a {@code Throwable} is encountered.
     */
    public Object invoke(Invocation invocation) {
+      long start = System.nanoTime();
       String commandName = config.getCommandName(invocation);
-      HttpCommand command = toCommand(commandName, invocation);
-      Function<HttpResponse, ?> transformer = getTransformer(commandName, command);
-      org.jclouds.Fallback<?> fallback = getFallback(commandName, invocation, command);
-
-      logger.debug(">> invoking %s", commandName);
       try {
-         return transformer.apply(http.invoke(command));
-      } catch (Throwable t) {
+         HttpCommand command = toCommand(commandName, invocation);
+         Function<HttpResponse, ?> transformer = getTransformer(commandName, command);
+         org.jclouds.Fallback<?> fallback = getFallback(commandName, invocation, command);
+
+         logger.debug(">> invoking %s", commandName);
          try {
-            return fallback.createOrPropagate(t);
-         } catch (Exception e) {
-            throw propagate(e);
+            return parse(commandName, transformer, http.invoke(command));
+         } catch (Throwable t) {
+            return fallback(commandName, fallback, t);
          }
+      } finally {
+         metrics.recordTime(commandName, Timing.TOTAL, System.nanoTime() - start);
       }
    }
 
@@ -117,20 +123,41 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
     * @see TimeLimiter#callWithTimeout(Callable, long, TimeUnit, boolean)
     */
    public Object invokeWithTimeout(final Invocation invocation, final long limitNanos) {
+      long start = System.nanoTime();
       String commandName = config.getCommandName(invocation);
-      HttpCommand command = toCommand(commandName, invocation);
-      org.jclouds.Fallback<?> fallback = getFallback(commandName, invocation, command);
-
-      logger.debug(">> blocking on %s for %s", invocation, limitNanos);
       try {
-         return timeLimiter
-               .callWithTimeout(new InvokeAndTransform(commandName, command), limitNanos, NANOSECONDS, true);
-      } catch (Throwable t) {
+         HttpCommand command = toCommand(commandName, invocation);
+         org.jclouds.Fallback<?> fallback = getFallback(commandName, invocation, command);
+
+         logger.debug(">> blocking on %s for %s", invocation, limitNanos);
          try {
-            return fallback.createOrPropagate(t);
-         } catch (Exception e) {
-            throw propagate(e);
+            return timeLimiter.callWithTimeout(new InvokeAndTransform(commandName, command), limitNanos,
+                  NANOSECONDS, true);
+         } catch (Throwable t) {
+            return fallback(commandName, fallback, t);
          }
+      } finally {
+         metrics.recordTime(commandName, Timing.TOTAL, System.nanoTime() - start);
+      }
+   }
+
+   private Object parse(String commandName, Function<HttpResponse, ?> transformer, HttpResponse response) {
+      long start = System.nanoTime();
+      try {
+         return transformer.apply(response);
+      } finally {
+         metrics.recordTime(commandName, Timing.PARSE, System.nanoTime() - start);
+      }
+   }
+
+   private Object fallback(String commandName, org.jclouds.Fallback<?> fallback, Throwable t) {
+      metrics.recordError(commandName, t);
+      try {
+         Object result = fallback.createOrPropagate(t);
+         metrics.recordFallback(commandName, fallback.getClass());
+         return result;
+      } catch (Exception e) {
+         throw propagate(e);
       }
    }
 
@@ -157,7 +184,7 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
 
       @Override
       public Object call() throws Exception {
-         return transformer.apply(http.invoke(command));
+         return parse(commandName, transformer, http.invoke(command));
       }
 
       @Override
@@ -185,9 +212,11 @@ public class InvokeHttpMethod implements Function<Invocation, Object> {
 
    private HttpCommand toCommand(String commandName, Invocation invocation) {
       logger.trace(">> converting %s", commandName);
+      long start = System.nanoTime();
       HttpRequest request = annotationProcessor.apply(invocation);
+      metrics.recordTime(commandName, Timing.BUILD_REQUEST, System.nanoTime() - start);
       logger.trace("<< converted %s to %s", commandName, request.getRequestLine());
-      return new HttpCommand(request);
+      return new HttpCommand(request, commandName);
    }
 
    private Function<HttpResponse, ?> getTransformer(String commandName, HttpCommand command) {
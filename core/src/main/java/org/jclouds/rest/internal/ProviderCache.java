@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.rest.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+
+import java.util.concurrent.ExecutionException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.annotations.Beta;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+
+/**
+ * Gets instances of the binders, filters, parsers and fallbacks named by REST annotations.
+ * <p/>
+ * The {@link Provider} of each key is looked up once, as looking up a just in time binding in the injector takes a
+ * lock shared by every request. Scopes are kept: unscoped keys still get a new instance each time.
+ */
+@Beta
+@Singleton
+public class ProviderCache {
+
+   private final LoadingCache<Key<?>, Provider<?>> providers;
+
+   @Inject
+   ProviderCache(final Injector injector) {
+      checkNotNull(injector, "injector");
+      this.providers = CacheBuilder.newBuilder().build(new CacheLoader<Key<?>, Provider<?>>() {
+         public Provider<?> load(Key<?> key) {
+            return injector.getProvider(key);
+         }
+      });
+   }
+
+   public <T> T getInstance(Class<T> type) {
+      return getInstance(Key.get(type));
+   }
+
+   @SuppressWarnings("unchecked")
+   public <T> T getInstance(Key<T> key) {
+      try {
+         return ((Provider<T>) providers.get(key)).get();
+      } catch (UncheckedExecutionException e) {
+         throw propagate(e.getCause());
+      } catch (ExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+}
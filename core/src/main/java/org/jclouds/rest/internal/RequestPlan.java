@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.rest.internal;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static org.jclouds.reflect.Reflection2.getInvokableParameters;
+import static org.jclouds.util.Strings2.urlEncode;
+
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Encoded;
+import javax.ws.rs.FormParam;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+import org.jclouds.http.HttpRequestFilter;
+import org.jclouds.http.functions.ParseSax.HandlerWithResult;
+import org.jclouds.http.options.HttpRequestOptions;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.rest.Binder;
+import org.jclouds.rest.annotations.BinderParam;
+import org.jclouds.rest.annotations.Endpoint;
+import org.jclouds.rest.annotations.EndpointParam;
+import org.jclouds.rest.annotations.FormParams;
+import org.jclouds.rest.annotations.Headers;
+import org.jclouds.rest.annotations.OverrideRequestFilters;
+import org.jclouds.rest.annotations.ParamParser;
+import org.jclouds.rest.annotations.PartParam;
+import org.jclouds.rest.annotations.PayloadParam;
+import org.jclouds.rest.annotations.PayloadParams;
+import org.jclouds.rest.annotations.QueryParams;
+import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.SkipEncoding;
+import org.jclouds.rest.annotations.Transform;
+import org.jclouds.rest.annotations.VirtualHost;
+import org.jclouds.rest.annotations.WrapWith;
+
+import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Chars;
+import com.google.common.reflect.Invokable;
+import com.google.common.reflect.Parameter;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * The annotations of a method of an HTTP API and of its owner type, resolved once, so that building a request for
+ * an invocation only has to fill in its arguments.
+ */
+final class RequestPlan {
+
+   static RequestPlan of(Invokable<?, ?> invokable) {
+      try {
+         return plans.get(checkNotNull(invokable, "invokable"));
+      } catch (UncheckedExecutionException e) {
+         throw propagate(e.getCause());
+      } catch (ExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
+   private static final LoadingCache<Invokable<?, ?>, RequestPlan> plans = CacheBuilder.newBuilder().build(
+         new CacheLoader<Invokable<?, ?>, RequestPlan>() {
+            public RequestPlan load(Invokable<?, ?> invokable) {
+               return new RequestPlan(invokable);
+            }
+         });
+
+   /**
+    * A parameter whose argument is bound to a key of the request.
+    */
+   static final class Param {
+      final int index;
+      final String key;
+      @Nullable
+      final Class<? extends Function<Object, String>> parser;
+      final boolean encoded;
+      final boolean nullable;
+
+      private Param(Parameter parameter, String key) {
+         this.index = parameter.hashCode(); // guava issue 1243
+         this.key = key;
+         ParamParser parser = parameter.getAnnotation(ParamParser.class);
+         this.parser = parser != null ? parser.value() : null;
+         this.encoded = parameter.isAnnotationPresent(Encoded.class);
+         this.nullable = parameter.isAnnotationPresent(Nullable.class);
+      }
+   }
+
+   /**
+    * A parameter whose argument is bound to the request by a {@link Binder} or wrapped as JSON.
+    */
+   static final class BoundParam {
+      final int index;
+      @Nullable
+      final Class<? extends Binder> binder;
+      @Nullable
+      final String wrapWith;
+      final boolean array;
+      final boolean nullable;
+
+      private BoundParam(Parameter parameter) {
+         this.index = parameter.hashCode();
+         BinderParam binder = parameter.getAnnotation(BinderParam.class);
+         this.binder = binder != null ? binder.value() : null;
+         this.wrapWith = binder != null ? null : parameter.getAnnotation(WrapWith.class).value();
+         this.array = parameter.getType().isArray();
+         this.nullable = parameter.isAnnotationPresent(Nullable.class);
+      }
+   }
+
+   final Invokable<?, ?> invokable;
+   final InvocationMetadata metadata;
+   final int parameterCount;
+   final List<Class<? extends HttpRequestFilter>> filters;
+   @Nullable
+   final Set<Character> skipPathEncoding;
+   final boolean encodeFullPath;
+   final List<Param> pathParams;
+   final List<Param> queryParams;
+   final List<Param> formParams;
+   final List<Param> headerParams;
+   final List<Param> payloadParams;
+   final List<Param> endpointParams;
+   final List<Class<? extends Function<Object, URI>>> endpointParsers;
+   final List<PartParam> parts;
+   final List<Integer> partIndexes;
+   final List<BoundParam> binders;
+   final List<Headers> headers;
+   final List<QueryParams> queryDefaults;
+   final List<FormParams> formDefaults;
+   @Nullable
+   final PayloadParams payloadDefaults;
+   @Nullable
+   final List<String> produces;
+   final Set<String> accept;
+   @Nullable
+   final Class<? extends Annotation> endpoint;
+   final boolean virtualHost;
+   final boolean payloadAnnotation;
+   @Nullable
+   final String wrapWith;
+   final Set<Integer> indexesOfOptions;
+   @Nullable
+   final Class<? extends HandlerWithResult<?>> xmlResponseParser;
+   @Nullable
+   final Class<? extends Function<?, ?>> transform;
+
+   private RequestPlan(Invokable<?, ?> invokable) {
+      this.invokable = invokable;
+      this.metadata = InvocationMetadata.of(invokable);
+      Class<?> type = invokable.getOwnerType().getRawType();
+      List<Parameter> parameters = getInvokableParameters(invokable);
+      this.parameterCount = parameters.size();
+
+      ImmutableList.Builder<Class<? extends HttpRequestFilter>> filters = ImmutableList.builder();
+      if (type.isAnnotationPresent(RequestFilters.class)
+            && !(invokable.isAnnotationPresent(RequestFilters.class) && invokable
+                  .isAnnotationPresent(OverrideRequestFilters.class)))
+         filters.add(type.getAnnotation(RequestFilters.class).value());
+      if (invokable.isAnnotationPresent(RequestFilters.class))
+         filters.add(invokable.getAnnotation(RequestFilters.class).value());
+      this.filters = filters.build();
+
+      SkipEncoding skipEncoding = invokable.isAnnotationPresent(SkipEncoding.class) ? invokable
+            .getAnnotation(SkipEncoding.class) : type.getAnnotation(SkipEncoding.class);
+      this.skipPathEncoding = skipEncoding != null ? ImmutableSet.copyOf(Chars.asList(skipEncoding.value())) : null;
+
+      ImmutableList.Builder<Param> pathParams = ImmutableList.builder();
+      ImmutableList.Builder<Param> queryParams = ImmutableList.builder();
+      ImmutableList.Builder<Param> formParams = ImmutableList.builder();
+      ImmutableList.Builder<Param> headerParams = ImmutableList.builder();
+      ImmutableList.Builder<Param> payloadParams = ImmutableList.builder();
+      ImmutableList.Builder<Param> endpointParams = ImmutableList.builder();
+      ImmutableList.Builder<Class<? extends Function<Object, URI>>> endpointParsers = ImmutableList.builder();
+      ImmutableList.Builder<PartParam> parts = ImmutableList.builder();
+      ImmutableList.Builder<Integer> partIndexes = ImmutableList.builder();
+      ImmutableList.Builder<BoundParam> binders = ImmutableList.builder();
+      ImmutableList.Builder<BoundParam> wrapWith = ImmutableList.builder();
+      ImmutableSet.Builder<Integer> indexesOfOptions = ImmutableSet.builder();
+      boolean encodeFullPath = true;
+      for (Parameter parameter : parameters) {
+         if (parameter.isAnnotationPresent(PathParam.class))
+            pathParams.add(new Param(parameter, parameter.getAnnotation(PathParam.class).value()));
+         if (parameter.isAnnotationPresent(QueryParam.class))
+            queryParams.add(new Param(parameter, urlEncode(parameter.getAnnotation(QueryParam.class).value(), '/',
+                  ',')));
+         if (parameter.isAnnotationPresent(FormParam.class))
+            formParams.add(new Param(parameter, parameter.getAnnotation(FormParam.class).value()));
+         if (parameter.isAnnotationPresent(HeaderParam.class))
+            headerParams.add(new Param(parameter, parameter.getAnnotation(HeaderParam.class).value()));
+         if (parameter.isAnnotationPresent(PayloadParam.class))
+            payloadParams.add(new Param(parameter, parameter.getAnnotation(PayloadParam.class).value()));
+         if (parameter.isAnnotationPresent(EndpointParam.class)) {
+            endpointParams.add(new Param(parameter, null));
+            endpointParsers.add(parameter.getAnnotation(EndpointParam.class).parser());
+         }
+         if (parameter.isAnnotationPresent(PartParam.class)) {
+            parts.add(parameter.getAnnotation(PartParam.class));
+            partIndexes.add(parameter.hashCode());
+         }
+         if (parameter.isAnnotationPresent(BinderParam.class))
+            binders.add(new BoundParam(parameter));
+         else if (parameter.isAnnotationPresent(WrapWith.class))
+            wrapWith.add(new BoundParam(parameter));
+         if (parameter.isAnnotationPresent(Encoded.class))
+            encodeFullPath = false;
+         Class<?> rawType = parameter.getType().getRawType();
+         if (HttpRequestOptions.class.isAssignableFrom(rawType) || HttpRequestOptions[].class.isAssignableFrom(rawType))
+            indexesOfOptions.add(parameter.hashCode());
+      }
+      this.pathParams = pathParams.build();
+      this.queryParams = queryParams.build();
+      this.formParams = formParams.build();
+      this.headerParams = headerParams.build();
+      this.payloadParams = payloadParams.build();
+      this.endpointParams = endpointParams.build();
+      this.endpointParsers = endpointParsers.build();
+      this.parts = parts.build();
+      this.partIndexes = partIndexes.build();
+      // parameters bound by a binder come first
+      this.binders = ImmutableList.<BoundParam> builder().addAll(binders.build()).addAll(wrapWith.build()).build();
+      this.encodeFullPath = encodeFullPath;
+      this.indexesOfOptions = indexesOfOptions.build();
+
+      this.headers = onTypeThenMethod(type, invokable, Headers.class);
+      this.queryDefaults = onTypeThenMethod(type, invokable, QueryParams.class);
+      this.formDefaults = onTypeThenMethod(type, invokable, FormParams.class);
+      this.payloadDefaults = invokable.getAnnotation(PayloadParams.class);
+      Produces produces = invokable.isAnnotationPresent(Produces.class) ? invokable.getAnnotation(Produces.class)
+            : type.getAnnotation(Produces.class);
+      this.produces = produces != null ? ImmutableList.copyOf(produces.value()) : null;
+      Consumes consumes = invokable.isAnnotationPresent(Consumes.class) ? invokable.getAnnotation(Consumes.class)
+            : type.getAnnotation(Consumes.class);
+      this.accept = consumes != null ? ImmutableSet.copyOf(consumes.value()) : ImmutableSet.<String> of();
+      Endpoint endpoint = invokable.isAnnotationPresent(Endpoint.class) ? invokable.getAnnotation(Endpoint.class)
+            : type.getAnnotation(Endpoint.class);
+      this.endpoint = endpoint != null ? endpoint.value() : null;
+      this.virtualHost = type.isAnnotationPresent(VirtualHost.class) || invokable.isAnnotationPresent(VirtualHost.class);
+      this.payloadAnnotation = invokable.isAnnotationPresent(org.jclouds.rest.annotations.Payload.class);
+      this.wrapWith = invokable.isAnnotationPresent(WrapWith.class) ? invokable.getAnnotation(WrapWith.class).value()
+            : null;
+      this.xmlResponseParser = TransformerForRequest.getSaxResponseParserClassOrNull(invokable);
+      Transform transform = invokable.getAnnotation(Transform.class);
+      this.transform = transform != null ? transform.value() : null;
+   }
+
+   private static <A extends Annotation> List<A> onTypeThenMethod(Class<?> type, Invokable<?, ?> invokable,
+         Class<A> annotationType) {
+      ImmutableList.Builder<A> annotations = ImmutableList.builder();
+      if (type.isAnnotationPresent(annotationType))
+         annotations.add(type.getAnnotation(annotationType));
+      if (invokable.isAnnotationPresent(annotationType))
+         annotations.add(invokable.getAnnotation(annotationType));
+      return annotations.build();
+   }
+}
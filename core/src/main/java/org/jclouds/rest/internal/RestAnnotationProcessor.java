@@ -21,7 +21,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Predicates.instanceOf;
-import static com.google.common.collect.Collections2.filter;
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.get;
 import static com.google.common.collect.Iterables.transform;
@@ -33,9 +32,7 @@ import static com.google.common.net.HttpHeaders.ACCEPT;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
 import static com.google.common.net.HttpHeaders.HOST;
 import static java.lang.String.format;
-import static java.util.Arrays.asList;
 import static org.jclouds.http.HttpUtils.filterOutContentHeaders;
-import static org.jclouds.http.HttpUtils.tryFindHttpMethod;
 import static org.jclouds.http.Uris.uriBuilder;
 import static org.jclouds.io.Payloads.newPayload;
 import static org.jclouds.reflect.Reflection2.getInvokableParameters;
@@ -46,7 +43,6 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,13 +52,6 @@ import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.inject.Named;
-import javax.ws.rs.Encoded;
-import javax.ws.rs.FormParam;
-import javax.ws.rs.HeaderParam;
-import javax.ws.rs.Path;
-import javax.ws.rs.PathParam;
-import javax.ws.rs.Produces;
-import javax.ws.rs.QueryParam;
 
 import org.jclouds.Constants;
 import org.jclouds.http.HttpRequest;
@@ -86,23 +75,12 @@ import org.jclouds.reflect.Invocation;
 import org.jclouds.rest.Binder;
 import org.jclouds.rest.InputParamValidator;
 import org.jclouds.rest.annotations.ApiVersion;
-import org.jclouds.rest.annotations.BinderParam;
 import org.jclouds.rest.annotations.BuildVersion;
-import org.jclouds.rest.annotations.Endpoint;
-import org.jclouds.rest.annotations.EndpointParam;
 import org.jclouds.rest.annotations.FormParams;
 import org.jclouds.rest.annotations.Headers;
-import org.jclouds.rest.annotations.MapBinder;
-import org.jclouds.rest.annotations.OverrideRequestFilters;
-import org.jclouds.rest.annotations.ParamParser;
 import org.jclouds.rest.annotations.PartParam;
-import org.jclouds.rest.annotations.PayloadParam;
 import org.jclouds.rest.annotations.PayloadParams;
 import org.jclouds.rest.annotations.QueryParams;
-import org.jclouds.rest.annotations.RequestFilters;
-import org.jclouds.rest.annotations.SkipEncoding;
-import org.jclouds.rest.annotations.VirtualHost;
-import org.jclouds.rest.annotations.WrapWith;
 import org.jclouds.rest.binders.BindMapToStringPayload;
 import org.jclouds.rest.binders.BindToJsonPayloadWrappedWith;
 
@@ -110,11 +88,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
@@ -124,9 +98,7 @@ import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.primitives.Chars;
 import com.google.common.reflect.Invokable;
-import com.google.common.reflect.Parameter;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
@@ -145,6 +117,7 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
    };
 
    private final Injector injector;
+   private final ProviderCache providers;
    private final HttpUtils utils;
    private final ContentMetadataCodec contentMetadataCodec;
    private final String apiVersion;
@@ -156,12 +129,13 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
    private final boolean connectionCloseHeader;
 
    @Inject
-   private RestAnnotationProcessor(Injector injector, @ApiVersion String apiVersion, @BuildVersion String buildVersion,
-         HttpUtils utils, ContentMetadataCodec contentMetadataCodec, InputParamValidator inputParamValidator,
+   private RestAnnotationProcessor(Injector injector, ProviderCache providers, @ApiVersion String apiVersion,
+         @BuildVersion String buildVersion, HttpUtils utils, ContentMetadataCodec contentMetadataCodec, InputParamValidator inputParamValidator,
          GetAcceptHeaders getAcceptHeaders, @Nullable @Named("caller") Invocation caller,
          @Named(Constants.PROPERTY_STRIP_EXPECT_HEADER) boolean stripExpectHeader,
          @Named(Constants.PROPERTY_CONNECTION_CLOSE_HEADER) boolean connectionCloseHeader) {
       this.injector = injector;
+      this.providers = providers;
       this.utils = utils;
       this.contentMetadataCodec = contentMetadataCodec;
       this.apiVersion = apiVersion;
@@ -186,6 +160,7 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
    public GeneratedHttpRequest apply(Invocation invocation) {
       checkNotNull(invocation, "invocation");
       inputParamValidator.validateMethodParametersOrThrow(invocation, getInvokableParameters(invocation.getInvokable()));
+      RequestPlan plan = RequestPlan.of(invocation.getInvokable());
 
       Optional<URI> endpoint = Optional.absent();
       HttpRequest r = findOrNull(invocation.getArgs(), HttpRequest.class);
@@ -212,11 +187,11 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
          requestMethod = r.getMethod();
          requestBuilder.fromHttpRequest(r);
       } else {
-         requestMethod = tryFindHttpMethod(invocation.getInvokable()).get();
+         requestMethod = plan.metadata.getHttpMethod().get();
          requestBuilder.method(requestMethod);
       }
 
-      requestBuilder.filters(getFiltersIfAnnotated(invocation));
+      requestBuilder.filters(getFiltersIfAnnotated(plan));
       if (stripExpectHeader) {
          requestBuilder.filter(new StripExpectHeader());
       }
@@ -229,11 +204,12 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       tokenValues.put(Constants.PROPERTY_API_VERSION, apiVersion);
       tokenValues.put(Constants.PROPERTY_BUILD_VERSION, buildVersion);
       // URI template in rfc6570 form
-      UriBuilder uriBuilder = uriBuilder(endpoint.get().toString());
+      UriBuilder uriBuilder = uriBuilder(endpoint.get());
 
-      overridePathEncoding(uriBuilder, invocation);
+      if (plan.skipPathEncoding != null)
+         uriBuilder.skipPathEncoding(plan.skipPathEncoding);
 
-      boolean encodeFullPath = !isEncodedUsed(invocation);
+      boolean encodeFullPath = plan.encodeFullPath;
       if (caller != null)
          tokenValues.putAll(addPathAndGetTokens(caller, uriBuilder, encodeFullPath));
       tokenValues.putAll(addPathAndGetTokens(invocation, uriBuilder, encodeFullPath));
@@ -258,7 +234,7 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       if (r != null)
          headers.putAll(r.getHeaders());
 
-      if (shouldAddHostHeader(invocation)) {
+      if (plan.virtualHost) {
          StringBuilder hostHeader = new StringBuilder(endpoint.get().getHost());
          if (endpoint.get().getPort() != -1)
             hostHeader.append(":").append(endpoint.get().getPort());
@@ -266,7 +242,7 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       }
 
       Payload payload = null;
-      for (HttpRequestOptions options : findOptionsIn(invocation)) {
+      for (HttpRequestOptions options : findOptionsIn(invocation, plan)) {
          injector.injectMembers(options);  // TODO test case
          for (Entry<String, String> header : options.buildRequestHeaders().entries()) {
             headers.put(header.getKey(), replaceTokens(header.getValue(), tokenValues));
@@ -303,8 +279,8 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
                Payload.class);
       }
 
-      List<? extends Part> parts = getParts(invocation, ImmutableMultimap.<String, Object> builder()
-            .putAll(tokenValues).putAll(formParams).build());
+      List<? extends Part> parts = plan.parts.isEmpty() ? ImmutableList.<Part> of() : getParts(invocation, plan,
+            ImmutableMultimap.<String, Object> builder().putAll(tokenValues).putAll(formParams).build());
 
       if (!parts.isEmpty()) {
          if (!formParams.isEmpty()) {
@@ -323,7 +299,7 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       }
       GeneratedHttpRequest request = requestBuilder.build();
 
-      org.jclouds.rest.MapBinder mapBinder = getMapPayloadBinderOrNull(invocation);
+      org.jclouds.rest.MapBinder mapBinder = getMapPayloadBinderOrNull(invocation, plan);
       if (mapBinder != null) {
          Map<String, Object> mapParams;
          if (caller != null) {
@@ -332,13 +308,12 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
          } else {
             mapParams = buildPayloadParams(invocation);
          }
-         if (invocation.getInvokable().isAnnotationPresent(PayloadParams.class)) {
-            PayloadParams params = invocation.getInvokable().getAnnotation(PayloadParams.class);
-            addMapPayload(mapParams, params, headers);
+         if (plan.payloadDefaults != null) {
+            addMapPayload(mapParams, plan.payloadDefaults, headers);
          }
          request = mapBinder.bindToRequest(request, mapParams);
       } else {
-         request = decorateRequest(request);
+         request = decorateRequest(request, plan);
       }
 
       if (request.getPayload() != null) {
@@ -360,16 +335,6 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       return ImmutableMap.copyOf(out);
    }
 
-   private void overridePathEncoding(UriBuilder uriBuilder, Invocation invocation) {
-      if (invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(SkipEncoding.class)) {
-         uriBuilder.skipPathEncoding(Chars.asList(invocation.getInvokable().getOwnerType().getRawType()
-               .getAnnotation(SkipEncoding.class).value()));
-      }
-      if (invocation.getInvokable().isAnnotationPresent(SkipEncoding.class)) {
-         uriBuilder.skipPathEncoding(Chars.asList(invocation.getInvokable().getAnnotation(SkipEncoding.class).value()));
-      }
-   }
-
    // different than guava as accepts null
    private static enum NullableToStringFunction implements Function<Object, String> {
       INSTANCE;
@@ -387,7 +352,7 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
          logger.trace("using endpoint %s for %s", endpoint, invocation);
       if (!endpoint.isPresent()) {
          logger.trace("looking up default endpoint for %s", invocation);
-         endpoint = Optional.fromNullable(injector.getInstance(
+         endpoint = Optional.fromNullable(providers.getInstance(
                Key.get(uriSupplierLiteral, org.jclouds.location.Provider.class)).get());
          if (endpoint.isPresent())
             logger.trace("using default endpoint %s for %s", endpoint, invocation);
@@ -397,44 +362,36 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
 
    private Multimap<String, Object> addPathAndGetTokens(Invocation invocation, UriBuilder uriBuilder,
                                                         boolean encodeFullPath) {
-      if (invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(Path.class))
-         uriBuilder.appendPath(invocation.getInvokable().getOwnerType().getRawType().getAnnotation(Path.class).value());
-      if (invocation.getInvokable().isAnnotationPresent(Path.class))
-         uriBuilder.appendPath(invocation.getInvokable().getAnnotation(Path.class).value());
-      return getPathParamKeyValues(invocation, encodeFullPath);
+      RequestPlan plan = RequestPlan.of(invocation.getInvokable());
+      InvocationMetadata metadata = plan.metadata;
+      if (metadata.getTypePath().isPresent())
+         uriBuilder.appendPath(metadata.getTypePath().get());
+      if (metadata.getPath().isPresent())
+         uriBuilder.appendPath(metadata.getPath().get());
+      return getPathParamKeyValues(invocation, plan, encodeFullPath);
    }
 
    private Multimap<String, Object> addFormParams(Multimap<String, ?> tokenValues, Invocation invocation) {
+      RequestPlan plan = RequestPlan.of(invocation.getInvokable());
       Multimap<String, Object> formMap = LinkedListMultimap.create();
-      if (invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(FormParams.class)) {
-         FormParams form = invocation.getInvokable().getOwnerType().getRawType().getAnnotation(FormParams.class);
+      for (FormParams form : plan.formDefaults) {
          addForm(formMap, form, tokenValues);
       }
 
-      if (invocation.getInvokable().isAnnotationPresent(FormParams.class)) {
-         FormParams form = invocation.getInvokable().getAnnotation(FormParams.class);
-         addForm(formMap, form, tokenValues);
-      }
-
-      for (Entry<String, Object> form : getFormParamKeyValues(invocation).entries()) {
+      for (Entry<String, Object> form : getFormParamKeyValues(invocation, plan).entries()) {
          formMap.put(form.getKey(), replaceTokens(form.getValue().toString(), tokenValues));
       }
       return formMap;
    }
 
    private Multimap<String, Object> addQueryParams(Multimap<String, ?> tokenValues, Invocation invocation) {
+      RequestPlan plan = RequestPlan.of(invocation.getInvokable());
       Multimap<String, Object> queryMap = LinkedListMultimap.create();
-      if (invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(QueryParams.class)) {
-         QueryParams query = invocation.getInvokable().getOwnerType().getRawType().getAnnotation(QueryParams.class);
+      for (QueryParams query : plan.queryDefaults) {
          addQuery(queryMap, query, tokenValues);
       }
 
-      if (invocation.getInvokable().isAnnotationPresent(QueryParams.class)) {
-         QueryParams query = invocation.getInvokable().getAnnotation(QueryParams.class);
-         addQuery(queryMap, query, tokenValues);
-      }
-
-      for (Entry<String, Object> query : getQueryParamKeyValues(invocation, tokenValues).entries()) {
+      for (Entry<String, Object> query : getQueryParamKeyValues(invocation, plan, tokenValues).entries()) {
          queryMap.put(query.getKey(), query.getValue());
       }
       return queryMap;
@@ -474,40 +431,29 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       }
    }
 
-   private List<HttpRequestFilter> getFiltersIfAnnotated(Invocation invocation) {
+   private List<HttpRequestFilter> getFiltersIfAnnotated(RequestPlan plan) {
       List<HttpRequestFilter> filters = newArrayList();
-      if (invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(RequestFilters.class)) {
-         for (Class<? extends HttpRequestFilter> clazz : invocation.getInvokable().getOwnerType().getRawType()
-               .getAnnotation(RequestFilters.class).value()) {
-            HttpRequestFilter instance = injector.getInstance(clazz);
-            filters.add(instance);
-            logger.trace("adding filter %s from annotation on %s", instance, invocation.getInvokable().getOwnerType()
-                  .getRawType().getName());
-         }
-      }
-      if (invocation.getInvokable().isAnnotationPresent(RequestFilters.class)) {
-         if (invocation.getInvokable().isAnnotationPresent(OverrideRequestFilters.class))
-            filters.clear();
-         for (Class<? extends HttpRequestFilter> clazz : invocation.getInvokable().getAnnotation(RequestFilters.class)
-               .value()) {
-            HttpRequestFilter instance = injector.getInstance(clazz);
-            filters.add(instance);
-            logger.trace("adding filter %s from annotation on %s", instance, invocation.getInvokable().getName());
-         }
+      for (Class<? extends HttpRequestFilter> clazz : plan.filters) {
+         HttpRequestFilter instance = providers.getInstance(clazz);
+         filters.add(instance);
+         logger.trace("adding filter %s from annotation on %s", instance, plan.invokable);
       }
       return filters;
    }
 
    @VisibleForTesting
    static URI getEndpointInParametersOrNull(Invocation invocation, Injector injector) {
-      Collection<Parameter> endpointParams = parametersWithAnnotation(invocation.getInvokable(), EndpointParam.class);
-      if (endpointParams.isEmpty())
+      return getEndpointInParametersOrNull(invocation, injector.getInstance(ProviderCache.class));
+   }
+
+   private static URI getEndpointInParametersOrNull(Invocation invocation, ProviderCache providers) {
+      RequestPlan plan = RequestPlan.of(invocation.getInvokable());
+      if (plan.endpointParams.isEmpty())
          return null;
-      checkState(endpointParams.size() == 1, "invocation.getInvoked() %s has too many EndpointParam annotations",
+      checkState(plan.endpointParams.size() == 1, "invocation.getInvoked() %s has too many EndpointParam annotations",
             invocation.getInvokable());
-      Parameter endpointParam = get(endpointParams, 0);
-      Function<Object, URI> parser = injector.getInstance(endpointParam.getAnnotation(EndpointParam.class).parser());
-      int position = endpointParam.hashCode();  // guava issue 1243
+      Function<Object, URI> parser = providers.getInstance(plan.endpointParsers.get(0));
+      int position = plan.endpointParams.get(0).index;
       try {
          URI returnVal = parser.apply(invocation.getArgs().get(position));
          checkArgument(returnVal != null,
@@ -519,33 +465,20 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       }
    }
 
-   private static Collection<Parameter> parametersWithAnnotation(Invokable<?, ?> invokable,
-         final Class<? extends Annotation> annotationType) {
-      return filter(getInvokableParameters(invokable), new Predicate<Parameter>() {
-         public boolean apply(Parameter in) {
-            return in.isAnnotationPresent(annotationType);
-         }
-      });
-   }
-
    private static final TypeLiteral<Supplier<URI>> uriSupplierLiteral = new TypeLiteral<Supplier<URI>>() {
    };
 
    protected Optional<URI> getEndpointFor(Invocation invocation) {
-      URI endpoint = getEndpointInParametersOrNull(invocation, injector);
+      URI endpoint = getEndpointInParametersOrNull(invocation, providers);
       if (endpoint == null) {
-         Endpoint annotation;
-         if (invocation.getInvokable().isAnnotationPresent(Endpoint.class)) {
-            annotation = invocation.getInvokable().getAnnotation(Endpoint.class);
-         } else if (invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(Endpoint.class)) {
-            annotation = invocation.getInvokable().getOwnerType().getRawType().getAnnotation(Endpoint.class);
-         } else {
+         Class<? extends Annotation> qualifier = RequestPlan.of(invocation.getInvokable()).endpoint;
+         if (qualifier == null) {
             logger.trace("no annotations on class or invocation.getInvoked(): %s", invocation.getInvokable());
             return Optional.absent();
          }
-         endpoint = injector.getInstance(Key.get(uriSupplierLiteral, annotation.value())).get();
+         endpoint = providers.getInstance(Key.get(uriSupplierLiteral, qualifier)).get();
       }
-      URI provider = injector.getInstance(Key.get(uriSupplierLiteral, org.jclouds.location.Provider.class)).get();
+      URI provider = providers.getInstance(Key.get(uriSupplierLiteral, org.jclouds.location.Provider.class)).get();
       return Optional.fromNullable(addHostIfMissing(endpoint, provider));
    }
 
@@ -560,7 +493,7 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       return withHost.resolve(original);
    }
 
-   private org.jclouds.rest.MapBinder getMapPayloadBinderOrNull(Invocation invocation) {
+   private org.jclouds.rest.MapBinder getMapPayloadBinderOrNull(Invocation invocation, RequestPlan plan) {
       if (invocation.getArgs() != null) {
          for (Object arg : invocation.getArgs()) {
             if (arg instanceof Object[]) {
@@ -586,51 +519,42 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
             }
          }
       }
-      if (invocation.getInvokable().isAnnotationPresent(MapBinder.class)) {
-         return injector.getInstance(invocation.getInvokable().getAnnotation(MapBinder.class).value());
-      } else if (invocation.getInvokable().isAnnotationPresent(org.jclouds.rest.annotations.Payload.class)) {
-         return injector.getInstance(BindMapToStringPayload.class);
-      } else if (invocation.getInvokable().isAnnotationPresent(WrapWith.class)) {
-         return injector.getInstance(BindToJsonPayloadWrappedWith.Factory.class).create(
-               invocation.getInvokable().getAnnotation(WrapWith.class).value());
+      Optional<Class<? extends org.jclouds.rest.MapBinder>> mapBinder = plan.metadata.getMapBinder();
+      if (mapBinder.isPresent()) {
+         return providers.getInstance(mapBinder.get());
+      } else if (plan.payloadAnnotation) {
+         return providers.getInstance(BindMapToStringPayload.class);
+      } else if (plan.wrapWith != null) {
+         return providers.getInstance(BindToJsonPayloadWrappedWith.Factory.class).create(plan.wrapWith);
       }
       return null;
    }
 
-   private boolean shouldAddHostHeader(Invocation invocation) {
-      return invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(VirtualHost.class) || invocation
-            .getInvokable().isAnnotationPresent(VirtualHost.class);
-   }
-
-   private GeneratedHttpRequest decorateRequest(GeneratedHttpRequest request) throws NegativeArraySizeException {
+   private GeneratedHttpRequest decorateRequest(GeneratedHttpRequest request, RequestPlan plan)
+         throws NegativeArraySizeException {
       Invocation invocation = request.getInvocation();
       List<Object> args = request.getInvocation().getArgs();
-      Set<Parameter> binderOrWrapWith = ImmutableSet.copyOf(concat(
-            parametersWithAnnotation(invocation.getInvokable(), BinderParam.class),
-            parametersWithAnnotation(invocation.getInvokable(), WrapWith.class)));
-      OUTER: for (Parameter entry : binderOrWrapWith) {
-         int position = entry.hashCode();
+      OUTER: for (RequestPlan.BoundParam entry : plan.binders) {
+         int position = entry.index;
          boolean shouldBreak = false;
          Binder binder;
-         if (entry.isAnnotationPresent(BinderParam.class))
-            binder = injector.getInstance(entry.getAnnotation(BinderParam.class).value());
+         if (entry.binder != null)
+            binder = providers.getInstance(entry.binder);
          else
-            binder = injector.getInstance(BindToJsonPayloadWrappedWith.Factory.class).create(
-                  entry.getAnnotation(WrapWith.class).value());
+            binder = providers.getInstance(BindToJsonPayloadWrappedWith.Factory.class).create(entry.wrapWith);
          Object arg = args.size() >= position + 1 ? args.get(position) : null;
          if (args.size() >= position + 1 && arg != null) {
-            Class<?> parameterType = entry.getType().getRawType();
             Class<? extends Object> argType = arg.getClass();
-            if (!argType.isArray() && parameterType.isArray()) {// TODO: &&
+            if (!argType.isArray() && entry.array) {// TODO: &&
                                                                 // invocation.getInvokable().isVarArgs())
                                                                 // {
-               int arrayLength = args.size() - getInvokableParameters(invocation.getInvokable()).size() + 1;
+               int arrayLength = args.size() - plan.parameterCount + 1;
                if (arrayLength == 0)
                   break OUTER;
                arg = (Object[]) Array.newInstance(arg.getClass(), arrayLength);
                System.arraycopy(args.toArray(), position, arg, 0, arrayLength);
                shouldBreak = true;
-            } else if (argType.isArray() && parameterType.isArray()) {// TODO:
+            } else if (argType.isArray() && entry.array) {// TODO:
                                                                       // &&
                                                                       // invocation.getInvokable().isVarArgs())
                                                                       // {
@@ -646,12 +570,12 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
             if (shouldBreak)
                break OUTER;
          } else {
-            if (position + 1 == getInvokableParameters(invocation.getInvokable()).size() && entry.getType().isArray())// TODO:
+            if (position + 1 == plan.parameterCount && entry.array)// TODO:
                                                                                                               // &&
                                                                                                               // invocation.getInvokable().isVarArgs())
                continue OUTER;
 
-            if (entry.isAnnotationPresent(Nullable.class)) {
+            if (entry.nullable) {
                continue OUTER;
             }
             checkNotNull(arg, invocation.getInvokable().getName() + " parameter " + (position + 1));
@@ -660,24 +584,9 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       return request;
    }
 
-   private static final LoadingCache<Invokable<?, ?>, Set<Integer>> invokableToIndexesOfOptions = CacheBuilder
-         .newBuilder().build(new CacheLoader<Invokable<?, ?>, Set<Integer>>() {
-            @Override
-            public Set<Integer> load(Invokable<?, ?> invokable) {
-               Builder<Integer> toReturn = ImmutableSet.builder();
-               for (Parameter param : getInvokableParameters(invokable)) {
-                  Class<?> type = param.getType().getRawType();
-                  if (HttpRequestOptions.class.isAssignableFrom(type)
-                        || HttpRequestOptions[].class.isAssignableFrom(type))
-                     toReturn.add(param.hashCode());
-               }
-               return toReturn.build();
-            }
-         });
-
-   private Set<HttpRequestOptions> findOptionsIn(Invocation invocation) {
+   private Set<HttpRequestOptions> findOptionsIn(Invocation invocation, RequestPlan plan) {
       ImmutableSet.Builder<HttpRequestOptions> result = ImmutableSet.builder();
-      for (int index : invokableToIndexesOfOptions.getUnchecked(invocation.getInvokable())) {
+      for (int index : plan.indexesOfOptions) {
          if (invocation.getArgs().size() >= index + 1) {// accommodate
                                                         // varinvocation.getArgs()
             if (invocation.getArgs().get(index) instanceof Object[]) {
@@ -699,46 +608,22 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
    }
 
    private Multimap<String, String> buildHeaders(Multimap<String, ?> tokenValues, Invocation invocation) {
+      RequestPlan plan = RequestPlan.of(invocation.getInvokable());
       Multimap<String, String> headers = LinkedHashMultimap.create();
-      addHeaderIfAnnotationPresentOnMethod(headers, invocation, tokenValues);
-      for (Parameter headerParam : parametersWithAnnotation(invocation.getInvokable(), HeaderParam.class)) {
-         Annotation key = headerParam.getAnnotation(HeaderParam.class);
-         String value = invocation.getArgs().get(headerParam.hashCode()).toString();
+      for (Headers header : plan.headers) {
+         addHeader(headers, header, tokenValues);
+      }
+      for (RequestPlan.Param headerParam : plan.headerParams) {
+         String value = invocation.getArgs().get(headerParam.index).toString();
          value = replaceTokens(value, tokenValues);
-         headers.put(((HeaderParam) key).value(), value);
+         headers.put(headerParam.key, value);
       }
-      addProducesIfPresentOnTypeOrMethod(headers, invocation);
-      addConsumesIfPresentOnTypeOrMethod(headers, invocation);
-      return headers;
-   }
-
-   private void addConsumesIfPresentOnTypeOrMethod(Multimap<String, String> headers, Invocation invocation) {
+      if (plan.produces != null)
+         headers.replaceValues(CONTENT_TYPE, plan.produces);
       Set<String> accept = getAcceptHeaders.apply(invocation);
       if (!accept.isEmpty())
          headers.replaceValues(ACCEPT, accept);
-   }
-
-   private void addProducesIfPresentOnTypeOrMethod(Multimap<String, String> headers, Invocation invocation) {
-      if (invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(Produces.class)) {
-         Produces header = invocation.getInvokable().getOwnerType().getRawType().getAnnotation(Produces.class);
-         headers.replaceValues(CONTENT_TYPE, asList(header.value()));
-      }
-      if (invocation.getInvokable().isAnnotationPresent(Produces.class)) {
-         Produces header = invocation.getInvokable().getAnnotation(Produces.class);
-         headers.replaceValues(CONTENT_TYPE, asList(header.value()));
-      }
-   }
-
-   private void addHeaderIfAnnotationPresentOnMethod(Multimap<String, String> headers, Invocation invocation,
-         Multimap<String, ?> tokenValues) {
-      if (invocation.getInvokable().getOwnerType().getRawType().isAnnotationPresent(Headers.class)) {
-         Headers header = invocation.getInvokable().getOwnerType().getRawType().getAnnotation(Headers.class);
-         addHeader(headers, header, tokenValues);
-      }
-      if (invocation.getInvokable().isAnnotationPresent(Headers.class)) {
-         Headers header = invocation.getInvokable().getAnnotation(Headers.class);
-         addHeader(headers, header, tokenValues);
-      }
+      return headers;
    }
 
    private static void addHeader(Multimap<String, String> headers, Headers header, Multimap<String, ?> tokenValues) {
@@ -749,16 +634,16 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       }
    }
 
-   private static List<Part> getParts(Invocation invocation, Multimap<String, ?> tokenValues) {
+   private static List<Part> getParts(Invocation invocation, RequestPlan plan, Multimap<String, ?> tokenValues) {
       ImmutableList.Builder<Part> parts = ImmutableList.<Part> builder();
-      for (Parameter param : parametersWithAnnotation(invocation.getInvokable(), PartParam.class)) {
-         PartParam partParam = param.getAnnotation(PartParam.class);
+      for (int i = 0; i < plan.parts.size(); i++) {
+         PartParam partParam = plan.parts.get(i);
          PartOptions options = new PartOptions();
          if (!PartParam.NO_CONTENT_TYPE.equals(partParam.contentType()))
             options.contentType(partParam.contentType());
          if (!PartParam.NO_FILENAME.equals(partParam.filename()))
             options.filename(replaceTokens(partParam.filename(), tokenValues));
-         Object arg = invocation.getArgs().get(param.hashCode());
+         Object arg = invocation.getArgs().get(plan.partIndexes.get(i));
          checkNotNull(arg, partParam.name());
          Part part = Part.create(partParam.name(), newPayload(arg), options);
          parts.add(part);
@@ -766,79 +651,66 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
       return parts.build();
    }
 
-   private boolean isEncodedUsed(Invocation invocation) {
-      return !parametersWithAnnotation(invocation.getInvokable(), Encoded.class).isEmpty();
-   }
-
-   private Multimap<String, Object> getPathParamKeyValues(Invocation invocation, boolean encodeFullPath) {
+   private Multimap<String, Object> getPathParamKeyValues(Invocation invocation, RequestPlan plan,
+         boolean encodeFullPath) {
       Multimap<String, Object> pathParamValues = LinkedHashMultimap.create();
-      for (Parameter param : parametersWithAnnotation(invocation.getInvokable(), PathParam.class)) {
-         PathParam pathParam = param.getAnnotation(PathParam.class);
-         String paramKey = pathParam.value();
-         Optional<?> paramValue = getParamValue(invocation, param.getAnnotation(ParamParser.class), param.hashCode(),
-               paramKey);
+      for (RequestPlan.Param param : plan.pathParams) {
+         Optional<?> paramValue = getParamValue(invocation, param);
          if (paramValue.isPresent()) {
-            if (!encodeFullPath && !param.isAnnotationPresent(Encoded.class)) {
-               pathParamValues.put(paramKey, urlEncode(paramValue.get().toString()));
+            if (!encodeFullPath && !param.encoded) {
+               pathParamValues.put(param.key, urlEncode(paramValue.get().toString()));
             } else {
-               pathParamValues.put(paramKey, paramValue.get().toString());
+               pathParamValues.put(param.key, paramValue.get().toString());
             }
          }
       }
       return pathParamValues;
    }
 
-   private Optional<?> getParamValue(Invocation invocation, @Nullable ParamParser extractor, int argIndex,
-         String paramKey) {
-      Object arg = invocation.getArgs().get(argIndex);
-      if (extractor != null && checkPresentOrNullable(invocation, paramKey, argIndex, arg)) {
+   private Optional<?> getParamValue(Invocation invocation, RequestPlan.Param param) {
+      Object arg = invocation.getArgs().get(param.index);
+      if (param.parser != null && checkPresentOrNullable(invocation, param, arg)) {
          // ParamParsers can deal with nullable parameters
-         arg = injector.getInstance(extractor.value()).apply(arg);
+         arg = providers.getInstance(param.parser).apply(arg);
       }
-      checkPresentOrNullable(invocation, paramKey, argIndex, arg);
+      checkPresentOrNullable(invocation, param, arg);
       return Optional.fromNullable(arg);
    }
 
-   private boolean checkPresentOrNullable(Invocation invocation, String paramKey, int argIndex, Object arg) {
-      if (arg == null && !getInvokableParameters(invocation.getInvokable()).get(argIndex).isAnnotationPresent(Nullable.class))
-         throw new NullPointerException(format("param{%s} for invocation %s.%s", paramKey, invocation.getInvokable()
+   private boolean checkPresentOrNullable(Invocation invocation, RequestPlan.Param param, Object arg) {
+      if (arg == null && !param.nullable)
+         throw new NullPointerException(format("param{%s} for invocation %s.%s", param.key, invocation.getInvokable()
                .getOwnerType().getRawType().getSimpleName(), invocation.getInvokable().getName()));
       return true;
    }
 
-   private Multimap<String, Object> getFormParamKeyValues(Invocation invocation) {
+   private Multimap<String, Object> getFormParamKeyValues(Invocation invocation, RequestPlan plan) {
       Multimap<String, Object> formParamValues = LinkedHashMultimap.create();
-      for (Parameter param : parametersWithAnnotation(invocation.getInvokable(), FormParam.class)) {
-         FormParam formParam = param.getAnnotation(FormParam.class);
-         String paramKey = formParam.value();
-         Optional<?> paramValue = getParamValue(invocation, param.getAnnotation(ParamParser.class), param.hashCode(),
-               paramKey);
+      for (RequestPlan.Param param : plan.formParams) {
+         Optional<?> paramValue = getParamValue(invocation, param);
          if (paramValue.isPresent())
-            formParamValues.put(paramKey, paramValue.get().toString());
+            formParamValues.put(param.key, paramValue.get().toString());
       }
       return formParamValues;
    }
 
-   private Multimap<String, Object> getQueryParamKeyValues(Invocation invocation, Multimap<String, ?> tokenValues) {
+   private Multimap<String, Object> getQueryParamKeyValues(Invocation invocation, RequestPlan plan,
+         Multimap<String, ?> tokenValues) {
       Multimap<String, Object> queryParamValues = LinkedHashMultimap.create();
-      for (Parameter param : parametersWithAnnotation(invocation.getInvokable(), QueryParam.class)) {
-         QueryParam queryParam = param.getAnnotation(QueryParam.class);
-         String paramKey = urlEncode(queryParam.value(), '/', ',');
-         Optional<?> paramValue = getParamValue(invocation, param.getAnnotation(ParamParser.class), param.hashCode(),
-               paramKey);
-         boolean encoded = param.isAnnotationPresent(Encoded.class);
+      for (RequestPlan.Param param : plan.queryParams) {
+         Optional<?> paramValue = getParamValue(invocation, param);
          if (paramValue.isPresent())
             if (paramValue.get() instanceof Iterable) {
                @SuppressWarnings("unchecked")
                Iterable<String> iterableStrings = transform(Iterable.class.cast(paramValue.get()), toStringFunction());
                List<QueryValue> values = new ArrayList<QueryValue>();
                for (String stringValue : iterableStrings) {
-                  values.add(new QueryValue(replaceTokens(stringValue, tokenValues), encoded));
+                  values.add(new QueryValue(replaceTokens(stringValue, tokenValues), param.encoded));
                }
-               queryParamValues.putAll(paramKey, values);
+               queryParamValues.putAll(param.key, values);
             } else {
                String value = paramValue.get().toString();
-               queryParamValues.put(paramKey, new QueryValue(replaceTokens(value, tokenValues), encoded));
+               queryParamValues.put(param.key, new QueryValue(replaceTokens(value, tokenValues), param.encoded));
             }
       }
       return queryParamValues;
@@ -846,13 +718,10 @@ public class RestAnnotationProcessor implements Function<Invocation, HttpRequest
 
    private Map<String, Object> buildPayloadParams(Invocation invocation) {
       Map<String, Object> payloadParamValues = Maps.newLinkedHashMap();
-      for (Parameter param : parametersWithAnnotation(invocation.getInvokable(), PayloadParam.class)) {
-         PayloadParam payloadParam = param.getAnnotation(PayloadParam.class);
-         String paramKey = payloadParam.value();
-         Optional<?> paramValue = getParamValue(invocation, param.getAnnotation(ParamParser.class), param.hashCode(),
-               paramKey);
+      for (RequestPlan.Param param : RequestPlan.of(invocation.getInvokable()).payloadParams) {
+         Optional<?> paramValue = getParamValue(invocation, param);
          if (paramValue.isPresent())
-            payloadParamValues.put(paramKey, paramValue.get());
+            payloadParamValues.put(param.key, paramValue.get());
       }
       return payloadParamValues;
    }
@@ -17,6 +17,7 @@
 package org.jclouds.rest.internal;
 
 import static com.google.common.base.Functions.compose;
+import static com.google.common.base.Throwables.propagate;
 import static com.google.inject.util.Types.newParameterizedType;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML;
@@ -51,7 +52,6 @@ import org.jclouds.reflect.Invocation;
 import org.jclouds.rest.InvocationContext;
 import org.jclouds.rest.annotations.JAXBResponseParser;
 import org.jclouds.rest.annotations.OnlyElement;
-import org.jclouds.rest.annotations.ResponseParser;
 import org.jclouds.rest.annotations.SelectJson;
 import org.jclouds.rest.annotations.Transform;
 import org.jclouds.rest.annotations.Unwrap;
@@ -60,8 +60,12 @@ import org.jclouds.rest.annotations.XMLResponseParser;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.reflect.Invokable;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.TypeLiteral;
@@ -69,12 +73,12 @@ import com.google.inject.TypeLiteral;
 public class TransformerForRequest implements Function<HttpRequest, Function<HttpResponse, ?>> {
    private final ParseSax.Factory parserFactory;
    private final Injector injector;
-   private final GetAcceptHeaders getAcceptHeaders;
+   private final ProviderCache providers;
 
-   @Inject TransformerForRequest(Injector injector, Factory parserFactory, GetAcceptHeaders getAcceptHeaders) {
+   @Inject TransformerForRequest(Injector injector, Factory parserFactory, ProviderCache providers) {
       this.injector = injector;
       this.parserFactory = parserFactory;
-      this.getAcceptHeaders = getAcceptHeaders;
+      this.providers = providers;
    }
 
    @SuppressWarnings("unchecked")
@@ -82,19 +86,19 @@ public class TransformerForRequest implements Function<HttpRequest, Function<Htt
    public Function<HttpResponse, ?> apply(HttpRequest in) {
       GeneratedHttpRequest request = GeneratedHttpRequest.class.cast(in);
       Function<HttpResponse, ?> transformer;
-      Class<? extends HandlerWithResult<?>> handler = getSaxResponseParserClassOrNull(request.getInvocation()
-            .getInvokable());
-      if (handler != null) {
-         transformer = parserFactory.create(injector.getInstance(handler));
-      } else {
+      RequestPlan plan = RequestPlan.of(request.getInvocation().getInvokable());
+      if (plan.xmlResponseParser != null) {
+         transformer = parserFactory.create(providers.getInstance(plan.xmlResponseParser));
+      } else if (plan.invokable.isAnnotationPresent(SelectJson.class)) {
          transformer = getTransformerForMethod(request.getInvocation(), injector);
+      } else {
+         transformer = providers.getInstance(getCachedParserKey(plan.invokable));
       }
       if (transformer instanceof InvocationContext<?>) {
          InvocationContext.class.cast(transformer).setContext(request);
       }
-      if (request.getInvocation().getInvokable().isAnnotationPresent(Transform.class)) {
-         Function<?, ?> wrappingTransformer = injector.getInstance(request.getInvocation().getInvokable()
-               .getAnnotation(Transform.class).value());
+      if (plan.transform != null) {
+         Function<?, ?> wrappingTransformer = providers.getInstance(plan.transform);
          if (wrappingTransformer instanceof InvocationContext<?>) {
             ((InvocationContext<?>) wrappingTransformer).setContext(request);
          }
@@ -103,14 +107,36 @@ public class TransformerForRequest implements Function<HttpRequest, Function<Htt
       return transformer;
    }
 
-   @SuppressWarnings("unchecked")
+   /**
+    * The parser of a method only depends on its annotations, so its key is worked out once.
+    */
+   private static final LoadingCache<Invokable<?, ?>, Key<? extends Function<HttpResponse, ?>>> parserKeys =
+         CacheBuilder.newBuilder().build(new CacheLoader<Invokable<?, ?>, Key<? extends Function<HttpResponse, ?>>>() {
+            public Key<? extends Function<HttpResponse, ?>> load(Invokable<?, ?> invoked) {
+               return getParserKey(invoked);
+            }
+         });
+
+   private static Key<? extends Function<HttpResponse, ?>> getCachedParserKey(Invokable<?, ?> invoked) {
+      try {
+         return parserKeys.getUnchecked(invoked);
+      } catch (UncheckedExecutionException e) {
+         throw propagate(e.getCause());
+      }
+   }
+
    @VisibleForTesting
    Key<? extends Function<HttpResponse, ?>> getParserOrThrowException(Invocation invocation) {
-      Invokable<?, ?> invoked = invocation.getInvokable();
-      Set<String> acceptHeaders = getAcceptHeaders.apply(invocation);
-      ResponseParser annotation = invoked.getAnnotation(ResponseParser.class);
+      return getParserKey(invocation.getInvokable());
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Key<? extends Function<HttpResponse, ?>> getParserKey(Invokable<?, ?> invoked) {
+      Set<String> acceptHeaders = RequestPlan.of(invoked).accept;
+      Optional<Class<? extends Function<HttpResponse, ?>>> parser = InvocationMetadata.of(invoked)
+            .getResponseParser();
       Class<?> rawReturnType = invoked.getReturnType().getRawType();
-      if (annotation == null) {
+      if (!parser.isPresent()) {
          if (rawReturnType.equals(void.class)) {
             return Key.get(ReleasePayloadAndReturn.class);
          } else if (rawReturnType.equals(boolean.class) || rawReturnType.equals(Boolean.class)) {
@@ -131,7 +157,7 @@ public class TransformerForRequest implements Function<HttpRequest, Function<Htt
             throw new IllegalStateException("You must specify a ResponseParser annotation on: " + invoked.toString());
          }
       }
-      return Key.get(annotation.value());
+      return Key.get(parser.get());
    }
 
    @SuppressWarnings("unchecked")
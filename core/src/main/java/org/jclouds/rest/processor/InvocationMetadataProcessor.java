@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.rest.processor;
+
+import static org.jclouds.rest.internal.InvocationMetadata.RESOURCE_PREFIX;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.StandardLocation;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+
+import org.jclouds.rest.annotations.BinderParam;
+import org.jclouds.rest.annotations.Delegate;
+import org.jclouds.rest.annotations.Fallback;
+import org.jclouds.rest.annotations.MapBinder;
+import org.jclouds.rest.annotations.ResponseParser;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Generates the {@link org.jclouds.rest.internal.InvocationMetadata} of every HTTP API interface being compiled,
+ * so that contexts need not scan the annotations and methods of the API when it is first used.
+ * <p/>
+ * The processor is not registered as a service, so that it only runs for projects asking for it. For example, an API
+ * built with Maven may add it to the {@code maven-compiler-plugin}, next to any other processor it uses:
+ *
+ * <pre>
+ * &lt;annotationProcessors&gt;
+ *   &lt;annotationProcessor&gt;org.jclouds.rest.processor.InvocationMetadataProcessor&lt;/annotationProcessor&gt;
+ *   &lt;annotationProcessor&gt;com.google.auto.service.processor.AutoServiceProcessor&lt;/annotationProcessor&gt;
+ * &lt;/annotationProcessors&gt;
+ * </pre>
+ *
+ * Methods whose annotations are ambiguous, such as those with two HTTP methods, or those declared by two unrelated
+ * supertypes, are left out, so that they are read by reflection and fail as they would without the processor.
+ */
+@SupportedAnnotationTypes("*")
+public class InvocationMetadataProcessor extends AbstractProcessor {
+
+   @Override
+   public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+   }
+
+   @Override
+   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      for (TypeElement type : types(roundEnv.getRootElements())) {
+         if (type.getKind() != ElementKind.INTERFACE)
+            continue;
+         Map<String, ExecutableElement> methods = methods(type);
+         if (!isHttpApi(methods.values()))
+            continue;
+         try {
+            write(type, methods);
+         } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Kind.WARNING,
+                  "could not write invocation metadata: " + e.getMessage(), type);
+         }
+      }
+      return false;
+   }
+
+   private static List<TypeElement> types(Iterable<? extends Element> elements) {
+      List<TypeElement> types = Lists.newArrayList();
+      for (TypeElement type : ElementFilter.typesIn(elements)) {
+         types.add(type);
+         types.addAll(types(type.getEnclosedElements()));
+      }
+      return types;
+   }
+
+   private boolean isHttpApi(Iterable<ExecutableElement> methods) {
+      for (ExecutableElement method : methods) {
+         if (method.getAnnotation(Delegate.class) != null || !httpMethods(method).isEmpty())
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Finds the methods of the type as {@code Reflection2.method} would: by signature, from the type declaring the
+    * most specific one.
+    */
+   private Map<String, ExecutableElement> methods(TypeElement type) {
+      Map<String, List<ExecutableElement>> candidates = Maps.newLinkedHashMap();
+      addMethods(type, candidates);
+      Map<String, ExecutableElement> methods = Maps.newLinkedHashMap();
+      CANDIDATES: for (Map.Entry<String, List<ExecutableElement>> entry : candidates.entrySet()) {
+         for (ExecutableElement candidate : entry.getValue()) {
+            TypeMirror declaringType = candidate.getEnclosingElement().asType();
+            boolean mostSpecific = true;
+            for (ExecutableElement other : entry.getValue()) {
+               mostSpecific &= processingEnv.getTypeUtils().isSubtype(
+                     processingEnv.getTypeUtils().erasure(declaringType),
+                     processingEnv.getTypeUtils().erasure(other.getEnclosingElement().asType()));
+            }
+            if (mostSpecific) {
+               methods.put(entry.getKey(), candidate);
+               continue CANDIDATES;
+            }
+         }
+      }
+      return methods;
+   }
+
+   private void addMethods(TypeElement type, Map<String, List<ExecutableElement>> methods) {
+      if (type.getQualifiedName().contentEquals(Object.class.getName()))
+         return;
+      for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+         String signature = signature(method);
+         List<ExecutableElement> declarations = methods.get(signature);
+         if (declarations == null)
+            methods.put(signature, declarations = Lists.newArrayList());
+         if (!declarations.contains(method))
+            declarations.add(method);
+      }
+      for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(type.asType())) {
+         addMethods((TypeElement) processingEnv.getTypeUtils().asElement(supertype), methods);
+      }
+   }
+
+   private String signature(ExecutableElement method) {
+      List<String> parameterTypes = Lists.newArrayList();
+      for (VariableElement parameter : method.getParameters())
+         parameterTypes.add(typeName(parameter.asType()));
+      return method.getSimpleName() + "(" + Joiner.on(',').join(parameterTypes) + ")";
+   }
+
+   /**
+    * Names types as {@code InvocationMetadata} does for classes at runtime.
+    */
+   private String typeName(TypeMirror type) {
+      TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+      if (erasure.getKind() == TypeKind.ARRAY)
+         return typeName(((ArrayType) erasure).getComponentType()) + "[]";
+      if (erasure.getKind() == TypeKind.DECLARED)
+         return binaryName(erasure);
+      return erasure.getKind().name().toLowerCase();
+   }
+
+   private String binaryName(TypeMirror type) {
+      return processingEnv.getElementUtils()
+            .getBinaryName((TypeElement) ((DeclaredType) processingEnv.getTypeUtils().erasure(type)).asElement())
+            .toString();
+   }
+
+   private List<String> httpMethods(ExecutableElement method) {
+      List<String> httpMethods = Lists.newArrayList();
+      for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+         HttpMethod httpMethod = annotation.getAnnotationType().asElement().getAnnotation(HttpMethod.class);
+         if (httpMethod != null)
+            httpMethods.add(httpMethod.value());
+      }
+      return httpMethods;
+   }
+
+   /**
+    * Reads a class valued annotation, which cannot be read through {@link Element#getAnnotation(Class)}.
+    */
+   private String classValue(Element element, Class<?> annotationType) {
+      for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+         if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(
+               annotationType.getName()))
+            continue;
+         for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : annotation.getElementValues()
+               .entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals("value"))
+               return binaryName((TypeMirror) value.getValue().getValue());
+         }
+      }
+      return null;
+   }
+
+   private void write(TypeElement type, Map<String, ExecutableElement> methods) throws IOException {
+      StringBuilder properties = new StringBuilder();
+      properties.append("# generated by ").append(getClass().getName()).append('\n');
+      Path typePath = type.getAnnotation(Path.class);
+      if (typePath != null)
+         appendProperty(properties, "path", typePath.value());
+      for (Map.Entry<String, ExecutableElement> entry : methods.entrySet()) {
+         ExecutableElement method = entry.getValue();
+         List<String> httpMethods = httpMethods(method);
+         if (httpMethods.size() > 1)
+            continue;
+         String signature = entry.getKey();
+         appendProperty(properties, signature + ".declaringType", binaryName(method.getEnclosingElement().asType()));
+         if (httpMethods.size() == 1)
+            appendProperty(properties, signature + ".httpMethod", httpMethods.get(0));
+         Path path = method.getAnnotation(Path.class);
+         if (path != null)
+            appendProperty(properties, signature + ".path", path.value());
+         appendProperty(properties, signature + ".fallback", classValue(method, Fallback.class));
+         appendProperty(properties, signature + ".responseParser", classValue(method, ResponseParser.class));
+         appendProperty(properties, signature + ".mapBinder", classValue(method, MapBinder.class));
+         List<? extends VariableElement> parameters = method.getParameters();
+         for (int i = 0; i < parameters.size(); i++)
+            appendProperty(properties, signature + ".binder." + i, classValue(parameters.get(i), BinderParam.class));
+      }
+      OutputStream out = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+            RESOURCE_PREFIX + binaryName(type.asType()) + ".properties", type).openOutputStream();
+      Writer writer = new OutputStreamWriter(out, Charsets.ISO_8859_1);
+      try {
+         writer.write(properties.toString());
+      } finally {
+         writer.close();
+      }
+   }
+
+   /**
+    * Appends a property as {@link java.util.Properties#load(java.io.InputStream)} reads it, unless the value is null.
+    */
+   private static void appendProperty(StringBuilder properties, String key, String value) {
+      if (value == null)
+         return;
+      properties.append(key).append('=');
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         if (c == '\\') {
+            properties.append("\\\\");
+         } else if (c < 0x20 || c > 0x7e || i == 0 && c == ' ') {
+            properties.append(String.format("\\u%04x", (int) c));
+         } else {
+            properties.append(c);
+         }
+      }
+      properties.append('\n');
+   }
+}
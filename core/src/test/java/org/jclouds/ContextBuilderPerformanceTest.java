@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds;
+
+import static org.jclouds.reflect.Reflection2.method;
+
+import java.util.List;
+
+import org.jclouds.http.IntegrationTestClient;
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.logging.config.NullLoggingModule;
+import org.jclouds.providers.AnonymousProviderMetadata;
+import org.jclouds.providers.ProviderMetadata;
+import org.jclouds.providers.Providers;
+import org.jclouds.reflect.Invocation;
+import org.jclouds.rest.internal.RestAnnotationProcessor;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.reflect.Invokable;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+
+/**
+ * Times building contexts, which dominates short lived processes that build a context to make a few calls.
+ */
+@Test(groups = "performance", singleThreaded = true, timeOut = 5 * 60 * 1000, testName = "ContextBuilderPerformanceTest")
+public class ContextBuilderPerformanceTest extends PerformanceTest {
+
+   private static final int BUILD_COUNT = LOOP_COUNT / 10;
+
+   @Test
+   void testBuildInjectorOfEachProviderResponseTime() {
+      for (ProviderMetadata provider : Providers.all()) {
+         long start = System.nanoTime();
+         for (int i = 0; i < BUILD_COUNT; i++)
+            close(builder(provider).buildInjector());
+         System.out.printf("TIMING: building the injector of %s took %.3fms%n", provider.getId(),
+               (System.nanoTime() - start) / 1e6 / BUILD_COUNT);
+      }
+   }
+
+   @Test
+   void testBuildInjectorAndCreateRequestResponseTime() {
+      ProviderMetadata provider = AnonymousProviderMetadata.forApiOnEndpoint(IntegrationTestClient.class,
+            "http://localhost:1");
+      Invokable<IntegrationTestClient, Object> download = method(IntegrationTestClient.class, "download",
+            String.class);
+      for (int i = 0; i < BUILD_COUNT; i++) {
+         Injector injector = builder(provider).buildInjector();
+         injector.getInstance(RestAnnotationProcessor.class).apply(
+               Invocation.create(download, ImmutableList.<Object> of("id")));
+         close(injector);
+      }
+   }
+
+   @Test
+   void testBuildInjectorPerformanceInParallel() throws Throwable {
+      List<Runnable> tasks = Lists.newArrayList();
+      for (final ProviderMetadata provider : Providers.all()) {
+         tasks.add(new Runnable() {
+            public void run() {
+               close(builder(provider).buildInjector());
+            }
+         });
+      }
+      executeMultiThreadedPerformanceTest("testBuildInjectorPerformanceInParallel", tasks);
+   }
+
+   private static ContextBuilder builder(ProviderMetadata provider) {
+      return ContextBuilder.newBuilder(provider).credentials("identity", "credential")
+            .modules(ImmutableSet.<Module> of(new NullLoggingModule()));
+   }
+
+   private static void close(Injector injector) {
+      try {
+         injector.getInstance(Closer.class).close();
+      } catch (Exception e) {
+         throw Throwables.propagate(e);
+      }
+   }
+}
@@ -36,6 +36,9 @@ import org.jclouds.location.Provider;
 import org.jclouds.logging.config.LoggingModule;
 import org.jclouds.logging.config.NullLoggingModule;
 import org.jclouds.logging.jdk.config.JDKLoggingModule;
+import org.jclouds.metrics.config.InMemoryMetricsModule;
+import org.jclouds.metrics.config.MetricsModule;
+import org.jclouds.metrics.config.NullMetricsModule;
 import org.jclouds.providers.ProviderMetadata;
 import org.jclouds.rest.annotations.ApiVersion;
 import org.jclouds.rest.config.CredentialStoreModule;
@@ -170,6 +173,19 @@ public class ContextBuilderTest {
       assertEquals(modules.size(), 1);
       assertEquals(modules.remove(0), module);
    }
+
+   @Test
+   public void testAddMetricsModuleIfNotPresent() {
+      List<Module> modules = Lists.newArrayList();
+      MetricsModule module = new InMemoryMetricsModule();
+      modules.add(module);
+      ContextBuilder.addMetricsModuleIfNotPresent(modules);
+      assertEquals(modules.size(), 1);
+      assertEquals(modules.remove(0), module);
+      ContextBuilder.addMetricsModuleIfNotPresent(modules);
+      assertEquals(modules.size(), 1);
+      assert modules.remove(0) instanceof NullMetricsModule;
+   }
    
    @Test
    public void testAddEventBusModuleIfNotPresent() {
@@ -17,12 +17,16 @@
 package org.jclouds.apis;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.fail;
 
 import java.util.NoSuchElementException;
 
+import org.jclouds.osgi.ApiRegistry;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableSet;
+
 /**
  * The ApisTest tests the org.jclouds.apis.Apis class.
  */
@@ -49,6 +53,19 @@ public class ApisTest {
       assertEquals(testBlobstoreApi, apiMetadata);
    }
 
+   @Test
+   public void testRegistryInvalidatesCache() {
+      Iterable<ApiMetadata> cached = Apis.all();
+      // equal to one loaded from the classpath, so that other tests see the same apis
+      ApiRegistry.registerApi(testBlobstoreApi);
+      try {
+         assertNotSame(Apis.all(), cached);
+         assertEquals(ImmutableSet.copyOf(Apis.all()), ImmutableSet.copyOf(cached));
+      } finally {
+         ApiRegistry.unRegisterApi(testBlobstoreApi);
+      }
+   }
+
    @Test
    public void testTransformableTo() {
       Iterable<ApiMetadata> apisMetadata = Apis.viewableAs(Storage.class);
@@ -24,7 +24,9 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * Tests behavior of {@code IterableWithMarkers}.
@@ -70,4 +72,28 @@ public class PagedIterablesTest {
       EasyMock.verify(markerToNext);
 
    }
+
+   @SuppressWarnings("unchecked")
+   @Test
+   public void testPrefetchReturnsSamePages() {
+
+      IterableWithMarker<String> initial = IterableWithMarkers.from(ImmutableSet.of("foo", "bar"), "MARKER1");
+      Function<Object, IterableWithMarker<String>> markerToNext = createMock(Function.class);
+
+      expect(markerToNext.apply("MARKER1")).andReturn(
+               IterableWithMarkers.from(ImmutableSet.of("boo", "baz"), "MARKER2"));
+
+      expect(markerToNext.apply("MARKER2")).andReturn(IterableWithMarkers.from(ImmutableSet.of("ham", "cheeze"), null));
+
+      EasyMock.replay(markerToNext);
+
+      PagedIterable<String> iterable = PagedIterables.prefetch(PagedIterables.advance(initial, markerToNext),
+               MoreExecutors.sameThreadExecutor(), 2);
+
+      Assert.assertEquals(iterable.concat().toList(),
+               ImmutableList.of("foo", "bar", "boo", "baz", "ham", "cheeze"));
+
+      EasyMock.verify(markerToNext);
+
+   }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.collect;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.MoreExecutors;
+
+@Test(groups = "unit", testName = "PrefetchingIteratorTest")
+public class PrefetchingIteratorTest {
+
+   private final ExecutorService executor = Executors.newCachedThreadPool();
+
+   @AfterClass
+   void shutdown() {
+      executor.shutdownNow();
+   }
+
+   /** counts the elements fetched, failing on {@code failAt} */
+   private static class CountingIterator extends AbstractIterator<Integer> {
+      private final AtomicInteger fetched = new AtomicInteger();
+      private final int size;
+      private final int failAt;
+
+      CountingIterator(int size, int failAt) {
+         this.size = size;
+         this.failAt = failAt;
+      }
+
+      @Override
+      protected Integer computeNext() {
+         int next = fetched.get();
+         if (next == failAt)
+            throw new IllegalStateException("failed at " + next);
+         if (next == size)
+            return endOfData();
+         return fetched.getAndIncrement();
+      }
+   }
+
+   public void testReturnsAllInOrder() {
+      Iterator<Integer> iterator = PrefetchingIterator.create(new CountingIterator(100, -1), executor, 3);
+
+      assertEquals(ImmutableList.copyOf(iterator),
+            ImmutableList.copyOf(ContiguousSet.create(Range.closedOpen(0, 100), DiscreteDomain.integers())));
+   }
+
+   public void testFetchesAtMostDepthAhead() {
+      CountingIterator delegate = new CountingIterator(100, -1);
+      Iterator<Integer> iterator = PrefetchingIterator.create(delegate, MoreExecutors.sameThreadExecutor(), 3);
+
+      assertEquals(delegate.fetched.get(), 0);
+      for (int consumed = 1; consumed <= 10; consumed++) {
+         iterator.next();
+         assertEquals(delegate.fetched.get(), consumed + 3);
+      }
+   }
+
+   public void testPropagatesFailureAfterFetchedElements() {
+      Iterator<Integer> iterator = PrefetchingIterator.create(new CountingIterator(100, 2), executor, 5);
+
+      assertEquals(iterator.next(), Integer.valueOf(0));
+      assertEquals(iterator.next(), Integer.valueOf(1));
+      try {
+         iterator.hasNext();
+         fail();
+      } catch (IllegalStateException e) {
+         assertEquals(e.getMessage(), "failed at 2");
+      }
+   }
+
+   public void testCloseCancelsFetchInProgress() throws InterruptedException {
+      final CountDownLatch fetching = new CountDownLatch(1);
+      final CountDownLatch interrupted = new CountDownLatch(1);
+      Iterator<Integer> slow = new AbstractIterator<Integer>() {
+         @Override
+         protected Integer computeNext() {
+            fetching.countDown();
+            try {
+               Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+               interrupted.countDown();
+            }
+            return endOfData();
+         }
+      };
+      final PrefetchingIterator<Integer> iterator = PrefetchingIterator.create(slow, executor, 1);
+      Thread consumer = new Thread() {
+         @Override
+         public void run() {
+            iterator.hasNext();
+         }
+      };
+      consumer.start();
+
+      assertTrue(fetching.await(10, TimeUnit.SECONDS));
+      iterator.close();
+      assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+      consumer.join(TimeUnit.SECONDS.toMillis(10));
+      assertFalse(consumer.isAlive());
+      assertFalse(iterator.hasNext());
+   }
+}
@@ -23,8 +23,11 @@ import static org.testng.Assert.fail;
 
 import java.util.List;
 
+import org.jclouds.Constants;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PrefetchingIterator;
 import org.jclouds.reflect.Invocation;
 import org.jclouds.rest.internal.GeneratedHttpRequest;
 import org.testng.annotations.Test;
@@ -34,6 +37,11 @@ import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.Invokable;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.name.Names;
 
 @Test(testName = "ArgsToPagedIterableTest")
 public class ArgsToPagedIterableTest {
@@ -100,6 +108,33 @@ public class ArgsToPagedIterableTest {
             ImmutableSet.of("foo", "bar", "baz"));
    }
 
+   @Test
+   public void testPrefetchWhenConfigured() {
+      GeneratedHttpRequest request = args(ImmutableList.of());
+      final IterableWithMarker<String> next = IterableWithMarkers.from(ImmutableSet.of("baz"));
+
+      TestArgs converter = new TestArgs(request) {
+
+         @Override
+         protected Function<Object, IterableWithMarker<String>> markerToNextForArgs(List<Object> args) {
+            return Functions.constant(next);
+         }
+
+      };
+      Guice.createInjector(new AbstractModule() {
+         @Override
+         protected void configure() {
+            bindConstant().annotatedWith(Names.named(Constants.PROPERTY_PAGED_ITERABLE_PREFETCH)).to(2);
+            bind(ListeningExecutorService.class).annotatedWith(Names.named(Constants.PROPERTY_USER_THREADS))
+                  .toInstance(MoreExecutors.sameThreadExecutor());
+         }
+      }).injectMembers(converter);
+
+      PagedIterable<String> pages = converter.apply(IterableWithMarkers.from(ImmutableSet.of("foo", "bar"), "marker"));
+      assertTrue(pages.iterator() instanceof PrefetchingIterator);
+      assertEquals(pages.concat().toSet(), ImmutableSet.of("foo", "bar", "baz"));
+   }
+
    private GeneratedHttpRequest args(ImmutableList<Object> args) {
       try {
          return GeneratedHttpRequest.builder().method("GET").endpoint("http://localhost")
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.concurrent;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+@Test(groups = "unit", testName = "RefreshBeforeExpiryLoaderTest")
+public class RefreshBeforeExpiryLoaderTest {
+
+   /** Loads a token expiring {@code ttl} milliseconds after it is loaded. */
+   private static class TokenLoader implements Function<String, Date> {
+      final AtomicInteger loads = new AtomicInteger();
+      final long ttl;
+
+      TokenLoader(long ttl) {
+         this.ttl = ttl;
+      }
+
+      @Override
+      public Date apply(String key) {
+         loads.incrementAndGet();
+         return new Date(System.currentTimeMillis() + ttl);
+      }
+   }
+
+   private static class FakeTicker extends Ticker {
+      final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+
+      void advance(long time, TimeUnit unit) {
+         nanos.addAndGet(unit.toNanos(time));
+      }
+   }
+
+   public void testKeepsValueFarFromExpiry() throws Exception {
+      TokenLoader loader = new TokenLoader(TimeUnit.HOURS.toMillis(1));
+      RefreshBeforeExpiryLoader<String, Date> refresh = RefreshBeforeExpiryLoader.create(loader,
+            Functions.<Date> identity(), 11, TimeUnit.HOURS, MoreExecutors.sameThreadExecutor());
+      Date token = refresh.load("user");
+      assertEquals(refresh.reload("user", token).get(), token);
+      assertEquals(loader.loads.get(), 1);
+   }
+
+   public void testKeepsValueWithoutExpiry() throws Exception {
+      TokenLoader loader = new TokenLoader(0);
+      RefreshBeforeExpiryLoader<String, Date> refresh = RefreshBeforeExpiryLoader.create(loader,
+            Functions.<Date> constant(null), 11, TimeUnit.HOURS, MoreExecutors.sameThreadExecutor());
+      Date token = refresh.load("user");
+      assertEquals(refresh.reload("user", token).get(), token);
+      assertEquals(loader.loads.get(), 1);
+   }
+
+   public void testReloadsValueWithoutExpiryOnceMaxAgeHasPassed() throws Exception {
+      TokenLoader loader = new TokenLoader(0);
+      FakeTicker ticker = new FakeTicker();
+      RefreshBeforeExpiryLoader<String, Date> refresh = new RefreshBeforeExpiryLoader<String, Date>(loader,
+            Functions.<Date> constant(null), TimeUnit.HOURS.toMillis(11), MoreExecutors.sameThreadExecutor(),
+            RefreshBeforeExpiryLoader.DEFAULT_MARGIN_MILLIS, ticker);
+      Date token = refresh.load("user");
+      ticker.advance(10, TimeUnit.HOURS);
+      assertEquals(refresh.reload("user", token).get(), token);
+      assertEquals(loader.loads.get(), 1);
+      ticker.advance(1, TimeUnit.HOURS);
+      assertEquals(refresh.reload("user", token).get() == token, false);
+      assertEquals(loader.loads.get(), 2);
+      // the age counts from the new load
+      ticker.advance(1, TimeUnit.HOURS);
+      refresh.reload("user", token).get();
+      assertEquals(loader.loads.get(), 2);
+   }
+
+   public void testCacheExpiresValueInUseOnceMaxAgeHasPassed() throws Exception {
+      TokenLoader loader = new TokenLoader(TimeUnit.DAYS.toMillis(1));
+      FakeTicker ticker = new FakeTicker();
+      LoadingCache<String, Date> cache = CacheBuilder.newBuilder().ticker(ticker)
+            .expireAfterWrite(1, TimeUnit.HOURS).refreshAfterWrite(1, TimeUnit.MINUTES)
+            .build(new RefreshBeforeExpiryLoader<String, Date>(loader, Functions.<Date> identity(),
+                  TimeUnit.HOURS.toMillis(1), MoreExecutors.sameThreadExecutor(),
+                  RefreshBeforeExpiryLoader.DEFAULT_MARGIN_MILLIS, ticker));
+      Date first = cache.getUnchecked("user");
+      // each refresh keeps the value and resets its write time, so expireAfterWrite never applies
+      for (int i = 0; i < 25; i++) {
+         ticker.advance(2, TimeUnit.MINUTES);
+         assertEquals(cache.getUnchecked("user"), first);
+      }
+      assertEquals(loader.loads.get(), 1);
+      // renewed once within the margin of the maximum age, and then kept again
+      for (int i = 0; i < 5; i++) {
+         ticker.advance(2, TimeUnit.MINUTES);
+         cache.getUnchecked("user");
+      }
+      assertEquals(loader.loads.get(), 2);
+   }
+
+   public void testReloadsExpiredValue() throws Exception {
+      TokenLoader loader = new TokenLoader(TimeUnit.HOURS.toMillis(1));
+      RefreshBeforeExpiryLoader<String, Date> refresh = RefreshBeforeExpiryLoader.create(loader,
+            Functions.<Date> identity(), 11, TimeUnit.HOURS, MoreExecutors.sameThreadExecutor());
+      Date expired = new Date(System.currentTimeMillis() - 1);
+      Date token = refresh.reload("user", expired).get();
+      assertEquals(loader.loads.get(), 1);
+      assertEquals(token.after(expired), true);
+   }
+
+   public void testRenewsOnceWhileServingOldValue() throws Exception {
+      final CountDownLatch release = new CountDownLatch(1);
+      final AtomicInteger loads = new AtomicInteger();
+      Function<String, Date> slowLoader = new Function<String, Date>() {
+         @Override
+         public Date apply(String key) {
+            if (loads.incrementAndGet() > 1) {
+               Uninterruptibles.awaitUninterruptibly(release);
+            }
+            // within the margin, so that every check after the first load renews
+            return new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1));
+         }
+      };
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+      try {
+         LoadingCache<String, Date> cache = CacheBuilder.newBuilder().refreshAfterWrite(1, TimeUnit.MILLISECONDS)
+               .build(RefreshBeforeExpiryLoader.create(slowLoader, Functions.<Date> identity(), 11,
+                     TimeUnit.HOURS, executor));
+         Date first = cache.getUnchecked("user");
+         Thread.sleep(5);
+         assertEquals(cache.getUnchecked("user"), first);
+         while (loads.get() < 2) {
+            Thread.sleep(1);
+         }
+         // the renewal is blocked, so every caller gets the old value without starting another
+         for (int i = 0; i < 10; i++) {
+            assertEquals(cache.getUnchecked("user"), first);
+         }
+         assertEquals(loads.get(), 2);
+         release.countDown();
+         executor.shutdown();
+         executor.awaitTermination(10, TimeUnit.SECONDS);
+         assertEquals(cache.getIfPresent("user").after(first), true);
+      } finally {
+         release.countDown();
+         executor.shutdownNow();
+      }
+   }
+}
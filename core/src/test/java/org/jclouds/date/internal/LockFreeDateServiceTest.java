@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.date.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.Random;
+
+import org.jclouds.date.DateService;
+import org.testng.annotations.Test;
+
+import com.google.inject.Guice;
+
+/**
+ * Checks {@link LockFreeDateService} against {@link SimpleDateFormatDateService}.
+ */
+@Test(groups = "unit", testName = "LockFreeDateServiceTest")
+public class LockFreeDateServiceTest {
+   private final DateService expected = new SimpleDateFormatDateService();
+
+   public void testIsDefault() {
+      assertEquals(Guice.createInjector().getInstance(DateService.class).getClass(), LockFreeDateService.class);
+   }
+
+   public void testMatchesSimpleDateFormat() {
+      Random random = new Random(42);
+      // includes dates before 1970 and after 9999, which are left to SimpleDateFormat
+      long[] instants = new long[1000];
+      for (int i = 0; i < instants.length; ++i) {
+         instants[i] = random.nextLong() % 400000000000000L;
+      }
+      instants[0] = 0;
+      instants[1] = 951782400000L; // 2000-02-29
+      instants[2] = 253402300799999L; // 9999-12-31T23:59:59.999Z
+      for (long instant : instants) {
+         // a new service for every date, so that the cached second is not reused
+         DateService dateService = new LockFreeDateService();
+         Date date = new Date(instant);
+         assertEquals(dateService.cDateFormat(date), expected.cDateFormat(date));
+         assertEquals(dateService.rfc822DateFormat(date), expected.rfc822DateFormat(date));
+         assertEquals(dateService.iso8601DateFormat(date), expected.iso8601DateFormat(date));
+         assertEquals(dateService.iso8601SecondsDateFormat(date), expected.iso8601SecondsDateFormat(date));
+
+         String iso8601 = expected.iso8601DateFormat(date);
+         assertEquals(dateService.iso8601DateParse(iso8601), expected.iso8601DateParse(iso8601), iso8601);
+         String iso8601Seconds = expected.iso8601SecondsDateFormat(date);
+         assertEquals(dateService.iso8601SecondsDateParse(iso8601Seconds),
+               expected.iso8601SecondsDateParse(iso8601Seconds), iso8601Seconds);
+         String rfc822 = expected.rfc822DateFormat(date);
+         assertEquals(dateService.rfc822DateParse(rfc822), expected.rfc822DateParse(rfc822), rfc822);
+         String cDate = expected.cDateFormat(date);
+         assertEquals(dateService.cDateParse(cDate), expected.cDateParse(cDate), cDate);
+         // SimpleDateFormatDateService formats RFC 1123 in the default time zone
+         String rfc1123 = expected.rfc1123DateFormat(date);
+         assertEquals(dateService.rfc1123DateParse(rfc1123), expected.rfc1123DateParse(rfc1123), rfc1123);
+         assertEquals(expected.rfc1123DateParse(dateService.rfc1123DateFormat(date)),
+               expected.rfc1123DateParse(rfc1123), rfc1123);
+      }
+   }
+
+   public void testCachedSecondKeepsMillis() {
+      DateService dateService = new LockFreeDateService();
+      assertEquals(dateService.iso8601DateFormat(new Date(1236823207000L)), "2009-03-12T02:00:07.000Z");
+      assertEquals(dateService.iso8601DateFormat(new Date(1236823207045L)), "2009-03-12T02:00:07.045Z");
+      assertEquals(dateService.iso8601DateFormat(new Date(1236823207999L)), "2009-03-12T02:00:07.999Z");
+      assertEquals(dateService.rfc822DateFormat(new Date(1236823207000L)), "Thu, 12 Mar 2009 02:00:07 GMT");
+      assertEquals(dateService.rfc822DateFormat(new Date(1236823208000L)), "Thu, 12 Mar 2009 02:00:08 GMT");
+   }
+
+   public void testParsesOffsetsAndOutOfRangeFields() {
+      DateService dateService = new LockFreeDateService();
+      assertEquals(dateService.iso8601SecondsDateParse("2011-05-26T02:14:13-04:00").getTime(), 1306390453000L);
+      assertEquals(dateService.iso8601DateParse("2011-05-25 16:12:21.656+0000").getTime(), 1306339941656L);
+      assertEquals(dateService.iso8601DateParse("2011-11-07T11:19:13.38225Z").getTime(), 1320664753382L);
+      // lenient fields are left to SimpleDateFormat
+      assertEquals(dateService.rfc822DateParse("Thu, 31 Feb 2009 02:00:07 GMT"),
+            expected.rfc822DateParse("Thu, 31 Feb 2009 02:00:07 GMT"));
+   }
+}
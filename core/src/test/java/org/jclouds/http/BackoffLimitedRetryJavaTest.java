@@ -24,6 +24,9 @@ import static org.testng.Assert.fail;
 import java.util.Properties;
 
 import org.jclouds.http.config.JavaUrlHttpCommandExecutorServiceModule;
+import org.jclouds.metrics.InMemoryMetrics;
+import org.jclouds.metrics.Metrics.Timing;
+import org.jclouds.metrics.config.InMemoryMetricsModule;
 import org.testng.annotations.Test;
 
 import com.google.inject.Module;
@@ -80,6 +83,26 @@ public class BackoffLimitedRetryJavaTest extends BaseMockWebServerTest {
       }
    }
 
+   @Test
+   public void testRetryIsRecordedInMetrics() throws Exception {
+      MockWebServer server = mockWebServer(new MockResponse().setResponseCode(500), new MockResponse().setBody("foo"));
+      InMemoryMetrics metrics = new InMemoryMetrics();
+      IntegrationTestClient client = api(IntegrationTestClient.class, server.getUrl("/").toString(),
+            createConnectionModule(), new InMemoryMetricsModule(metrics));
+      try {
+         assertEquals(client.download(""), "foo");
+         String command = "IntegrationTestClient.download";
+         assertEquals(metrics.getRetryCount(command), 1);
+         assertEquals(metrics.getTimes(command, Timing.FIRST_BYTE).getCount(), 2);
+         assertEquals(metrics.getTimes(command, Timing.TOTAL).getCount(), 1);
+         assertEquals(metrics.getTimes(command, Timing.PARSE).getCount(), 1);
+         assertEquals(metrics.getBytesReceived(command).getSum(), 3);
+      } finally {
+         closeQuietly(client);
+         server.shutdown();
+      }
+   }
+
    @Test
    public void testMaximumRetriesSuccessful() throws Exception {
       MockWebServer server = mockWebServer();
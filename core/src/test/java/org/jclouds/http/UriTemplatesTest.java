@@ -18,6 +18,7 @@ package org.jclouds.http;
 
 import static org.jclouds.http.UriTemplates.expand;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -51,4 +52,9 @@ public class UriTemplatesTest {
    public void testMissingParamProceeds() {
       assertEquals(expand("/{user-dir}", ImmutableMap.of("user_dir", "foo")), "/{user-dir}");
    }
+
+   public void testNoParamsReturnsTemplate() {
+      String template = "/repos/user/repo?a=b";
+      assertSame(expand(template, ImmutableMap.of("user", "foo")), template);
+   }
 }
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.handlers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.handlers.AdmissionController.Permit;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+@Test(groups = "unit", testName = "AdmissionControllerTest")
+public class AdmissionControllerTest {
+
+   private final HttpCommand command = new HttpCommand(HttpRequest.builder().method("GET")
+         .endpoint("http://localhost/foo").build());
+   private final HttpResponse ok = HttpResponse.builder().statusCode(200).build();
+   private final HttpResponse slowDown = HttpResponse.builder().statusCode(503).build();
+
+   public void testDisabledByDefault() throws InterruptedException {
+      AdmissionController controller = new AdmissionController();
+      for (int i = 0; i < 100; i++) {
+         controller.acquire(command);
+      }
+      assertEquals(controller.getConcurrencyLimit("localhost"), 0);
+   }
+
+   public void testThrottledStatusCodes() {
+      AdmissionController controller = new AdmissionController();
+      assertTrue(controller.isThrottled(command, HttpResponse.builder().statusCode(429).build()));
+      assertTrue(controller.isThrottled(command, HttpResponse.builder().statusCode(431).build()));
+      assertTrue(controller.isThrottled(command, slowDown));
+      assertFalse(controller.isThrottled(command, HttpResponse.builder().statusCode(500).build()));
+      assertFalse(controller.isThrottled(command, ok));
+   }
+
+   public void testLimitHalvesOnThrottleAndGrowsOnSuccess() throws InterruptedException {
+      AdmissionController controller = new AdmissionController(0, 8);
+      assertEquals(controller.getConcurrencyLimit("localhost"), 8);
+
+      controller.acquire(command).release(command, slowDown);
+      assertEquals(controller.getConcurrencyLimit("localhost"), 4);
+      controller.acquire(command).release(command, slowDown);
+      assertEquals(controller.getConcurrencyLimit("localhost"), 2);
+
+      // about one more for each limit's worth of successes
+      for (int i = 0; i < 3; i++) {
+         controller.acquire(command).release(command, ok);
+      }
+      assertEquals(controller.getConcurrencyLimit("localhost"), 3);
+      for (int i = 0; i < 100; i++) {
+         controller.acquire(command).release(command, ok);
+      }
+      assertEquals(controller.getConcurrencyLimit("localhost"), 8);
+
+      // failures without a response neither grow nor shrink the limit
+      controller.acquire(command).release(command, null);
+      assertEquals(controller.getConcurrencyLimit("localhost"), 8);
+   }
+
+   public void testThrottlesOfRequestsSentBeforeADecreaseAreIgnored() throws InterruptedException {
+      AdmissionController controller = new AdmissionController(0, 8);
+      Permit first = controller.acquire(command);
+      Permit second = controller.acquire(command);
+      first.release(command, slowDown);
+      second.release(command, slowDown);
+      assertEquals(controller.getConcurrencyLimit("localhost"), 4);
+   }
+
+   public void testLimitsRequestsInFlightPerHost() throws Exception {
+      final AdmissionController controller = new AdmissionController(0, 1);
+      Permit permit = controller.acquire(command);
+      // other hosts have their own limit
+      controller.acquire(new HttpCommand(HttpRequest.builder().method("GET").endpoint("http://otherhost").build()));
+
+      final CountDownLatch acquired = new CountDownLatch(1);
+      Thread waiting = new Thread() {
+         public void run() {
+            try {
+               controller.acquire(command);
+               acquired.countDown();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      };
+      waiting.start();
+      assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+      permit.release(command, ok);
+      assertTrue(acquired.await(5, TimeUnit.SECONDS));
+   }
+
+   public void testRateLimit() throws InterruptedException {
+      AdmissionController controller = new AdmissionController(50, 0);
+      long start = System.nanoTime();
+      for (int i = 0; i < 61; i++) {
+         controller.acquire(command).release(command, ok);
+      }
+      // the first 51 requests are sent at once, the next ten at 20 millisecond intervals
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+   }
+
+   public void testRateLimitAllowsABurstAfterAQuietPeriod() throws InterruptedException {
+      AdmissionController controller = new AdmissionController(20, 0);
+      long start = System.nanoTime();
+      for (int i = 0; i < 20; i++) {
+         controller.acquire(command).release(command, ok);
+      }
+      // a second's worth of requests is stored while the host is idle
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+
+      start = System.nanoTime();
+      for (int i = 0; i < 5; i++) {
+         controller.acquire(command).release(command, ok);
+      }
+      // once it is spent, requests are spaced at 50 milliseconds
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+
+      Thread.sleep(500);
+      start = System.nanoTime();
+      for (int i = 0; i < 8; i++) {
+         controller.acquire(command).release(command, ok);
+      }
+      // half a second stores half a second's worth
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+   }
+
+   public void testAsyncPermitsAreHandedOverOnRelease() throws Exception {
+      AdmissionController controller = new AdmissionController(0, 1);
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+      try {
+         ListenableFuture<Permit> first = controller.acquireAsync(command, scheduler);
+         ListenableFuture<Permit> second = controller.acquireAsync(command, scheduler);
+         ListenableFuture<Permit> third = controller.acquireAsync(command, scheduler);
+         assertTrue(first.isDone());
+         assertFalse(second.isDone());
+
+         first.get().release(command, ok);
+         assertTrue(second.isDone());
+         assertFalse(third.isDone());
+         second.get().release(command, ok);
+         third.get(5, TimeUnit.SECONDS).release(command, ok);
+      } finally {
+         scheduler.shutdownNow();
+      }
+   }
+
+   public void testAsyncRateLimitIsScheduled() throws Exception {
+      AdmissionController controller = new AdmissionController(50, 0);
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+      try {
+         long start = System.nanoTime();
+         List<ListenableFuture<Permit>> permits = Lists.newArrayList();
+         for (int i = 0; i < 61; i++) {
+            permits.add(controller.acquireAsync(command, scheduler));
+         }
+         // returns at once, and the permits after the first 51 complete at 20 millisecond intervals
+         assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+         assertTrue(permits.get(0).isDone());
+         Futures.allAsList(permits).get(5, TimeUnit.SECONDS);
+         assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+      } finally {
+         scheduler.shutdownNow();
+      }
+   }
+}
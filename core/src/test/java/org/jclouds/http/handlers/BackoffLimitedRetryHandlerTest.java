@@ -18,12 +18,14 @@ package org.jclouds.http.handlers;
 
 import static org.jclouds.reflect.Reflection2.method;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.jclouds.Constants;
 import org.jclouds.ContextBuilder;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpRequest;
@@ -38,6 +40,10 @@ import org.testng.annotations.Test;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.Invokable;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
 
 @Test(groups = "unit", testName = "BackoffLimitedRetryHandlerTest")
 public class BackoffLimitedRetryHandlerTest {
@@ -197,4 +203,47 @@ public class BackoffLimitedRetryHandlerTest {
       assertEquals(handler.shouldRetryRequest(command, response), false); // Failure 6
    }
 
+   @Test
+   void testRetryBudgetLimitsRetriesToFractionOfRequests() throws SecurityException, NoSuchMethodException {
+      Injector injector = Guice.createInjector(new AbstractModule() {
+         @Override
+         protected void configure() {
+            bindConstant().annotatedWith(Names.named(Constants.PROPERTY_RETRY_BUDGET_RATIO)).to(0.5);
+            bindConstant().annotatedWith(Names.named(Constants.PROPERTY_RETRY_DELAY_START)).to(0L);
+         }
+      });
+      BackoffLimitedRetryHandler budgeted = injector.getInstance(BackoffLimitedRetryHandler.class);
+      RetryBudget budget = injector.getInstance(RetryBudget.class);
+      HttpResponse response = HttpResponse.builder().statusCode(500).build();
+
+      // the initial allowance
+      for (int i = 0; i < RetryBudget.MAX_TOKENS; ++i) {
+         assertTrue(budgeted.shouldRetryRequest(createCommand(), response));
+      }
+      assertFalse(budgeted.shouldRetryRequest(createCommand(), response));
+
+      // two more requests earn one more retry
+      budget.onRequest(createCommand());
+      budget.onRequest(createCommand());
+      assertTrue(budgeted.shouldRetryRequest(createCommand(), response));
+      assertFalse(budgeted.shouldRetryRequest(createCommand(), response));
+
+      assertEquals(budget.getRetryCount(), RetryBudget.MAX_TOKENS + 1);
+      assertEquals(budget.getRejectionCount(), 2);
+   }
+
+   @Test
+   void testDeferredDelaysAreAddedUpInsteadOfSlept() {
+      long startTime = System.nanoTime();
+      BackoffLimitedRetryHandler.beginDeferringDelays();
+      try {
+         handler.imposeBackoffExponentialDelay(500, 2, 1, 5, "TEST FAILURE: 1");
+         handler.imposeBackoffExponentialDelay(500, 2, 2, 5, "TEST FAILURE: 2");
+      } finally {
+         long deferred = BackoffLimitedRetryHandler.endDeferringDelays();
+         assertTrue(deferred >= 2500 && deferred < 2750, "deferred " + deferred);
+      }
+      assertTrue((System.nanoTime() - startTime) / 1000000 < 500);
+      assertEquals(BackoffLimitedRetryHandler.endDeferringDelays(), 0);
+   }
 }
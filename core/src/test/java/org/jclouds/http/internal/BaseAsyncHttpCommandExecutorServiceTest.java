@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.internal;
+
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.jclouds.Constants;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpUtils;
+import org.jclouds.http.IOExceptionRetryHandler;
+import org.jclouds.http.handlers.DelegatingErrorHandler;
+import org.jclouds.http.handlers.DelegatingRetryHandler;
+import org.jclouds.io.ContentMetadataCodec;
+import org.jclouds.rest.internal.BaseHttpApiMetadata;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.name.Names;
+
+@Test(groups = "unit", testName = "BaseAsyncHttpCommandExecutorServiceTest", singleThreaded = true)
+public class BaseAsyncHttpCommandExecutorServiceTest {
+
+   private ListeningExecutorService userExecutor;
+
+   @BeforeMethod
+   void createUserExecutor() {
+      userExecutor = listeningDecorator(Executors.newSingleThreadExecutor());
+   }
+
+   @AfterMethod
+   void shutdownUserExecutor() {
+      userExecutor.shutdownNow();
+   }
+
+   public void testBackoffDoesNotHoldUserThread() throws Exception {
+      ScriptedAsyncService service = service(ImmutableMap.of(Constants.PROPERTY_RETRY_DELAY_START, "300"));
+      service.responses.add(Futures.immediateFuture(HttpResponse.builder().statusCode(500).build()));
+
+      long start = System.nanoTime();
+      ListenableFuture<HttpResponse> response = service.submit(command());
+      // the only user thread is free while the retry waits
+      while (service.sent.get() < 1) {
+         Thread.sleep(1);
+      }
+      userExecutor.submit(new Runnable() {
+         public void run() {
+         }
+      }).get(100, TimeUnit.MILLISECONDS);
+      assertEquals(service.sent.get(), 1);
+
+      assertEquals(response.get(5, TimeUnit.SECONDS).getStatusCode(), 200);
+      assertEquals(service.sent.get(), 2);
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 300);
+   }
+
+   @Test(timeOut = 30000)
+   public void testSaturatedLimitsDoNotBlockCallersOrUserThreads() throws Exception {
+      ScriptedAsyncService service = service(ImmutableMap.of(Constants.PROPERTY_ADAPTIVE_CONCURRENCY_LIMIT, "1",
+            Constants.PROPERTY_RATE_LIMIT, "100", Constants.PROPERTY_RETRY_DELAY_START, "10"));
+      service.hold = true;
+
+      long start = System.nanoTime();
+      List<ListenableFuture<HttpResponse>> responses = Lists.newArrayList();
+      for (int i = 0; i < 20; i++) {
+         responses.add(service.submit(command()));
+      }
+      // none of the callers waited for the single slot
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+      // the first response is throttled and retried, the others succeed one at a time
+      service.held.poll(5, TimeUnit.SECONDS).set(HttpResponse.builder().statusCode(503).build());
+      for (int i = 0; i < 20; i++) {
+         SettableFuture<HttpResponse> response = service.held.poll(5, TimeUnit.SECONDS);
+         assertNotNull(response, "request " + i + " was not sent");
+         assertNull(service.held.poll(20, TimeUnit.MILLISECONDS), "more than one request in flight");
+         response.set(HttpResponse.builder().statusCode(200).build());
+      }
+      for (ListenableFuture<HttpResponse> response : responses) {
+         assertEquals(response.get(5, TimeUnit.SECONDS).getStatusCode(), 200);
+      }
+      assertEquals(service.sent.get(), 21);
+   }
+
+   private static HttpCommand command() {
+      return new HttpCommand(HttpRequest.builder().method("GET").endpoint("http://localhost/foo").build());
+   }
+
+   private ScriptedAsyncService service(Map<String, String> overrides) {
+      final Properties properties = BaseHttpApiMetadata.defaultProperties();
+      properties.putAll(overrides);
+      return Guice.createInjector(new AbstractModule() {
+         @Override
+         protected void configure() {
+            Names.bindProperties(binder(), properties);
+            bind(ListeningExecutorService.class).annotatedWith(Names.named(Constants.PROPERTY_USER_THREADS))
+                  .toInstance(userExecutor);
+         }
+      }).getInstance(ScriptedAsyncService.class);
+   }
+
+   /**
+    * Answers requests with the queued responses, then with 200 OK, or holds them for the test to
+    * answer.
+    */
+   private static class ScriptedAsyncService extends BaseAsyncHttpCommandExecutorService<HttpRequest> {
+      final BlockingQueue<ListenableFuture<HttpResponse>> responses = new LinkedBlockingQueue<ListenableFuture<HttpResponse>>();
+      final AtomicInteger sent = new AtomicInteger();
+      final BlockingQueue<SettableFuture<HttpResponse>> held = new LinkedBlockingQueue<SettableFuture<HttpResponse>>();
+      volatile boolean hold;
+
+      @Inject
+      ScriptedAsyncService(HttpUtils utils, ContentMetadataCodec contentMetadataCodec,
+            DelegatingRetryHandler retryHandler, IOExceptionRetryHandler ioRetryHandler,
+            DelegatingErrorHandler errorHandler, HttpWire wire,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
+         super(utils, contentMetadataCodec, retryHandler, ioRetryHandler, errorHandler, wire, userExecutor);
+      }
+
+      @Override
+      protected HttpRequest convert(HttpRequest request) {
+         return request;
+      }
+
+      @Override
+      protected ListenableFuture<HttpResponse> invokeAsync(HttpRequest request) {
+         sent.incrementAndGet();
+         if (hold) {
+            SettableFuture<HttpResponse> response = SettableFuture.create();
+            held.add(response);
+            return response;
+         }
+         ListenableFuture<HttpResponse> response = responses.poll();
+         return response != null ? response : Futures.immediateFuture(HttpResponse.builder().statusCode(200).build());
+      }
+
+      @Override
+      protected void cleanup(HttpRequest request) {
+      }
+   }
+}
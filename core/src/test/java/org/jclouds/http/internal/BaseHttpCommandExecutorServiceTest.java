@@ -31,6 +31,8 @@ import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -41,14 +43,21 @@ import org.jclouds.http.HttpException;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpRequestFilter;
 import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
 import org.jclouds.http.HttpUtils;
 import org.jclouds.http.IOExceptionRetryHandler;
+import org.jclouds.http.handlers.AdmissionController;
+import org.jclouds.http.handlers.AdmissionController.Permit;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
 import org.jclouds.http.handlers.DelegatingErrorHandler;
 import org.jclouds.http.handlers.DelegatingRetryHandler;
 import org.jclouds.io.ContentMetadataCodec;
+import org.jclouds.metrics.InMemoryMetrics;
 import org.jclouds.rest.internal.BaseHttpApiMetadata;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -199,6 +208,38 @@ public class BaseHttpCommandExecutorServiceTest {
       assertEquals(response.getPayload().openStream().read(), -1);
    }
 
+   public void testRecordsRetriesRedirectsAndBytes() {
+      final HttpCommand command = new HttpCommand(HttpRequest.builder().endpoint("http://localhost").method("GET")
+            .payload("abc").build(), "ThingApi.get");
+      HttpResponse error = HttpResponse.builder().statusCode(500).build();
+      HttpResponse redirect = HttpResponse.builder().statusCode(302).build();
+
+      DelegatingRetryHandler retryHandler = EasyMock.createMock(DelegatingRetryHandler.class);
+      DelegatingErrorHandler errorHandler = EasyMock.createMock(DelegatingErrorHandler.class);
+      expect(retryHandler.shouldRetryRequest(command, error)).andReturn(true);
+      expect(retryHandler.shouldRetryRequest(command, redirect)).andAnswer(new IAnswer<Boolean>() {
+         public Boolean answer() {
+            command.incrementRedirectCount();
+            return true;
+         }
+      });
+      replay(retryHandler, errorHandler);
+
+      BaseHttpCommandExecutorService<?> service = mockHttpCommandExecutorService(retryHandler, errorHandler);
+      InMemoryMetrics metrics = new InMemoryMetrics();
+      service.metrics = metrics;
+      assertTrue(service.shouldContinue(command, error));
+      assertTrue(service.shouldContinue(command, redirect));
+      service.received(command, command.getCurrentRequest(), HttpResponse.builder().statusCode(200)
+            .payload("abcdef").build());
+
+      verify(retryHandler, errorHandler);
+      assertEquals(metrics.getRetryCount("ThingApi.get"), 1);
+      assertEquals(metrics.getRedirectCount("ThingApi.get"), 1);
+      assertEquals(metrics.getBytesSent("ThingApi.get").getSum(), 3);
+      assertEquals(metrics.getBytesReceived("ThingApi.get").getSum(), 6);
+   }
+
    public void testDoNotRetryPostOnException() throws IOException {
       helperRetryOnlyIdempotent("POST");
    }
@@ -234,6 +275,94 @@ public class BaseHttpCommandExecutorServiceTest {
       verify(ioRetryHandler);
    }
 
+   public void testBackoffIsWaitedForOutsideTheRetryHandler() {
+      final IOException error = new IOException("test exception");
+      HttpRequestFilter throwingFilter = new HttpRequestFilter() {
+         @Override
+         public HttpRequest filter(HttpRequest request) throws HttpException {
+            throw new HttpException(error);
+         }
+      };
+      HttpCommand command = new HttpCommand(HttpRequest.builder().endpoint("http://localhost").method("GET")
+            .filter(throwingFilter).build());
+      final long[] handlerNanos = new long[1];
+      IOExceptionRetryHandler ioRetryHandler = new IOExceptionRetryHandler() {
+         final BackoffLimitedRetryHandler backoff = new BackoffLimitedRetryHandler();
+
+         @Override
+         public boolean shouldRetryRequest(HttpCommand command, IOException error) {
+            if (command.getFailureCount() > 0) {
+               return false;
+            }
+            long start = System.nanoTime();
+            try {
+               // imposes a delay of 50 to 55 milliseconds
+               return backoff.shouldRetryRequest(command, error);
+            } finally {
+               handlerNanos[0] = System.nanoTime() - start;
+            }
+         }
+      };
+
+      BaseHttpCommandExecutorService<?> service = mockHttpCommandExecutorService(ioRetryHandler);
+      long start = System.nanoTime();
+      try {
+         service.invoke(command);
+         fail("Expected to fail due to throwing filter");
+      } catch (HttpResponseException e) {
+      }
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(handlerNanos[0]) < 25, "handler took " + handlerNanos[0] + "ns");
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+   }
+
+   public void testPermitIsAcquiredBeforeTheRequestIsFiltered() {
+      final List<String> events = Lists.newArrayList();
+      HttpRequestFilter filter = new HttpRequestFilter() {
+         @Override
+         public HttpRequest filter(HttpRequest request) throws HttpException {
+            events.add("filter");
+            throw new HttpException("stop here");
+         }
+      };
+      HttpCommand command = new HttpCommand(HttpRequest.builder().endpoint("http://localhost").method("POST")
+            .filter(filter).build());
+      BaseHttpCommandExecutorService<?> service = mockHttpCommandExecutorService(
+            EasyMock.createNiceMock(IOExceptionRetryHandler.class));
+      service.admissionController = new AdmissionController() {
+         @Override
+         public Permit acquire(HttpCommand command) throws InterruptedException {
+            events.add("acquire");
+            return super.acquire(command);
+         }
+      };
+      try {
+         service.invoke(command);
+         fail("Expected to fail due to throwing filter");
+      } catch (HttpResponseException e) {
+      }
+      assertEquals(events, ImmutableList.of("acquire", "filter"));
+   }
+
+   public void testInterruptIsRestoredWhileWaitingForAPermit() {
+      HttpCommand command = mockHttpCommand();
+      BaseHttpCommandExecutorService<?> service = mockHttpCommandExecutorService(
+            EasyMock.createNiceMock(IOExceptionRetryHandler.class));
+      service.admissionController = new AdmissionController() {
+         @Override
+         public Permit acquire(HttpCommand command) throws InterruptedException {
+            throw new InterruptedException();
+         }
+      };
+      try {
+         service.invoke(command);
+         fail("Expected to fail when interrupted");
+      } catch (HttpResponseException e) {
+         assertTrue(e.getCause() instanceof InterruptedException);
+      } finally {
+         assertTrue(Thread.interrupted());
+      }
+   }
+
    private HttpCommand mockHttpCommand() {
       return new HttpCommand(HttpRequest.builder().endpoint("http://localhost").method("mock").build());
    }
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.io.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.jclouds.io.Payload;
+import org.jclouds.io.PayloadSlicer;
+import org.jclouds.io.Payloads;
+import org.jclouds.io.payloads.FileRegionPayload;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.inject.Guice;
+
+@Test(groups = "unit", testName = "FileRegionPayloadSlicerTest")
+public class FileRegionPayloadSlicerTest {
+   private final PayloadSlicer slicer = new FileRegionPayloadSlicer();
+   private final byte[] content = new byte[100000];
+   private File file;
+
+   @BeforeClass
+   public void createFile() throws IOException {
+      for (int i = 0; i < content.length; i++) {
+         content[i] = (byte) (i * 31);
+      }
+      file = File.createTempFile("FileRegionPayloadSlicerTest", ".bin");
+      Files.write(content, file);
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void deleteFile() {
+      if (file != null) {
+         file.delete();
+      }
+   }
+
+   public void testIsDefault() {
+      assertEquals(Guice.createInjector().getInstance(PayloadSlicer.class).getClass(), FileRegionPayloadSlicer.class);
+   }
+
+   public void testSliceFile() throws IOException {
+      Payload payload = Payloads.newFilePayload(file);
+      payload.getContentMetadata().setContentType("application/octet-stream");
+
+      Payload slice = slicer.slice(payload, 1000, 2000);
+
+      assertTrue(slice instanceof FileRegionPayload, slice.getClass().toString());
+      assertEquals(slice.getContentMetadata().getContentLength(), Long.valueOf(2000));
+      assertEquals(slice.getContentMetadata().getContentType(), "application/octet-stream");
+      assertEquals(ByteStreams.toByteArray(slice.openStream()), expected(1000, 2000));
+   }
+
+   public void testSliceOfSlice() throws IOException {
+      Payload slice = slicer.slice(slicer.slice(Payloads.newFilePayload(file), 1000, 2000), 500, 5000);
+
+      FileRegionPayload region = (FileRegionPayload) slice;
+      assertEquals(region.getOffset(), 1500);
+      assertEquals(region.getLength(), 1500);
+      assertEquals(ByteStreams.toByteArray(slice.openStream()), expected(1500, 1500));
+   }
+
+   public void testIterableSlice() throws IOException {
+      List<Payload> parts = ImmutableList.copyOf(slicer.slice(Payloads.newFilePayload(file), 30000));
+
+      assertEquals(parts.size(), 4);
+      for (int i = 0; i < parts.size(); i++) {
+         int length = i < 3 ? 30000 : 10000;
+         assertTrue(parts.get(i) instanceof FileRegionPayload);
+         assertEquals(parts.get(i).getContentMetadata().getContentLength(), Long.valueOf(length));
+         assertEquals(ByteStreams.toByteArray(parts.get(i).openStream()), expected(i * 30000, length));
+      }
+
+      List<Payload> subparts = ImmutableList.copyOf(slicer.slice(parts.get(1), 20000));
+      assertEquals(subparts.size(), 2);
+      assertEquals(ByteStreams.toByteArray(subparts.get(1).openStream()), expected(50000, 10000));
+   }
+
+   public void testHashUsesRegion() throws IOException {
+      FileRegionPayload region = new FileRegionPayload(file, 12345, 54321);
+
+      assertEquals(region.getRawContent().hash(Hashing.md5()), Hashing.md5().hashBytes(expected(12345, 54321)));
+      assertEquals(region.getRawContent().slice(100, 1000000).hash(Hashing.sha256()),
+            Hashing.sha256().hashBytes(expected(12445, 54221)));
+   }
+
+   private byte[] expected(int offset, int length) throws IOException {
+      return ByteSource.wrap(content).slice(offset, length).read();
+   }
+}
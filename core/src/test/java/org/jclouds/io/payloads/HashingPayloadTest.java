@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.io.payloads;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.hash.Hashing.md5;
+import static com.google.common.hash.Hashing.sha1;
+import static com.google.common.hash.Hashing.sha256;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.jclouds.io.ByteStreams2;
+import org.jclouds.io.Hashing2;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+
+@Test(groups = "unit", testName = "HashingPayloadTest")
+public class HashingPayloadTest {
+
+   public void testCrc32c() {
+      // test vectors from RFC 3720 B.4
+      assertEquals(Hashing2.crc32c().hashBytes(new byte[32]).asInt(), 0x8a9136aa);
+      byte[] ones = new byte[32];
+      Arrays.fill(ones, (byte) 0xff);
+      assertEquals(Hashing2.crc32c().hashBytes(ones).asInt(), 0x62a8ab43);
+      byte[] ascending = new byte[32];
+      for (int i = 0; i < ascending.length; i++) {
+         ascending[i] = (byte) i;
+      }
+      assertEquals(Hashing2.crc32c().hashBytes(ascending).asInt(), 0x46dd794e);
+      assertEquals(Hashing2.crc32c().hashString("123456789", UTF_8).asInt(), 0xe3069283);
+      assertEquals(Hashing2.crc32c().newHasher().putInt(0x34333231).putShort((short) 0x3635)
+            .putBytes("789".getBytes(UTF_8)).hash().asInt(), 0xe3069283);
+   }
+
+   public void testHashesComputedWhileRead() throws IOException {
+      byte[] content = content(200000);
+      HashingPayload payload = new HashingPayload(Payloads.newByteArrayPayload(content), md5(), sha256(),
+            Hashing2.crc32c());
+      assertTrue(payload.getHashes().isEmpty());
+
+      InputStream in = payload.openStream();
+      assertEquals(ByteStreams.toByteArray(in), content);
+      in.close();
+
+      assertEquals(payload.getHashes().get(md5()), md5().hashBytes(content));
+      assertEquals(payload.getHashes().get(sha256()), sha256().hashBytes(content));
+      assertEquals(payload.getHashes().get(Hashing2.crc32c()), Hashing2.crc32c().hashBytes(content));
+   }
+
+   public void testStreamClosedAtItsEndIsHashed() throws IOException {
+      byte[] content = content(100);
+      HashingPayload payload = new HashingPayload(Payloads.newByteArrayPayload(content), md5());
+      InputStream in = payload.openStream();
+      // as a driver which stops after the content length does
+      ByteStreams.readFully(in, new byte[100]);
+      in.close();
+      assertEquals(payload.getHashes().get(md5()), md5().hashBytes(content));
+   }
+
+   public void testEqualWhenDelegatesAreEqual() {
+      assertEquals(new HashingPayload(Payloads.newStringPayload("foo"), md5()),
+            new HashingPayload(Payloads.newStringPayload("foo"), sha1()));
+   }
+
+   public void testPartialReadDoesNotHash() throws IOException {
+      HashingPayload payload = new HashingPayload(Payloads.newByteArrayPayload(content(100)), md5());
+      InputStream in = payload.openStream();
+      ByteStreams.skipFully(in, 50);
+      in.close();
+      assertTrue(payload.getHashes().isEmpty());
+   }
+
+   public void testHashReadsOnceForAll() throws IOException {
+      final byte[] content = content(1000);
+      final int[] opened = new int[1];
+      Payload counting = Payloads.newByteSourcePayload(new ByteSource() {
+         @Override
+         public InputStream openStream() throws IOException {
+            opened[0]++;
+            return ByteSource.wrap(content).openStream();
+         }
+      });
+      HashingPayload payload = new HashingPayload(counting, md5(), sha1());
+
+      assertEquals(payload.hash(sha1()), sha1().hashBytes(content));
+      assertEquals(payload.hash(md5()), md5().hashBytes(content));
+      assertEquals(opened[0], 1);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testHashOfUnreadInputStreamFails() throws IOException {
+      new HashingPayload(Payloads.newInputStreamPayload(ByteSource.wrap(content(10)).openStream()), md5()).hash(md5());
+   }
+
+   public void testHashAndCloseMany() throws IOException {
+      byte[] content = content(5000);
+      Map<HashFunction, HashCode> hashes = ByteStreams2.hashAndClose(ByteSource.wrap(content).openStream(),
+            ImmutableSet.of(md5(), sha1()));
+      assertEquals(hashes.get(md5()), md5().hashBytes(content));
+      assertEquals(hashes.get(sha1()), sha1().hashBytes(content));
+   }
+
+   private static byte[] content(int length) {
+      byte[] content = new byte[length];
+      for (int i = 0; i < length; i++) {
+         content[i] = (byte) (i * 7);
+      }
+      return content;
+   }
+}
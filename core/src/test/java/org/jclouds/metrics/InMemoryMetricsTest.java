@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.metrics;
+
+import static org.testng.Assert.assertEquals;
+
+import org.jclouds.Fallbacks.NullOnNotFoundOr404;
+import org.jclouds.metrics.Metrics.Timing;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+@Test(groups = "unit", testName = "InMemoryMetricsTest")
+public class InMemoryMetricsTest {
+
+   public void testHistogram() {
+      Histogram histogram = new Histogram();
+      assertEquals(histogram.getCount(), 0);
+      assertEquals(histogram.getMin(), 0);
+      assertEquals(histogram.getMax(), 0);
+      assertEquals(histogram.getQuantile(0.5), 0);
+      for (long value = 1; value <= 100; value++) {
+         histogram.update(value);
+      }
+      assertEquals(histogram.getCount(), 100);
+      assertEquals(histogram.getSum(), 5050);
+      assertEquals(histogram.getMin(), 1);
+      assertEquals(histogram.getMax(), 100);
+      assertEquals(histogram.getMean(), 50.5);
+      // 50 is in the bucket from 32 to 63, and 99 in the one from 64 to 127, which is capped by the maximum
+      assertEquals(histogram.getQuantile(0.5), 63);
+      assertEquals(histogram.getQuantile(0.99), 100);
+      assertEquals(histogram.getQuantile(0), 1);
+   }
+
+   public void testHistogramOfLargeValues() {
+      Histogram histogram = new Histogram();
+      histogram.update(0);
+      histogram.update(Long.MAX_VALUE);
+      assertEquals(histogram.getQuantile(0.5), 0);
+      assertEquals(histogram.getQuantile(1), Long.MAX_VALUE);
+   }
+
+   public void testRecordsPerCommand() {
+      InMemoryMetrics metrics = new InMemoryMetrics();
+      metrics.recordTime("ThingApi.get", Timing.TOTAL, 5);
+      metrics.recordTime("ThingApi.get", Timing.TOTAL, 7);
+      metrics.recordBytesSent("ThingApi.put", 1024);
+      metrics.recordBytesReceived("ThingApi.get", 2048);
+      metrics.recordRetry("ThingApi.get");
+      metrics.recordRedirect("ThingApi.get");
+      metrics.recordError("ThingApi.get", new IllegalStateException());
+      metrics.recordFallback("ThingApi.get", NullOnNotFoundOr404.class);
+      metrics.recordFallback("ThingApi.get", NullOnNotFoundOr404.class);
+
+      assertEquals(metrics.getCommands(), ImmutableSet.of("ThingApi.get", "ThingApi.put"));
+      assertEquals(metrics.getTimes("ThingApi.get", Timing.TOTAL).getSum(), 12);
+      assertEquals(metrics.getTimes("ThingApi.get", Timing.PARSE).getCount(), 0);
+      assertEquals(metrics.getBytesSent("ThingApi.put").getSum(), 1024);
+      assertEquals(metrics.getBytesReceived("ThingApi.get").getSum(), 2048);
+      assertEquals(metrics.getRetryCount("ThingApi.get"), 1);
+      assertEquals(metrics.getRedirectCount("ThingApi.get"), 1);
+      assertEquals(metrics.getErrorCount("ThingApi.get"), 1);
+      assertEquals(metrics.getFallbackCount("ThingApi.get", NullOnNotFoundOr404.class), 2);
+      assertEquals(metrics.getRetryCount("ThingApi.put"), 0);
+
+      metrics.clear();
+      assertEquals(metrics.getCommands(), ImmutableSet.of());
+      assertEquals(metrics.getTimes("ThingApi.get", Timing.TOTAL).getCount(), 0);
+   }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.providers;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.PerformanceTest;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Compares looking up providers in the cache of {@link Providers} with scanning the classpath, as
+ * every lookup, and so every {@link ContextBuilder#newBuilder(String)}, did before.
+ */
+@Test(groups = "performance", singleThreaded = true, timeOut = 2 * 60 * 1000, testName = "ProvidersPerformanceTest")
+public class ProvidersPerformanceTest extends PerformanceTest {
+
+   private final String id = new JcloudsTestComputeProviderMetadata().getId();
+
+   @Test
+   void testServiceLoaderScanResponseTime() {
+      for (int i = 0; i < LOOP_COUNT; i++)
+         Iterables.find(Providers.fromServiceLoader(), ProviderPredicates.id(id));
+   }
+
+   @Test
+   void testWithIdResponseTime() {
+      for (int i = 0; i < LOOP_COUNT; i++)
+         Providers.withId(id);
+   }
+
+   @Test
+   void testNewBuilderResponseTime() {
+      for (int i = 0; i < LOOP_COUNT; i++)
+         ContextBuilder.newBuilder(id);
+   }
+
+   @Test
+   void testServiceLoaderScanPerformanceInParallel() throws Throwable {
+      List<Runnable> tasks = Lists.newArrayList();
+      tasks.add(new Runnable() {
+         public void run() {
+            assertEquals(Iterables.find(Providers.fromServiceLoader(), ProviderPredicates.id(id)).getId(), id);
+         }
+      });
+      executeMultiThreadedPerformanceTest("testServiceLoaderScanPerformanceInParallel", tasks);
+   }
+
+   @Test
+   void testWithIdPerformanceInParallel() throws Throwable {
+      List<Runnable> tasks = Lists.newArrayList();
+      tasks.add(new Runnable() {
+         public void run() {
+            assertEquals(Providers.withId(id).getId(), id);
+         }
+      });
+      executeMultiThreadedPerformanceTest("testWithIdPerformanceInParallel", tasks);
+   }
+}
@@ -18,6 +18,7 @@ package org.jclouds.providers;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.fail;
 
 import java.util.NoSuchElementException;
@@ -25,8 +26,10 @@ import java.util.NoSuchElementException;
 import org.jclouds.apis.Balancer;
 import org.jclouds.apis.Compute;
 import org.jclouds.apis.Storage;
+import org.jclouds.osgi.ProviderRegistry;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 
 /**
@@ -133,4 +136,16 @@ public class ProvidersTest {
       assertEquals(Iterables.size(Providers.collocatedWith(testYetAnotherComputeProvider, Storage.class)), 0);
    }
 
+   @Test
+   public void testRegistryInvalidatesCache() {
+      Iterable<ProviderMetadata> cached = Providers.all();
+      // equal to one loaded from the classpath, so that other tests see the same providers
+      ProviderRegistry.registerProvider(testBlobstoreProvider);
+      try {
+         assertNotSame(Providers.all(), cached);
+         assertEquals(ImmutableSet.copyOf(Providers.all()), ImmutableSet.copyOf(cached));
+      } finally {
+         ProviderRegistry.unregisterProvider(testBlobstoreProvider);
+      }
+   }
 }
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.rest.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.List;
+
+import javax.ws.rs.PUT;
+
+import org.jclouds.rest.annotations.BinderParam;
+import org.jclouds.rest.binders.BindToStringPayload;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.Invokable;
+
+/**
+ * Tests the metadata read from the annotations of APIs not compiled with the processor.
+ */
+@Test(groups = "unit", testName = "InvocationMetadataTest")
+public class InvocationMetadataTest {
+
+   interface Api {
+      @PUT
+      void put(List<String> ids, @BinderParam(BindToStringPayload.class) String body);
+   }
+
+   public void testBindersAreKeyedByParameterIndex() throws NoSuchMethodException {
+      assertFalse(InvocationMetadata.precomputed(Api.class, "put",
+            ImmutableList.<Class<?>> of(List.class, String.class)).isPresent());
+      InvocationMetadata put = InvocationMetadata.of(Invokable.from(Api.class.getMethod("put", List.class,
+            String.class)));
+      // as the processor keys them
+      assertEquals(put.getBinders(), ImmutableMap.of(1, BindToStringPayload.class));
+   }
+}
@@ -31,6 +31,8 @@ import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpCommandExecutorService;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
+import org.jclouds.metrics.InMemoryMetrics;
+import org.jclouds.metrics.Metrics.Timing;
 import org.jclouds.reflect.Invocation;
 import org.jclouds.rest.config.InvocationConfig;
 import org.jclouds.rest.internal.InvokeHttpMethod.InvokeAndTransform;
@@ -44,6 +46,7 @@ import com.google.common.base.Functions;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.TimeLimiter;
 
 @Test(groups = "unit", singleThreaded = true)
@@ -130,4 +133,22 @@ public class InvokeHttpMethodTest {
       replay(http, timeLimiter, fallback, config);
       assertEquals(invokeHttpMethod.apply(get), fallbackResponse);
    }
+
+   public void testRecordsMetrics() throws Exception {
+      InMemoryMetrics metrics = new InMemoryMetrics();
+      invokeHttpMethod.metrics = metrics;
+      IllegalStateException exception = new IllegalStateException();
+      expect(config.getTimeoutNanos(get)).andReturn(Optional.<Long> absent());
+      expect(http.invoke(new HttpCommand(getRequest))).andThrow(exception);
+      expect(fallback.createOrPropagate(exception)).andReturn(fallbackResponse);
+      replay(http, timeLimiter, fallback, config);
+      assertEquals(invokeHttpMethod.apply(get), fallbackResponse);
+
+      assertEquals(metrics.getCommands(), ImmutableSet.of("ns:get"));
+      assertEquals(metrics.getTimes("ns:get", Timing.BUILD_REQUEST).getCount(), 1);
+      assertEquals(metrics.getTimes("ns:get", Timing.TOTAL).getCount(), 1);
+      assertEquals(metrics.getTimes("ns:get", Timing.PARSE).getCount(), 0);
+      assertEquals(metrics.getErrorCount("ns:get"), 1);
+      assertEquals(metrics.getFallbackCount("ns:get", fallback.getClass()), 1);
+   }
 }
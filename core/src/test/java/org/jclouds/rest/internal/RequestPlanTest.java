@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.rest.internal;
+
+import static org.jclouds.reflect.Reflection2.method;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpRequestFilter;
+import org.jclouds.http.options.HttpRequestOptions;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.rest.annotations.BinderParam;
+import org.jclouds.rest.annotations.OverrideRequestFilters;
+import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.SkipEncoding;
+import org.jclouds.rest.annotations.WrapWith;
+import org.jclouds.rest.binders.BindToStringPayload;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+@Test(groups = "unit", testName = "RequestPlanTest")
+public class RequestPlanTest {
+
+   static class Filter1 implements HttpRequestFilter {
+      public HttpRequest filter(HttpRequest request) {
+         return request;
+      }
+   }
+
+   static class Filter2 implements HttpRequestFilter {
+      public HttpRequest filter(HttpRequest request) {
+         return request;
+      }
+   }
+
+   @RequestFilters(Filter1.class)
+   @Consumes("application/json")
+   @SkipEncoding('/')
+   interface PlannedApi {
+      @GET
+      @Path("/{container}/{name}")
+      @Produces("text/plain")
+      String get(@PathParam("container") String container, @Nullable @QueryParam("a/b") String query,
+            @HeaderParam("X-Name") String name, HttpRequestOptions... options);
+
+      @POST
+      @RequestFilters(Filter2.class)
+      String post(@WrapWith("name") String name, @BinderParam(BindToStringPayload.class) String payload);
+
+      @POST
+      @RequestFilters(Filter2.class)
+      @OverrideRequestFilters
+      @Consumes("application/xml")
+      void override(@PathParam("name") String name);
+   }
+
+   public void testPlanIsCachedPerInvokable() {
+      assertSame(RequestPlan.of(method(PlannedApi.class, "override", String.class)),
+            RequestPlan.of(method(PlannedApi.class, "override", String.class)));
+   }
+
+   public void testParamsAndDefaults() {
+      RequestPlan plan = RequestPlan.of(method(PlannedApi.class, "get", String.class, String.class, String.class,
+            HttpRequestOptions[].class));
+      assertEquals(plan.parameterCount, 4);
+      assertEquals(plan.metadata.getHttpMethod().get(), "GET");
+      assertEquals(plan.filters, ImmutableList.of(Filter1.class));
+      assertEquals(plan.skipPathEncoding, ImmutableSet.of('/'));
+      assertTrue(plan.encodeFullPath);
+      assertEquals(plan.pathParams.size(), 1);
+      assertEquals(plan.pathParams.get(0).key, "container");
+      assertFalse(plan.pathParams.get(0).nullable);
+      assertEquals(plan.queryParams.get(0).index, 1);
+      assertEquals(plan.queryParams.get(0).key, "a/b");
+      assertTrue(plan.queryParams.get(0).nullable);
+      assertEquals(plan.headerParams.get(0).key, "X-Name");
+      assertEquals(plan.indexesOfOptions, ImmutableSet.of(3));
+      assertEquals(plan.produces, ImmutableList.of("text/plain"));
+      assertEquals(plan.accept, ImmutableSet.of("application/json"));
+      assertTrue(plan.binders.isEmpty());
+   }
+
+   public void testBinderParamsComeBeforeWrapWith() {
+      RequestPlan plan = RequestPlan.of(method(PlannedApi.class, "post", String.class, String.class));
+      assertEquals(plan.filters, ImmutableList.of(Filter1.class, Filter2.class));
+      assertEquals(plan.binders.size(), 2);
+      assertEquals(plan.binders.get(0).index, 1);
+      assertEquals(plan.binders.get(0).binder, BindToStringPayload.class);
+      assertEquals(plan.binders.get(1).index, 0);
+      assertEquals(plan.binders.get(1).wrapWith, "name");
+      assertNull(plan.produces);
+   }
+
+   public void testMethodAnnotationsOverrideType() {
+      RequestPlan plan = RequestPlan.of(method(PlannedApi.class, "override", String.class));
+      assertEquals(plan.filters, ImmutableList.of(Filter2.class));
+      assertEquals(plan.accept, ImmutableSet.of("application/xml"));
+   }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.rest.processor;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.jclouds.reflect.Reflection2.method;
+import static org.jclouds.reflect.Reflection2.typeToken;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.jclouds.Fallbacks.FalseOnNotFoundOr404;
+import org.jclouds.Fallbacks.NullOnNotFoundOr404;
+import org.jclouds.http.functions.ParseURIFromListOrLocationHeaderIf20x;
+import org.jclouds.rest.binders.BindToStringPayload;
+import org.jclouds.rest.binders.BindMapToStringPayload;
+import org.jclouds.rest.internal.InvocationMetadata;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.common.reflect.Invokable;
+
+@Test(groups = "unit", singleThreaded = true, testName = "InvocationMetadataProcessorTest")
+public class InvocationMetadataProcessorTest {
+
+   private static final String BASE_API = "package sample;\n"
+         + "import javax.ws.rs.*;\n"
+         + "import org.jclouds.rest.annotations.*;\n"
+         + "public interface BaseApi {\n"
+         + "   @HEAD @Path(\"/items/{id}\") @Fallback(org.jclouds.Fallbacks.FalseOnNotFoundOr404.class)\n"
+         + "   boolean exists(@PathParam(\"id\") String id, int[] ignored);\n"
+         + "   Object override();\n"
+         + "}\n";
+
+   private static final String SAMPLE_API = "package sample;\n"
+         + "import javax.ws.rs.*;\n"
+         + "import org.jclouds.rest.annotations.*;\n"
+         + "@Path(\"/v1\")\n"
+         + "public interface SampleApi extends BaseApi, java.io.Closeable {\n"
+         + "   @GET @Path(\"/items/{id}\") @Fallback(org.jclouds.Fallbacks.NullOnNotFoundOr404.class)\n"
+         + "   @ResponseParser(org.jclouds.http.functions.ParseURIFromListOrLocationHeaderIf20x.class)\n"
+         + "   java.net.URI get(@PathParam(\"id\") String id);\n"
+         + "   @PUT @MapBinder(org.jclouds.rest.binders.BindMapToStringPayload.class)\n"
+         + "   <T extends java.util.List<String>> void put(T ids,\n"
+         + "         @BinderParam(org.jclouds.rest.binders.BindToStringPayload.class) String body);\n"
+         + "   @GET @POST void ambiguous();\n"
+         + "   String override();\n"
+         + "   @Delegate Nested nested();\n"
+         + "   interface Nested {\n"
+         + "      @DELETE @Path(\"/\\u00e9t\\u00e9\") void delete();\n"
+         + "   }\n"
+         + "   interface NotAnApi {\n"
+         + "      String name();\n"
+         + "   }\n"
+         + "}\n";
+
+   private File dir;
+   private URLClassLoader loader;
+   private Class<?> sampleApi;
+   private Class<?> baseApi;
+
+   @BeforeClass
+   void compile() throws IOException, ClassNotFoundException {
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      if (compiler == null)
+         throw new SkipException("compiler not available");
+      dir = Files.createTempDir();
+      File sources = new File(dir, "sample");
+      sources.mkdirs();
+      Files.write(BASE_API, new File(sources, "BaseApi.java"), UTF_8);
+      Files.write(SAMPLE_API, new File(sources, "SampleApi.java"), UTF_8);
+      int result = compiler.run(null, null, null, "-processor", InvocationMetadataProcessor.class.getName(),
+            "-classpath", System.getProperty("java.class.path"), "-d", dir.getPath(), "-encoding", "UTF-8",
+            new File(sources, "BaseApi.java").getPath(), new File(sources, "SampleApi.java").getPath());
+      assertEquals(result, 0);
+      loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+      sampleApi = loader.loadClass("sample.SampleApi");
+      baseApi = loader.loadClass("sample.BaseApi");
+   }
+
+   @AfterClass(alwaysRun = true)
+   void deleteClasses() throws IOException {
+      if (dir != null)
+         deleteRecursively(dir);
+   }
+
+   public void testOnlyApisHaveResources() {
+      assertTrue(new File(dir, InvocationMetadata.RESOURCE_PREFIX + "sample.SampleApi.properties").exists());
+      assertTrue(new File(dir, InvocationMetadata.RESOURCE_PREFIX + "sample.SampleApi$Nested.properties").exists());
+      assertTrue(new File(dir, InvocationMetadata.RESOURCE_PREFIX + "sample.BaseApi.properties").exists());
+      assertFalse(new File(dir, InvocationMetadata.RESOURCE_PREFIX + "sample.SampleApi$NotAnApi.properties").exists());
+   }
+
+   public void testMethodOfApi() throws NoSuchMethodException {
+      InvocationMetadata get = precomputed(sampleApi, "get", String.class);
+      assertEquals(get.getDeclaringType(), sampleApi);
+      assertEquals(get.getHttpMethod(), Optional.of("GET"));
+      assertEquals(get.getTypePath(), Optional.of("/v1"));
+      assertEquals(get.getPath(), Optional.of("/items/{id}"));
+      assertEquals(get.getFallback(), Optional.of(NullOnNotFoundOr404.class));
+      assertEquals(get.getResponseParser(), Optional.of(ParseURIFromListOrLocationHeaderIf20x.class));
+      assertEquals(get.getMapBinder(), Optional.absent());
+      assertEquals(get.getBinders(), ImmutableMap.of());
+      assertEquals(InvocationMetadata.of(Invokable.from(sampleApi.getMethod("get", String.class))), get);
+   }
+
+   public void testErasedParametersAndBinders() {
+      InvocationMetadata put = precomputed(sampleApi, "put", List.class, String.class);
+      assertEquals(put.getHttpMethod(), Optional.of("PUT"));
+      assertEquals(put.getPath(), Optional.absent());
+      assertEquals(put.getMapBinder(), Optional.of(BindMapToStringPayload.class));
+      assertEquals(put.getBinders(), ImmutableMap.of(1, BindToStringPayload.class));
+   }
+
+   public void testInheritedMethodUsesPathOfApi() {
+      InvocationMetadata exists = precomputed(sampleApi, "exists", String.class, int[].class);
+      assertEquals(exists.getDeclaringType(), baseApi);
+      assertEquals(exists.getHttpMethod(), Optional.of("HEAD"));
+      assertEquals(exists.getTypePath(), Optional.of("/v1"));
+      assertEquals(exists.getFallback(), Optional.of(FalseOnNotFoundOr404.class));
+      assertEquals(precomputed(baseApi, "exists", String.class, int[].class).getTypePath(), Optional.absent());
+   }
+
+   public void testMostSpecificDeclaration() {
+      assertEquals(precomputed(sampleApi, "override").getDeclaringType(), sampleApi);
+      assertEquals(precomputed(sampleApi, "close").getDeclaringType(), java.io.Closeable.class);
+      assertEquals(precomputed(sampleApi, "nested").getHttpMethod(), Optional.absent());
+   }
+
+   public void testNestedApiAndEscapedPath() throws ClassNotFoundException {
+      Class<?> nested = loader.loadClass("sample.SampleApi$Nested");
+      assertEquals(precomputed(nested, "delete").getPath(), Optional.of("/\u00e9t\u00e9"));
+   }
+
+   public void testAmbiguousMethodLeftToReflection() throws NoSuchMethodException {
+      assertFalse(InvocationMetadata.precomputed(sampleApi, "ambiguous", ImmutableList.<Class<?>> of()).isPresent());
+      try {
+         InvocationMetadata.of(Invokable.from(sampleApi.getMethod("ambiguous")));
+         throw new AssertionError("expected IllegalStateException");
+      } catch (IllegalStateException e) {
+         assertTrue(e.getMessage().startsWith("You must specify at most one HttpMethod annotation"), e.getMessage());
+      }
+   }
+
+   public void testReflectionFindsPrecomputedMethods() throws NoSuchMethodException {
+      Invokable<?, Object> exists = method(sampleApi, "exists", String.class, int[].class);
+      assertEquals(exists, typeToken(sampleApi).method(baseApi.getMethod("exists", String.class, int[].class)));
+      assertEquals(exists.getOwnerType(), typeToken(sampleApi));
+      assertEquals(method(sampleApi, "override").getReturnType(), typeToken(String.class));
+   }
+
+   private static InvocationMetadata precomputed(Class<?> api, String name, Class<?>... parameterTypes) {
+      Optional<InvocationMetadata> metadata = InvocationMetadata.precomputed(api, name,
+            ImmutableList.copyOf(parameterTypes));
+      assertTrue(metadata.isPresent(), name);
+      return metadata.get();
+   }
+
+   private static void deleteRecursively(File file) throws IOException {
+      File[] children = file.listFiles();
+      if (children != null) {
+         for (File child : children)
+            deleteRecursively(child);
+      }
+      if (!file.delete())
+         throw new IOException("could not delete " + file);
+   }
+}
@@ -16,11 +16,13 @@
  */
 package org.jclouds.http.apachehc;
 
-import static com.google.common.hash.Hashing.md5;
 import static com.google.common.io.BaseEncoding.base64;
 import static org.jclouds.http.HttpUtils.filterOutContentHeaders;
 
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 
 import javax.inject.Inject;
@@ -38,7 +40,6 @@ import org.jclouds.http.handlers.DelegatingErrorHandler;
 import org.jclouds.http.handlers.DelegatingRetryHandler;
 import org.jclouds.http.internal.BaseHttpCommandExecutorService;
 import org.jclouds.http.internal.HttpWire;
-import org.jclouds.io.ByteStreams2;
 import org.jclouds.io.ContentMetadataCodec;
 import org.jclouds.io.Payload;
 import org.jclouds.io.Payloads;
@@ -66,7 +67,8 @@ public class ApacheHCHttpCommandExecutorService extends BaseHttpCommandExecutorS
    protected HttpUriRequest convert(HttpRequest request) throws IOException {
       HttpUriRequest returnVal = apacheHCUtils.convertToApacheRequest(request);
       if (request.getPayload() != null && request.getPayload().getContentMetadata().getContentMD5() != null) {
-         String md5 = base64().encode(ByteStreams2.hashAndClose(request.getPayload().openStream(), md5()).asBytes());
+         // the payload is only read when it is sent
+         String md5 = base64().encode(request.getPayload().getContentMetadata().getContentMD5());
          returnVal.addHeader("Content-MD5", md5);
       }
 
@@ -80,7 +82,11 @@ public class ApacheHCHttpCommandExecutorService extends BaseHttpCommandExecutorS
       Payload payload = null;
       if (apacheResponse.getEntity() != null)
          try {
-            payload = Payloads.newInputStreamPayload(apacheResponse.getEntity().getContent());
+            InputStream content = apacheResponse.getEntity().getContent();
+            if (apacheResponse instanceof Closeable) {
+               content = new AbortOnEarlyCloseInputStream(content, (Closeable) apacheResponse);
+            }
+            payload = Payloads.newInputStreamPayload(content);
             if (apacheResponse.getEntity().getContentLength() >= 0)
                payload.getContentMetadata().setContentLength(apacheResponse.getEntity().getContentLength());
             if (apacheResponse.getEntity().getContentType() != null)
@@ -110,6 +116,42 @@ public class ApacheHCHttpCommandExecutorService extends BaseHttpCommandExecutorS
       return nativeResponse;
    }
 
+   /**
+    * Closing the content of a pooled connection reads the rest of it, so that the connection can be
+    * reused, which may take long. A response closed before its end closes the connection instead.
+    */
+   private static final class AbortOnEarlyCloseInputStream extends FilterInputStream {
+      private final Closeable response;
+      private boolean eof;
+
+      AbortOnEarlyCloseInputStream(InputStream in, Closeable response) {
+         super(in);
+         this.response = response;
+      }
+
+      @Override
+      public int read() throws IOException {
+         int read = super.read();
+         eof |= read == -1;
+         return read;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+         int read = super.read(b, off, len);
+         eof |= read == -1;
+         return read;
+      }
+
+      @Override
+      public void close() throws IOException {
+         if (!eof) {
+            response.close();
+         }
+         super.close();
+      }
+   }
+
    @Override
    protected void cleanup(HttpUriRequest nativeResponse) {
       // No cleanup necessary
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.apachehc;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolEntry;
+import org.apache.http.pool.PoolStats;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+/**
+ * Pools connections, checking whether a connection was closed by the server only if it has been
+ * idle for longer than a threshold, rather than before every request.
+ * <p/>
+ * The stale check costs a blocking read of up to a millisecond, which is significant for small
+ * requests sent over a busy connection. Connections which are reused soon after being released are
+ * unlikely to have been closed, and an {@code IOException} on those is retried as usual.
+ */
+public class ApacheHCPoolingConnectionManager extends PoolingHttpClientConnectionManager {
+
+   private final long validateAfterInactivityMillis;
+   private final Set<HttpRoute> routes = Sets.newConcurrentHashSet();
+
+   /**
+    * @param timeToLiveMillis
+    *           how long a connection may be reused, or a negative value for no limit
+    * @param validateAfterInactivityMillis
+    *           how long a connection may be idle before it is checked, or a negative value never to
+    *           check
+    */
+   public ApacheHCPoolingConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry,
+         long timeToLiveMillis, long validateAfterInactivityMillis) {
+      super(socketFactoryRegistry, null, null, null, timeToLiveMillis, TimeUnit.MILLISECONDS);
+      this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+   }
+
+   @Override
+   public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+      routes.add(route);
+      return super.requestConnection(route, state);
+   }
+
+   /**
+    * Closes the leased connection if it was idle for too long and the server closed it, in which
+    * case the client opens a new one.
+    */
+   @Override
+   @SuppressWarnings("rawtypes")
+   protected HttpClientConnection leaseConnection(Future future, long timeout, TimeUnit unit)
+         throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+      @SuppressWarnings("unchecked")
+      HttpClientConnection connection = super.leaseConnection(future, timeout, unit);
+      // the future is done, so this returns immediately
+      PoolEntry<?, ?> entry = (PoolEntry<?, ?>) future.get();
+      if (validateAfterInactivityMillis >= 0 && connection.isOpen()
+            && System.currentTimeMillis() - entry.getUpdated() > validateAfterInactivityMillis
+            && connection.isStale()) {
+         entry.close();
+      }
+      return connection;
+   }
+
+   /**
+    * @return the number of leased, pending and available connections for each route requested
+    */
+   public Map<HttpRoute, PoolStats> getStatsByRoute() {
+      ImmutableMap.Builder<HttpRoute, PoolStats> stats = ImmutableMap.builder();
+      for (HttpRoute route : routes) {
+         stats.put(route, getStats(route));
+      }
+      return stats.build();
+   }
+}
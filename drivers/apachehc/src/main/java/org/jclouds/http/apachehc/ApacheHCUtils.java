@@ -51,6 +51,7 @@ import org.jclouds.io.payloads.BasePayload;
 import org.jclouds.io.payloads.ByteArrayPayload;
 import org.jclouds.io.payloads.DelegatingPayload;
 import org.jclouds.io.payloads.FilePayload;
+import org.jclouds.io.payloads.HashingPayload;
 import org.jclouds.io.payloads.StringPayload;
 
 import com.google.common.base.Throwables;
@@ -126,7 +127,9 @@ public class ApacheHCUtils {
    }
 
    public void addEntityForContent(HttpEntityEnclosingRequest apacheRequest, Payload payload) {
-      payload = payload instanceof DelegatingPayload ? DelegatingPayload.class.cast(payload).getDelegate() : payload;
+      // a HashingPayload computes its hashes while it is read, so it is sent through its own stream
+      payload = payload instanceof DelegatingPayload && !(payload instanceof HashingPayload)
+            ? DelegatingPayload.class.cast(payload).getDelegate() : payload;
       if (payload instanceof StringPayload) {
          StringEntity nStringEntity = null;
          try {
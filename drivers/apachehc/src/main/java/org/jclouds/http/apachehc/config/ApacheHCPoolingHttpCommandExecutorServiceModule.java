@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.http.apachehc.config;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpUtils;
+import org.jclouds.http.apachehc.ApacheHCHttpCommandExecutorService;
+import org.jclouds.http.apachehc.ApacheHCPoolingConnectionManager;
+import org.jclouds.http.config.ConfiguresHttpCommandExecutorService;
+import org.jclouds.http.config.SSLModule;
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.proxy.ProxyConfig;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.Scopes;
+
+/**
+ * Configures {@link ApacheHCHttpCommandExecutorService} with an {@link ApacheHCPoolingConnectionManager},
+ * which evicts idle and expired connections on a background thread and only checks connections
+ * which have been idle for a while before reusing them. Pool statistics are available from the
+ * bound {@link ApacheHCPoolingConnectionManager}.
+ * 
+ * Note that this uses threads
+ */
+@ConfiguresHttpCommandExecutorService
+public class ApacheHCPoolingHttpCommandExecutorServiceModule extends AbstractModule {
+
+   /**
+    * Integer property. default (8192)
+    * <p/>
+    * Size in bytes of the buffers used to read and write each connection.
+    */
+   public static final String PROPERTY_SOCKET_BUFFER_SIZE = "jclouds.apachehc.socket-buffer-size";
+
+   /**
+    * Long property. default (2000)
+    * <p/>
+    * How many milliseconds a pooled connection may be idle before it is checked for having been
+    * closed by the server. -1 means never.
+    */
+   public static final String PROPERTY_VALIDATE_AFTER_INACTIVITY = "jclouds.apachehc.validate-after-inactivity";
+
+   /**
+    * Long property. default (60000)
+    * <p/>
+    * How many milliseconds a pooled connection may be idle before it is closed. 0 means infinity.
+    */
+   public static final String PROPERTY_IDLE_CONNECTION_TIMEOUT = "jclouds.apachehc.idle-connection-timeout";
+
+   /**
+    * Long property. default (-1)
+    * <p/>
+    * How many milliseconds a connection may be reused after it was opened. -1 means infinity.
+    */
+   public static final String PROPERTY_CONNECTION_TIME_TO_LIVE = "jclouds.apachehc.connection-time-to-live";
+
+   /** How often idle and expired connections are evicted. */
+   static final long EVICTION_PERIOD_MILLIS = 5000;
+
+   @Override
+   protected void configure() {
+      install(new SSLModule());
+      bind(ApacheHCPoolingConnectionManager.class).toProvider(ConnectionManagerProvider.class).in(Scopes.SINGLETON);
+      bindClient();
+   }
+
+   @Provides
+   @Singleton
+   final HttpClient newHttpClient(HttpUtils utils, ProxyConfig config, ApacheHCPoolingConnectionManager cm) {
+      RequestConfig.Builder requestConfig = RequestConfig.custom()
+            // replaced by PROPERTY_VALIDATE_AFTER_INACTIVITY
+            .setStaleConnectionCheckEnabled(false);
+      if (utils.getConnectionTimeout() > 0) {
+         requestConfig.setConnectTimeout(utils.getConnectionTimeout());
+      }
+      if (utils.getSocketOpenTimeout() > 0) {
+         requestConfig.setSocketTimeout(utils.getSocketOpenTimeout());
+      }
+      // redirects, retries and content encoding are handled by jclouds
+      HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(cm)
+            .setDefaultRequestConfig(requestConfig.build()).disableRedirectHandling().disableAutomaticRetries()
+            .disableContentCompression();
+      if (config.useSystem()) {
+         builder.setRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()));
+      }
+      return builder.build();
+   }
+
+   protected void bindClient() {
+      bind(HttpCommandExecutorService.class).to(ApacheHCHttpCommandExecutorService.class).in(Scopes.SINGLETON);
+   }
+
+   private static final class ConnectionManagerProvider implements Provider<ApacheHCPoolingConnectionManager> {
+      private final HttpUtils utils;
+      private final Supplier<SSLContext> untrustedSSLContextProvider;
+      private final Closer closer;
+
+      @Inject(optional = true)
+      @Named(PROPERTY_SOCKET_BUFFER_SIZE)
+      private int socketBufferSize = 8 * 1024;
+
+      @Inject(optional = true)
+      @Named(PROPERTY_VALIDATE_AFTER_INACTIVITY)
+      private long validateAfterInactivity = 2000;
+
+      @Inject(optional = true)
+      @Named(PROPERTY_IDLE_CONNECTION_TIMEOUT)
+      private long idleConnectionTimeout = 60000;
+
+      @Inject(optional = true)
+      @Named(PROPERTY_CONNECTION_TIME_TO_LIVE)
+      private long connectionTimeToLive = -1;
+
+      @Inject
+      ConnectionManagerProvider(HttpUtils utils,
+            @Named("untrusted") Supplier<SSLContext> untrustedSSLContextProvider, Closer closer) {
+         this.utils = utils;
+         this.untrustedSSLContextProvider = untrustedSSLContextProvider;
+         this.closer = closer;
+      }
+
+      @Override
+      public ApacheHCPoolingConnectionManager get() {
+         final ApacheHCPoolingConnectionManager cm = new ApacheHCPoolingConnectionManager(RegistryBuilder
+               .<ConnectionSocketFactory> create().register("http", PlainConnectionSocketFactory.getSocketFactory())
+               .register("https", newSSLSocketFactory()).build(), connectionTimeToLive, validateAfterInactivity);
+         cm.setDefaultConnectionConfig(ConnectionConfig.custom().setBufferSize(socketBufferSize).build());
+         SocketConfig.Builder socketConfig = SocketConfig.custom().setTcpNoDelay(true);
+         if (utils.getSocketOpenTimeout() > 0) {
+            socketConfig.setSoTimeout(utils.getSocketOpenTimeout());
+         }
+         cm.setDefaultSocketConfig(socketConfig.build());
+         if (utils.getMaxConnections() > 0) {
+            cm.setMaxTotal(utils.getMaxConnections());
+         }
+         if (utils.getMaxConnectionsPerHost() > 0) {
+            cm.setDefaultMaxPerRoute(utils.getMaxConnectionsPerHost());
+         }
+
+         final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(
+               new ThreadFactoryBuilder().setNameFormat("apachehc connection evictor %d").setDaemon(true).build());
+         evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+               cm.closeExpiredConnections();
+               if (idleConnectionTimeout > 0) {
+                  cm.closeIdleConnections(idleConnectionTimeout, MILLISECONDS);
+               }
+            }
+         }, EVICTION_PERIOD_MILLIS, EVICTION_PERIOD_MILLIS, MILLISECONDS);
+         closer.addToClose(new Closeable() {
+            @Override
+            public void close() throws IOException {
+               evictor.shutdownNow();
+               cm.shutdown();
+            }
+         });
+         return cm;
+      }
+
+      private SSLConnectionSocketFactory newSSLSocketFactory() {
+         SSLContext context;
+         if (utils.trustAllCerts()) {
+            context = untrustedSSLContextProvider.get();
+         } else {
+            try {
+               context = SSLContext.getInstance("TLS");
+               context.init(null, null, null);
+            } catch (NoSuchAlgorithmException e) {
+               throw new IllegalStateException(e);
+            } catch (KeyManagementException e) {
+               throw new IllegalStateException(e);
+            }
+         }
+         return new SSLConnectionSocketFactory(context,
+               utils.relaxHostname() ? SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER
+                     : SSLConnectionSocketFactory.STRICT_HOSTNAME_VERIFIER);
+      }
+   }
+}
@@ -0,0 +1,574 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.netty.http;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.hash.Hashing.md5;
+import static com.google.common.io.BaseEncoding.base64;
+import static com.google.common.net.HttpHeaders.CONTENT_LENGTH;
+import static com.google.common.net.HttpHeaders.CONTENT_MD5;
+import static com.google.common.net.HttpHeaders.HOST;
+import static com.google.common.net.HttpHeaders.TRAILER;
+import static com.google.common.net.HttpHeaders.TRANSFER_ENCODING;
+import static com.google.common.net.HttpHeaders.USER_AGENT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.jclouds.http.HttpUtils.filterOutContentHeaders;
+import static org.jclouds.io.Payloads.newInputStreamPayload;
+import static org.jclouds.util.Closeables2.closeQuietly;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.DefaultFileRegion;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.SocketChannel;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpClientCodec;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.handler.ssl.SslHandler;
+import org.jboss.netty.handler.stream.ChunkedWriteHandler;
+import org.jboss.netty.handler.timeout.ReadTimeoutHandler;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jclouds.Constants;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpUtils;
+import org.jclouds.http.IOExceptionRetryHandler;
+import org.jclouds.http.handlers.DelegatingErrorHandler;
+import org.jclouds.http.handlers.DelegatingRetryHandler;
+import org.jclouds.http.internal.BaseAsyncHttpCommandExecutorService;
+import org.jclouds.http.internal.HttpWire;
+import org.jclouds.http.internal.JavaUrlHttpCommandExecutorService;
+import org.jclouds.io.ContentMetadataCodec;
+import org.jclouds.io.MutableContentMetadata;
+import org.jclouds.io.Payload;
+import org.jclouds.io.payloads.FileRegionPayload;
+import org.jclouds.io.payloads.HashingPayload;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Sends requests over non-blocking sockets, so that a few event loop threads keep any number of
+ * requests in flight. Connections are kept alive and reused for requests to the same host.
+ * <p/>
+ * Response bodies are streamed to the caller as they arrive, and request payloads are read on the
+ * {@link Constants#PROPERTY_USER_THREADS user threads}, so that payloads which block do not stall
+ * the event loop. Proxies are not supported.
+ */
+@Singleton
+public class NettyHttpCommandExecutorService extends BaseAsyncHttpCommandExecutorService<HttpRequest> {
+
+   private final Supplier<SSLContext> untrustedSSLContextProvider;
+   @Inject(optional = true)
+   private Supplier<SSLContext> sslContextSupplier;
+
+   private final NioClientSocketChannelFactory channelFactory;
+   private final HashedWheelTimer timer;
+   private final ConcurrentMap<String, Queue<Channel>> idleChannels = Maps.newConcurrentMap();
+   /** Every open channel, including those returned to the pool while closing. */
+   private final ChannelGroup openChannels = new DefaultChannelGroup("jclouds-netty");
+
+   @Inject
+   NettyHttpCommandExecutorService(HttpUtils utils, ContentMetadataCodec contentMetadataCodec,
+         DelegatingRetryHandler retryHandler, IOExceptionRetryHandler ioRetryHandler,
+         DelegatingErrorHandler errorHandler, HttpWire wire,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named("untrusted") Supplier<SSLContext> untrustedSSLContextProvider) {
+      super(utils, contentMetadataCodec, retryHandler, ioRetryHandler, errorHandler, wire, userExecutor);
+      this.untrustedSSLContextProvider = checkNotNull(untrustedSSLContextProvider, "untrustedSSLContextProvider");
+      this.channelFactory = new NioClientSocketChannelFactory(
+            Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("netty boss %d")
+                  .setDaemon(true).build()),
+            Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("netty i/o %d")
+                  .setDaemon(true).build()));
+      this.timer = new HashedWheelTimer(new ThreadFactoryBuilder().setNameFormat("netty timer %d")
+            .setDaemon(true).build());
+   }
+
+   /**
+    * The request is converted once a connection is ready, as the headers depend on it.
+    */
+   @Override
+   protected HttpRequest convert(HttpRequest request) {
+      return request;
+   }
+
+   @Override
+   protected ListenableFuture<HttpResponse> invokeAsync(HttpRequest request) {
+      URI endpoint = request.getEndpoint();
+      boolean ssl = "https".equalsIgnoreCase(endpoint.getScheme());
+      int port = endpoint.getPort() != -1 ? endpoint.getPort() : ssl ? 443 : 80;
+      Exchange exchange = new Exchange(endpoint.getScheme() + "://" + endpoint.getHost() + ":" + port, request);
+      Channel channel = pollIdleChannel(exchange.key);
+      if (channel != null) {
+         logger.trace("reusing connection to %s", exchange.key);
+         exchange.start(channel);
+      } else {
+         connect(exchange, endpoint.getHost(), port, ssl);
+      }
+      return exchange.response;
+   }
+
+   @Override
+   protected void cleanup(HttpRequest request) {
+   }
+
+   @PreDestroy
+   public void close() {
+      idleChannels.clear();
+      // the workers only stop once they have no channels
+      openChannels.close().awaitUninterruptibly();
+      timer.stop();
+      channelFactory.releaseExternalResources();
+   }
+
+   private void connect(final Exchange exchange, String host, int port, final boolean ssl) {
+      ChannelPipeline pipeline = Channels.pipeline();
+      if (ssl) {
+         pipeline.addLast("ssl", new SslHandler(createSSLEngine(host, port)));
+      }
+      pipeline.addLast("timeout", new ReadTimeoutHandler(timer, utils.getSocketOpenTimeout(), MILLISECONDS));
+      pipeline.addLast("codec", new HttpClientCodec());
+      pipeline.addLast("writer", new ChunkedWriteHandler());
+      pipeline.addLast("handler", new ResponseHandler());
+      SocketChannel channel = channelFactory.newChannel(pipeline);
+      openChannels.add(channel);
+      channel.getConfig().setConnectTimeoutMillis(utils.getConnectionTimeout());
+      channel.getConfig().setTcpNoDelay(true);
+      exchange.attach(channel);
+      channel.connect(new InetSocketAddress(host, port)).addListener(new ChannelFutureListener() {
+         @Override
+         public void operationComplete(ChannelFuture future) {
+            if (!future.isSuccess()) {
+               exchange.fail(future.getCause());
+            } else if (ssl) {
+               future.getChannel().getPipeline().get(SslHandler.class).handshake()
+                     .addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) {
+                           if (future.isSuccess()) {
+                              exchange.start(future.getChannel());
+                           } else {
+                              exchange.fail(future.getCause());
+                           }
+                        }
+                     });
+            } else {
+               exchange.start(future.getChannel());
+            }
+         }
+      });
+   }
+
+   private SSLEngine createSSLEngine(String host, int port) {
+      SSLContext context;
+      if (sslContextSupplier != null) {
+         // used for providers which e.g. use certs for authentication (like FGCP)
+         context = sslContextSupplier.get();
+      } else if (utils.trustAllCerts()) {
+         context = untrustedSSLContextProvider.get();
+      } else {
+         try {
+            context = SSLContext.getDefault();
+         } catch (NoSuchAlgorithmException e) {
+            throw propagate(e);
+         }
+      }
+      SSLEngine engine = context.createSSLEngine(host, port);
+      engine.setUseClientMode(true);
+      if (!utils.relaxHostname()) {
+         SSLParameters parameters = engine.getSSLParameters();
+         setEndpointIdentificationAlgorithm(parameters, "HTTPS");
+         engine.setSSLParameters(parameters);
+      }
+      return engine;
+   }
+
+   /** Uses {@link SSLParameters#setEndpointIdentificationAlgorithm(String)} if possible or throws if not. */
+   private static void setEndpointIdentificationAlgorithm(SSLParameters parameters, String algorithm) {
+      try { // only available in JDK 1.7 and later
+         SSLParameters.class.getMethod("setEndpointIdentificationAlgorithm", String.class).invoke(parameters,
+               algorithm);
+      } catch (Exception e) {
+         throw new IllegalStateException("Cannot verify hostnames of https endpoints before JDK 1.7."
+               + " Set " + Constants.PROPERTY_RELAX_HOSTNAME + " or use a different http driver.", e);
+      }
+   }
+
+   private Channel pollIdleChannel(String key) {
+      Queue<Channel> channels = idleChannels.get(key);
+      if (channels == null) {
+         return null;
+      }
+      for (Channel channel = channels.poll(); channel != null; channel = channels.poll()) {
+         if (channel.isConnected()) {
+            return channel;
+         }
+      }
+      return null;
+   }
+
+   private void offerIdleChannel(String key, Channel channel) {
+      Queue<Channel> channels = idleChannels.get(key);
+      if (channels == null) {
+         Queue<Channel> newChannels = new ConcurrentLinkedQueue<Channel>();
+         channels = idleChannels.putIfAbsent(key, newChannels);
+         if (channels == null) {
+            channels = newChannels;
+         }
+      }
+      int max = utils.getMaxConnectionsPerHost();
+      if (max > 0 && channels.size() >= max) {
+         channel.close();
+      } else {
+         channels.offer(channel);
+      }
+   }
+
+   private org.jboss.netty.handler.codec.http.HttpRequest toNettyRequest(HttpRequest request) {
+      URI endpoint = request.getEndpoint();
+      String uri = endpoint.getRawPath() == null || endpoint.getRawPath().isEmpty() ? "/" : endpoint.getRawPath();
+      if (endpoint.getRawQuery() != null) {
+         uri += "?" + endpoint.getRawQuery();
+      }
+      org.jboss.netty.handler.codec.http.HttpRequest nettyRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1,
+            HttpMethod.valueOf(request.getMethod()), uri);
+      for (Map.Entry<String, String> entry : request.getHeaders().entries()) {
+         nettyRequest.addHeader(entry.getKey(), entry.getValue());
+      }
+      String host = endpoint.getHost();
+      if (endpoint.getPort() != -1) {
+         host += ":" + endpoint.getPort();
+      }
+      nettyRequest.setHeader(HOST, host);
+      if (!nettyRequest.containsHeader(USER_AGENT)) {
+         nettyRequest.setHeader(USER_AGENT, JavaUrlHttpCommandExecutorService.DEFAULT_USER_AGENT);
+      }
+      Payload payload = request.getPayload();
+      if (payload != null) {
+         MutableContentMetadata md = payload.getContentMetadata();
+         for (Map.Entry<String, String> entry : contentMetadataCodec.toHeaders(md).entries()) {
+            nettyRequest.setHeader(entry.getKey(), entry.getValue());
+         }
+         if (isChunked(request)) {
+            nettyRequest.removeHeader(CONTENT_LENGTH);
+            nettyRequest.setChunked(true);
+         } else {
+            Long length = checkNotNull(md.getContentLength(), "payload.getContentLength");
+            nettyRequest.setHeader(CONTENT_LENGTH, length.toString());
+         }
+      } else if (!HttpRequest.NON_PAYLOAD_METHODS.contains(request.getMethod())) {
+         nettyRequest.setHeader(CONTENT_LENGTH, "0");
+      }
+      return nettyRequest;
+   }
+
+   private static boolean isChunked(HttpRequest request) {
+      return "chunked".equals(request.getFirstHeaderOrNull(TRANSFER_ENCODING));
+   }
+
+   /**
+    * Returns the trailers a chunked request declares in its {@code Trailer} header, computed once
+    * its {@link HashingPayload} has been sent, or null. Only {@code Content-MD5} is supported.
+    */
+   private static Supplier<Multimap<String, String>> trailers(HttpRequest request) {
+      if (!isChunked(request) || !(request.getPayload() instanceof HashingPayload)) {
+         return null;
+      }
+      final HashingPayload payload = (HashingPayload) request.getPayload();
+      for (String header : request.getHeaders().get(TRAILER)) {
+         for (String name : Splitter.on(',').trimResults().split(header)) {
+            if (CONTENT_MD5.equalsIgnoreCase(name) && payload.getHashFunctions().contains(md5())) {
+               return new Supplier<Multimap<String, String>>() {
+                  @Override
+                  public Multimap<String, String> get() {
+                     return ImmutableMultimap.of(CONTENT_MD5,
+                           base64().encode(payload.getHashes().get(md5()).asBytes()));
+                  }
+               };
+            }
+         }
+      }
+      return null;
+   }
+
+   private static IOException toIOException(Throwable cause) {
+      return cause instanceof IOException ? (IOException) cause : new IOException(cause);
+   }
+
+   /**
+    * The state of one request and its response on a connection.
+    */
+   private final class Exchange {
+      private final String key;
+      private final HttpRequest request;
+      private final SettableFuture<HttpResponse> response = SettableFuture.create();
+
+      private volatile Channel channel;
+      private volatile ResponseBodyInputStream body;
+      // guarded by this
+      private boolean sent;
+      private boolean received;
+      private boolean finished;
+      private boolean keepAlive;
+      private boolean endsOnClose;
+
+      Exchange(String key, HttpRequest request) {
+         this.key = key;
+         this.request = request;
+      }
+
+      void attach(Channel channel) {
+         this.channel = channel;
+         channel.getPipeline().get(ResponseHandler.class).exchange = this;
+      }
+
+      void start(Channel channel) {
+         attach(channel);
+         ChannelFuture written;
+         try {
+            written = channel.write(toNettyRequest(request));
+            Payload payload = request.getPayload();
+            if (payload instanceof FileRegionPayload && !isChunked(request)
+                  && channel.getPipeline().get(SslHandler.class) == null) {
+               written = writeFileRegion(channel, (FileRegionPayload) payload);
+            } else if (payload != null) {
+               written = channel.write(new PayloadChunkedInput(payload.openStream(), isChunked(request),
+                     trailers(request), userExecutor, channel.getPipeline().get(ChunkedWriteHandler.class)));
+            }
+         } catch (Exception e) {
+            fail(e);
+            return;
+         }
+         written.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+               if (future.isSuccess()) {
+                  sent();
+               } else {
+                  fail(future.getCause());
+               }
+            }
+         });
+      }
+
+      /**
+       * Sends the region with {@code sendfile}, which is not possible over ssl, as the file must be
+       * encrypted.
+       */
+      private ChannelFuture writeFileRegion(Channel channel, FileRegionPayload payload) throws IOException {
+         final FileInputStream in = new FileInputStream(payload.getFile());
+         ChannelFuture written = channel.write(new DefaultFileRegion(in.getChannel(), payload.getOffset(),
+               payload.getLength()));
+         written.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+               closeQuietly(in);
+            }
+         });
+         return written;
+      }
+
+      void onResponse(org.jboss.netty.handler.codec.http.HttpResponse nettyResponse) {
+         int statusCode = nettyResponse.getStatus().getCode();
+         if (statusCode == 100) {
+            return;
+         }
+         ImmutableMultimap.Builder<String, String> headerBuilder = ImmutableMultimap.builder();
+         for (Map.Entry<String, String> entry : nettyResponse.getHeaders()) {
+            headerBuilder.put(entry.getKey(), entry.getValue());
+         }
+         ImmutableMultimap<String, String> headers = headerBuilder.build();
+         HttpResponse.Builder<?> builder = HttpResponse.builder().statusCode(statusCode)
+               .message(nettyResponse.getStatus().getReasonPhrase());
+         body = new ResponseBodyInputStream(channel);
+         if (statusCode != 204) {
+            Payload payload = newInputStreamPayload(body);
+            contentMetadataCodec.fromHeaders(payload.getContentMetadata(), headers);
+            builder.payload(payload);
+         }
+         builder.headers(filterOutContentHeaders(headers));
+         synchronized (this) {
+            keepAlive = HttpHeaders.isKeepAlive(nettyResponse);
+            endsOnClose = !nettyResponse.containsHeader(CONTENT_LENGTH)
+                  && !"chunked".equalsIgnoreCase(nettyResponse.getHeader(TRANSFER_ENCODING));
+         }
+         if (nettyResponse.isChunked()) {
+            response.set(builder.build());
+         } else {
+            body.offer(nettyResponse.getContent());
+            response.set(builder.build());
+            received();
+         }
+      }
+
+      void onChunk(HttpChunk chunk) {
+         ResponseBodyInputStream body = this.body;
+         if (body == null) {
+            return;
+         }
+         body.offer(chunk.getContent());
+         if (chunk.isLast()) {
+            received();
+         }
+      }
+
+      void onClose() {
+         boolean complete;
+         synchronized (this) {
+            complete = body != null && endsOnClose && !received;
+            if (complete) {
+               received = true;
+               finished = true;
+            }
+         }
+         if (complete) {
+            body.end();
+         } else {
+            fail(new IOException("connection to " + key + " closed"));
+         }
+      }
+
+      void fail(Throwable cause) {
+         synchronized (this) {
+            if (finished) {
+               return;
+            }
+            finished = true;
+         }
+         IOException e = toIOException(cause);
+         if (!response.setException(e) && body != null) {
+            body.fail(e);
+         }
+         if (channel != null) {
+            channel.close();
+         }
+      }
+
+      private void sent() {
+         synchronized (this) {
+            sent = true;
+         }
+         finishIfDone();
+      }
+
+      private void received() {
+         synchronized (this) {
+            received = true;
+         }
+         body.end();
+         finishIfDone();
+      }
+
+      private void finishIfDone() {
+         boolean reuse;
+         synchronized (this) {
+            if (finished || !sent || !received) {
+               return;
+            }
+            finished = true;
+            reuse = keepAlive;
+         }
+         channel.getPipeline().get(ResponseHandler.class).exchange = null;
+         if (reuse && channel.isConnected()) {
+            offerIdleChannel(key, channel);
+         } else {
+            channel.close();
+         }
+      }
+   }
+
+   /**
+    * Passes the events of a connection to its current exchange.
+    */
+   private final class ResponseHandler extends SimpleChannelUpstreamHandler {
+      private volatile Exchange exchange;
+
+      @Override
+      public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+         Exchange exchange = this.exchange;
+         if (exchange == null) {
+            logger.warn("discarding unexpected message from %s: %s", ctx.getChannel(), e.getMessage());
+            return;
+         }
+         if (e.getMessage() instanceof org.jboss.netty.handler.codec.http.HttpResponse) {
+            exchange.onResponse((org.jboss.netty.handler.codec.http.HttpResponse) e.getMessage());
+         } else if (e.getMessage() instanceof HttpChunk) {
+            exchange.onChunk((HttpChunk) e.getMessage());
+         }
+      }
+
+      @Override
+      public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+         Exchange exchange = this.exchange;
+         if (exchange != null) {
+            exchange.fail(e.getCause());
+         } else {
+            logger.debug("closing idle connection %s: %s", ctx.getChannel(), e.getCause());
+            ctx.getChannel().close();
+         }
+      }
+
+      @Override
+      public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) {
+         Exchange exchange = this.exchange;
+         if (exchange != null) {
+            exchange.onClose();
+         }
+      }
+   }
+}
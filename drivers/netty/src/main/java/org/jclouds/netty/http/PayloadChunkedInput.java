@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.netty.http;
+
+import static org.jclouds.util.Closeables2.closeQuietly;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunkTrailer;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunkTrailer;
+import org.jboss.netty.handler.stream.ChunkedInput;
+import org.jboss.netty.handler.stream.ChunkedWriteHandler;
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Multimap;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Feeds a request payload to a {@link ChunkedWriteHandler}.
+ * <p/>
+ * Payload streams may block, for example when they are the body of another response, so they are
+ * read ahead on the given executor rather than on the event loop. The event loop is handed a
+ * chunk when one is ready, and is resumed by the reader otherwise.
+ */
+final class PayloadChunkedInput implements ChunkedInput {
+
+   static final int CHUNK_SIZE = 64 * 1024;
+
+   private final InputStream in;
+   private final boolean chunked;
+   private final Supplier<Multimap<String, String>> trailers;
+   private final Executor executor;
+   private final ChunkedWriteHandler writer;
+
+   // guarded by this
+   private ChannelBuffer next;
+   private boolean reading;
+   private boolean eof;
+   private boolean lastChunkSent;
+   private IOException failure;
+
+   /**
+    * @param chunked
+    *           whether to send {@link HttpChunk}s, for transfer-encoding chunked, rather than raw
+    *           buffers
+    * @param trailers
+    *           headers to send after the last chunk, which are computed once the payload has been
+    *           read, or null
+    */
+   PayloadChunkedInput(InputStream in, boolean chunked, @Nullable Supplier<Multimap<String, String>> trailers,
+         Executor executor, ChunkedWriteHandler writer) {
+      this.in = in;
+      this.chunked = chunked;
+      this.trailers = trailers;
+      this.executor = executor;
+      this.writer = writer;
+   }
+
+   @Override
+   public synchronized boolean hasNextChunk() throws IOException {
+      if (failure != null) {
+         throw failure;
+      }
+      if (next == null) {
+         readAhead();
+      }
+      return next != null || eof && chunked && !lastChunkSent;
+   }
+
+   @Override
+   public synchronized Object nextChunk() throws IOException {
+      if (failure != null) {
+         throw failure;
+      }
+      if (next != null) {
+         ChannelBuffer chunk = next;
+         next = null;
+         readAhead();
+         return chunked ? new DefaultHttpChunk(chunk) : chunk;
+      } else if (eof) {
+         if (chunked && !lastChunkSent) {
+            lastChunkSent = true;
+            return lastChunk();
+         }
+      } else {
+         readAhead();
+      }
+      return null;
+   }
+
+   private HttpChunk lastChunk() {
+      if (trailers == null) {
+         return HttpChunk.LAST_CHUNK;
+      }
+      HttpChunkTrailer trailer = new DefaultHttpChunkTrailer();
+      for (Map.Entry<String, String> header : trailers.get().entries()) {
+         trailer.addHeader(header.getKey(), header.getValue());
+      }
+      return trailer;
+   }
+
+   @Override
+   public synchronized boolean isEndOfInput() {
+      return eof && next == null && (!chunked || lastChunkSent);
+   }
+
+   @Override
+   public void close() {
+      closeQuietly(in);
+   }
+
+   private void readAhead() {
+      if (reading || eof || next != null) {
+         return;
+      }
+      reading = true;
+      executor.execute(new Runnable() {
+         @Override
+         public void run() {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            try {
+               int read = ByteStreams.read(in, buffer, 0, buffer.length);
+               synchronized (PayloadChunkedInput.this) {
+                  if (read > 0) {
+                     next = ChannelBuffers.wrappedBuffer(buffer, 0, read);
+                  }
+                  eof = read < buffer.length;
+               }
+            } catch (IOException e) {
+               synchronized (PayloadChunkedInput.this) {
+                  failure = e;
+               }
+            } finally {
+               synchronized (PayloadChunkedInput.this) {
+                  reading = false;
+               }
+            }
+            writer.resumeTransfer();
+         }
+      });
+   }
+}
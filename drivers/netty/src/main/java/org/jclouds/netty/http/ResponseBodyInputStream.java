@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.netty.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+
+/**
+ * The body of a response, filled by the event loop as chunks arrive and read by the caller.
+ * <p/>
+ * Reading from the channel is suspended while more than {@value #HIGH_WATER_MARK} bytes are
+ * buffered, so that a slow reader does not make the body pile up in memory.
+ */
+final class ResponseBodyInputStream extends InputStream {
+
+   static final int HIGH_WATER_MARK = 1024 * 1024;
+   static final int LOW_WATER_MARK = 256 * 1024;
+
+   private final Channel channel;
+
+   // guarded by this
+   private final Deque<ChannelBuffer> buffers = new ArrayDeque<ChannelBuffer>();
+   private long buffered;
+   private boolean suspended;
+   private boolean ended;
+   private boolean closed;
+   private IOException failure;
+
+   ResponseBodyInputStream(Channel channel) {
+      this.channel = channel;
+   }
+
+   synchronized void offer(ChannelBuffer buffer) {
+      if (closed || !buffer.readable()) {
+         return;
+      }
+      buffers.add(buffer);
+      buffered += buffer.readableBytes();
+      if (!suspended && buffered > HIGH_WATER_MARK) {
+         suspended = true;
+         channel.setReadable(false);
+      }
+      notifyAll();
+   }
+
+   /** Marks the end of the body, after which the channel belongs to the next request. */
+   synchronized void end() {
+      ended = true;
+      if (suspended) {
+         suspended = false;
+         channel.setReadable(true);
+      }
+      notifyAll();
+   }
+
+   synchronized void fail(IOException e) {
+      if (!ended) {
+         failure = e;
+         ended = true;
+      }
+      notifyAll();
+   }
+
+   @Override
+   public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+   }
+
+   @Override
+   public synchronized int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+         return 0;
+      }
+      while (buffers.isEmpty()) {
+         if (closed) {
+            throw new IOException("stream closed");
+         } else if (failure != null) {
+            throw failure;
+         } else if (ended) {
+            return -1;
+         }
+         try {
+            wait();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+         }
+      }
+      ChannelBuffer head = buffers.peek();
+      int n = Math.min(len, head.readableBytes());
+      head.readBytes(b, off, n);
+      if (!head.readable()) {
+         buffers.poll();
+      }
+      buffered -= n;
+      if (suspended && buffered < LOW_WATER_MARK) {
+         suspended = false;
+         channel.setReadable(true);
+      }
+      return n;
+   }
+
+   @Override
+   public synchronized int available() {
+      return (int) Math.min(buffered, Integer.MAX_VALUE);
+   }
+
+   /**
+    * Discards the body. If it has not been received in full, the connection is closed, as it
+    * cannot be reused.
+    */
+   @Override
+   public void close() {
+      boolean complete;
+      synchronized (this) {
+         if (closed) {
+            return;
+         }
+         closed = true;
+         complete = ended && failure == null;
+         buffers.clear();
+         buffered = 0;
+         notifyAll();
+      }
+      if (!complete) {
+         channel.close();
+      }
+   }
+}
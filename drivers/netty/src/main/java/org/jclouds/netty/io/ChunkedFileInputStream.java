@@ -24,6 +24,12 @@ import java.io.RandomAccessFile;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.handler.stream.ChunkedFile;
 
+/**
+ * @deprecated since 2.0.0; slices of file payloads are {@link org.jclouds.io.payloads.FileRegionPayload}s,
+ *             which the netty driver sends without reading them through a stream. This class will be
+ *             removed in 2.1.
+ */
+@Deprecated
 public class ChunkedFileInputStream extends InputStream {
 
    private static final int CHUNK_SIZE = 8192;
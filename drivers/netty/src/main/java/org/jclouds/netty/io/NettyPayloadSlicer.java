@@ -16,20 +16,15 @@
  */
 package org.jclouds.netty.io;
 
-import java.io.File;
-
 import javax.inject.Singleton;
 
-import org.jclouds.io.Payload;
-import org.jclouds.io.Payloads;
-import org.jclouds.io.internal.BasePayloadSlicer;
+import org.jclouds.io.internal.FileRegionPayloadSlicer;
 
+/**
+ * Slices files into regions, which the netty driver sends with {@code sendfile} over plain
+ * connections.
+ */
 @Singleton
-public class NettyPayloadSlicer extends BasePayloadSlicer {
-
-   @Override
-   protected Payload doSlice(File content, long offset, long length) {
-      return Payloads.newInputStreamPayload(new ChunkedFileInputStream(content, offset, length));
-   }
+public class NettyPayloadSlicer extends FileRegionPayloadSlicer {
 
 }
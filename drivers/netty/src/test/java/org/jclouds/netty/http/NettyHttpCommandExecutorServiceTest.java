@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.netty.http;
+
+import static com.google.common.hash.Hashing.md5;
+import static org.jclouds.Constants.PROPERTY_MAX_CONNECTIONS_PER_CONTEXT;
+import static org.jclouds.Constants.PROPERTY_MAX_CONNECTIONS_PER_HOST;
+import static org.jclouds.Constants.PROPERTY_RELAX_HOSTNAME;
+import static org.jclouds.Constants.PROPERTY_TRUST_ALL_CERTS;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.http.AsyncHttpCommandExecutorService;
+import org.jclouds.http.BaseHttpCommandExecutorServiceIntegrationTest;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.IntegrationTestClient;
+import org.jclouds.io.Payload;
+import org.jclouds.io.Payloads;
+import org.jclouds.io.payloads.FileRegionPayload;
+import org.jclouds.io.payloads.HashingPayload;
+import org.jclouds.netty.config.NettyHttpCommandExecutorServiceModule;
+import org.jclouds.providers.AnonymousProviderMetadata;
+import org.jclouds.util.Strings2;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.MockWebServer;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+/**
+ * Tests the functionality of the {@link NettyHttpCommandExecutorService}
+ */
+@Test
+public class NettyHttpCommandExecutorServiceTest extends BaseHttpCommandExecutorServiceIntegrationTest {
+
+   @Override
+   protected Module createConnectionModule() {
+      return new NettyHttpCommandExecutorServiceModule();
+   }
+
+   @Override
+   protected void addOverrideProperties(final Properties props) {
+      props.setProperty(PROPERTY_MAX_CONNECTIONS_PER_CONTEXT, 50 + "");
+      props.setProperty(PROPERTY_MAX_CONNECTIONS_PER_HOST, 0 + "");
+      props.setProperty(PROPERTY_USER_THREADS, 5 + "");
+   }
+
+   @Test
+   public void testMoreRequestsInFlightThanThreads() throws Exception {
+      final int requests = 100;
+      final CountDownLatch arrived = new CountDownLatch(requests);
+      MockWebServer server = mockWebServer(new Dispatcher() {
+         @Override
+         public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            arrived.countDown();
+            // only answers once every request is waiting for a response
+            arrived.await(30, TimeUnit.SECONDS);
+            return new MockResponse().setBody(request.getPath());
+         }
+      });
+      Injector injector = injector(server.getUrl("/").toString());
+      try {
+         AsyncHttpCommandExecutorService http = injector.getInstance(AsyncHttpCommandExecutorService.class);
+         List<ListenableFuture<HttpResponse>> responses = Lists.newArrayList();
+         for (int i = 0; i < requests; i++) {
+            responses.add(http.submit(new HttpCommand(HttpRequest.builder().method("GET")
+                  .endpoint(server.getUrl("/objects/" + i).toString()).build())));
+         }
+         List<HttpResponse> received = Futures.allAsList(responses).get(60, TimeUnit.SECONDS);
+         for (int i = 0; i < requests; i++) {
+            assertEquals(received.get(i).getStatusCode(), 200);
+            assertEquals(Strings2.toStringAndClose(received.get(i).getPayload().openStream()), "/objects/" + i);
+         }
+         assertEquals(server.getRequestCount(), requests);
+      } finally {
+         injector.getInstance(org.jclouds.lifecycle.Closer.class).close();
+         server.shutdown();
+      }
+   }
+
+   @Test
+   public void testCloseClosesConnectionsInFlight() throws Exception {
+      final CountDownLatch arrived = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      MockWebServer server = mockWebServer(new Dispatcher() {
+         @Override
+         public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            arrived.countDown();
+            release.await(30, TimeUnit.SECONDS);
+            return new MockResponse().setBody("foo");
+         }
+      });
+      final Injector injector = injector(server.getUrl("/").toString());
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         injector.getInstance(AsyncHttpCommandExecutorService.class).submit(new HttpCommand(HttpRequest.builder()
+               .method("GET").endpoint(server.getUrl("/objects/1").toString()).build()));
+         assertTrue(arrived.await(10, TimeUnit.SECONDS));
+         // the I/O workers only stop once every channel is closed, including those awaiting a response
+         executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+               injector.getInstance(org.jclouds.lifecycle.Closer.class).close();
+               return null;
+            }
+         }).get(10, TimeUnit.SECONDS);
+      } finally {
+         release.countDown();
+         executor.shutdownNow();
+         server.shutdown();
+      }
+   }
+
+   @Test
+   public void testPutFileRegion() throws Exception {
+      MockWebServer server = mockWebServer(new MockResponse().setBody("fooPUT"));
+      Injector injector = injector(server.getUrl("/").toString());
+      File file = File.createTempFile("NettyHttpCommandExecutorServiceTest", ".txt");
+      try {
+         Files.write("0123456789", file, Charsets.UTF_8);
+         Payload payload = new FileRegionPayload(file, 2, 5);
+         HttpResponse response = injector.getInstance(AsyncHttpCommandExecutorService.class)
+               .submit(new HttpCommand(HttpRequest.builder().method("PUT")
+                     .endpoint(server.getUrl("/objects/1").toString()).payload(payload).build()))
+               .get(10, TimeUnit.SECONDS);
+         assertEquals(response.getStatusCode(), 200);
+         RecordedRequest request = server.takeRequest();
+         assertEquals(request.getHeader(HttpHeaders.CONTENT_LENGTH), "5");
+         assertEquals(new String(request.getBody(), Charsets.UTF_8), "23456");
+      } finally {
+         file.delete();
+         injector.getInstance(org.jclouds.lifecycle.Closer.class).close();
+         server.shutdown();
+      }
+   }
+
+   @Test
+   public void testChunkedPutSendsContentMD5Trailer() throws Exception {
+      final ServerSocket serverSocket = new ServerSocket(0);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      Future<String> received = executor.submit(new Callable<String>() {
+         @Override
+         public String call() throws IOException {
+            Socket socket = serverSocket.accept();
+            try {
+               BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.UTF_8));
+               StringBuilder body = new StringBuilder();
+               while (!in.readLine().isEmpty()) {
+                  // request headers
+               }
+               for (int size; (size = Integer.parseInt(in.readLine(), 16)) > 0;) {
+                  char[] chunk = new char[size];
+                  for (int read = 0; read < size;) {
+                     read += in.read(chunk, read, size - read);
+                  }
+                  body.append(chunk);
+                  in.readLine();
+               }
+               for (String trailer; !(trailer = in.readLine()).isEmpty();) {
+                  body.append('\n').append(trailer);
+               }
+               socket.getOutputStream().write(
+                     "HTTP/1.1 200 OK\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(Charsets.UTF_8));
+               return body.toString();
+            } finally {
+               socket.close();
+            }
+         }
+      });
+      String endpoint = "http://localhost:" + serverSocket.getLocalPort();
+      Injector injector = injector(endpoint);
+      try {
+         HashingPayload payload = new HashingPayload(Payloads.newStringPayload("foo"), md5());
+         HttpResponse response = injector.getInstance(AsyncHttpCommandExecutorService.class)
+               .submit(new HttpCommand(HttpRequest.builder().method("PUT").endpoint(endpoint + "/objects/1")
+                     .addHeader(HttpHeaders.TRANSFER_ENCODING, "chunked")
+                     .addHeader(HttpHeaders.TRAILER, HttpHeaders.CONTENT_MD5).payload(payload).build()))
+               .get(10, TimeUnit.SECONDS);
+         assertEquals(response.getStatusCode(), 200);
+         assertEquals(received.get(10, TimeUnit.SECONDS), "foo\nContent-MD5: rL0Y20zC+Fzt72VPzMSk2A==");
+         assertEquals(payload.getHashes().get(md5()), md5().hashString("foo", Charsets.UTF_8));
+      } finally {
+         injector.getInstance(org.jclouds.lifecycle.Closer.class).close();
+         executor.shutdownNow();
+         serverSocket.close();
+      }
+   }
+
+   private Injector injector(String endpoint) {
+      Properties overrides = new Properties();
+      overrides.setProperty(PROPERTY_TRUST_ALL_CERTS, "true");
+      overrides.setProperty(PROPERTY_RELAX_HOSTNAME, "true");
+      addOverrideProperties(overrides);
+      return ContextBuilder
+            .newBuilder(AnonymousProviderMetadata.forApiOnEndpoint(IntegrationTestClient.class, endpoint))
+            .modules(ImmutableSet.of(createConnectionModule())).overrides(overrides).buildInjector();
+   }
+}
@@ -60,6 +60,7 @@ public class SSHClientConnection implements Connection<SSHClient> {
       protected int connectTimeout;
       protected int sessionTimeout;
       protected Optional<Connector> agentConnector;
+      protected SSHClientPool pool;
 
       /**
        * @see SSHClientConnection#getHostAndPort()
@@ -101,8 +102,17 @@ public class SSHClientConnection implements Connection<SSHClient> {
          return this;
       }
 
+      /**
+       * @see SSHClientConnection#getPool()
+       */
+      public Builder pool(SSHClientPool pool) {
+         this.pool = pool;
+         return this;
+      }
+
       public SSHClientConnection build() {
-         return new SSHClientConnection(hostAndPort, loginCredentials, connectTimeout, sessionTimeout, agentConnector);
+         return new SSHClientConnection(hostAndPort, loginCredentials, connectTimeout, sessionTimeout, agentConnector,
+                  pool);
       }
 
       protected Builder fromSSHClientConnection(SSHClientConnection in) {
@@ -112,12 +122,13 @@ public class SSHClientConnection implements Connection<SSHClient> {
    }
 
    private SSHClientConnection(HostAndPort hostAndPort, LoginCredentials loginCredentials, int connectTimeout,
-            int sessionTimeout, Optional<Connector> agentConnector) {
+            int sessionTimeout, Optional<Connector> agentConnector, SSHClientPool pool) {
       this.hostAndPort = checkNotNull(hostAndPort, "hostAndPort");
       this.loginCredentials = checkNotNull(loginCredentials, "loginCredentials for %", hostAndPort);
       this.connectTimeout = connectTimeout;
       this.sessionTimeout = sessionTimeout;
       this.agentConnector = checkNotNull(agentConnector, "agentConnector for %", hostAndPort);
+      this.pool = pool;
    }
    
    @Resource
@@ -128,6 +139,7 @@ public class SSHClientConnection implements Connection<SSHClient> {
    private final LoginCredentials loginCredentials;
    private final int connectTimeout;
    private final int sessionTimeout;
+   private final SSHClientPool pool;
 
    @VisibleForTesting
    transient SSHClient ssh;
@@ -135,6 +147,19 @@ public class SSHClientConnection implements Connection<SSHClient> {
    @Override
    public void clear() {
       if (ssh != null && ssh.isConnected()) {
+         if (pool != null && pool.release(this, ssh)) {
+            ssh = null;
+            return;
+         }
+         discard();
+      }
+   }
+
+   /**
+    * Closes the connection without returning it to the pool, as after an error using it.
+    */
+   public void discard() {
+      if (ssh != null) {
          try {
             ssh.disconnect();
          } catch (AssertionError e) {
@@ -148,6 +173,11 @@ public class SSHClientConnection implements Connection<SSHClient> {
 
    @Override
    public SSHClient create() throws Exception {
+      if (pool != null) {
+         ssh = pool.borrow(this);
+         if (ssh != null)
+            return ssh;
+      }
       ssh = new net.schmizz.sshj.SSHClient();
       ssh.addHostKeyVerifier(new PromiscuousVerifier());
       if (connectTimeout != 0) {
@@ -209,6 +239,15 @@ public class SSHClientConnection implements Connection<SSHClient> {
       return agentConnector;
    }
 
+   /**
+    *
+    * @return where connections are returned on {@link #clear()} for reuse, or {@code null} if they are
+    *         always closed
+    */
+   public SSHClientPool getPool() {
+      return pool;
+   }
+
    /**
     * 
     * @return the current ssh or {@code null} if not connected
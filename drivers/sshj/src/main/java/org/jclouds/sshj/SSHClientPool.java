@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.sshj;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import net.schmizz.sshj.SSHClient;
+
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+
+/**
+ * Keeps authenticated {@link SSHClient}s open after their {@link SshjSshClient} disconnects, so that
+ * later clients for the same host, port and login open their exec and sftp channels on the same
+ * connection instead of repeating the key exchange and authentication.
+ * <p/>
+ * Connections idle for longer than {@code jclouds.ssh.pool.idle-timeout} milliseconds are closed by a
+ * background thread, as are connections found closed or unauthenticated when borrowed. At most
+ * {@code jclouds.ssh.pool.max-idle} connections are kept for each host and login. An idle timeout of
+ * zero, the default, disables pooling.
+ */
+@Singleton
+public class SSHClientPool {
+
+   @Resource
+   @Named("jclouds.ssh")
+   protected Logger logger = Logger.NULL;
+
+   @Inject(optional = true)
+   @Named("jclouds.ssh.pool.idle-timeout")
+   @VisibleForTesting
+   long idleTimeout = 0;
+
+   @Inject(optional = true)
+   @Named("jclouds.ssh.pool.max-idle")
+   @VisibleForTesting
+   int maxIdle = 4;
+
+   /** How often, at most, idle connections are checked for expiry. */
+   static final long EVICTION_PERIOD_MILLIS = 5000;
+
+   private final Ticker ticker;
+   private final Map<List<Object>, Deque<Idle>> idle = Maps.newHashMap();
+   /** started when the first connection is released */
+   private ScheduledExecutorService evictor;
+
+   public SSHClientPool() {
+      this(Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   SSHClientPool(Ticker ticker) {
+      this.ticker = ticker;
+   }
+
+   private static final class Idle {
+      private final SSHClient ssh;
+      private final long since;
+
+      private Idle(SSHClient ssh, long since) {
+         this.ssh = ssh;
+         this.since = since;
+      }
+   }
+
+   /**
+    * @return an open connection authenticated to the host of {@code connection} with its login, or
+    *         null if there is none idle
+    */
+   public SSHClient borrow(SSHClientConnection connection) {
+      closeAll(evictExpired());
+      List<Object> key = key(connection);
+      SSHClient ssh;
+      while ((ssh = poll(key)) != null) {
+         if (isHealthy(ssh)) {
+            logger.debug("<< reusing ssh connection to %s", connection.getHostAndPort());
+            return ssh;
+         }
+         close(ssh);
+      }
+      return null;
+   }
+
+   /**
+    * Offers a connection no longer used by {@code connection} for reuse.
+    *
+    * @return false if the connection was not kept, in which case the caller should close it
+    */
+   public boolean release(SSHClientConnection connection, SSHClient ssh) {
+      if (idleTimeout <= 0 || !isHealthy(ssh)) {
+         return false;
+      }
+      closeAll(evictExpired());
+      List<Object> key = key(connection);
+      synchronized (this) {
+         scheduleEviction();
+         Deque<Idle> clients = idle.get(key);
+         if (clients == null) {
+            clients = new ArrayDeque<Idle>();
+            idle.put(key, clients);
+         }
+         if (clients.size() >= maxIdle) {
+            return false;
+         }
+         clients.addLast(new Idle(ssh, ticker.read()));
+      }
+      return true;
+   }
+
+   /** @return the number of idle connections kept */
+   public synchronized int size() {
+      int size = 0;
+      for (Deque<Idle> clients : idle.values()) {
+         size += clients.size();
+      }
+      return size;
+   }
+
+   /** Closes all idle connections. */
+   @PreDestroy
+   public void close() {
+      List<SSHClient> toClose = Lists.newArrayList();
+      synchronized (this) {
+         if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+         }
+         for (Deque<Idle> clients : idle.values()) {
+            for (Idle client : clients) {
+               toClose.add(client.ssh);
+            }
+         }
+         idle.clear();
+      }
+      closeAll(toClose);
+   }
+
+   private synchronized void scheduleEviction() {
+      if (evictor != null) {
+         return;
+      }
+      evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("sshj idle connection evictor %d").setDaemon(true).build());
+      long period = Math.max(1, Math.min(idleTimeout, EVICTION_PERIOD_MILLIS));
+      evictor.scheduleWithFixedDelay(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               closeAll(evictExpired());
+            } catch (RuntimeException e) {
+               logger.warn(e, "<< error closing idle ssh connections");
+            }
+         }
+      }, period, period, MILLISECONDS);
+   }
+
+   private static List<Object> key(SSHClientConnection connection) {
+      return ImmutableList.<Object> of(connection.getHostAndPort(), connection.getLoginCredentials(),
+            connection.getSessionTimeout());
+   }
+
+   /** most recently used first, as older connections are the ones to let expire */
+   private synchronized SSHClient poll(List<Object> key) {
+      Deque<Idle> clients = idle.get(key);
+      if (clients == null) {
+         return null;
+      }
+      Idle client = clients.pollLast();
+      if (clients.isEmpty()) {
+         idle.remove(key);
+      }
+      return client != null ? client.ssh : null;
+   }
+
+   private synchronized List<SSHClient> evictExpired() {
+      List<SSHClient> expired = Lists.newArrayList();
+      long now = ticker.read();
+      for (Iterator<Deque<Idle>> clients = idle.values().iterator(); clients.hasNext();) {
+         Deque<Idle> next = clients.next();
+         while (!next.isEmpty() && now - next.peekFirst().since > MILLISECONDS.toNanos(idleTimeout)) {
+            expired.add(next.pollFirst().ssh);
+         }
+         if (next.isEmpty()) {
+            clients.remove();
+         }
+      }
+      return expired;
+   }
+
+   private static boolean isHealthy(SSHClient ssh) {
+      return ssh.isConnected() && ssh.isAuthenticated();
+   }
+
+   private void closeAll(List<SSHClient> clients) {
+      for (SSHClient ssh : clients) {
+         close(ssh);
+      }
+   }
+
+   private void close(SSHClient ssh) {
+      try {
+         ssh.disconnect();
+      } catch (IOException e) {
+         logger.debug("<< exception disconnecting idle ssh: %s", e.getMessage());
+      }
+   }
+}
@@ -30,7 +30,6 @@ import static org.jclouds.ssh.SshKeys.fingerprintPrivateKey;
 import static org.jclouds.ssh.SshKeys.sha1PrivateKey;
 
 import java.io.Closeable;
-import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.ConnectException;
@@ -86,23 +85,6 @@ import com.jcraft.jsch.agentproxy.Connector;
 @SuppressWarnings("unchecked")
 public class SshjSshClient implements SshClient {
 
-   private static final class CloseFtpChannelOnCloseInputStream extends FilterInputStream {
-
-      private final SFTPClient sftp;
-
-      private CloseFtpChannelOnCloseInputStream(InputStream proxy, SFTPClient sftp) {
-         super(proxy);
-         this.sftp = sftp;
-      }
-
-      @Override
-      public void close() throws IOException {
-         super.close();
-         if (sftp != null)
-            sftp.close();
-      }
-   }
-
    private final String toString;
 
    @Inject(optional = true)
@@ -143,6 +125,16 @@ public class SshjSshClient implements SshClient {
 
    public SshjSshClient(BackoffLimitedRetryHandler backoffLimitedRetryHandler, HostAndPort socket,
             LoginCredentials loginCredentials, int timeout, Optional<Connector> agentConnector) {
+      this(backoffLimitedRetryHandler, socket, loginCredentials, timeout, agentConnector, null);
+   }
+
+   /**
+    * @param pool
+    *           if not null, connections are borrowed from and returned to the pool instead of being
+    *           opened and closed by this client
+    */
+   public SshjSshClient(BackoffLimitedRetryHandler backoffLimitedRetryHandler, HostAndPort socket,
+            LoginCredentials loginCredentials, int timeout, Optional<Connector> agentConnector, SSHClientPool pool) {
       this.user = checkNotNull(loginCredentials, "loginCredentials").getUser();
       this.host = checkNotNull(socket, "socket").getHostText();
       checkArgument(socket.getPort() > 0, "ssh port must be greater then zero" + socket.getPort());
@@ -163,7 +155,8 @@ public class SshjSshClient implements SshClient {
                   host, socket.getPort());
       }
       sshClientConnection = SSHClientConnection.builder().hostAndPort(HostAndPort.fromParts(host, socket.getPort()))
-               .loginCredentials(loginCredentials).connectTimeout(timeout).sessionTimeout(timeout).agentConnector(agentConnector).build();
+               .loginCredentials(loginCredentials).connectTimeout(timeout).sessionTimeout(timeout).agentConnector(agentConnector).pool(pool)
+               .build();
    }
 
    @Override
@@ -197,7 +190,9 @@ public class SshjSshClient implements SshClient {
             return returnVal;
          } catch (Exception from) {
             try {
-               disconnect();
+               // the connection may be broken, so it is not returned to the pool
+               closeSftp();
+               sshClientConnection.discard();
             } catch (Exception e1) {
                logger.warn(from, "<< (%s) error closing connection", toString());
             }
@@ -228,24 +223,25 @@ public class SshjSshClient implements SshClient {
       }
    }
 
-   Connection<SFTPClient> sftpConnection = new Connection<SFTPClient>() {
+   /** shared by transfers until the ssh connection it was opened on is closed or returned */
+   private SFTPClient sftp;
+   private SSHClient sftpSsh;
 
-      private SFTPClient sftp;
+   Connection<SFTPClient> sftpConnection = new Connection<SFTPClient>() {
 
       @Override
       public void clear() {
-         if (sftp != null)
-            try {
-               sftp.close();
-            } catch (IOException e) {
-               Throwables.propagate(e);
-            }
+         // kept open for the next transfer; closed on disconnect
       }
 
       @Override
       public SFTPClient create() throws IOException {
          checkConnected();
-         sftp = sshClientConnection.ssh.newSFTPClient();
+         if (sftp == null || sftpSsh != sshClientConnection.ssh) {
+            closeSftp();
+            sftp = sshClientConnection.ssh.newSFTPClient();
+            sftpSsh = sshClientConnection.ssh;
+         }
          return sftp;
       }
 
@@ -255,23 +251,28 @@ public class SshjSshClient implements SshClient {
       }
    };
 
+   private void closeSftp() {
+      if (sftp != null) {
+         Closeables2.closeQuietly(sftp);
+         sftp = null;
+         sftpSsh = null;
+      }
+   }
+
    class GetConnection implements Connection<Payload> {
       private final String path;
-      private SFTPClient sftp;
 
       GetConnection(String path) {
          this.path = checkNotNull(path, "path");
       }
 
       @Override
-      public void clear() throws IOException {
-         if (sftp != null)
-            sftp.close();
+      public void clear() {
       }
 
       @Override
       public Payload create() throws Exception {
-         sftp = acquire(sftpConnection);
+         SFTPClient sftp = acquire(sftpConnection);
          final RemoteFile remoteFile = sftp.getSFTPEngine().open(path);
          final InputStream in = remoteFile.new RemoteFileInputStream() {
             @Override
@@ -283,7 +284,7 @@ public class SshjSshClient implements SshClient {
                }
             }
          };
-         return Payloads.newInputStreamPayload(new CloseFtpChannelOnCloseInputStream(in, sftp));
+         return Payloads.newInputStreamPayload(in);
       }
 
       @Override
@@ -299,7 +300,6 @@ public class SshjSshClient implements SshClient {
    class PutConnection implements Connection<Void> {
       private final String path;
       private final Payload contents;
-      private SFTPClient sftp;
 
       PutConnection(String path, Payload contents) {
          this.path = checkNotNull(path, "path");
@@ -308,17 +308,11 @@ public class SshjSshClient implements SshClient {
 
       @Override
       public void clear() {
-         if (sftp != null)
-            try {
-               sftp.close();
-            } catch (IOException e) {
-               Throwables.propagate(e);
-            }
       }
 
       @Override
       public Void create() throws Exception {
-         sftp = acquire(sftpConnection);
+         SFTPClient sftp = acquire(sftpConnection);
          try {
             sftp.put(new InMemorySourceFile() {
 
@@ -404,6 +398,7 @@ public class SshjSshClient implements SshClient {
 
    @PreDestroy
    public void disconnect() {
+      closeSftp();
       try {
          sshClientConnection.clear();
       } catch (Exception e) {
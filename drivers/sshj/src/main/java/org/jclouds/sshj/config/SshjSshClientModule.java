@@ -23,6 +23,7 @@ import org.jclouds.domain.LoginCredentials;
 import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
 import org.jclouds.ssh.SshClient;
 import org.jclouds.ssh.config.ConfiguresSshClient;
+import org.jclouds.sshj.SSHClientPool;
 import org.jclouds.sshj.SshjSshClient;
 
 import com.google.common.base.Optional;
@@ -64,17 +65,20 @@ public class SshjSshClientModule extends AbstractModule {
       }
 
       private final BackoffLimitedRetryHandler backoffLimitedRetryHandler;
+      private final SSHClientPool pool;
       private final Injector injector;
 
       @Inject
-      public Factory(BackoffLimitedRetryHandler backoffLimitedRetryHandler, Injector injector) {
+      public Factory(BackoffLimitedRetryHandler backoffLimitedRetryHandler, SSHClientPool pool, Injector injector) {
          this.backoffLimitedRetryHandler = backoffLimitedRetryHandler;
+         this.pool = pool;
          this.injector = injector;
       }
 
       @Override
       public SshClient create(HostAndPort socket, LoginCredentials credentials) {
-         SshClient client = new SshjSshClient(backoffLimitedRetryHandler, socket, credentials, timeout, getAgentConnector());
+         SshClient client = new SshjSshClient(backoffLimitedRetryHandler, socket, credentials, timeout, getAgentConnector(),
+               pool);
          injector.injectMembers(client);  // add logger
          return client;
       }
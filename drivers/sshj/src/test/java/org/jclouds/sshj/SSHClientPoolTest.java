@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.sshj;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import net.schmizz.sshj.SSHClient;
+
+import org.jclouds.domain.LoginCredentials;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.net.HostAndPort;
+import com.jcraft.jsch.agentproxy.Connector;
+
+@Test(groups = "unit", testName = "SSHClientPoolTest")
+public class SSHClientPoolTest {
+
+   private static class FakeTicker extends Ticker {
+      long nanos;
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+   }
+
+   private final SSHClientConnection connection = connection("localhost", "user");
+
+   private static SSHClientConnection connection(String host, String user) {
+      return SSHClientConnection.builder().hostAndPort(HostAndPort.fromParts(host, 22))
+            .loginCredentials(LoginCredentials.builder().user(user).password("password").build())
+            .agentConnector(Optional.<Connector> absent()).build();
+   }
+
+   private static SSHClient healthy() {
+      SSHClient ssh = createMock(SSHClient.class);
+      expect(ssh.isConnected()).andReturn(true).anyTimes();
+      expect(ssh.isAuthenticated()).andReturn(true).anyTimes();
+      return ssh;
+   }
+
+   private static SSHClientPool pool(Ticker ticker) {
+      SSHClientPool pool = new SSHClientPool(ticker);
+      pool.idleTimeout = 1000;
+      return pool;
+   }
+
+   public void testDisabledByDefault() {
+      SSHClient ssh = createMock(SSHClient.class);
+      replay(ssh);
+
+      assertFalse(new SSHClientPool().release(connection, ssh));
+      verify(ssh);
+   }
+
+   public void testReusesConnectionForSameHostAndLogin() {
+      SSHClient ssh = healthy();
+      replay(ssh);
+      SSHClientPool pool = pool(new FakeTicker());
+
+      assertTrue(pool.release(connection, ssh));
+      assertNull(pool.borrow(connection("localhost", "other")));
+      assertNull(pool.borrow(connection("otherhost", "user")));
+      assertSame(pool.borrow(connection("localhost", "user")), ssh);
+      assertNull(pool.borrow(connection));
+      verify(ssh);
+   }
+
+   public void testClosesExpiredConnections() throws Exception {
+      SSHClient ssh = healthy();
+      ssh.disconnect();
+      expectLastCall();
+      replay(ssh);
+      FakeTicker ticker = new FakeTicker();
+      SSHClientPool pool = pool(ticker);
+
+      assertTrue(pool.release(connection, ssh));
+      ticker.nanos = TimeUnit.MILLISECONDS.toNanos(1001);
+      assertNull(pool.borrow(connection));
+      assertEquals(pool.size(), 0);
+      verify(ssh);
+   }
+
+   public void testClosesExpiredConnectionsInTheBackground() throws Exception {
+      SSHClient ssh = healthy();
+      ssh.disconnect();
+      expectLastCall();
+      replay(ssh);
+      SSHClientPool pool = new SSHClientPool();
+      pool.idleTimeout = 50;
+
+      try {
+         assertTrue(pool.release(connection, ssh));
+         for (int i = 0; i < 100 && pool.size() > 0; i++) {
+            Thread.sleep(50);
+         }
+         assertEquals(pool.size(), 0);
+         verify(ssh);
+      } finally {
+         pool.close();
+      }
+   }
+
+   public void testClosesUnhealthyConnectionsOnBorrow() throws Exception {
+      SSHClient ssh = createMock(SSHClient.class);
+      expect(ssh.isConnected()).andReturn(true);
+      expect(ssh.isAuthenticated()).andReturn(true);
+      // the server closed the connection while it was idle
+      expect(ssh.isConnected()).andReturn(false);
+      ssh.disconnect();
+      expectLastCall();
+      replay(ssh);
+      SSHClientPool pool = pool(new FakeTicker());
+
+      assertTrue(pool.release(connection, ssh));
+      assertNull(pool.borrow(connection));
+      verify(ssh);
+   }
+
+   public void testKeepsAtMostMaxIdle() {
+      SSHClient ssh1 = healthy();
+      SSHClient ssh2 = healthy();
+      replay(ssh1, ssh2);
+      SSHClientPool pool = pool(new FakeTicker());
+      pool.maxIdle = 1;
+
+      assertTrue(pool.release(connection, ssh1));
+      assertFalse(pool.release(connection, ssh2));
+      assertEquals(pool.size(), 1);
+      verify(ssh1, ssh2);
+   }
+
+   public void testCloseDisconnectsIdle() throws Exception {
+      SSHClient ssh = healthy();
+      ssh.disconnect();
+      expectLastCall();
+      replay(ssh);
+      SSHClientPool pool = pool(new FakeTicker());
+
+      assertTrue(pool.release(connection, ssh));
+      pool.close();
+      assertEquals(pool.size(), 0);
+      verify(ssh);
+   }
+
+   public void testClearReturnsConnectionToPool() throws Exception {
+      SSHClient ssh = healthy();
+      replay(ssh);
+      SSHClientPool pool = pool(new FakeTicker());
+      SSHClientConnection pooled = SSHClientConnection.builder().hostAndPort(HostAndPort.fromParts("localhost", 22))
+            .loginCredentials(LoginCredentials.builder().user("user").password("password").build())
+            .agentConnector(Optional.<Connector> absent()).pool(pool).build();
+
+      pooled.ssh = ssh;
+      pooled.clear();
+      assertNull(pooled.getSSHClient());
+      assertSame(pooled.create(), ssh);
+      verify(ssh);
+   }
+
+   public void testDiscardDoesNotReturnConnectionToPool() throws Exception {
+      SSHClient ssh = healthy();
+      ssh.disconnect();
+      expectLastCall();
+      replay(ssh);
+      SSHClientPool pool = pool(new FakeTicker());
+      SSHClientConnection pooled = SSHClientConnection.builder().hostAndPort(HostAndPort.fromParts("localhost", 22))
+            .loginCredentials(LoginCredentials.builder().user("user").password("password").build())
+            .agentConnector(Optional.<Connector> absent()).pool(pool).build();
+
+      pooled.ssh = ssh;
+      pooled.discard();
+      assertNull(pooled.getSSHClient());
+      assertEquals(pool.size(), 0);
+      verify(ssh);
+   }
+}
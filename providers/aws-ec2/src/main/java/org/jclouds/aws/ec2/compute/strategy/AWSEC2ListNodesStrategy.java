@@ -17,11 +17,14 @@
 package org.jclouds.aws.ec2.compute.strategy;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Predicates.not;
 import static com.google.common.base.Predicates.notNull;
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Iterables.toArray;
 import static com.google.common.collect.Iterables.transform;
+import static com.google.common.collect.Multimaps.filterValues;
+import static org.jclouds.ec2.compute.util.EC2ComputeUtils.concatInParallel;
+import static org.jclouds.ec2.compute.util.EC2ComputeUtils.concatInParallelSkippingFailures;
 
 import java.util.Set;
 
@@ -39,7 +42,9 @@ import org.jclouds.ec2.domain.RunningInstance;
 import org.jclouds.location.Region;
 
 import com.google.common.base.Function;
+import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
@@ -62,40 +67,64 @@ public class AWSEC2ListNodesStrategy extends EC2ListNodesStrategy {
 
    @Override
    protected Iterable<? extends RunningInstance> pollRunningInstances() {
-      Iterable<? extends AWSRunningInstance> spots = filter(transform(concat(transform(regions.get(),
-                                                                                       allSpotInstancesInRegion())),
-                                                                      spotConverter), notNull());
+      Iterable<SpotInstanceRequest> requests = concatInParallelSkippingFailures(regions.get(),
+            allSpotInstancesInRegion(), userExecutor, maxTime, logger, "spot instance requests");
+      Iterable<? extends AWSRunningInstance> spots = filter(transform(requests, spotConverter), notNull());
 
       return concat(super.pollRunningInstances(), spots);
    }
 
    @Override
    protected Iterable<? extends RunningInstance> pollRunningInstancesByRegionsAndIds(final Multimap<String, String> idsByRegions) {
-      Iterable<? extends AWSRunningInstance> spots = filter(transform(concat(transform(idsByRegions.keySet(),
-                                                                                       spotInstancesByIdInRegion(idsByRegions))),
-
-                                                                      spotConverter), notNull());
-      Iterable<? extends RunningInstance> superInsts = super.pollRunningInstancesByRegionsAndIds(idsByRegions);
+      // each describe call fails on ids of the other kind, so spot requests and instances are asked separately
+      Multimap<String, String> spotIdsByRegions = filterValues(idsByRegions, startsWith("sir-"));
+      Multimap<String, String> instanceIdsByRegions = filterValues(idsByRegions, not(startsWith("sir-")));
+      Iterable<SpotInstanceRequest> requests = concatInParallel(spotIdsByRegions.keySet(),
+            spotInstancesByIdInRegion(spotIdsByRegions), userExecutor, maxTime);
+      Iterable<? extends AWSRunningInstance> spots = filter(transform(requests, spotConverter), notNull());
+      if (instanceIdsByRegions.isEmpty()) {
+         return spots;
+      }
+      Iterable<? extends RunningInstance> superInsts = super.pollRunningInstancesByRegionsAndIds(instanceIdsByRegions);
       return concat(superInsts, spots);
    }
 
+   private static Predicate<String> startsWith(final String prefix) {
+      return new Predicate<String>() {
+
+         @Override
+         public boolean apply(String id) {
+            return id.startsWith(prefix);
+         }
+      };
+   }
+
+   /**
+    * Only open requests are listed, as {@link SpotInstanceRequestToAWSRunningInstance} skips the rest.
+    */
    protected Function<String, Set<SpotInstanceRequest>> allSpotInstancesInRegion() {
       return new Function<String, Set<SpotInstanceRequest>>() {
 
          @Override
          public Set<SpotInstanceRequest> apply(String from) {
-            return client.getSpotInstanceApi().get().describeSpotInstanceRequestsInRegion(from);
+            return client.getSpotInstanceApi().get().describeSpotInstanceRequestsInRegionWithFilter(from,
+                  ImmutableMultimap.of("state", SpotInstanceRequest.State.OPEN.value()));
          }
       };
    }
 
+   /**
+    * Filters on {@code spot-instance-request-id}, which unlike {@code SpotInstanceRequestId.N} leaves out unknown ids
+    * instead of failing the call.
+    */
    protected Function<String, Set<SpotInstanceRequest>> spotInstancesByIdInRegion(final Multimap<String, String> idsByRegions) {
       return new Function<String, Set<SpotInstanceRequest>>() {
 
          @Override
          public Set<SpotInstanceRequest> apply(String from) {
-            return client.getSpotInstanceApi().get()
-               .describeSpotInstanceRequestsInRegion(from, toArray(idsByRegions.get(from), String.class));
+            return client.getSpotInstanceApi().get().describeSpotInstanceRequestsInRegionWithFilter(from,
+                  ImmutableMultimap.<String, String> builder().putAll("spot-instance-request-id", idsByRegions.get(from))
+                        .build());
          }
       };
    }
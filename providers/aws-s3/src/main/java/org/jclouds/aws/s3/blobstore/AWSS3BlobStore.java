@@ -21,8 +21,10 @@ import static org.jclouds.s3.domain.ObjectMetadata.StorageClass.REDUCED_REDUNDAN
 import java.util.Set;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.jclouds.Constants;
 import org.jclouds.aws.domain.Region;
 import org.jclouds.aws.s3.AWSS3Client;
 import org.jclouds.aws.s3.blobstore.options.AWSS3PutObjectOptions;
@@ -55,6 +57,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * Provide AWS S3 specific extensions.
@@ -72,10 +75,11 @@ public class AWSS3BlobStore extends S3BlobStore {
             ObjectToBlob object2Blob, BlobToHttpGetOptions blob2ObjectGetOptions, BlobToObject blob2Object,
             BlobToObjectMetadata blob2ObjectMetadata,
             ObjectToBlobMetadata object2BlobMd, Provider<FetchBlobMetadata> fetchBlobMetadataProvider,
-            LoadingCache<String, AccessControlList> bucketAcls) {
+            LoadingCache<String, AccessControlList> bucketAcls,
+            @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor) {
       super(context, blobUtils, defaultLocation, locations, slicer, sync, convertBucketsToStorageMetadata,
                container2BucketListOptions, bucket2ResourceList, object2Blob, blob2ObjectGetOptions, blob2Object,
-               blob2ObjectMetadata, object2BlobMd, fetchBlobMetadataProvider, bucketAcls);
+               blob2ObjectMetadata, object2BlobMd, fetchBlobMetadataProvider, bucketAcls, userExecutor);
       this.bucketAcls = bucketAcls;
       this.blob2Object = blob2Object;
    }
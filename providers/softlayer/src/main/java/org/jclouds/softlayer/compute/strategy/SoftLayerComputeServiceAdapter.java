@@ -351,7 +351,7 @@ public class SoftLayerComputeServiceAdapter implements
 
          @Override
          public boolean apply(VirtualGuest server) {
-            return contains(ids, server.getId());
+            return contains(ids, String.valueOf(server.getId()));
          }
       });
    }
@@ -231,6 +231,11 @@ public class InitScript extends ForwardingObject implements Statement, AcceptsSt
                               .put("exitstatus",
                                     newStatementList(call("default"),
                                           interpret("[ -f $LOG_DIR/rc ] && cat $LOG_DIR/rc")))
+                              .put("waitexit",
+                                    newStatementList(call("default"),
+                                          interpret("while [ ! -f $LOG_DIR/rc ] && findPid $INSTANCE_NAME; "
+                                                + "do sleep 1; done{lf}"),
+                                          interpret("[ -f $LOG_DIR/rc ] && cat $LOG_DIR/rc || true")))
                               .put("tail",
                                     newStatementList(call("default"),
                                           interpret("tail {varl}LOG_DIR{varr}{fs}stdout.log{lf}")))